@@ -0,0 +1,83 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of a single item of a bulk operation. The index refers to the position of the item in the request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JsonBulkResult {
+
+   public static final String INDEX = "index";
+   public static final String ID = "id";
+   public static final String ERROR = "error";
+
+   private final int index;
+   private final String id;
+   private final String error;
+
+   @JsonCreator
+   public JsonBulkResult(@JsonProperty(INDEX) final int index,
+         @JsonProperty(ID) final String id,
+         @JsonProperty(ERROR) final String error) {
+      this.index = index;
+      this.id = id;
+      this.error = error;
+   }
+
+   public static JsonBulkResult success(final int index, final String id) {
+      return new JsonBulkResult(index, id, null);
+   }
+
+   public static JsonBulkResult failure(final int index, final String id, final String error) {
+      return new JsonBulkResult(index, id, error);
+   }
+
+   public int getIndex() {
+      return index;
+   }
+
+   public String getId() {
+      return id;
+   }
+
+   public String getError() {
+      return error;
+   }
+
+   @JsonIgnore
+   public boolean isSuccessful() {
+      return error == null;
+   }
+
+   @Override
+   public String toString() {
+      return "JsonBulkResult{" +
+            "index=" + index +
+            ", id='" + id + '\'' +
+            ", error='" + error + '\'' +
+            '}';
+   }
+}
@@ -0,0 +1,92 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+
+/**
+ * Progress of a running or finished import. The error is set only when the import failed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JsonImportProgress implements Serializable {
+
+   public static final String COLLECTION_CODE = "collectionCode";
+   public static final String IMPORTED = "imported";
+   public static final String FINISHED = "finished";
+   public static final String ERROR = "error";
+
+   private final String collectionCode;
+   private final long imported;
+   private final boolean finished;
+   private final String error;
+
+   @JsonCreator
+   public JsonImportProgress(@JsonProperty(COLLECTION_CODE) final String collectionCode,
+         @JsonProperty(IMPORTED) final long imported,
+         @JsonProperty(FINISHED) final boolean finished,
+         @JsonProperty(ERROR) final String error) {
+      this.collectionCode = collectionCode;
+      this.imported = imported;
+      this.finished = finished;
+      this.error = error;
+   }
+
+   public static JsonImportProgress running(final String collectionCode, final long imported) {
+      return new JsonImportProgress(collectionCode, imported, false, null);
+   }
+
+   public static JsonImportProgress finished(final String collectionCode, final long imported) {
+      return new JsonImportProgress(collectionCode, imported, true, null);
+   }
+
+   public static JsonImportProgress failed(final String collectionCode, final long imported, final String error) {
+      return new JsonImportProgress(collectionCode, imported, true, error);
+   }
+
+   public String getCollectionCode() {
+      return collectionCode;
+   }
+
+   public long getImported() {
+      return imported;
+   }
+
+   public boolean isFinished() {
+      return finished;
+   }
+
+   public String getError() {
+      return error;
+   }
+
+   @Override
+   public String toString() {
+      return "JsonImportProgress{" +
+            "collectionCode='" + collectionCode + '\'' +
+            ", imported=" + imported +
+            ", finished=" + finished +
+            ", error='" + error + '\'' +
+            '}';
+   }
+}
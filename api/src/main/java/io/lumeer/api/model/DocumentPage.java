@@ -0,0 +1,53 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.api.model;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * One page of documents read by keyset or page number paging.
+ */
+@Immutable
+public class DocumentPage {
+
+   private final List<Document> documents;
+   private final String nextLastId;
+
+   public DocumentPage(final List<Document> documents, final String nextLastId) {
+      this.documents = Collections.unmodifiableList(documents);
+      this.nextLastId = nextLastId;
+   }
+
+   public List<Document> getDocuments() {
+      return documents;
+   }
+
+   /**
+    * Gets the id to continue the keyset paging after this page. It is the id of the last stored document of the page,
+    * even when that document was not returned, so that the following pages never skip nor repeat any document.
+    *
+    * @return The id to continue after, null when this is the last page.
+    */
+   public String getNextLastId() {
+      return nextLastId;
+   }
+}
@@ -26,10 +26,16 @@ public class Pagination {
 
    private final Integer page;
    private final Integer pageSize;
+   private final String lastId;
 
    public Pagination(final Integer page, final Integer pageSize) {
+      this(page, pageSize, null);
+   }
+
+   public Pagination(final Integer page, final Integer pageSize, final String lastId) {
       this.page = page;
       this.pageSize = pageSize;
+      this.lastId = lastId;
    }
 
    public Integer getPage() {
@@ -39,4 +45,8 @@ public class Pagination {
    public Integer getPageSize() {
       return pageSize;
    }
+
+   public String getLastId() {
+      return lastId;
+   }
 }
@@ -102,6 +102,52 @@ public final class LumeerConst {
          public static final String ATTR_TO_ID = "to_id";
          public static final String ATTR_ATTRIBUTES = "attributes";
       }
+
+      public class Graph {
+         public static final String ENABLED_PROPERTY = "lumeer.linking.graphIndex";
+         public static final String ATTR_COLLECTION = "collection";
+         public static final String ATTR_DISTANCE = "distance";
+      }
+   }
+
+   public static class Batch {
+      public static final String CHUNK_SIZE_PROPERTY = "lumeer.batch.chunkSize";
+      public static final int DEFAULT_CHUNK_SIZE = 1000;
+      public static final String TASK_TYPE = "batch";
+   }
+
+   public static class Version {
+      public static final String SNAPSHOT_INTERVAL_PROPERTY = "lumeer.versions.snapshotInterval";
+      public static final int DEFAULT_SNAPSHOT_INTERVAL = 1; // each version is stored as a full copy
+      public static final String RETENTION_COUNT_PROPERTY = "lumeer.versions.retentionCount";
+      public static final String RETENTION_DAYS_PROPERTY = "lumeer.versions.retentionDays";
+      public static final String TASK_TYPE = "versionCompaction";
+
+      public static final String DELTA_BASE_KEY = Document.METADATA_PREFIX + "delta-base";
+      public static final String DELTA_SET_KEY = Document.METADATA_PREFIX + "delta-set";
+      public static final String DELTA_UNSET_KEY = Document.METADATA_PREFIX + "delta-unset";
+   }
+
+   public static class Task {
+      public static final String COLLECTION_NAME = "_system-task";
+      public static final String WORKERS_PROPERTY = "lumeer.tasks.workers";
+      public static final int DEFAULT_WORKERS = 4;
+      public static final String ORGANIZATION_WORKERS_PROPERTY = "lumeer.tasks.organizationWorkers";
+      public static final int DEFAULT_ORGANIZATION_WORKERS = 2;
+
+      public static final String ATTR_TYPE = "type";
+      public static final String ATTR_ORGANIZATION = "organization";
+      public static final String ATTR_PROJECT = "project";
+      public static final String ATTR_USER = "user";
+      public static final String ATTR_STATE = "state";
+      public static final String ATTR_PARAMETERS = "parameters";
+      public static final String ATTR_CHECKPOINT = "checkpoint";
+      public static final String ATTR_TOTAL = "total";
+      public static final String ATTR_PROCESSED = "processed";
+      public static final String ATTR_ERROR = "error";
+      public static final String ATTR_CREATE_DATE = "create-date";
+      public static final String ATTR_START_DATE = "start-date";
+      public static final String ATTR_FINISH_DATE = "finish-date";
    }
 
    public static class Document {
@@ -34,4 +34,17 @@ public interface CacheFactory {
     * @return A fresh cache of given type.
     */
    <T> Cache<T> getCache();
+
+   /**
+    * Obtains a fresh cache of given type configured for the given cache name.
+    *
+    * @param cacheName
+    *       Name of the cache used to look up its configuration (size and expiration limits).
+    * @param <T>
+    *       Type of values stored in the cache.
+    * @return A fresh cache of given type.
+    */
+   default <T> Cache<T> getCache(final String cacheName) {
+      return getCache();
+   }
 }
@@ -0,0 +1,47 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.api.cache;
+
+/**
+ * Broadcasts cache key invalidations between application nodes so that long-lived caches on all nodes stay coherent.
+ * A node never receives its own invalidations.
+ */
+public interface CacheInvalidationChannel {
+
+   /**
+    * Notifies all other nodes that the given cache entry is no longer valid.
+    *
+    * @param cacheName
+    *       Name of the cache.
+    * @param key
+    *       Entry key, null to invalidate the whole cache.
+    */
+   void publish(final String cacheName, final String key);
+
+   /**
+    * Registers a listener receiving invalidations of the given cache published by other nodes.
+    *
+    * @param cacheName
+    *       Name of the cache.
+    * @param listener
+    *       Listener to call on invalidation.
+    */
+   void subscribe(final String cacheName, final CacheInvalidationListener listener);
+}
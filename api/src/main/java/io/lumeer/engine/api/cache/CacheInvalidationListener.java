@@ -0,0 +1,35 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.api.cache;
+
+/**
+ * Receives cache invalidations from {@link CacheInvalidationChannel}.
+ */
+@FunctionalInterface
+public interface CacheInvalidationListener {
+
+   /**
+    * Called when another node invalidated an entry.
+    *
+    * @param key
+    *       Entry key, null when the whole cache was invalidated.
+    */
+   void onInvalidation(final String key);
+}
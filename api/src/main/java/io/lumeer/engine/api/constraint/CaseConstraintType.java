@@ -40,7 +40,7 @@ public class CaseConstraintType implements ConstraintType {
    private static final String FIRST_UPPER_CASE = "firstUpper";
    private static final String FIRST_LOWER_CASE = "firstLower";
 
-   private Locale locale;
+   private Locale locale = Locale.getDefault();
 
    @Override
    public Set<String> getRegisteredPrefixes() {
@@ -52,6 +52,8 @@ public class CaseConstraintType implements ConstraintType {
       final String[] config = constraintConfiguration.split(":", 2);
 
       if (config.length == 2 && CONSTRAINT_PREFIX.equals(config[0])) {
+         final Locale locale = this.locale;
+
          switch (config[1]) {
             case LOWER_CASE:
                return new FixingFunctionConstraint(
@@ -20,14 +20,12 @@
 package io.lumeer.engine.api.constraint;
 
 import java.text.DateFormat;
-import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -82,10 +80,10 @@ public final class Coders {
     * Gets a function that encodes strings of given format to Date and keeps Date as is.
     *
     * @param format
-    *       A format to parse string to Date.
+    *       A format to parse string to Date, one instance per thread.
     * @return A function that encodes strings of given format to Date and keeps Date as is.
     */
-   static BiFunction<Object, Class, Object> getDateEncodeFunction(final DateFormat format) {
+   static BiFunction<Object, Class, Object> getDateEncodeFunction(final ThreadLocal<DateFormat> format) {
       return (o, t) -> {
          if (t != null && t != Date.class) {
             return null;
@@ -96,7 +94,7 @@ public final class Coders {
          }
 
          try {
-            return format.parse(o.toString().trim());
+            return format.get().parse(o.toString().trim());
          } catch (ParseException e) {
             return null;
          }
@@ -107,17 +105,17 @@ public final class Coders {
     * Gets a function that decodes a String to Date based on the provided DateFormat.
     *
     * @param format
-    *       A format to decode to Date.
+    *       A format to decode to Date, one instance per thread.
     * @return A function that decodes a String to Date based on the provided DateFormat.
     */
-   static Function<Object, Object> getDateDecodeFunction(final DateFormat format) {
+   static Function<Object, Object> getDateDecodeFunction(final ThreadLocal<DateFormat> format) {
       return o -> {
          if (o instanceof String) {
             return o;
          }
 
          if (o instanceof Date) {
-            return format.format((Date) o);
+            return format.get().format((Date) o);
          }
 
          return o.toString();
@@ -170,21 +168,6 @@ public final class Coders {
       };
    }
 
-   /**
-    * Tries to convert the parameter to a number (either integer, double or big decimal) and return it.
-    *
-    * @param value
-    *       The value to try to convert to number.
-    * @return The value converted to a number data type or null when the conversion was not possible.
-    */
-   static Number encodeNumber(final Locale locale, final Object value) {
-      final DecimalFormat df = (DecimalFormat) DecimalFormat.getNumberInstance(locale);
-      df.setParseBigDecimal(true);
-      final NumberFormat nf = NumberFormat.getNumberInstance(locale);
-
-      return encodeNumber(nf, df, value);
-   }
-
    /**
     * Tries to convert the parameter to a number (either integer, double or big decimal) and return it.
     *
@@ -223,12 +206,12 @@ public final class Coders {
     * Gets a function that decodes String to a Number (integer, double or big decimal as needed).
     *
     * @param nf
-    *       Number format to encode to integer or double.
+    *       Number format to encode to integer or double, one instance per thread.
     * @param big
-    *       Number format to encode to big decimal.
+    *       Number format to encode to big decimal, one instance per thread.
     * @return A function that decodes String to a Number (integer, double or big decimal as needed).
     */
-   static BiFunction<Object, Class, Object> getNumberEncodeFunction(final NumberFormat nf, final NumberFormat big) {
+   static BiFunction<Object, Class, Object> getNumberEncodeFunction(final ThreadLocal<NumberFormat> nf, final ThreadLocal<NumberFormat> big) {
       return (o, t) -> {
          if (t != null && t != Number.class) {
             return null;
@@ -240,7 +223,7 @@ public final class Coders {
 
          final String trim = o.toString().replaceAll(" ", "");
 
-         return encodeNumber(nf, big, trim);
+         return encodeNumber(nf.get(), big != null ? big.get() : null, trim);
       };
    }
 
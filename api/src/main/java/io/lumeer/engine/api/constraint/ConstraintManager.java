@@ -32,6 +32,8 @@ import java.util.stream.Collectors;
 
 /**
  * Holds a list of constraints that can be obtained from a list of string configurations.
+ * The manager is not thread-safe, however, the current constraints can be compiled to an immutable {@link ConstraintPlan}
+ * that can be shared among threads.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -53,12 +55,17 @@ public class ConstraintManager {
    private Map<String, ConstraintType> registry = new HashMap<>();
 
    /**
-    * List of all constraint type classes.
+    * All constraint types, each manager has its own instances as they hold the locale.
     */
-   private static final ConstraintType[] CONSTRAINT_CLASSES = {
+   private final ConstraintType[] constraintTypes = {
          new NumberConstraintType(), new CaseConstraintType(), new ListConstraintType(), new MatchesConstraintType(), new DateTimeConstraintType()
    };
 
+   /**
+    * Compiled form of the current constraints.
+    */
+   private ConstraintPlan plan;
+
    /**
     * Initializes an empty constraint manager.
     *
@@ -68,7 +75,7 @@ public class ConstraintManager {
    public ConstraintManager() throws InvalidConstraintException {
       final List<String> collisions = new ArrayList<>();
 
-      for (final ConstraintType type : CONSTRAINT_CLASSES) {
+      for (final ConstraintType type : constraintTypes) {
          type.getRegisteredPrefixes().forEach(prefix -> {
             if (registry.containsKey(prefix)) {
                collisions.add(prefix);
@@ -81,6 +88,8 @@ public class ConstraintManager {
       if (collisions.size() > 0) {
          throw new InvalidConstraintException("Multiple constraint types found for the following configuration prefixes: " + String.join(", ", collisions));
       }
+
+      updatePlan();
    }
 
    /**
@@ -92,12 +101,33 @@ public class ConstraintManager {
     *       When it was not possible to parse constraint configuration.
     */
    public ConstraintManager(final List<String> constraintConfigurations) throws InvalidConstraintException {
+      this(constraintConfigurations, null);
+   }
+
+   /**
+    * Creates a new manager with the constraints whose configurations are provided using the given locale.
+    *
+    * @param constraintConfigurations
+    *       Configurations of constraints.
+    * @param locale
+    *       Locale that will be passed to all constraints.
+    * @throws InvalidConstraintException
+    *       When it was not possible to parse constraint configuration.
+    */
+   public ConstraintManager(final List<String> constraintConfigurations, final Locale locale) throws InvalidConstraintException {
       this();
+
+      if (locale != null) {
+         setLocale(locale);
+      }
+
       constraints = parseConstraints(constraintConfigurations);
 
       if (!checkConstraintCompatibility(constraints)) {
          throw new InvalidConstraintException("Incompatible constraints detected. The constraints cannot work with the same data types.");
       }
+
+      updatePlan();
    }
 
    /**
@@ -114,6 +144,7 @@ public class ConstraintManager {
 
       if (checkConstraintCompatibility(allConstraints)) {
          constraints.add(constraint);
+         updatePlan();
       } else {
          throw new InvalidConstraintException("Incompatible constraints detected. The constraints cannot work with the same data types.");
       }
@@ -135,6 +166,7 @@ public class ConstraintManager {
 
       if (checkConstraintCompatibility(allConstraints)) {
          constraints.addAll(newConstraints);
+         updatePlan();
       } else {
          throw new InvalidConstraintException("Incompatible constraints detected. The constraints cannot work with the same data types.");
       }
@@ -164,6 +196,15 @@ public class ConstraintManager {
       return constraints.stream().map(Constraint::getConfigurationString).collect(Collectors.toList());
    }
 
+   /**
+    * Gets the compiled form of the current constraints. The plan does not change when the manager is modified later.
+    *
+    * @return The compiled form of the current constraints.
+    */
+   public ConstraintPlan getPlan() {
+      return plan;
+   }
+
    /**
     * Validates the given value with all constraints.
     *
@@ -172,18 +213,7 @@ public class ConstraintManager {
     * @return Validation result.
     */
    public Constraint.ConstraintResult isValid(final String value) {
-      Constraint.ConstraintResult result = Constraint.ConstraintResult.VALID;
-
-      for (final Constraint constraint : constraints) {
-         Constraint.ConstraintResult r = constraint.isValid(value);
-
-         // can make the result only worse
-         if (r.ordinal() > result.ordinal()) {
-            result = r;
-         }
-      }
-
-      return result;
+      return plan.isValid(value);
    }
 
    /**
@@ -194,39 +224,7 @@ public class ConstraintManager {
     * @return The fixed value or null when it was not possible to fix the value so that all constraint are met.
     */
    public String fix(String value) {
-      return tryToFix(new HashSet<>(), value);
-   }
-
-   /**
-    * Internal helper that tries to fix the value.
-    *
-    * @param used
-    *       Constraints that were already tried to fix the value.
-    * @param value
-    *       The value to fix.
-    * @return The fixed value or null when it was not possible to fix the value so that all constraint are met.
-    */
-   private String tryToFix(final Set<Constraint> used, final String value) {
-      for (final Constraint c : constraints) {
-         if (!used.contains(c)) {
-            Constraint.ConstraintResult r = c.isValid(value);
-            if (r == Constraint.ConstraintResult.INVALID) { // no way of moving forward
-               return null;
-            } else if (r == Constraint.ConstraintResult.FIXABLE) { // apply the fix
-               final String fixed = c.fix(value);
-
-               used.add(c);
-
-               if (fixed != null) {
-                  return tryToFix(used, c.fix(value)); // try the next round
-               } else {
-                  return null;
-               }
-            }
-         }
-      }
-
-      return value;
+      return plan.fix(value);
    }
 
    /**
@@ -306,14 +304,22 @@ public class ConstraintManager {
    }
 
    /**
-    * Gets the currently used locale.
+    * Gets the currently used locale. The locale is used by the constraints registered after it was set.
     *
     * @param locale
     *       The currently used locale.
     */
    public void setLocale(final Locale locale) {
       this.locale = locale;
-      Arrays.asList(CONSTRAINT_CLASSES).forEach(ct -> ct.setLocale(locale));
+      Arrays.asList(constraintTypes).forEach(ct -> ct.setLocale(locale));
+      updatePlan();
+   }
+
+   /**
+    * Compiles the current constraints so that the encoded type is resolved just once.
+    */
+   private void updatePlan() {
+      plan = new ConstraintPlan(constraints, constraints.isEmpty() ? null : getCommonTypes(constraints).iterator().next(), locale);
    }
 
    /**
@@ -357,31 +363,11 @@ public class ConstraintManager {
     * @return The same value with changed data type.
     */
    public Object encode(final Object value) {
-      if (constraints.size() == 0) {
-
-         if (locale == null) {
-            throw new IllegalStateException("No locale was set in ConstraintManager. Please use function setLocale() so it can encode correctly.");
-         }
-
-         final Number n = Coders.encodeNumber(locale, value);
-         return n == null ? value : n;
-      }
-
-      // let's simply use the first available constraint and first available type
-      return constraints.get(0).encode(value, getCommonTypes(constraints).iterator().next());
+      return plan.encode(value);
    }
 
    public Object decode(final Object value) {
-      if (constraints.size() == 0) {
-         if (value != null && !(value instanceof String)) {
-            return value.toString();
-         }
-
-         return value;
-      }
-
-      // use the first constraint available
-      return constraints.get(0).decode(value);
+      return plan.decode(value);
    }
 
 }
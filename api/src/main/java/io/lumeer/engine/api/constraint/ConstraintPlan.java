@@ -0,0 +1,212 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.api.constraint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable compiled form of constraints of a single attribute. All the parsing and type resolution is done once
+ * when the plan is created, so the plan can be cached and shared by all threads encoding and decoding values.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public final class ConstraintPlan {
+
+   /**
+    * Compiled constraints.
+    */
+   private final List<Constraint> constraints;
+
+   /**
+    * The type used to store values in database, null when there are no constraints.
+    */
+   private final Class encodedType;
+
+   /**
+    * Locale the constraints were compiled for.
+    */
+   private final Locale locale;
+
+   /**
+    * Formats used to encode values without any constraint.
+    */
+   private final NumberFormats numberFormats;
+
+   ConstraintPlan(final List<Constraint> constraints, final Class encodedType, final Locale locale) {
+      this.constraints = Collections.unmodifiableList(new ArrayList<>(constraints));
+      this.encodedType = encodedType;
+      this.locale = locale;
+      this.numberFormats = locale != null ? new NumberFormats(locale) : null;
+   }
+
+   /**
+    * Compiles the given constraint configurations.
+    *
+    * @param constraintConfigurations
+    *       Configurations of constraints.
+    * @param locale
+    *       Locale used by the constraints.
+    * @return The compiled constraints.
+    * @throws InvalidConstraintException
+    *       When it was not possible to parse constraint configuration or the constraints were incompatible.
+    */
+   public static ConstraintPlan compile(final List<String> constraintConfigurations, final Locale locale) throws InvalidConstraintException {
+      return new ConstraintManager(constraintConfigurations, locale).getPlan();
+   }
+
+   /**
+    * Gets the compiled constraints.
+    *
+    * @return The unmodifiable list of compiled constraints.
+    */
+   public List<Constraint> getConstraints() {
+      return constraints;
+   }
+
+   /**
+    * Gets list of configurations of the compiled constraints.
+    *
+    * @return The list of configurations of the compiled constraints.
+    */
+   public List<String> getConstraintConfigurations() {
+      return constraints.stream().map(Constraint::getConfigurationString).collect(Collectors.toList());
+   }
+
+   /**
+    * Gets the locale the constraints were compiled for.
+    *
+    * @return The locale the constraints were compiled for.
+    */
+   public Locale getLocale() {
+      return locale;
+   }
+
+   /**
+    * Validates the given value with all constraints.
+    *
+    * @param value
+    *       The value to validate.
+    * @return Validation result.
+    */
+   public Constraint.ConstraintResult isValid(final String value) {
+      Constraint.ConstraintResult result = Constraint.ConstraintResult.VALID;
+
+      for (final Constraint constraint : constraints) {
+         Constraint.ConstraintResult r = constraint.isValid(value);
+
+         // can make the result only worse
+         if (r.ordinal() > result.ordinal()) {
+            result = r;
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Tries to fix the value so that all constraints return {@link io.lumeer.engine.api.constraint.Constraint.ConstraintResult#VALID}.
+    *
+    * @param value
+    *       The value to fix.
+    * @return The fixed value or null when it was not possible to fix the value so that all constraint are met.
+    */
+   public String fix(final String value) {
+      return tryToFix(new HashSet<>(), value);
+   }
+
+   /**
+    * Internal helper that tries to fix the value.
+    *
+    * @param used
+    *       Constraints that were already tried to fix the value.
+    * @param value
+    *       The value to fix.
+    * @return The fixed value or null when it was not possible to fix the value so that all constraint are met.
+    */
+   private String tryToFix(final Set<Constraint> used, final String value) {
+      for (final Constraint c : constraints) {
+         if (!used.contains(c)) {
+            Constraint.ConstraintResult r = c.isValid(value);
+            if (r == Constraint.ConstraintResult.INVALID) { // no way of moving forward
+               return null;
+            } else if (r == Constraint.ConstraintResult.FIXABLE) { // apply the fix
+               final String fixed = c.fix(value);
+
+               used.add(c);
+
+               if (fixed != null) {
+                  return tryToFix(used, fixed); // try the next round
+               } else {
+                  return null;
+               }
+            }
+         }
+      }
+
+      return value;
+   }
+
+   /**
+    * Encodes the given value to a data type suitable for database storage based on the constraints.
+    *
+    * @param value
+    *       The value to convert.
+    * @return The same value with changed data type.
+    */
+   public Object encode(final Object value) {
+      if (constraints.isEmpty()) {
+         if (numberFormats == null) {
+            throw new IllegalStateException("No locale was set in ConstraintManager. Please use function setLocale() so it can encode correctly.");
+         }
+
+         final Number n = Coders.encodeNumber(numberFormats.number.get(), numberFormats.bigNumber.get(), value);
+         return n == null ? value : n;
+      }
+
+      // let's simply use the first available constraint and first available type
+      return constraints.get(0).encode(value, encodedType);
+   }
+
+   /**
+    * Decodes the given value from the database to a data type suitable for user.
+    *
+    * @param value
+    *       The value to convert.
+    * @return The same value with changed data type.
+    */
+   public Object decode(final Object value) {
+      if (constraints.isEmpty()) {
+         if (value != null && !(value instanceof String)) {
+            return value.toString();
+         }
+
+         return value;
+      }
+
+      // use the first constraint available
+      return constraints.get(0).decode(value);
+   }
+}
@@ -42,7 +42,7 @@ public class DateTimeConstraintType implements ConstraintType {
          "yyMMddHHmmssZ", "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "yyyy-MM-dd'T'HH:mm:ss.SSSXXX", "YYYY-'W'ww-u"));
    private static final Set<String> REGISTERED = new HashSet<>(Arrays.asList("date", "dateTime", "time"));
 
-   private Locale locale;
+   private Locale locale = Locale.getDefault();
 
    @Override
    public Set<String> getRegisteredPrefixes() {
@@ -55,11 +55,16 @@ public class DateTimeConstraintType implements ConstraintType {
 
       if (config.length == 2) {
          try {
-            final DateFormat format = new SimpleDateFormat(config[1], locale);
+            final Locale locale = this.locale;
+            final String pattern = config[1];
+
+            // validates the pattern, the constraint then uses a separate format in each thread
+            new SimpleDateFormat(pattern, locale);
+            final ThreadLocal<DateFormat> format = ThreadLocal.withInitial(() -> new SimpleDateFormat(pattern, locale));
 
             return new FunctionConstraint(value -> {
                try {
-                  format.parse(value.trim());
+                  format.get().parse(value.trim());
                   return true;
                } catch (ParseException pe) {
                   return false;
@@ -46,6 +46,7 @@ public class ListConstraintType implements ConstraintType {
       final String[] config = constraintConfiguration.split(":", 2);
 
       if (config.length == 2) {
+         final Locale locale = this.locale;
          final Set<String> options = new HashSet<>();
          final Set<String> optionsLowerCase = new HashSet<>();
 
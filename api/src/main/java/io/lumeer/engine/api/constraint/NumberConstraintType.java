@@ -19,8 +19,6 @@
  */
 package io.lumeer.engine.api.constraint;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -49,17 +47,9 @@ public class NumberConstraintType implements ConstraintType {
    private static final String EQUALS = "equals";
 
    /**
-    * Number format respecting given locale.
+    * Number formats respecting given locale.
     */
-   private NumberFormat numberFormat = NumberFormat.getNumberInstance();
-   private NumberFormat bigNumberFormat = NumberFormat.getNumberInstance();
-   private NumberFormat integerNumberFormat = NumberFormat.getIntegerInstance();
-   private NumberFormat currencyNumberFormat = NumberFormat.getNumberInstance();
-
-   public NumberConstraintType() {
-      ((DecimalFormat) currencyNumberFormat).setParseBigDecimal(true);
-      ((DecimalFormat) bigNumberFormat).setParseBigDecimal(true);
-   }
+   private NumberFormats formats = new NumberFormats(Locale.getDefault(Locale.Category.FORMAT));
 
    @Override
    public Set<String> getRegisteredPrefixes() {
@@ -72,80 +62,81 @@ public class NumberConstraintType implements ConstraintType {
    @Override
    public Constraint parseConstraint(final String constraintConfiguration) throws InvalidConstraintException {
       final String[] config = constraintConfiguration.split(":", 2);
+      final NumberFormats formats = this.formats;
 
       switch (config[0]) {
          case IS_NUMBER:
             return new FunctionConstraint(value -> {
                try {
-                  numberFormat.parse(value.replaceAll(" ", ""));
+                  formats.number.get().parse(value.replaceAll(" ", ""));
                   return true;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(numberFormat, bigNumberFormat), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.number, formats.bigNumber), Coders.getIdentityDecodeFunction(), Number.class);
          case IS_INTEGER:
             return new FunctionConstraint(value -> {
                try {
-                  integerNumberFormat.parse(value.replaceAll(" ", "")).intValue();
+                  formats.integer.get().parse(value.replaceAll(" ", "")).intValue();
                   return true;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(integerNumberFormat, bigNumberFormat), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.integer, formats.bigNumber), Coders.getIdentityDecodeFunction(), Number.class);
          case IS_MONETARY:
             return new FunctionConstraint(value -> {
                try {
-                  currencyNumberFormat.parse(value.replaceAll(" ", ""));
+                  formats.currency.get().parse(value.replaceAll(" ", ""));
                   return true;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(currencyNumberFormat, null), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.currency, null), Coders.getIdentityDecodeFunction(), Number.class);
          case LESS_THAN:
             final double ltParam = checkParameter(config, constraintConfiguration);
             return new FunctionConstraint(value -> {
                try {
-                  return numberFormat.parse(value.replaceAll(" ", "")).doubleValue() < ltParam;
+                  return formats.number.get().parse(value.replaceAll(" ", "")).doubleValue() < ltParam;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(numberFormat, bigNumberFormat), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.number, formats.bigNumber), Coders.getIdentityDecodeFunction(), Number.class);
          case GREATER_THAN:
             final double gtParam = checkParameter(config, constraintConfiguration);
             return new FunctionConstraint(value -> {
                try {
-                  return numberFormat.parse(value.replaceAll(" ", "")).doubleValue() > gtParam;
+                  return formats.number.get().parse(value.replaceAll(" ", "")).doubleValue() > gtParam;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(numberFormat, bigNumberFormat), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.number, formats.bigNumber), Coders.getIdentityDecodeFunction(), Number.class);
          case GREATER_OR_EQUALS:
             final double gteParam = checkParameter(config, constraintConfiguration);
             return new FunctionConstraint(value -> {
                try {
-                  return numberFormat.parse(value.replaceAll(" ", "")).doubleValue() >= gteParam;
+                  return formats.number.get().parse(value.replaceAll(" ", "")).doubleValue() >= gteParam;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(numberFormat, bigNumberFormat), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.number, formats.bigNumber), Coders.getIdentityDecodeFunction(), Number.class);
          case LESS_OR_EQUALS:
             final double lteParam = checkParameter(config, constraintConfiguration);
             return new FunctionConstraint(value -> {
                try {
-                  return numberFormat.parse(value.replaceAll(" ", "")).doubleValue() <= lteParam;
+                  return formats.number.get().parse(value.replaceAll(" ", "")).doubleValue() <= lteParam;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(numberFormat, bigNumberFormat), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.number, formats.bigNumber), Coders.getIdentityDecodeFunction(), Number.class);
          case EQUALS:
             final double eqParam = checkParameter(config, constraintConfiguration);
             return new FunctionConstraint(value -> {
                try {
-                  return numberFormat.parse(value.replaceAll(" ", "")).doubleValue() == eqParam;
+                  return formats.number.get().parse(value.replaceAll(" ", "")).doubleValue() == eqParam;
                } catch (ParseException pe) {
                   return false;
                }
-            }, constraintConfiguration, Coders.getNumberEncodeFunction(numberFormat, bigNumberFormat), Coders.getIdentityDecodeFunction(), Number.class);
+            }, constraintConfiguration, Coders.getNumberEncodeFunction(formats.number, formats.bigNumber), Coders.getIdentityDecodeFunction(), Number.class);
          default:
             throw new InvalidConstraintException("Unable to parse constraint configuration: " + constraintConfiguration);
       }
@@ -172,12 +163,7 @@ public class NumberConstraintType implements ConstraintType {
 
    @Override
    public void setLocale(final Locale locale) {
-      numberFormat = NumberFormat.getInstance(locale);
-      integerNumberFormat = NumberFormat.getIntegerInstance(locale);
-      currencyNumberFormat = NumberFormat.getNumberInstance(locale);
-      ((DecimalFormat) currencyNumberFormat).setParseBigDecimal(true);
-      bigNumberFormat = NumberFormat.getNumberInstance(locale);
-      ((DecimalFormat) bigNumberFormat).setParseBigDecimal(true);
+      formats = new NumberFormats(locale);
    }
 
    @Override
@@ -191,7 +177,7 @@ public class NumberConstraintType implements ConstraintType {
 
       values.forEach(s -> {
          try {
-            double d = numberFormat.parse(s.replaceAll(" ", "")).doubleValue();
+            double d = formats.number.get().parse(s.replaceAll(" ", "")).doubleValue();
             numbers.increment();
             stats.put("min", Math.min(d, stats.get("min")));
             stats.put("max", Math.min(d, stats.get("max")));
@@ -200,7 +186,7 @@ public class NumberConstraintType implements ConstraintType {
          }
 
          try {
-            integerNumberFormat.parse(s.replaceAll(" ", "")).intValue();
+            formats.integer.get().parse(s.replaceAll(" ", "")).intValue();
             integers.increment();
          } catch (ParseException pe) {
             // nps
@@ -0,0 +1,51 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.api.constraint;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Number formats of a single locale. Number formats are not thread-safe, so each thread gets its own instances.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+final class NumberFormats {
+
+   final ThreadLocal<NumberFormat> number;
+   final ThreadLocal<NumberFormat> integer;
+   final ThreadLocal<NumberFormat> bigNumber;
+   final ThreadLocal<NumberFormat> currency;
+
+   NumberFormats(final Locale locale) {
+      number = ThreadLocal.withInitial(() -> NumberFormat.getNumberInstance(locale));
+      integer = ThreadLocal.withInitial(() -> NumberFormat.getIntegerInstance(locale));
+      bigNumber = ThreadLocal.withInitial(() -> getBigDecimalInstance(locale));
+      currency = ThreadLocal.withInitial(() -> getBigDecimalInstance(locale));
+   }
+
+   private static NumberFormat getBigDecimalInstance(final Locale locale) {
+      final DecimalFormat format = (DecimalFormat) NumberFormat.getNumberInstance(locale);
+      format.setParseBigDecimal(true);
+
+      return format;
+   }
+}
@@ -25,7 +25,9 @@ import io.lumeer.engine.api.exception.UnsuccessfulOperationException;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Represents a data storage.
@@ -146,6 +148,18 @@ public interface DataStorage extends Serializable {
     */
    void createOldDocument(final String collectionName, final DataDocument document, String documentId, int version) throws UnsuccessfulOperationException;
 
+   /**
+    * Creates and inserts old documents to specified collection in a single bulk operation.
+    * Each document is stored under its id and its current version, backups that already exist are skipped.
+    *
+    * @param collectionName
+    *       the name of the collection where the documents will be created
+    * @param documents
+    *       the DataDocument objects representing documents to be created, each must contain its id and version
+    * @return indexes of the documents that were skipped because their backups already existed
+    */
+   List<Integer> createOldDocuments(final String collectionName, final List<DataDocument> documents);
+
    /**
     * Reads the specified document in given collection by filter.
     *
@@ -182,6 +196,16 @@ public interface DataStorage extends Serializable {
     */
    void updateDocument(final String collectionName, final DataDocument updatedDocument, final DataFilter filter);
 
+   /**
+    * Updates existing documents in given collection by their ids in a single bulk operation.
+    *
+    * @param collectionName
+    *       the name of the collection where the existing documents are located
+    * @param updatedDocuments
+    *       the DataDocument objects representing the updated attributes, each must contain its id
+    */
+   void updateDocuments(final String collectionName, final List<DataDocument> updatedDocuments);
+
    /**
     * Replace an existing document in given collection by filter.
     *
@@ -194,6 +218,30 @@ public interface DataStorage extends Serializable {
     */
    void replaceDocument(final String collectionName, final DataDocument replaceDocument, final DataFilter filter);
 
+   /**
+    * Replaces existing documents in given collection by their ids in a single bulk operation.
+    *
+    * @param collectionName
+    *       the name of the collection where the existing documents are located
+    * @param replaceDocuments
+    *       the DataDocument objects representing the documents, each must contain its id
+    */
+   void replaceDocuments(final String collectionName, final List<DataDocument> replaceDocuments);
+
+   /**
+    * Replaces existing documents in given collection by their ids in a single bulk operation, but only those documents
+    * whose version has not changed since they were read.
+    *
+    * @param collectionName
+    *       the name of the collection where the existing documents are located
+    * @param replaceDocuments
+    *       the DataDocument objects representing the documents, each must contain its id
+    * @param expectedVersions
+    *       the versions of the documents as they were read, by the document ids
+    * @return the ids of the documents that were not replaced because they were changed or removed in the meantime
+    */
+   Set<String> replaceDocuments(final String collectionName, final List<DataDocument> replaceDocuments, final Map<String, Integer> expectedVersions);
+
    /**
     * Drops an existing document in given collection by filter.
     *
@@ -374,6 +422,25 @@ public interface DataStorage extends Serializable {
     */
    List<DataDocument> search(final String collectionName, final DataFilter filter, final DataSort sort, final List<String> attributes, final int skip, final int limit);
 
+   /**
+    * Searches the specified collection for specified documents and returns them lazily as the underlying cursor advances.
+    * Documents are converted one by one, so the whole result is never held in memory. The returned stream holds an open
+    * database cursor and must be closed by the caller (e.g. in a try-with-resources block).
+    *
+    * @param collectionName
+    *       the name of the collection where the run will be performed
+    * @param filter
+    *       the query predicate. If unspecified, then all documents in the collection will match the predicate.
+    * @param sort
+    *       the sort specification for the ordering of the results. If unspecified, then a sort is equivalent to setting no sort.
+    * @param attributes
+    *       list of attribute names. If unspecified, then whole documents are returned.
+    * @param batchSize
+    *       the number of documents fetched from the database in one round-trip. A batch size of 0 is equivalent to the database default.
+    * @return the stream of the found documents
+    */
+   Stream<DataDocument> stream(final String collectionName, final DataFilter filter, final DataSort sort, final List<String> attributes, final int batchSize);
+
    /**
     * Counts the number of document in the collection optionally meeting the filter criteria.
     *
@@ -47,12 +47,24 @@ public interface DataStorageDialect extends Serializable {
 
    DataFilter documentNestedIdFilterWithVersion(final String documentId, final int version);
 
+   DataFilter documentNestedIdsFilter(final List<String> documentIds);
+
+   DataFilter documentNestedIdsFilterWithVersions(final Map<String, Integer> documentVersions);
+
    DataFilter documentIdFilter(final String documentId);
 
+   DataFilter documentIdsFilter(final List<String> documentIds);
+
+   DataFilter documentIdGreaterThanFilter(final String documentId);
+
+   DataFilter fieldValuesFilter(final String fieldName, final List<?> values);
+
    DataFilter multipleFieldsValueFilter(final Map<String, Object> fields);
 
    DataFilter combineFilters(DataFilter... filters);
 
+   DataFilter anyOfFilters(DataFilter... filters);
+
    DataFilter collectionPermissionsRoleFilter(final String role, final String user, final List<String> groups);
 
    DataSort documentSort(final String documentSort);
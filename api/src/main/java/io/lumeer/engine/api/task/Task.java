@@ -19,14 +19,25 @@
  */
 package io.lumeer.engine.api.task;
 
-import java.io.Serializable;
-
 /**
- * A task that can be processed.
+ * A type of long-running operation processed in the background by the task workers.
+ * Implementations are application scoped beans; a task instance is described by its stored parameters and
+ * any state needed to continue the work must be kept in the checkpoint of the {@link TaskContext}.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
-public interface Task extends Serializable {
+public interface Task {
+
+   /**
+    * @return The type of tasks processed by this implementation.
+    */
+   String getType();
 
-   void process();
+   /**
+    * Processes the task. A resumed task continues from the checkpoint in the context.
+    *
+    * @param context
+    *       The context of the task being processed.
+    */
+   void process(TaskContext context);
 }
@@ -0,0 +1,71 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.api.task;
+
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataStorage;
+
+/**
+ * Gives a running {@link Task} access to its parameters and lets it report progress.
+ * The context does not depend on any request or session, it can be used from worker threads.
+ */
+public interface TaskContext {
+
+   String getTaskId();
+
+   /**
+    * @return Email of the user who created the task.
+    */
+   String getUser();
+
+   DataDocument getParameters();
+
+   /**
+    * @return The user data storage of the organization the task belongs to.
+    */
+   DataStorage getDataStorage();
+
+   /**
+    * @return The checkpoint stored with the last progress update or null when the task has just started.
+    */
+   DataDocument getCheckpoint();
+
+   /**
+    * @return The number of processed items stored with the last progress update.
+    */
+   long getProcessed();
+
+   /**
+    * @return True when the task should stop as soon as possible. A stopped task can be resumed from its checkpoint.
+    */
+   boolean isCancelled();
+
+   /**
+    * Stores the progress of the task. The checkpoint must allow the task to continue after the already processed items.
+    *
+    * @param processed
+    *       The number of processed items.
+    * @param total
+    *       The total number of items.
+    * @param checkpoint
+    *       The state to resume from.
+    */
+   void updateProgress(long processed, long total, DataDocument checkpoint);
+}
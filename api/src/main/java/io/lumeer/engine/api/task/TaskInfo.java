@@ -0,0 +1,139 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.api.task;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.data.DataDocument;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+import java.util.Date;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * State and progress of a task processed in the background.
+ */
+@Immutable
+public class TaskInfo implements Serializable {
+
+   public enum State {
+      QUEUED, RUNNING, FINISHED, CANCELLED, FAILED;
+
+      public boolean isCompleted() {
+         return this == FINISHED || this == CANCELLED || this == FAILED;
+      }
+   }
+
+   private final String id;
+   private final String type;
+   private final State state;
+   private final long total;
+   private final long processed;
+   private final String error;
+   private final String user;
+   private final Date createDate;
+   private final Date startDate;
+   private final Date finishDate;
+
+   public TaskInfo(final DataDocument task) {
+      this(task.getId(),
+            task.getString(LumeerConst.Task.ATTR_TYPE),
+            State.valueOf(task.getString(LumeerConst.Task.ATTR_STATE)),
+            task.getLong(LumeerConst.Task.ATTR_TOTAL, 0),
+            task.getLong(LumeerConst.Task.ATTR_PROCESSED, 0),
+            task.getString(LumeerConst.Task.ATTR_ERROR),
+            task.getString(LumeerConst.Task.ATTR_USER),
+            task.getDate(LumeerConst.Task.ATTR_CREATE_DATE),
+            task.getDate(LumeerConst.Task.ATTR_START_DATE),
+            task.getDate(LumeerConst.Task.ATTR_FINISH_DATE));
+   }
+
+   @JsonCreator
+   public TaskInfo(final @JsonProperty("id") String id, final @JsonProperty("type") String type, final @JsonProperty("state") State state,
+         final @JsonProperty("total") long total, final @JsonProperty("processed") long processed, final @JsonProperty("error") String error,
+         final @JsonProperty("user") String user, final @JsonProperty("createDate") Date createDate,
+         final @JsonProperty("startDate") Date startDate, final @JsonProperty("finishDate") Date finishDate) {
+      this.id = id;
+      this.type = type;
+      this.state = state;
+      this.total = total;
+      this.processed = processed;
+      this.error = error;
+      this.user = user;
+      this.createDate = createDate;
+      this.startDate = startDate;
+      this.finishDate = finishDate;
+   }
+
+   public String getId() {
+      return id;
+   }
+
+   public String getType() {
+      return type;
+   }
+
+   public State getState() {
+      return state;
+   }
+
+   public long getTotal() {
+      return total;
+   }
+
+   public long getProcessed() {
+      return processed;
+   }
+
+   public String getError() {
+      return error;
+   }
+
+   public String getUser() {
+      return user;
+   }
+
+   public Date getCreateDate() {
+      return createDate;
+   }
+
+   public Date getStartDate() {
+      return startDate;
+   }
+
+   public Date getFinishDate() {
+      return finishDate;
+   }
+
+   @Override
+   public String toString() {
+      return "TaskInfo{" +
+            "id='" + id + '\'' +
+            ", type='" + type + '\'' +
+            ", state=" + state +
+            ", total=" + total +
+            ", processed=" + processed +
+            ", error='" + error + '\'' +
+            ", user='" + user + '\'' +
+            '}';
+   }
+}
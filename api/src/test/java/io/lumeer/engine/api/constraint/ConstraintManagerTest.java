@@ -9,10 +9,15 @@ import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
@@ -228,4 +233,63 @@ public class ConstraintManagerTest {
          cm2.registerConstraint("matches:^abc.*");
       }).isInstanceOf(InvalidConstraintException.class).hasMessageContaining("data types");
    }
-}
\ No newline at end of file
+
+   @Test
+   public void testConstraintPlan() throws Exception {
+      final ConstraintManager cm = new ConstraintManager(Arrays.asList("isNumber", "lessThan:10"), l);
+      final ConstraintPlan plan = cm.getPlan();
+
+      assertThat(plan.getLocale()).isEqualTo(l);
+      assertThat(plan.getConstraintConfigurations()).containsExactly("isNumber", "lessThan:10");
+      assertThat(plan.isValid("5")).isEqualTo(Constraint.ConstraintResult.VALID);
+      assertThat(plan.isValid("15")).isEqualTo(Constraint.ConstraintResult.INVALID);
+      assertThat(plan.encode("5")).isEqualTo(5L);
+
+      cm.registerConstraint("greaterThan:2");
+      assertThat(plan.getConstraints()).hasSize(2);
+      assertThat(cm.getPlan().getConstraints()).hasSize(3);
+      assertThat(cm.isValid("1")).isEqualTo(Constraint.ConstraintResult.INVALID);
+
+      assertThatThrownBy(() -> {
+         plan.getConstraints().clear();
+      }).isInstanceOf(UnsupportedOperationException.class);
+
+      assertThat(ConstraintPlan.compile(Collections.singletonList("case:upper"), l).fix("ahoj")).isEqualTo("AHOJ");
+   }
+
+   @Test
+   public void testConcurrentEncoding() throws Exception {
+      final String pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+      final ConstraintPlan datePlan = ConstraintPlan.compile(Collections.singletonList("date:" + pattern), l);
+      final ConstraintPlan numberPlan = ConstraintPlan.compile(Collections.singletonList("isNumber"), l);
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+      try {
+         final List<Future<Boolean>> results = new ArrayList<>();
+
+         for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            results.add(executor.submit(() -> {
+               final SimpleDateFormat format = new SimpleDateFormat(pattern, l);
+               boolean correct = true;
+
+               for (int i = 0; i < 2000; i++) {
+                  final Date date = new Date(1234567890L * thread + i * 1000L);
+                  final String value = format.format(date);
+                  correct &= date.equals(datePlan.encode(value));
+                  correct &= value.equals(datePlan.decode(date));
+                  correct &= Long.valueOf(thread * 10000L + i).equals(numberPlan.encode(String.valueOf(thread * 10000L + i)));
+               }
+
+               return correct;
+            }));
+         }
+
+         for (final Future<Boolean> result : results) {
+            assertThat(result.get()).isTrue();
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.api.constraint;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures encode/decode throughput of compiled constraints per constraint type.
+ * It is not run with the tests, start it manually with optional arguments &lt;threads&gt; &lt;seconds&gt;.
+ *
+ * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ */
+public class ConstraintPlanBenchmark {
+
+   private static final Locale LOCALE = Locale.US;
+   private static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+   public static void main(final String[] args) throws Exception {
+      final int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+      final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+      final Map<String, Object> samples = new LinkedHashMap<>();
+      samples.put("", "123.45");
+      samples.put("isNumber", "123.45");
+      samples.put("isInteger", "12345");
+      samples.put("isMonetary", "123.45");
+      samples.put("lessThan:1000", "123.45");
+      samples.put("case:lower", "ahoj");
+      samples.put("oneOf:a,b,c,d", "c");
+      samples.put("tags:a,b,c,d", "a, c");
+      samples.put("matches:^abc.*", "abcdef");
+      samples.put("date:" + DATE_PATTERN, new SimpleDateFormat(DATE_PATTERN, LOCALE).format(new Date()));
+
+      // warm up
+      for (final Map.Entry<String, Object> sample : samples.entrySet()) {
+         measure(compile(sample.getKey()), sample.getValue(), threads, 1);
+      }
+
+      for (final Map.Entry<String, Object> sample : samples.entrySet()) {
+         final long operations = measure(compile(sample.getKey()), sample.getValue(), threads, seconds);
+         System.out.printf("%-40s %,15d ops/s%n", sample.getKey().isEmpty() ? "<none>" : sample.getKey(), operations / seconds);
+      }
+   }
+
+   private static ConstraintPlan compile(final String configuration) throws InvalidConstraintException {
+      return ConstraintPlan.compile(configuration.isEmpty() ? Collections.emptyList() : Collections.singletonList(configuration), LOCALE);
+   }
+
+   private static long measure(final ConstraintPlan plan, final Object value, final int threads, final int seconds) throws InterruptedException {
+      final ExecutorService executor = Executors.newFixedThreadPool(threads);
+      final LongAdder operations = new LongAdder();
+      final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+      for (int i = 0; i < threads; i++) {
+         executor.submit(() -> {
+            long count = 0;
+
+            while (System.nanoTime() < end) {
+               if (plan.decode(plan.encode(value)) == null) {
+                  throw new IllegalStateException("Unable to encode value " + value + " with " + plan.getConstraintConfigurations());
+               }
+               count++;
+            }
+
+            operations.add(count);
+         });
+      }
+
+      executor.shutdown();
+      executor.awaitTermination(seconds + 10, TimeUnit.SECONDS);
+
+      return operations.sum();
+   }
+}
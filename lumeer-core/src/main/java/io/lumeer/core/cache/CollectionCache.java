@@ -0,0 +1,234 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.cache;
+
+import io.lumeer.api.SelectedWorkspace;
+import io.lumeer.api.dto.JsonAttribute;
+import io.lumeer.api.dto.JsonCollection;
+import io.lumeer.api.model.Attribute;
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Project;
+import io.lumeer.engine.api.cache.Cache;
+import io.lumeer.engine.api.cache.CacheFactory;
+import io.lumeer.engine.api.cache.CacheInvalidationChannel;
+import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.event.RemoveCollection;
+import io.lumeer.storage.api.event.UpdateCollection;
+import io.lumeer.storage.api.event.UpdateCollectionStatistics;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Caches collections by their project and code. The cache is invalidated by the events fired by {@link CollectionDao}
+ * and by the invalidations published by other nodes. Callers always get their own copy of the collection, so they are
+ * free to modify it.
+ *
+ * <p>Every invalidation increments a generation counter. A value read from the database is kept only when no invalidation
+ * happened while it was being read, so a slow reader can never put back a value that was invalidated in the meantime.
+ * A cached collection is valid only together with its id entry, which makes the two caches behave as one when either
+ * of them evicts an entry.</p>
+ */
+@ApplicationScoped
+public class CollectionCache {
+
+   private static final String COLLECTION_CACHE = "collections";
+   private static final String COLLECTION_KEY_CACHE = "collectionKeys";
+
+   @Inject
+   private CacheFactory cacheFactory;
+
+   @Inject
+   private CacheInvalidationChannel invalidationChannel;
+
+   @Inject
+   private CollectionDao collectionDao;
+
+   @Inject
+   private SelectedWorkspace selectedWorkspace;
+
+   private Cache<Collection> collectionCache;
+
+   // project and collection id -> key of the collection cache, needed when a collection is renamed or deleted by its id
+   private Cache<String> collectionKeyCache;
+
+   private final AtomicLong generation = new AtomicLong();
+
+   public CollectionCache() {
+   }
+
+   CollectionCache(final CacheFactory cacheFactory, final CacheInvalidationChannel invalidationChannel, final CollectionDao collectionDao, final SelectedWorkspace selectedWorkspace) {
+      this.cacheFactory = cacheFactory;
+      this.invalidationChannel = invalidationChannel;
+      this.collectionDao = collectionDao;
+      this.selectedWorkspace = selectedWorkspace;
+   }
+
+   @PostConstruct
+   public void initCaches() {
+      collectionCache = cacheFactory.getCache(COLLECTION_CACHE);
+      collectionKeyCache = cacheFactory.getCache(COLLECTION_KEY_CACHE);
+
+      invalidationChannel.subscribe(COLLECTION_CACHE, key -> {
+         generation.incrementAndGet();
+         if (key != null) {
+            collectionCache.remove(key);
+         } else {
+            collectionCache.clear();
+            collectionKeyCache.clear();
+         }
+      });
+
+      // other nodes publish the id of a removed collection, its code is known only to the nodes that cached it
+      invalidationChannel.subscribe(COLLECTION_KEY_CACHE, idKey -> {
+         generation.incrementAndGet();
+         removeById(idKey);
+      });
+   }
+
+   public Collection getCollection(String collectionCode) {
+      Optional<Project> project = selectedWorkspace.getProject();
+      if (!project.isPresent()) {
+         return collectionDao.getCollectionByCode(collectionCode);
+      }
+
+      String projectId = project.get().getId();
+      String key = key(projectId, collectionCode);
+      Collection collection = getCachedCollection(projectId, key);
+      if (collection == null) {
+         long readGeneration = generation.get();
+         collection = new JsonCollection(collectionDao.getCollectionByCode(collectionCode));
+         collectionKeyCache.set(key(projectId, collection.getId()), key);
+         setIfCurrent(key, collection, readGeneration);
+      }
+      return new JsonCollection(collection);
+   }
+
+   private Collection getCachedCollection(String projectId, String key) {
+      Collection collection = collectionCache.get(key);
+      if (collection != null && key.equals(collectionKeyCache.get(key(projectId, collection.getId())))) {
+         return collection;
+      }
+      return null;
+   }
+
+   private void setIfCurrent(String key, Collection collection, long readGeneration) {
+      collectionCache.set(key, collection);
+      if (generation.get() != readGeneration) {
+         // an invalidation may have run between the read and the write, it must win
+         collectionCache.remove(key);
+      }
+   }
+
+   /**
+    * Drops the updated collection instead of storing the one from the event. Concurrent updates can deliver their
+    * events in a different order than they were written, so the next read loads the collection again.
+    */
+   public void onUpdateCollection(@Observes UpdateCollection event) {
+      String key = key(event.getProjectId(), event.getCollection().getCode());
+      String idKey = key(event.getProjectId(), event.getCollectionId());
+
+      generation.incrementAndGet();
+      String previousKey = collectionKeyCache.remove(idKey);
+      if (previousKey != null && !previousKey.equals(key)) {
+         collectionCache.remove(previousKey);
+         invalidationChannel.publish(COLLECTION_CACHE, previousKey);
+      }
+
+      collectionCache.remove(key);
+      invalidationChannel.publish(COLLECTION_CACHE, key);
+   }
+
+   /**
+    * Applies the statistics increments to the cached collection. The increments are not broadcast to other nodes,
+    * their statistics catch up when the cached entries expire or the collection is updated.
+    */
+   public void onUpdateCollectionStatistics(@Observes UpdateCollectionStatistics event) {
+      String key = collectionKeyCache.get(key(event.getProjectId(), event.getCollectionId()));
+      if (key != null) {
+         collectionCache.lock(key);
+         try {
+            long readGeneration = generation.get();
+            Collection cachedCollection = getCachedCollection(event.getProjectId(), key);
+            if (cachedCollection != null) {
+               setIfCurrent(key, applyStatistics(new JsonCollection(cachedCollection), event), readGeneration);
+            }
+         } finally {
+            collectionCache.unlock(key);
+         }
+      }
+
+      // a reader that loaded the collection before the increments were written must not keep its counts
+      generation.incrementAndGet();
+   }
+
+   private static Collection applyStatistics(Collection collection, UpdateCollectionStatistics event) {
+      event.getAttributesUsage().forEach((attributeName, count) -> {
+         Attribute attribute = collection.getAttributes().stream()
+                                         .filter(a -> a.getFullName().equals(attributeName))
+                                         .findFirst()
+                                         .orElse(new JsonAttribute(attributeName, attributeName, Collections.emptySet(), 0));
+         attribute.setUsageCount((attribute.getUsageCount() != null ? attribute.getUsageCount() : 0) + count);
+         collection.updateAttribute(attributeName, attribute);
+      });
+
+      int documentsCount = collection.getDocumentsCount() != null ? collection.getDocumentsCount() : 0;
+      collection.setDocumentsCount(documentsCount + event.getDocumentsCount());
+
+      LocalDateTime lastTimeUsed = collection.getLastTimeUsed();
+      if (lastTimeUsed == null || (event.getLastTimeUsed() != null && event.getLastTimeUsed().isAfter(lastTimeUsed))) {
+         collection.setLastTimeUsed(event.getLastTimeUsed());
+      }
+      return collection;
+   }
+
+   public void onRemoveCollection(@Observes RemoveCollection event) {
+      String idKey = key(event.getProjectId(), event.getCollectionId());
+
+      generation.incrementAndGet();
+      removeById(idKey);
+      invalidationChannel.publish(COLLECTION_KEY_CACHE, idKey);
+   }
+
+   private void removeById(String idKey) {
+      String previousKey = collectionKeyCache.remove(idKey);
+      if (previousKey != null) {
+         collectionCache.remove(previousKey);
+      }
+   }
+
+   public void clear() {
+      generation.incrementAndGet();
+      collectionCache.clear();
+      collectionKeyCache.clear();
+      invalidationChannel.publish(COLLECTION_CACHE, null);
+   }
+
+   private static String key(String projectId, String suffix) {
+      return projectId + "/" + suffix;
+   }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.cache;
+
+import io.lumeer.api.dto.JsonImportProgress;
+import io.lumeer.engine.api.cache.Cache;
+import io.lumeer.engine.api.cache.CacheFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Keeps the progress of imports so that it can be read by other requests of the user who started the import.
+ * A finished import is forgotten once its final state has been read.
+ */
+@ApplicationScoped
+public class ImportProgressCache {
+
+   private static final String IMPORT_CACHE = "imports";
+
+   @Inject
+   private CacheFactory cacheFactory;
+
+   private Cache<JsonImportProgress> importCache;
+
+   @PostConstruct
+   public void initCache() {
+      importCache = cacheFactory.getCache(IMPORT_CACHE);
+   }
+
+   public void setProgress(String username, String importId, JsonImportProgress progress) {
+      importCache.set(getKey(username, importId), progress);
+   }
+
+   public JsonImportProgress getProgress(String username, String importId) {
+      String key = getKey(username, importId);
+      JsonImportProgress progress = importCache.get(key);
+      if (progress != null && progress.isFinished()) {
+         importCache.remove(key);
+      }
+      return progress;
+   }
+
+   private static String getKey(String username, String importId) {
+      return username + "\n" + importId;
+   }
+}
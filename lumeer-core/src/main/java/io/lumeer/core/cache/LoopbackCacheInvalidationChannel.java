@@ -0,0 +1,68 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.cache;
+
+import io.lumeer.engine.api.cache.CacheInvalidationChannel;
+import io.lumeer.engine.api.cache.CacheInvalidationListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * In-JVM invalidation channel. Channels joined to the same network behave like separate nodes,
+ * which makes it possible to test cache coherence without a cluster.
+ */
+@Vetoed
+public class LoopbackCacheInvalidationChannel implements CacheInvalidationChannel {
+
+   private final Set<LoopbackCacheInvalidationChannel> network;
+   private final Map<String, List<CacheInvalidationListener>> listeners = new ConcurrentHashMap<>();
+
+   public LoopbackCacheInvalidationChannel() {
+      this.network = ConcurrentHashMap.newKeySet();
+      this.network.add(this);
+   }
+
+   public LoopbackCacheInvalidationChannel(final LoopbackCacheInvalidationChannel peer) {
+      this.network = peer.network;
+      this.network.add(this);
+   }
+
+   @Override
+   public void publish(final String cacheName, final String key) {
+      network.stream()
+             .filter(node -> node != this)
+             .forEach(node -> node.deliver(cacheName, key));
+   }
+
+   @Override
+   public void subscribe(final String cacheName, final CacheInvalidationListener listener) {
+      listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+   }
+
+   private void deliver(final String cacheName, final String key) {
+      listeners.getOrDefault(cacheName, new CopyOnWriteArrayList<>())
+               .forEach(listener -> listener.onInvalidation(key));
+   }
+}
@@ -23,6 +23,7 @@ import io.lumeer.api.model.User;
 import io.lumeer.core.model.SimpleUser;
 import io.lumeer.engine.api.cache.Cache;
 import io.lumeer.engine.api.cache.CacheFactory;
+import io.lumeer.engine.api.cache.CacheInvalidationChannel;
 import io.lumeer.storage.api.dao.UserDao;
 
 import java.util.Optional;
@@ -33,9 +34,14 @@ import javax.inject.Inject;
 @ApplicationScoped
 public class UserCache {
 
+   private static final String USER_CACHE = "users";
+
    @Inject
    private CacheFactory cacheFactory;
 
+   @Inject
+   private CacheInvalidationChannel invalidationChannel;
+
    @Inject
    private UserDao userDao;
 
@@ -43,7 +49,16 @@ public class UserCache {
 
    @PostConstruct
    public void initCache() {
-      userCache = cacheFactory.getCache();
+      userCache = cacheFactory.getCache(USER_CACHE);
+      invalidationChannel.subscribe(USER_CACHE, this::invalidate);
+   }
+
+   private void invalidate(String username) {
+      if (username != null) {
+         userCache.remove(username);
+      } else {
+         userCache.clear();
+      }
    }
 
    public User getUser(String username) {
@@ -60,16 +75,14 @@ public class UserCache {
       return userDao.createUser(user); // TODO remove this for production
    }
 
-   public void updateUser(String username, User user) {
-      userCache.set(username, user);
-   }
-
-   public void remoteUser(String username) {
+   public void removeUser(String username) {
       userCache.remove(username);
+      invalidationChannel.publish(USER_CACHE, username);
    }
 
    public void clear() {
       userCache.clear();
+      invalidationChannel.publish(USER_CACHE, null);
    }
 
 }
@@ -23,6 +23,7 @@ import io.lumeer.api.model.Organization;
 import io.lumeer.api.model.Project;
 import io.lumeer.engine.api.cache.Cache;
 import io.lumeer.engine.api.cache.CacheFactory;
+import io.lumeer.engine.api.cache.CacheInvalidationChannel;
 import io.lumeer.storage.api.dao.OrganizationDao;
 import io.lumeer.storage.api.dao.ProjectDao;
 
@@ -33,9 +34,15 @@ import javax.inject.Inject;
 @ApplicationScoped
 public class WorkspaceCache {
 
+   private static final String ORGANIZATION_CACHE = "organizations";
+   private static final String PROJECT_CACHE = "projects";
+
    @Inject
    private CacheFactory cacheFactory;
 
+   @Inject
+   private CacheInvalidationChannel invalidationChannel;
+
    @Inject
    private OrganizationDao organizationDao;
 
@@ -47,8 +54,19 @@ public class WorkspaceCache {
 
    @PostConstruct
    public void initCaches() {
-      organizationCache = cacheFactory.getCache();
-      projectCache = cacheFactory.getCache();
+      organizationCache = cacheFactory.getCache(ORGANIZATION_CACHE);
+      projectCache = cacheFactory.getCache(PROJECT_CACHE);
+
+      invalidationChannel.subscribe(ORGANIZATION_CACHE, code -> invalidate(organizationCache, code));
+      invalidationChannel.subscribe(PROJECT_CACHE, code -> invalidate(projectCache, code));
+   }
+
+   private static void invalidate(Cache<?> cache, String code) {
+      if (code != null) {
+         cache.remove(code);
+      } else {
+         cache.clear();
+      }
    }
 
    public Organization getOrganization(String organizationCode) {
@@ -59,25 +77,21 @@ public class WorkspaceCache {
       return projectCache.computeIfAbsent(projectCode, code -> projectDao.getProjectByCode(code));
    }
 
-   public void updateOrganization(String organizationCode, Organization organization) {
-      organizationCache.set(organizationCode, organization);
-   }
-
-   public void updateProject(String projectCode, Project project) {
-      projectCache.set(projectCode, project);
-   }
-
    public void removeOrganization(String organizationCode) {
       organizationCache.remove(organizationCode);
+      invalidationChannel.publish(ORGANIZATION_CACHE, organizationCode);
    }
 
    public void removeProject(String projectCode) {
       projectCache.remove(projectCode);
+      invalidationChannel.publish(PROJECT_CACHE, projectCode);
    }
 
    public void clear() {
       organizationCache.clear();
       projectCache.clear();
+      invalidationChannel.publish(ORGANIZATION_CACHE, null);
+      invalidationChannel.publish(PROJECT_CACHE, null);
    }
 
 }
@@ -75,6 +75,7 @@ abstract class AbstractFacade {
                         .groups(groups)
                         .page(pagination.getPage())
                         .pageSize(pagination.getPageSize())
+                        .lastId(pagination.getLastId())
                         .build();
    }
 }
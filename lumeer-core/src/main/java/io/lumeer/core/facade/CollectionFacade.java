@@ -27,8 +27,10 @@ import io.lumeer.api.model.Permissions;
 import io.lumeer.api.model.Project;
 import io.lumeer.api.model.ResourceType;
 import io.lumeer.api.model.Role;
+import io.lumeer.core.cache.CollectionCache;
 import io.lumeer.core.model.SimplePermission;
 import io.lumeer.core.util.CodeGenerator;
+import io.lumeer.core.util.IndexAdvisor;
 import io.lumeer.storage.api.dao.CollectionDao;
 import io.lumeer.storage.api.dao.DataDao;
 import io.lumeer.storage.api.dao.DocumentDao;
@@ -47,12 +49,18 @@ public class CollectionFacade extends AbstractFacade {
    @Inject
    private CollectionDao collectionDao;
 
+   @Inject
+   private CollectionCache collectionCache;
+
    @Inject
    private DataDao dataDao;
 
    @Inject
    private DocumentDao documentDao;
 
+   @Inject
+   private IndexAdvisor indexAdvisor;
+
    public Collection createCollection(Collection collection) {
       checkProjectWriteRole();
 
@@ -63,34 +71,26 @@ public class CollectionFacade extends AbstractFacade {
    }
 
    public Collection updateCollection(String collectionCode, Collection collection) {
-      Collection storedCollection = collectionDao.getCollectionByCode(collectionCode);
+      Collection storedCollection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(storedCollection, Role.MANAGE);
 
-      keepUnmodifiableFields(collection, storedCollection);
       Collection updatedCollection = collectionDao.updateCollection(storedCollection.getId(), collection);
       return keepOnlyActualUserRoles(updatedCollection);
    }
 
-   private void keepUnmodifiableFields(Collection collection, Collection storedCollection) {
-      keepStoredPermissions(collection, storedCollection.getPermissions());
-
-      collection.setAttributes(storedCollection.getAttributes());
-      collection.setDocumentsCount(storedCollection.getDocumentsCount());
-      collection.setLastTimeUsed(storedCollection.getLastTimeUsed());
-   }
-
    public void deleteCollection(String collectionCode) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
       String collectionId = collection.getId();
       collectionDao.deleteCollection(collectionId);
       documentDao.deleteDocuments(collectionId);
       dataDao.deleteDataRepository(collectionId);
+      indexAdvisor.clear(collectionId);
    }
 
    public Collection getCollection(String collectionCode) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.READ);
 
       return keepOnlyActualUserRoles(collection);
@@ -104,64 +104,62 @@ public class CollectionFacade extends AbstractFacade {
    }
 
    public Attribute updateCollectionAttribute(String collectionCode, String attributeFullName, Attribute attribute) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
-      collection.updateAttribute(attributeFullName, attribute);
-      collectionDao.updateCollection(collection.getId(), collection);
+      collectionDao.updateCollectionAttribute(collection.getId(), attributeFullName, attribute);
 
       return attribute;
    }
 
    public void deleteCollectionAttribute(String collectionCode, String attributeFullName) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
-      collection.deleteAttribute(attributeFullName);
-      collectionDao.updateCollection(collection.getId(), collection);
+      collectionDao.deleteCollectionAttribute(collection.getId(), attributeFullName);
    }
 
    public Permissions getCollectionPermissions(final String code) {
-      Collection collection = collectionDao.getCollectionByCode(code);
+      Collection collection = collectionCache.getCollection(code);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
       return collection.getPermissions();
    }
 
    public Set<Permission> updateUserPermissions(final String code, final Permission... userPermissions) {
-      Collection collection = collectionDao.getCollectionByCode(code);
+      Collection collection = collectionCache.getCollection(code);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
       collection.getPermissions().updateUserPermissions(userPermissions);
-      Collection updatedCollection = collectionDao.updateCollection(collection.getId(), collection);
+      Collection updatedCollection = collectionDao.updateCollectionPermissions(collection.getId(), collection.getPermissions());
 
       return updatedCollection.getPermissions().getUserPermissions();
    }
 
    public void removeUserPermission(final String code, final String user) {
-      Collection collection = collectionDao.getCollectionByCode(code);
+      Collection collection = collectionCache.getCollection(code);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
       collection.getPermissions().removeUserPermission(user);
-      collectionDao.updateCollection(collection.getId(), collection);
+      collectionDao.updateCollectionPermissions(collection.getId(), collection.getPermissions());
    }
 
    public Set<Permission> updateGroupPermissions(final String code, final Permission... groupPermissions) {
-      Collection collection = collectionDao.getCollectionByCode(code);
+      Collection collection = collectionCache.getCollection(code);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
       collection.getPermissions().updateGroupPermissions(groupPermissions);
-      Collection updatedCollection = collectionDao.updateCollection(collection.getId(), collection);
+      Collection updatedCollection = collectionDao.updateCollectionPermissions(collection.getId(), collection.getPermissions());
 
       return updatedCollection.getPermissions().getGroupPermissions();
    }
 
    public void removeGroupPermission(final String code, final String group) {
-      Collection collection = collectionDao.getCollectionByCode(code);
+      Collection collection = collectionCache.getCollection(code);
       permissionsChecker.checkRole(collection, Role.MANAGE);
 
       collection.getPermissions().removeGroupPermission(group);
-      collectionDao.updateCollection(collection.getId(), collection);
+      collectionDao.updateCollectionPermissions(collection.getId(), collection.getPermissions());
    }
 
    private void checkProjectWriteRole() {
@@ -19,38 +19,55 @@
  */
 package io.lumeer.core.facade;
 
-import io.lumeer.api.dto.JsonAttribute;
-import io.lumeer.api.model.Attribute;
+import io.lumeer.api.dto.JsonBulkResult;
+import io.lumeer.api.exception.LumeerException;
 import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.Document;
+import io.lumeer.api.model.DocumentPage;
 import io.lumeer.api.model.Pagination;
+import io.lumeer.api.model.ResourceType;
 import io.lumeer.api.model.Role;
+import io.lumeer.core.cache.CollectionCache;
 import io.lumeer.core.util.DocumentUtils;
+import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.storage.api.dao.CollectionDao;
 import io.lumeer.storage.api.dao.DataDao;
 import io.lumeer.storage.api.dao.DocumentDao;
+import io.lumeer.storage.api.exception.ResourceNotFoundException;
+import io.lumeer.storage.api.exception.VersionConflictException;
 import io.lumeer.storage.api.query.SearchQuery;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 
 @RequestScoped
 public class DocumentFacade extends AbstractFacade {
 
-   public static final Integer INITIAL_VERSION = 1;
+   public static final Integer INITIAL_VERSION = DataDao.INITIAL_VERSION;
+
+   private static final int DATA_BATCH_SIZE = 1000;
 
    @Inject
    private CollectionDao collectionDao;
 
+   @Inject
+   private CollectionCache collectionCache;
+
    @Inject
    private DataDao dataDao;
 
@@ -58,7 +75,7 @@ public class DocumentFacade extends AbstractFacade {
    private DocumentDao documentDao;
 
    public Document createDocument(String collectionCode, Document document) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.WRITE);
 
       DataDocument data = DocumentUtils.checkDocumentKeysValidity(document.getData());
@@ -74,117 +91,353 @@ public class DocumentFacade extends AbstractFacade {
    }
 
    private Document createDocument(Collection collection, Document document) {
+      addDocumentMetadata(collection, document);
+      return documentDao.createDocument(document);
+   }
+
+   private void addDocumentMetadata(Collection collection, Document document) {
       document.setCollectionId(collection.getId());
       document.setCreatedBy(authenticatedUser.getCurrentUsername());
       document.setCreationDate(LocalDateTime.now());
       document.setDataVersion(INITIAL_VERSION);
-      return documentDao.createDocument(document);
    }
 
    private void updateCollectionMetadataOnCreation(Collection collection, DataDocument data) {
-      Map<String, Attribute> oldAttributes = collection.getAttributes().stream()
-                                                       .collect(Collectors.toMap(Attribute::getFullName, Function.identity()));
-      Set<Attribute> newAttributes = new LinkedHashSet<>();
-
-      Set<String> attributeNames = DocumentUtils.getDocumentAttributes(data);
-      attributeNames.forEach(attributeName -> {
-         if (oldAttributes.containsKey(attributeName)) {
-            Attribute attribute = oldAttributes.get(attributeName);
-            attribute.setUsageCount(attribute.getUsageCount() + 1);
-         } else {
-            Attribute attribute = new JsonAttribute(attributeName, attributeName, Collections.emptySet(), 1);
-            newAttributes.add(attribute);
+      updateCollectionMetadataOnCreation(collection, Collections.singletonList(data));
+   }
+
+   private void updateCollectionMetadataOnCreation(Collection collection, List<DataDocument> data) {
+      Map<String, Integer> attributesUsage = new HashMap<>();
+      data.forEach(dataDocument -> DocumentUtils.getDocumentAttributes(dataDocument)
+                                                .forEach(attributeName -> attributesUsage.merge(attributeName, 1, Integer::sum)));
+      collectionDao.updateCollectionStatistics(collection.getId(), attributesUsage, data.size(), LocalDateTime.now());
+   }
+
+   /**
+    * Creates the documents in a single batch. Documents with invalid data are reported as failed, the rest is stored
+    * with one insert for the metadata, one insert for the data and one update of the collection statistics.
+    *
+    * @param collectionCode
+    *       Code of the collection to create the documents in.
+    * @param documents
+    *       Documents to create.
+    * @return Results of the individual documents in the order of the request.
+    */
+   public List<JsonBulkResult> createDocuments(String collectionCode, List<Document> documents) {
+      Collection collection = collectionCache.getCollection(collectionCode);
+      permissionsChecker.checkRole(collection, Role.WRITE);
+
+      List<JsonBulkResult> results = new ArrayList<>(Collections.nCopies(documents.size(), null));
+      List<Integer> validIndexes = new ArrayList<>();
+      List<Document> validDocuments = new ArrayList<>();
+      List<DataDocument> validData = new ArrayList<>();
+
+      for (int i = 0; i < documents.size(); i++) {
+         Document document = documents.get(i);
+         try {
+            DataDocument data = DocumentUtils.checkDocumentKeysValidity(document.getData() != null ? document.getData() : new DataDocument());
+            addDocumentMetadata(collection, document);
+            validIndexes.add(i);
+            validDocuments.add(document);
+            validData.add(data);
+         } catch (LumeerException e) {
+            results.set(i, JsonBulkResult.failure(i, null, e.getMessage()));
+         }
+      }
+
+      if (!validDocuments.isEmpty()) {
+         List<Document> storedDocuments = documentDao.createDocuments(validDocuments);
+         for (int i = 0; i < storedDocuments.size(); i++) {
+            validData.get(i).setId(storedDocuments.get(i).getId());
+         }
+         dataDao.createData(collection.getId(), validData);
+
+         for (int i = 0; i < storedDocuments.size(); i++) {
+            int index = validIndexes.get(i);
+            results.set(index, JsonBulkResult.success(index, storedDocuments.get(i).getId()));
          }
-      });
+         updateCollectionMetadataOnCreation(collection, validData);
+      }
 
-      newAttributes.addAll(oldAttributes.values());
-      collection.setAttributes(newAttributes);
-      collection.setDocumentsCount(collection.getDocumentsCount() + 1);
-      collection.setLastTimeUsed(LocalDateTime.now());
-      collectionDao.updateCollection(collection.getId(), collection);
+      return results;
    }
 
    public Document updateDocumentData(String collectionCode, String documentId, DataDocument data) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      return updateDocumentData(collectionCode, documentId, data, null);
+   }
+
+   /**
+    * Replaces the data of the document if it still has the expected data version.
+    *
+    * @param collectionCode
+    *       Code of the collection the document belongs to.
+    * @param documentId
+    *       Id of the document.
+    * @param data
+    *       New data of the document.
+    * @param expectedDataVersion
+    *       Data version the client has seen, null to update regardless of the stored version.
+    * @return The updated document.
+    */
+   public Document updateDocumentData(String collectionCode, String documentId, DataDocument data, Integer expectedDataVersion) {
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.WRITE);
 
       // TODO archive the old document
-      DataDocument updatedData = dataDao.updateData(collection.getId(), documentId, data);
-
-      Document updatedDocument = updateDocument(collection, documentId);
-      updatedDocument.setData(updatedData);
+      DataDocument updatedData = dataDao.updateData(collection.getId(), documentId, data, expectedDataVersion);
 
-      return updatedDocument;
+      return updateDocument(collection, documentId, updatedData);
    }
 
    public Document patchDocumentData(String collectionCode, String documentId, DataDocument data) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      return patchDocumentData(collectionCode, documentId, data, null);
+   }
+
+   /**
+    * Patches the data of the document if it still has the expected data version.
+    *
+    * @param collectionCode
+    *       Code of the collection the document belongs to.
+    * @param documentId
+    *       Id of the document.
+    * @param data
+    *       Data to patch.
+    * @param expectedDataVersion
+    *       Data version the client has seen, null to patch regardless of the stored version.
+    * @return The patched document.
+    */
+   public Document patchDocumentData(String collectionCode, String documentId, DataDocument data, Integer expectedDataVersion) {
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.WRITE);
 
       // TODO archive the old document
-      DataDocument patchedData = dataDao.patchData(collection.getId(), documentId, data);
-
-      Document updatedDocument = updateDocument(collection, documentId);
-      updatedDocument.setData(patchedData);
+      DataDocument patchedData = dataDao.patchData(collection.getId(), documentId, data, expectedDataVersion);
 
-      return updatedDocument;
+      return updateDocument(collection, documentId, patchedData);
    }
 
-   private Document updateDocument(Collection collection, String documentId) {
-      Document document = documentDao.getDocumentById(documentId);
-
-      document.setCollectionId(collection.getId());
-      document.setUpdatedBy(authenticatedUser.getCurrentUsername());
-      document.setUpdateDate(LocalDateTime.now());
-      document.setDataVersion(document.getDataVersion() + 1);
+   private Document updateDocument(Collection collection, String documentId, DataDocument data) {
+      // the data version is checked and incremented together with the data, the metadata only mirror it
+      int dataVersion = extractDataVersion(data);
+      Document document = documentDao.updateDataVersion(collection.getId(), documentId, dataVersion, authenticatedUser.getCurrentUsername(), LocalDateTime.now());
+      document.setCollectionCode(collection.getCode());
+      document.setDataVersion(dataVersion);
+      document.setData(data);
+      return document;
+   }
 
-      return documentDao.updateDocument(document.getId(), document);
+   private static int extractDataVersion(DataDocument data) {
+      Object version = data.remove(LumeerConst.Document.METADATA_VERSION_KEY);
+      return version != null ? ((Number) version).intValue() : 0;
    }
 
    public void deleteDocument(String collectionCode, String documentId) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.WRITE);
 
-      documentDao.deleteDocument(documentId);
+      List<String> documentIds = Collections.singletonList(documentId);
+      if (documentDao.getDocumentsByIds(collection.getId(), documentIds).isEmpty()) {
+         throw new ResourceNotFoundException(ResourceType.DOCUMENT);
+      }
+      documentDao.deleteDocuments(collection.getId(), documentIds);
 
       dataDao.deleteData(collection.getId(), documentId);
    }
 
+   /**
+    * Patches the data of several documents, each document is identified by its id and may carry the data version
+    * the client has seen. The documents are read, patched and their metadata updated with one request per store,
+    * whatever their count is.
+    *
+    * @param collectionCode
+    *       Code of the collection the documents belong to.
+    * @param documents
+    *       Documents with ids and the data to patch.
+    * @return Results of the individual documents in the order of the request.
+    */
+   public List<JsonBulkResult> patchDocumentsData(String collectionCode, List<Document> documents) {
+      Collection collection = collectionCache.getCollection(collectionCode);
+      permissionsChecker.checkRole(collection, Role.WRITE);
+
+      List<JsonBulkResult> results = new ArrayList<>(Collections.nCopies(documents.size(), null));
+      Map<String, Integer> indexes = new LinkedHashMap<>();
+      Map<String, DataDocument> data = new HashMap<>();
+      Map<String, Integer> expectedVersions = new HashMap<>();
+
+      for (int i = 0; i < documents.size(); i++) {
+         String documentId = documents.get(i).getId();
+         try {
+            if (documentId == null) {
+               throw new ResourceNotFoundException(ResourceType.DOCUMENT);
+            }
+            if (indexes.containsKey(documentId)) {
+               throw new IllegalArgumentException("Document " + documentId + " is patched more than once.");
+            }
+            data.put(documentId, DocumentUtils.checkDocumentKeysValidity(documents.get(i).getData()));
+            if (documents.get(i).getDataVersion() != null) {
+               expectedVersions.put(documentId, documents.get(i).getDataVersion());
+            }
+            indexes.put(documentId, i);
+         } catch (LumeerException | IllegalArgumentException e) {
+            results.set(i, JsonBulkResult.failure(i, documentId, e.getMessage()));
+         }
+      }
+
+      if (!indexes.isEmpty()) {
+         // documents of other collections are treated as not existing
+         Set<String> existingIds = documentDao.getDocumentsByIds(collection.getId(), new ArrayList<>(indexes.keySet())).stream()
+                                              .map(Document::getId)
+                                              .collect(Collectors.toSet());
+         data.keySet().retainAll(existingIds);
+
+         Map<String, Integer> dataVersions = dataDao.patchData(collection.getId(), data, expectedVersions);
+         documentDao.updateDataVersions(collection.getId(), dataVersions, authenticatedUser.getCurrentUsername(), LocalDateTime.now());
+
+         indexes.forEach((documentId, i) -> {
+            if (dataVersions.containsKey(documentId)) {
+               results.set(i, JsonBulkResult.success(i, documentId));
+            } else {
+               LumeerException e = existingIds.contains(documentId) ? new VersionConflictException(ResourceType.DOCUMENT) : new ResourceNotFoundException(ResourceType.DOCUMENT);
+               results.set(i, JsonBulkResult.failure(i, documentId, e.getMessage()));
+            }
+         });
+      }
+      return results;
+   }
+
+   /**
+    * Deletes several documents of one collection with one delete per store. Documents of other collections are
+    * reported as not found.
+    *
+    * @param collectionCode
+    *       Code of the collection the documents belong to.
+    * @param documentIds
+    *       Ids of the documents to delete.
+    * @return Results of the individual documents in the order of the request.
+    */
+   public List<JsonBulkResult> deleteDocuments(String collectionCode, List<String> documentIds) {
+      Collection collection = collectionCache.getCollection(collectionCode);
+      permissionsChecker.checkRole(collection, Role.WRITE);
+
+      List<String> validIds = documentIds.stream()
+                                         .filter(Objects::nonNull)
+                                         .distinct()
+                                         .collect(Collectors.toList());
+      List<String> existingIds = validIds.isEmpty() ? Collections.emptyList() :
+            documentDao.getDocumentsByIds(collection.getId(), validIds).stream()
+                       .map(Document::getId)
+                       .collect(Collectors.toList());
+
+      if (!existingIds.isEmpty()) {
+         documentDao.deleteDocuments(collection.getId(), existingIds);
+         dataDao.deleteData(collection.getId(), existingIds);
+      }
+
+      List<JsonBulkResult> results = new ArrayList<>(documentIds.size());
+      Set<String> deletedIds = new HashSet<>();
+      for (int i = 0; i < documentIds.size(); i++) {
+         String documentId = documentIds.get(i);
+         if (existingIds.contains(documentId) && deletedIds.add(documentId)) {
+            results.add(JsonBulkResult.success(i, documentId));
+         } else {
+            results.add(JsonBulkResult.failure(i, documentId, new ResourceNotFoundException(ResourceType.DOCUMENT).getMessage()));
+         }
+      }
+      return results;
+   }
+
    public Document getDocument(String collectionCode, String documentId) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.READ);
 
       Document document = documentDao.getDocumentById(documentId);
+      if (!collection.getId().equals(document.getCollectionId())) {
+         throw new ResourceNotFoundException(ResourceType.DOCUMENT);
+      }
       document.setCollectionCode(collectionCode);
 
       DataDocument data = dataDao.getData(collection.getId(), documentId);
+      document.setDataVersion(extractDataVersion(data));
       document.setData(data);
 
       return document;
    }
 
-   public List<Document> getDocuments(String collectionCode, Pagination pagination) {
-      Collection collection = collectionDao.getCollectionByCode(collectionCode);
+   /**
+    * Reads only the version of the document data, which is enough to decide whether a client has the current data.
+    *
+    * @param collectionCode
+    *       Code of the collection the document belongs to.
+    * @param documentId
+    *       Id of the document.
+    * @return The data version.
+    */
+   public int getDocumentDataVersion(String collectionCode, String documentId) {
+      Collection collection = collectionCache.getCollection(collectionCode);
       permissionsChecker.checkRole(collection, Role.READ);
 
-      Map<String, DataDocument> dataDocuments = getDataDocuments(collection.getId(), pagination);
-
-      return getDocuments(collectionCode, dataDocuments);
+      return dataDao.getDataVersion(collection.getId(), documentId);
    }
 
-   private Map<String, DataDocument> getDataDocuments(String collectionId, Pagination pagination) {
+   /**
+    * Reads one page of documents. The next page is decided from the stored data, so a document with missing metadata
+    * never ends the paging early.
+    *
+    * @param collectionCode
+    *       Code of the collection to read.
+    * @param pagination
+    *       Page number or the last seen document id, and the page size.
+    * @return The documents and the id to continue after.
+    * @throws IllegalArgumentException
+    *       When the pagination is not valid.
+    */
+   public DocumentPage getDocuments(String collectionCode, Pagination pagination) {
+      Collection collection = collectionCache.getCollection(collectionCode);
+      permissionsChecker.checkRole(collection, Role.READ);
+
       SearchQuery searchQuery = createPaginationQuery(pagination);
-      return dataDao.getData(collectionId, searchQuery).stream()
-                    .collect(Collectors.toMap(DataDocument::getId, Function.identity()));
+      List<Document> documents = new ArrayList<>();
+      Map<String, DataDocument> dataDocuments = new LinkedHashMap<>();
+      int count = 0;
+      String lastId = null;
+
+      try (Stream<DataDocument> data = dataDao.getDataStream(collection.getId(), searchQuery, DATA_BATCH_SIZE)) {
+         Iterator<DataDocument> iterator = data.iterator();
+         while (iterator.hasNext()) {
+            DataDocument dataDocument = iterator.next();
+            count++;
+            lastId = dataDocument.getId();
+
+            dataDocuments.put(dataDocument.getId(), dataDocument);
+            if (dataDocuments.size() >= DATA_BATCH_SIZE) {
+               documents.addAll(getDocuments(collectionCode, dataDocuments));
+               dataDocuments.clear();
+            }
+         }
+      }
+
+      if (!dataDocuments.isEmpty()) {
+         documents.addAll(getDocuments(collectionCode, dataDocuments));
+      }
+
+      Integer pageSize = pagination.getPageSize();
+      boolean hasNextPage = pageSize != null && pageSize > 0 && count == pageSize;
+      return new DocumentPage(documents, hasNextPage ? lastId : null);
    }
 
    private List<Document> getDocuments(String collectionCode, Map<String, DataDocument> dataDocuments) {
       String[] documentIds = dataDocuments.keySet().toArray(new String[] {});
-      List<Document> documents = documentDao.getDocumentsByIds(documentIds);
-      documents.forEach(document -> {
-         document.setCollectionCode(collectionCode);
-         document.setData(dataDocuments.get(document.getId()));
-      });
-      return documents;
+      Map<String, Document> documents = documentDao.getDocumentsByIds(documentIds).stream()
+                                                   .collect(Collectors.toMap(Document::getId, Function.identity()));
+
+      // keep the order of the data so that the last document identifies the next page
+      return dataDocuments.values().stream()
+                          .filter(data -> documents.containsKey(data.getId()))
+                          .map(data -> {
+                             Document document = documents.get(data.getId());
+                             document.setCollectionCode(collectionCode);
+                             document.setData(data);
+                             return document;
+                          }).collect(Collectors.toList());
    }
 }
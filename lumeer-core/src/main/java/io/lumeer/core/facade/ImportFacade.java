@@ -21,6 +21,7 @@ package io.lumeer.core.facade;
 
 import io.lumeer.api.dto.JsonCollection;
 import io.lumeer.api.dto.JsonDocument;
+import io.lumeer.api.dto.JsonImportProgress;
 import io.lumeer.api.dto.JsonPermission;
 import io.lumeer.api.dto.JsonPermissions;
 import io.lumeer.api.model.Collection;
@@ -28,32 +29,47 @@ import io.lumeer.api.model.Document;
 import io.lumeer.api.model.Project;
 import io.lumeer.api.model.ResourceType;
 import io.lumeer.api.model.Role;
+import io.lumeer.core.cache.ImportProgressCache;
 import io.lumeer.core.util.CodeGenerator;
+import io.lumeer.core.util.DocumentUtils;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.storage.api.dao.CollectionDao;
 import io.lumeer.storage.api.dao.DataDao;
 import io.lumeer.storage.api.dao.DocumentDao;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
 
-import com.univocity.parsers.common.processor.RowListProcessor;
+import com.univocity.parsers.common.ParsingContext;
+import com.univocity.parsers.common.processor.AbstractRowProcessor;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Logger;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 
 @RequestScoped
 public class ImportFacade extends AbstractFacade {
 
+   private static final Logger log = Logger.getLogger(ImportFacade.class.getName());
+
    public static final String FORMAT_CSV = "csv";
 
+   public static final String CHUNK_SIZE_PROPERTY = "lumeer.import.chunkSize";
+   public static final int DEFAULT_CHUNK_SIZE = 5000;
+
    @Inject
    private CollectionDao collectionDao;
 
@@ -63,37 +79,99 @@ public class ImportFacade extends AbstractFacade {
    @Inject
    private DataDao dataDao;
 
+   @Inject
+   private ImportProgressCache importProgressCache;
+
    public Collection importDocuments(final String format, final String name, final String data) {
-      List<Document> documents;
-
-      switch (format.toLowerCase()) {
-         case FORMAT_CSV:
-            documents = parseCSVFile(data);
-            break;
-         default:
-            documents = Collections.emptyList();
+      return importDocuments(format, name, new StringReader(data != null ? data : ""), getChunkSize(), null);
+   }
+
+   /**
+    * Imports the documents from a stream. When an import id is given, the progress can be read
+    * by {@link #getImportProgress(String)} while the import is running and once after it finished.
+    *
+    * @param format
+    *       Format of the data, only {@value #FORMAT_CSV} is supported now.
+    * @param name
+    *       Name of the new collection.
+    * @param data
+    *       Stream of the imported data.
+    * @param importId
+    *       Optional id chosen by the client to follow the progress of the import.
+    * @return The new collection with the number of imported documents.
+    */
+   public Collection importDocuments(final String format, final String name, final InputStream data, final String importId) {
+      Reader reader = new InputStreamReader(data, StandardCharsets.UTF_8);
+      if (importId == null || importId.isEmpty()) {
+         return importDocuments(format, name, reader, getChunkSize(), null);
       }
 
-      Collection collection = createImportCollection(name);
-      if (documents.isEmpty()) {
+      String username = authenticatedUser.getCurrentUsername();
+      JsonImportProgress[] lastProgress = { JsonImportProgress.running(null, 0) };
+      importProgressCache.setProgress(username, importId, lastProgress[0]);
+
+      try {
+         Collection collection = importDocuments(format, name, reader, getChunkSize(), (importCollection, imported) -> {
+            lastProgress[0] = JsonImportProgress.running(importCollection.getCode(), imported);
+            importProgressCache.setProgress(username, importId, lastProgress[0]);
+         });
+
+         importProgressCache.setProgress(username, importId, JsonImportProgress.finished(collection.getCode(), collection.getDocumentsCount()));
          return collection;
+      } catch (RuntimeException e) {
+         importProgressCache.setProgress(username, importId, JsonImportProgress.failed(lastProgress[0].getCollectionCode(), lastProgress[0].getImported(), e.getMessage()));
+         throw e;
       }
+   }
 
-      documents.forEach(doc -> addDocumentMetadata(collection, doc));
+   /**
+    * Gets the progress of an import started by the current user.
+    *
+    * @param importId
+    *       Id of the import given when it was started.
+    * @return The progress, empty when there is no such import or its final state has already been read.
+    */
+   public Optional<JsonImportProgress> getImportProgress(final String importId) {
+      return Optional.ofNullable(importProgressCache.getProgress(authenticatedUser.getCurrentUsername(), importId));
+   }
 
-      List<Document> storedDocuments = documentDao.createDocuments(documents);
+   /**
+    * Imports the documents into a new collection. The data are parsed as a stream and stored in chunks,
+    * so the memory consumption does not depend on the size of the imported file.
+    *
+    * @param format
+    *       Format of the data, only {@value #FORMAT_CSV} is supported now.
+    * @param name
+    *       Name of the new collection.
+    * @param data
+    *       Reader of the imported data.
+    * @param chunkSize
+    *       Number of documents stored at once.
+    * @param progress
+    *       Optional consumer notified about the new collection and the number of imported documents, once the collection
+    *       is created and after every stored chunk.
+    * @return The new collection with the number of imported documents.
+    */
+   public Collection importDocuments(final String format, final String name, final Reader data, final int chunkSize, final ObjLongConsumer<Collection> progress) {
+      Collection collection = createImportCollection(name);
+      if (progress != null) {
+         progress.accept(collection, 0);
+      }
 
-      List<DataDocument> dataDocuments = new LinkedList<>();
-      for (int i = 0; i < documents.size(); i++) {
-         DataDocument dataDocument = documents.get(i).getData();
-         dataDocument.setId(storedDocuments.get(i).getId());
-         dataDocuments.add(dataDocument);
+      DocumentChunkWriter writer = new DocumentChunkWriter(collection, chunkSize, progress);
+      if (FORMAT_CSV.equals(format.toLowerCase())) {
+         parseCSVFile(data, writer);
       }
-      dataDao.createData(collection.getId(), dataDocuments);
+      writer.flush();
 
+      collection.setDocumentsCount((int) writer.getImported());
       return collection;
    }
 
+   private int getChunkSize() {
+      return Integer.getInteger(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE);
+   }
+
    private void addDocumentMetadata(Collection collection, Document document) {
       document.setCollectionId(collection.getId());
       document.setCreatedBy(authenticatedUser.getCurrentUsername());
@@ -131,46 +209,88 @@ public class ImportFacade extends AbstractFacade {
       permissionsChecker.checkRole(project, Role.WRITE);
    }
 
-   private List<Document> parseCSVFile(String data) {
-      if (data == null || data.trim().isEmpty()) {
-         return Collections.emptyList();
-      }
+   private void parseCSVFile(Reader data, DocumentChunkWriter writer) {
       CsvParserSettings settings = new CsvParserSettings();
       settings.detectFormatAutomatically();
       settings.setHeaderExtractionEnabled(true);
+      settings.setProcessor(new AbstractRowProcessor() {
+         @Override
+         public void rowProcessed(final String[] row, final ParsingContext context) {
+            String[] headers = context.headers();
+            if (headers == null || headers.length == 0) {
+               return;
+            }
+            writer.add(createDataDocument(headers, row));
+         }
+      });
 
-      RowListProcessor rowProcessor = new RowListProcessor();
-      settings.setProcessor(rowProcessor);
+      new CsvParser(settings).parse(data);
+   }
 
-      CsvParser parser = new CsvParser(settings);
-      parser.parse(new StringReader(data));
+   private static DataDocument createDataDocument(String[] headers, String[] row) {
+      DataDocument dataDocument = new DataDocument();
+      for (int i = 0; i < headers.length && i < row.length; i++) {
+         dataDocument.append(headers[i], row[i]);
+      }
+      return dataDocument;
+   }
 
-      String[] headers = rowProcessor.getHeaders();
-      List<String[]> rows = rowProcessor.getRows();
+   /**
+    * Collects the parsed documents and stores them once a chunk is full.
+    */
+   private class DocumentChunkWriter {
 
-      if (headers.length == 0 || rows.isEmpty()) {
-         return Collections.emptyList();
-      }
+      private final Collection collection;
+      private final int chunkSize;
+      private final ObjLongConsumer<Collection> progress;
 
-      return createDocumentsFromHeaderAndRows(headers, rows);
-   }
+      private final List<Document> documents;
+      private long imported;
 
-   private List<Document> createDocumentsFromHeaderAndRows(String[] headers, List<String[]> rows) {
-      List<DataDocument> dataDocuments = new LinkedList<>();
-      for (int i = 0; i < rows.size(); i++) {
-         dataDocuments.add(new DataDocument());
+      private DocumentChunkWriter(final Collection collection, final int chunkSize, final ObjLongConsumer<Collection> progress) {
+         this.collection = collection;
+         this.chunkSize = Math.max(1, chunkSize);
+         this.progress = progress;
+         this.documents = new ArrayList<>(this.chunkSize);
       }
 
-      for (int i = 0; i < headers.length; i++) {
-         String header = headers[i];
-         for (int j = 0; j < rows.size(); j++) {
-            String[] row = rows.get(j);
-            if (row.length > i) {
-               dataDocuments.get(j).append(header, row[i]);
-            }
+      private void add(DataDocument data) {
+         documents.add(new JsonDocument(data));
+         if (documents.size() >= chunkSize) {
+            flush();
          }
       }
 
-      return dataDocuments.stream().map(JsonDocument::new).collect(Collectors.toList());
+      private void flush() {
+         if (documents.isEmpty()) {
+            return;
+         }
+
+         documents.forEach(document -> addDocumentMetadata(collection, document));
+         List<Document> storedDocuments = documentDao.createDocuments(documents);
+
+         List<DataDocument> dataDocuments = new ArrayList<>(documents.size());
+         Map<String, Integer> attributesUsage = new HashMap<>();
+         for (int i = 0; i < documents.size(); i++) {
+            DataDocument dataDocument = documents.get(i).getData();
+            DocumentUtils.getDocumentAttributes(dataDocument).forEach(attributeName -> attributesUsage.merge(attributeName, 1, Integer::sum));
+            dataDocument.setId(storedDocuments.get(i).getId());
+            dataDocuments.add(dataDocument);
+         }
+         dataDao.createData(collection.getId(), dataDocuments);
+         collectionDao.updateCollectionStatistics(collection.getId(), attributesUsage, dataDocuments.size(), LocalDateTime.now());
+
+         imported += documents.size();
+         documents.clear();
+
+         log.fine(() -> "Imported " + imported + " documents into collection " + collection.getCode());
+         if (progress != null) {
+            progress.accept(collection, imported);
+         }
+      }
+
+      private long getImported() {
+         return imported;
+      }
    }
 }
@@ -0,0 +1,150 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.facade;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Role;
+import io.lumeer.core.cache.CollectionCache;
+import io.lumeer.core.util.FilterParser;
+import io.lumeer.core.util.IndexAdvisor;
+import io.lumeer.engine.api.exception.InvalidValueException;
+import io.lumeer.engine.api.exception.UnsuccessfulOperationException;
+import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.index.DataIndex;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+
+/**
+ * Manages the secondary indexes of data collections. Indexes are either created explicitly by a collection manager,
+ * or automatically according to the {@link IndexAdvisor}. The number of indexes per collection is capped by
+ * the system property {@value #MAX_INDEXES_PROPERTY}.
+ */
+@RequestScoped
+public class IndexFacade extends AbstractFacade {
+
+   private static final Logger log = Logger.getLogger(IndexFacade.class.getName());
+
+   public static final String MAX_INDEXES_PROPERTY = "lumeer.index.maxPerCollection";
+
+   private static final int DEFAULT_MAX_INDEXES = 5;
+
+   @Inject
+   private CollectionCache collectionCache;
+
+   @Inject
+   private DataDao dataDao;
+
+   @Inject
+   private IndexAdvisor indexAdvisor;
+
+   @Inject
+   private ManagedExecutorService executorService;
+
+   public List<DataIndex> getIndexes(String collectionCode) {
+      Collection collection = collectionCache.getCollection(collectionCode);
+      permissionsChecker.checkRole(collection, Role.READ);
+
+      return dataDao.getIndexes(collection.getId());
+   }
+
+   public DataIndex createIndex(String collectionCode, List<String> attributes) {
+      Collection collection = collectionCache.getCollection(collectionCode);
+      permissionsChecker.checkRole(collection, Role.MANAGE);
+
+      if (attributes == null || attributes.isEmpty() || attributes.stream().anyMatch(attribute -> attribute == null || attribute.isEmpty())) {
+         throw new InvalidValueException("Index attributes must not be empty");
+      }
+      if (attributes.stream().anyMatch(attribute -> !FilterParser.isAttributeNameValid(attribute))) {
+         throw new InvalidValueException("Invalid index attributes: " + attributes);
+      }
+
+      DataIndex index = new DataIndex(attributes, false);
+      List<DataIndex> indexes = dataDao.getIndexes(collection.getId());
+      Optional<DataIndex> existingIndex = findIndex(indexes, attributes);
+      if (existingIndex.isPresent()) {
+         if (!existingIndex.get().isAutomatic()) {
+            return existingIndex.get();
+         }
+         // the collection manager takes over the automatic index
+         dataDao.dropIndex(collection.getId(), existingIndex.get());
+         indexes.remove(existingIndex.get());
+      }
+
+      if (indexes.size() >= getMaxIndexes()) {
+         Optional<DataIndex> automaticIndex = indexes.stream().filter(DataIndex::isAutomatic).findFirst();
+         if (!automaticIndex.isPresent()) {
+            throw new UnsuccessfulOperationException("Collection " + collectionCode + " already has the maximal number of indexes " + getMaxIndexes());
+         }
+         dataDao.dropIndex(collection.getId(), automaticIndex.get());
+      }
+
+      dataDao.createIndex(collection.getId(), index);
+      return index;
+   }
+
+   public void dropIndex(String collectionCode, List<String> attributes) {
+      Collection collection = collectionCache.getCollection(collectionCode);
+      permissionsChecker.checkRole(collection, Role.MANAGE);
+
+      findIndex(dataDao.getIndexes(collection.getId()), attributes)
+            .ifPresent(index -> dataDao.dropIndex(collection.getId(), index));
+   }
+
+   /**
+    * Creates the indexes suggested by the advisor and drops the automatic indexes that are no longer suggested.
+    * Does nothing unless the advice for the collection is due. The indexes are updated on the managed executor,
+    * so the search does not wait for them.
+    *
+    * @param collection
+    *       The searched collection.
+    */
+   public void adviseIndexes(Collection collection) {
+      if (!indexAdvisor.isAdviceDue(collection.getId())) {
+         return;
+      }
+
+      // the manual indexes are known only to the storage, so the advice may contain more indexes than will be created
+      List<List<String>> advisedIndexes = indexAdvisor.adviseIndexes(collection, getMaxIndexes()).stream()
+                                                      .filter(attributes -> attributes.stream().allMatch(FilterParser::isAttributeNameValid))
+                                                      .collect(Collectors.toList());
+
+      dataDao.updateAutomaticIndexesAsync(collection.getId(), advisedIndexes, getMaxIndexes(), executorService)
+             .whenComplete((result, e) -> {
+                if (e != null) {
+                   log.log(Level.WARNING, "Unable to update indexes of collection " + collection.getCode(), e);
+                }
+             });
+   }
+
+   private static Optional<DataIndex> findIndex(List<DataIndex> indexes, List<String> attributes) {
+      return indexes.stream().filter(index -> index.getAttributes().equals(attributes)).findFirst();
+   }
+
+   private static int getMaxIndexes() {
+      return Integer.getInteger(MAX_INDEXES_PROPERTY, DEFAULT_MAX_INDEXES);
+   }
+}
@@ -23,6 +23,7 @@ import io.lumeer.api.model.Organization;
 import io.lumeer.api.model.Permission;
 import io.lumeer.api.model.Permissions;
 import io.lumeer.api.model.Role;
+import io.lumeer.core.cache.WorkspaceCache;
 import io.lumeer.core.model.SimplePermission;
 import io.lumeer.storage.api.dao.OrganizationDao;
 import io.lumeer.storage.api.dao.ProjectDao;
@@ -41,6 +42,9 @@ public class OrganizationFacade extends AbstractFacade {
    @Inject
    private OrganizationDao organizationDao;
 
+   @Inject
+   private WorkspaceCache workspaceCache;
+
    @Inject
    private ProjectDao projectDao;
 
@@ -66,6 +70,10 @@ public class OrganizationFacade extends AbstractFacade {
 
       keepStoredPermissions(organization, storedOrganization.getPermissions());
       Organization updatedOrganization = organizationDao.updateOrganization(storedOrganization.getId(), organization);
+      workspaceCache.removeOrganization(organizationCode);
+      if (!organizationCode.equals(updatedOrganization.getCode())) {
+         workspaceCache.removeOrganization(updatedOrganization.getCode());
+      }
 
       return keepOnlyActualUserRoles(updatedOrganization);
    }
@@ -77,6 +85,7 @@ public class OrganizationFacade extends AbstractFacade {
       deleteOrganizationScopedRepositories(organization);
 
       organizationDao.deleteOrganization(organization.getId());
+      workspaceCache.removeOrganization(organizationCode);
    }
 
    public Organization getOrganization(final String organizationCode) {
@@ -114,6 +123,7 @@ public class OrganizationFacade extends AbstractFacade {
 
       organization.getPermissions().updateUserPermissions(userPermissions);
       organizationDao.updateOrganization(organization.getId(), organization);
+      workspaceCache.removeOrganization(organizationCode);
 
       return organization.getPermissions().getUserPermissions();
    }
@@ -123,6 +133,7 @@ public class OrganizationFacade extends AbstractFacade {
 
       organization.getPermissions().removeUserPermission(user);
       organizationDao.updateOrganization(organization.getId(), organization);
+      workspaceCache.removeOrganization(organizationCode);
    }
 
    public Set<Permission> updateGroupPermissions(final String organizationCode, final Permission... groupPermissions) {
@@ -130,6 +141,7 @@ public class OrganizationFacade extends AbstractFacade {
 
       organization.getPermissions().updateGroupPermissions(groupPermissions);
       organizationDao.updateOrganization(organization.getId(), organization);
+      workspaceCache.removeOrganization(organizationCode);
 
       return organization.getPermissions().getGroupPermissions();
    }
@@ -139,6 +151,7 @@ public class OrganizationFacade extends AbstractFacade {
 
       organization.getPermissions().removeGroupPermission(group);
       organizationDao.updateOrganization(organization.getId(), organization);
+      workspaceCache.removeOrganization(organizationCode);
    }
 
    private void createOrganizationScopedRepositories(Organization organization) {
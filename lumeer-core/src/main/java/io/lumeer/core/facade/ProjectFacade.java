@@ -24,6 +24,7 @@ import io.lumeer.api.model.Permissions;
 import io.lumeer.api.model.Project;
 import io.lumeer.api.model.Role;
 import io.lumeer.api.model.User;
+import io.lumeer.core.cache.WorkspaceCache;
 import io.lumeer.core.model.SimplePermission;
 import io.lumeer.storage.api.dao.CollectionDao;
 import io.lumeer.storage.api.dao.DocumentDao;
@@ -49,6 +50,9 @@ public class ProjectFacade extends AbstractFacade {
    @Inject
    private ProjectDao projectDao;
 
+   @Inject
+   private WorkspaceCache workspaceCache;
+
    @Inject
    private ViewDao viewDao;
 
@@ -69,6 +73,10 @@ public class ProjectFacade extends AbstractFacade {
 
       keepStoredPermissions(project, storedProject.getPermissions());
       Project updatedProject = projectDao.updateProject(storedProject.getId(), project);
+      workspaceCache.removeProject(projectCode);
+      if (!projectCode.equals(updatedProject.getCode())) {
+         workspaceCache.removeProject(updatedProject.getCode());
+      }
 
       return keepOnlyActualUserRoles(updatedProject);
    }
@@ -80,6 +88,7 @@ public class ProjectFacade extends AbstractFacade {
       deleleProjectScopedRepositories(project);
 
       projectDao.deleteProject(project.getId());
+      workspaceCache.removeProject(projectCode);
    }
 
    public Project getProject(final String projectCode) {
@@ -113,6 +122,7 @@ public class ProjectFacade extends AbstractFacade {
 
       project.getPermissions().updateUserPermissions(userPermissions);
       projectDao.updateProject(project.getId(), project);
+      workspaceCache.removeProject(projectCode);
 
       return project.getPermissions().getUserPermissions();
    }
@@ -123,6 +133,7 @@ public class ProjectFacade extends AbstractFacade {
 
       project.getPermissions().removeUserPermission(user);
       projectDao.updateProject(project.getId(), project);
+      workspaceCache.removeProject(projectCode);
    }
 
    public Set<Permission> updateGroupPermissions(final String projectCode, final Permission... groupPermissions) {
@@ -131,6 +142,7 @@ public class ProjectFacade extends AbstractFacade {
 
       project.getPermissions().updateGroupPermissions(groupPermissions);
       projectDao.updateProject(project.getId(), project);
+      workspaceCache.removeProject(projectCode);
 
       return project.getPermissions().getGroupPermissions();
    }
@@ -141,6 +153,7 @@ public class ProjectFacade extends AbstractFacade {
 
       project.getPermissions().removeGroupPermission(group);
       projectDao.updateProject(project.getId(), project);
+      workspaceCache.removeProject(projectCode);
    }
 
    private void createProjectScopedRepositories(Project project) {
@@ -19,33 +19,63 @@
  */
 package io.lumeer.core.facade;
 
+import io.lumeer.api.exception.LumeerException;
 import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.Document;
 import io.lumeer.api.model.Query;
 import io.lumeer.api.model.Resource;
 import io.lumeer.api.model.View;
+import io.lumeer.core.util.BoundedExecutor;
+import io.lumeer.core.util.FilterParser;
+import io.lumeer.core.util.IndexAdvisor;
+import io.lumeer.engine.api.constraint.ConstraintManager;
+import io.lumeer.engine.api.constraint.InvalidConstraintException;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.storage.api.dao.CollectionDao;
 import io.lumeer.storage.api.dao.DataDao;
 import io.lumeer.storage.api.dao.DocumentDao;
 import io.lumeer.storage.api.dao.ViewDao;
+import io.lumeer.storage.api.filter.SearchFilter;
 import io.lumeer.storage.api.query.SearchQuery;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 
 @RequestScoped
 public class SearchFacade extends AbstractFacade {
 
+   private static final Logger log = Logger.getLogger(SearchFacade.class.getName());
+
+   public static final String PARALLELISM_PROPERTY = "lumeer.search.parallelism";
+   public static final String TIMEOUT_PROPERTY = "lumeer.search.timeout";
+
+   private static final int DEFAULT_PARALLELISM = 8;
+   private static final long DEFAULT_TIMEOUT = 10_000;
+
+   // filter values come in the REST query string, so they are not affected by the user's locale
+   private static final Locale FILTER_LOCALE = Locale.forLanguageTag("en-US");
+
    @Inject
    private CollectionDao collectionDao;
 
@@ -58,7 +88,19 @@ public class SearchFacade extends AbstractFacade {
    @Inject
    private ViewDao viewDao;
 
+   @Inject
+   private IndexAdvisor indexAdvisor;
+
+   @Inject
+   private IndexFacade indexFacade;
+
+   @Inject
+   private ManagedExecutorService executorService;
+
+   private final Map<String, String> collectionErrors = new LinkedHashMap<>();
+
    public List<Collection> searchCollections(Query query) {
+      collectionErrors.clear();
       Set<Collection> collections = new HashSet<>();
 
       if (!isCollectionSelectionOnly(query)) {
@@ -71,12 +113,22 @@ public class SearchFacade extends AbstractFacade {
    }
 
    public List<Document> searchDocuments(Query query) {
+      collectionErrors.clear();
       Map<String, Collection> collections = getCollections(query.getCollectionCodes());
-      Map<String, DataDocument> dataDocuments = getDataDocuments(collections.values(), query);
+      Map<String, DataDocument> dataDocuments = getDataDocuments(collections, query);
 
       return getDocuments(collections, dataDocuments);
    }
 
+   /**
+    * Gets the collections the last search of this request could not search, so its results are partial.
+    *
+    * @return Error messages by collection codes.
+    */
+   public Map<String, String> getCollectionErrors() {
+      return Collections.unmodifiableMap(collectionErrors);
+   }
+
    public List<View> searchViews(Query query) {
       if (isValidViewSearch(query)) {
          return getViewsByFulltext(query);
@@ -97,17 +149,21 @@ public class SearchFacade extends AbstractFacade {
    }
 
    private List<Collection> getCollectionsByDocumentSearch(Query query) {
-      java.util.Collection<Collection> searchedCollections = getCollections(query.getCollectionCodes()).values();
-      List<Collection> matchedCollections = new ArrayList<>();
+      Map<String, Collection> searchedCollections = getCollections(query.getCollectionCodes());
+      Executor executor = createSearchExecutor();
+      long deadline = createSearchDeadline();
 
-      for (Collection collection : searchedCollections) {
-         long documentCount = dataDao.getDataCount(collection.getId(), createSearchQuery(query));
-         if (documentCount > 0) {
-            matchedCollections.add(collection);
-         }
-      }
+      Map<String, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+      searchedCollections.forEach((collectionId, collection) -> {
+         SearchQuery documentQuery = createDocumentQuery(query, collection);
+         futures.put(collectionId, dataDao.hasDataAsync(collectionId, documentQuery, deadline, executor));
+         updateIndexes(collection, documentQuery);
+      });
 
-      return matchedCollections;
+      return collectResults(futures, searchedCollections, deadline).entrySet().stream()
+                                                        .filter(Map.Entry::getValue)
+                                                        .map(entry -> searchedCollections.get(entry.getKey()))
+                                                        .collect(Collectors.toList());
    }
 
    private static boolean isValidViewSearch(Query query) {
@@ -137,18 +193,68 @@ public class SearchFacade extends AbstractFacade {
                         .build();
    }
 
-   private Map<String, DataDocument> getDataDocuments(Iterable<Collection> collections, Query query) {
+   private Map<String, DataDocument> getDataDocuments(Map<String, Collection> collections, Query query) {
+      Executor executor = createSearchExecutor();
+      long deadline = createSearchDeadline();
+
+      Map<String, CompletableFuture<List<DataDocument>>> futures = new LinkedHashMap<>();
+      collections.forEach((collectionId, collection) -> {
+         SearchQuery documentQuery = createDocumentQuery(query, collection);
+         futures.put(collectionId, dataDao.getDataAsync(collectionId, documentQuery, deadline, executor));
+         updateIndexes(collection, documentQuery);
+      });
+
       Map<String, DataDocument> dataDocuments = new HashMap<>();
-      for (Collection collection : collections) {
-         dataDocuments.putAll(getDataDocuments(collection.getId(), query));
-      }
+      collectResults(futures, collections, deadline).values().forEach(data -> data.forEach(dataDocument -> dataDocuments.put(dataDocument.getId(), dataDocument)));
       return dataDocuments;
    }
 
-   private Map<String, DataDocument> getDataDocuments(String collectionId, Query query) {
-      SearchQuery documentQuery = createSearchQuery(query);
-      return dataDao.getData(collectionId, documentQuery).stream()
-                    .collect(Collectors.toMap(DataDocument::getId, Function.identity()));
+   private void updateIndexes(Collection collection, SearchQuery documentQuery) {
+      if (documentQuery.isFiltersQuery()) {
+         indexAdvisor.recordQuery(collection.getId(), documentQuery.getFilters());
+         indexFacade.adviseIndexes(collection);
+      }
+   }
+
+   private Executor createSearchExecutor() {
+      return new BoundedExecutor(executorService, Integer.getInteger(PARALLELISM_PROPERTY, DEFAULT_PARALLELISM));
+   }
+
+   private static long createSearchDeadline() {
+      return System.currentTimeMillis() + Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT);
+   }
+
+   /**
+    * Waits for the per collection results until the search deadline. Collections that do not answer in time
+    * or fail are left out and recorded in {@link #getCollectionErrors()}, so the caller gets partial results instead of an error.
+    */
+   private <T> Map<String, T> collectResults(Map<String, CompletableFuture<T>> futures, Map<String, Collection> collections, long deadline) {
+      Map<String, T> results = new LinkedHashMap<>();
+
+      try {
+         for (Map.Entry<String, CompletableFuture<T>> entry : futures.entrySet()) {
+            String collectionCode = collections.get(entry.getKey()).getCode();
+            try {
+               long remaining = Math.max(0, deadline - System.currentTimeMillis());
+               results.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+               entry.getValue().cancel(false);
+               collectionErrors.put(collectionCode, "Search time limit exceeded");
+            } catch (ExecutionException e) {
+               log.log(Level.WARNING, "Search failed in collection " + collectionCode, e.getCause());
+               collectionErrors.put(collectionCode, e.getCause() instanceof LumeerException ? e.getCause().getMessage() : "Search failed");
+            }
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } finally {
+         futures.values().forEach(future -> future.cancel(false));
+      }
+
+      if (!collectionErrors.isEmpty()) {
+         log.warning("Search failed in collections " + collectionErrors.keySet() + ", returning partial results");
+      }
+      return results;
    }
 
    private List<Document> getDocuments(Map<String, Collection> collections, Map<String, DataDocument> dataDocuments) {
@@ -167,8 +273,60 @@ public class SearchFacade extends AbstractFacade {
 
       return SearchQuery.createBuilder(user).groups(groups)
                         .collectionCodes(query.getCollectionCodes())
-                        .fulltext(query.getFulltext()) // TODO add filters
+                        .fulltext(query.getFulltext())
+                        .build();
+   }
+
+   private SearchQuery createDocumentQuery(Query query, Collection collection) {
+      String user = authenticatedUser.getCurrentUsername();
+      Set<String> groups = userCache.getUser(user).getGroups();
+
+      return SearchQuery.createBuilder(user).groups(groups)
+                        .collectionCodes(query.getCollectionCodes())
+                        .fulltext(query.getFulltext())
+                        .filters(createFilters(query, collection))
                         .build();
    }
 
+   private static List<SearchFilter> createFilters(Query query, Collection collection) {
+      if (query.getFilters() == null) {
+         return Collections.emptyList();
+      }
+
+      Map<String, ConstraintManager> constraintManagers = new HashMap<>();
+      BiFunction<String, String, Object> encoder = (attribute, value) ->
+            encodeFilterValue(constraintManagers.computeIfAbsent(attribute, name -> createConstraintManager(collection, name)), value);
+
+      return query.getFilters().stream()
+                  .map(filter -> FilterParser.parse(filter, encoder))
+                  .collect(Collectors.toList());
+   }
+
+   private static ConstraintManager createConstraintManager(Collection collection, String attributeName) {
+      List<String> constraints = collection.getAttributes().stream()
+                                           .filter(attribute -> attribute.getFullName().equals(attributeName))
+                                           .findFirst()
+                                           .map(attribute -> new ArrayList<>(attribute.getConstraints()))
+                                           .orElseGet(ArrayList::new);
+      try {
+         return new ConstraintManager(constraints, FILTER_LOCALE);
+      } catch (InvalidConstraintException e) {
+         log.log(Level.FINE, "Filter values of attribute " + attributeName + " are not encoded because of its invalid constraints", e);
+         return null;
+      }
+   }
+
+   private static Object encodeFilterValue(ConstraintManager constraintManager, String value) {
+      if (constraintManager == null) {
+         return value;
+      }
+
+      Object encodedValue = constraintManager.encode(value);
+      if (encodedValue instanceof BigDecimal) {
+         // BigDecimal has no codec in the MongoDB driver
+         return ((BigDecimal) encodedValue).doubleValue();
+      }
+      return encodedValue;
+   }
+
 }
@@ -0,0 +1,90 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor that passes at most the given number of tasks to the underlying executor at the same time.
+ * The remaining tasks wait in a queue, so a single caller cannot occupy the whole shared thread pool.
+ */
+public class BoundedExecutor implements Executor {
+
+   private final Executor delegate;
+   private final int maxParallelism;
+
+   private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+   private final AtomicInteger running = new AtomicInteger();
+
+   public BoundedExecutor(final Executor delegate, final int maxParallelism) {
+      if (maxParallelism < 1) {
+         throw new IllegalArgumentException("Parallelism must be positive: " + maxParallelism);
+      }
+      this.delegate = delegate;
+      this.maxParallelism = maxParallelism;
+   }
+
+   @Override
+   public void execute(final Runnable task) {
+      queue.add(task);
+      drain();
+   }
+
+   private void drain() {
+      while (!queue.isEmpty()) {
+         int current = running.get();
+         if (current >= maxParallelism) {
+            // a finishing task drains the queue again
+            return;
+         }
+         if (!running.compareAndSet(current, current + 1)) {
+            continue;
+         }
+
+         Runnable task = queue.poll();
+         if (task == null) {
+            running.decrementAndGet();
+            continue;
+         }
+
+         try {
+            delegate.execute(() -> {
+               try {
+                  task.run();
+               } finally {
+                  running.decrementAndGet();
+                  drain();
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            running.decrementAndGet();
+            throw e;
+         }
+      }
+   }
+
+   public int getMaxParallelism() {
+      return maxParallelism;
+   }
+}
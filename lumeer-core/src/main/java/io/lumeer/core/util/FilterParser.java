@@ -0,0 +1,169 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.engine.api.exception.InvalidQueryException;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.filter.CompositeFilter;
+import io.lumeer.storage.api.filter.ConditionType;
+import io.lumeer.storage.api.filter.SearchFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Parses attribute filters in the form {@code attribute operator value}, e.g. {@code age >= 18}.
+ * Conditions can be joined by {@code AND} and {@code OR}, where {@code AND} binds tighter.
+ * Values in double quotes are always compared as strings, other values are passed through the given encoder
+ * so that they are compared in the same type as the stored data.
+ */
+public class FilterParser {
+
+   private static final String AND = "AND";
+   private static final String OR = "OR";
+   private static final char QUOTE = '"';
+   private static final char NULL = '\0';
+   private static final String OPERATOR_PREFIX = "$";
+   private static final String NESTED_SEPARATOR = ".";
+
+   private static final Pattern CONDITION_PATTERN = Pattern.compile(
+         "^\\s*([^!<>=~\"]+?)\\s*(" + ConditionType.getSymbols().stream().map(Pattern::quote).collect(Collectors.joining("|")) + ")\\s*(.*?)\\s*$");
+
+   private FilterParser() {
+   }
+
+   /**
+    * Parses the filter expression.
+    *
+    * @param filter
+    *       The filter expression.
+    * @param encoder
+    *       Converts an unquoted value of the given attribute to the type it is stored in.
+    * @return The parsed filter.
+    * @throws InvalidQueryException
+    *       When the expression is not valid.
+    */
+   public static SearchFilter parse(final String filter, final BiFunction<String, String, Object> encoder) throws InvalidQueryException {
+      if (filter == null || filter.trim().isEmpty()) {
+         throw new InvalidQueryException("Empty filter");
+      }
+
+      List<SearchFilter> disjunction = new ArrayList<>();
+      for (String orPart : split(filter, OR)) {
+         List<SearchFilter> conjunction = new ArrayList<>();
+         for (String andPart : split(orPart, AND)) {
+            conjunction.add(parseCondition(andPart, encoder));
+         }
+         disjunction.add(conjunction.size() == 1 ? conjunction.get(0) : CompositeFilter.and(conjunction));
+      }
+
+      return disjunction.size() == 1 ? disjunction.get(0) : CompositeFilter.or(disjunction);
+   }
+
+   private static SearchFilter parseCondition(final String condition, final BiFunction<String, String, Object> encoder) throws InvalidQueryException {
+      Matcher matcher = CONDITION_PATTERN.matcher(condition);
+      if (!matcher.matches() || matcher.group(3).isEmpty()) {
+         throw new InvalidQueryException("Invalid filter condition: " + condition.trim());
+      }
+
+      String attribute = matcher.group(1);
+      if (!isAttributeNameValid(attribute)) {
+         throw new InvalidQueryException("Invalid attribute name in filter: " + attribute);
+      }
+      ConditionType type = ConditionType.fromSymbol(matcher.group(2)).get();
+      String value = matcher.group(3);
+
+      if (isQuoted(value)) {
+         return new AttributeFilter(attribute, type, value.substring(1, value.length() - 1));
+      }
+
+      Object encodedValue = encoder.apply(attribute, value);
+      if (encodedValue == null || encodedValue.equals(value)) {
+         return new AttributeFilter(attribute, type, value);
+      }
+
+      // data stored before the attribute got its constraints may still hold the plain string
+      if (type == ConditionType.EQUALS) {
+         return CompositeFilter.or(Arrays.asList(new AttributeFilter(attribute, type, encodedValue), new AttributeFilter(attribute, type, value)));
+      }
+      if (type == ConditionType.NOT_EQUALS) {
+         return CompositeFilter.and(Arrays.asList(new AttributeFilter(attribute, type, encodedValue), new AttributeFilter(attribute, type, value)));
+      }
+      if (type == ConditionType.CONTAINS) {
+         return new AttributeFilter(attribute, type, value);
+      }
+      return new AttributeFilter(attribute, type, encodedValue);
+   }
+
+   /**
+    * Rejects names that the storage would interpret as operators, e.g. {@code $where}, at any level of a nested name.
+    *
+    * @param attribute
+    *       Full name of the attribute.
+    * @return True if and only if the name can be used in filters and indexes.
+    */
+   public static boolean isAttributeNameValid(final String attribute) {
+      return attribute.indexOf(NULL) < 0 && Arrays.stream(attribute.split(Pattern.quote(NESTED_SEPARATOR), -1))
+                                                  .noneMatch(part -> part.trim().startsWith(OPERATOR_PREFIX));
+   }
+
+   private static boolean isQuoted(final String value) {
+      return value.length() >= 2 && value.charAt(0) == QUOTE && value.charAt(value.length() - 1) == QUOTE;
+   }
+
+   /**
+    * Splits the expression by the logical operator surrounded by whitespace, ignoring the quoted parts.
+    */
+   private static List<String> split(final String expression, final String operator) throws InvalidQueryException {
+      List<String> parts = new ArrayList<>();
+      boolean quoted = false;
+      int start = 0;
+
+      for (int i = 0; i < expression.length(); i++) {
+         char c = expression.charAt(i);
+         if (c == QUOTE) {
+            quoted = !quoted;
+         } else if (!quoted && Character.isWhitespace(c) && isOperatorAt(expression, i + 1, operator)) {
+            parts.add(expression.substring(start, i));
+            i += operator.length();
+            start = i + 1;
+         }
+      }
+
+      if (quoted) {
+         throw new InvalidQueryException("Unterminated quotes in filter: " + expression.trim());
+      }
+
+      parts.add(expression.substring(start));
+      return parts;
+   }
+
+   private static boolean isOperatorAt(final String expression, final int position, final String operator) {
+      int end = position + operator.length();
+      return end <= expression.length()
+            && expression.regionMatches(true, position, operator, 0, operator.length())
+            && (end == expression.length() || Character.isWhitespace(expression.charAt(end)));
+   }
+}
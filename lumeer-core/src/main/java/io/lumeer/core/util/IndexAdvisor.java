@@ -0,0 +1,195 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.api.model.Attribute;
+import io.lumeer.api.model.Collection;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.filter.CompositeFilter;
+import io.lumeer.storage.api.filter.SearchFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Observes which attribute combinations are filtered on in each collection and suggests the indexes worth building.
+ * A combination becomes a candidate after {@value #DEFAULT_MIN_QUERIES} queries (system property {@value #MIN_QUERIES_PROPERTY}),
+ * candidates are ranked by the number of queries and then by the usage count of their attributes. The observed counts
+ * are halved after each advice, so patterns that are no longer used fade out and their indexes get dropped.
+ */
+@ApplicationScoped
+public class IndexAdvisor {
+
+   public static final String MIN_QUERIES_PROPERTY = "lumeer.index.minQueries";
+   public static final String ADVICE_INTERVAL_PROPERTY = "lumeer.index.adviceInterval";
+
+   public static final int MAX_COMPOUND_ATTRIBUTES = 3;
+
+   private static final long DEFAULT_MIN_QUERIES = 10;
+   private static final long DEFAULT_ADVICE_INTERVAL = 600_000;
+
+   private final long minQueries;
+   private final long adviceInterval;
+
+   private final ConcurrentMap<String, ConcurrentMap<List<String>, AtomicLong>> patterns = new ConcurrentHashMap<>();
+   private final ConcurrentMap<String, Long> lastAdvice = new ConcurrentHashMap<>();
+
+   public IndexAdvisor() {
+      this(Long.getLong(MIN_QUERIES_PROPERTY, DEFAULT_MIN_QUERIES), Long.getLong(ADVICE_INTERVAL_PROPERTY, DEFAULT_ADVICE_INTERVAL));
+   }
+
+   IndexAdvisor(final long minQueries, final long adviceInterval) {
+      this.minQueries = minQueries;
+      this.adviceInterval = adviceInterval;
+   }
+
+   /**
+    * Records the attribute combinations used by the filters of a single query.
+    *
+    * @param collectionId
+    *       Id of the queried collection.
+    * @param filters
+    *       Filters of the query, they are joined by AND.
+    */
+   public void recordQuery(final String collectionId, final List<SearchFilter> filters) {
+      if (filters.isEmpty()) {
+         return;
+      }
+
+      ConcurrentMap<List<String>, AtomicLong> collectionPatterns = patterns.computeIfAbsent(collectionId, id -> new ConcurrentHashMap<>());
+      getPatterns(CompositeFilter.and(filters)).forEach(pattern ->
+            collectionPatterns.computeIfAbsent(pattern, p -> new AtomicLong()).incrementAndGet());
+   }
+
+   /**
+    * Checks whether the indexes of the collection should be revised now. At most one caller per advice interval gets true.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @return True iff the caller should revise the indexes.
+    */
+   public boolean isAdviceDue(final String collectionId) {
+      long now = System.currentTimeMillis();
+      long[] due = new long[1];
+      lastAdvice.compute(collectionId, (id, last) -> {
+         if (last == null || now - last >= adviceInterval) {
+            due[0] = 1;
+            return now;
+         }
+         return last;
+      });
+      return due[0] == 1 && patterns.containsKey(collectionId);
+   }
+
+   /**
+    * Suggests the indexes of the collection and ages the observed query counts.
+    *
+    * @param collection
+    *       The collection with up to date attribute usage counts.
+    * @param limit
+    *       The maximal number of suggested indexes.
+    * @return Attribute lists of the suggested indexes, the most useful first.
+    */
+   public List<List<String>> adviseIndexes(final Collection collection, final int limit) {
+      ConcurrentMap<List<String>, AtomicLong> collectionPatterns = patterns.get(collection.getId());
+      if (collectionPatterns == null || limit <= 0) {
+         return Collections.emptyList();
+      }
+
+      Map<String, Integer> usage = collection.getAttributes().stream()
+                                             .filter(attribute -> attribute.getUsageCount() != null && attribute.getUsageCount() > 0)
+                                             .collect(Collectors.toMap(Attribute::getFullName, Attribute::getUsageCount, (a, b) -> a));
+
+      Map<List<String>, Long> counts = collectionPatterns.entrySet().stream()
+                                                         .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getAndUpdate(count -> count / 2)));
+
+      List<List<String>> candidates = counts.entrySet().stream()
+                                            .filter(entry -> entry.getValue() >= minQueries && usage.keySet().containsAll(entry.getKey()))
+                                            .sorted(Comparator.comparing((Map.Entry<List<String>, Long> entry) -> entry.getValue())
+                                                              .thenComparing(entry -> totalUsage(entry.getKey(), usage))
+                                                              .reversed())
+                                            .map(entry -> orderByUsage(entry.getKey(), usage))
+                                            .collect(Collectors.toList());
+
+      List<List<String>> indexes = new ArrayList<>();
+      for (List<String> candidate : candidates) {
+         if (indexes.size() >= limit) {
+            break;
+         }
+         if (indexes.stream().noneMatch(index -> isPrefix(candidate, index))) {
+            indexes.add(candidate);
+         }
+      }
+
+      collectionPatterns.values().removeIf(count -> count.get() == 0);
+      return indexes;
+   }
+
+   public void clear(final String collectionId) {
+      patterns.remove(collectionId);
+      lastAdvice.remove(collectionId);
+   }
+
+   /**
+    * Gets the sorted attribute lists that would be served by a single index. AND groups its children into one pattern,
+    * OR yields the patterns of its branches.
+    */
+   private static List<List<String>> getPatterns(final SearchFilter filter) {
+      if (filter instanceof AttributeFilter) {
+         return Collections.singletonList(Collections.singletonList(((AttributeFilter) filter).getAttribute()));
+      }
+
+      CompositeFilter compositeFilter = (CompositeFilter) filter;
+      List<List<String>> childPatterns = compositeFilter.getFilters().stream()
+                                                        .flatMap(child -> getPatterns(child).stream())
+                                                        .collect(Collectors.toList());
+      if (compositeFilter.getOperator() == CompositeFilter.Operator.OR) {
+         return childPatterns.stream().distinct().collect(Collectors.toList());
+      }
+
+      Set<String> attributes = new LinkedHashSet<>();
+      childPatterns.forEach(attributes::addAll);
+      return Collections.singletonList(attributes.stream().sorted().limit(MAX_COMPOUND_ATTRIBUTES).collect(Collectors.toList()));
+   }
+
+   private static List<String> orderByUsage(final List<String> pattern, final Map<String, Integer> usage) {
+      return pattern.stream()
+                    .sorted(Comparator.comparing((String attribute) -> usage.get(attribute)).reversed().thenComparing(Comparator.naturalOrder()))
+                    .collect(Collectors.toList());
+   }
+
+   private static long totalUsage(final List<String> pattern, final Map<String, Integer> usage) {
+      return pattern.stream().mapToLong(usage::get).sum();
+   }
+
+   private static boolean isPrefix(final List<String> prefix, final List<String> index) {
+      return prefix.size() <= index.size() && index.subList(0, prefix.size()).equals(prefix);
+   }
+}
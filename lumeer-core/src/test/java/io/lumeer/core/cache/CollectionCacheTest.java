@@ -0,0 +1,331 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.SelectedWorkspace;
+import io.lumeer.api.dto.JsonCollection;
+import io.lumeer.api.dto.JsonPermissions;
+import io.lumeer.api.model.Attribute;
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Project;
+import io.lumeer.engine.api.cache.Cache;
+import io.lumeer.engine.api.cache.CacheFactory;
+import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.event.RemoveCollection;
+import io.lumeer.storage.api.event.UpdateCollection;
+import io.lumeer.storage.api.event.UpdateCollectionStatistics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class CollectionCacheTest {
+
+   private static final String PROJECT_ID = "596e3b86d412bc5a3caaa22a";
+   private static final String COLLECTION_ID = "59a4348a8eed1e53942d2d2b";
+
+   private static final String CODE = "TCOLL";
+   private static final String CODE2 = "TCOLL2";
+   private static final String NAME = "Test collection";
+   private static final String NAME2 = "Renamed collection";
+   private static final String ATTRIBUTE = "age";
+
+   private CollectionDao collectionDao;
+   private SelectedWorkspace selectedWorkspace;
+   private MapCacheFactory cacheFactory;
+   private LoopbackCacheInvalidationChannel invalidationChannel;
+   private CollectionCache collectionCache;
+
+   @Before
+   public void prepareCache() {
+      Project project = Mockito.mock(Project.class);
+      Mockito.when(project.getId()).thenReturn(PROJECT_ID);
+
+      selectedWorkspace = Mockito.mock(SelectedWorkspace.class);
+      Mockito.when(selectedWorkspace.getProject()).thenReturn(Optional.of(project));
+
+      collectionDao = Mockito.mock(CollectionDao.class);
+      Mockito.when(collectionDao.getCollectionByCode(CODE)).thenReturn(prepareCollection(CODE, NAME));
+
+      cacheFactory = new MapCacheFactory();
+      invalidationChannel = new LoopbackCacheInvalidationChannel();
+      collectionCache = createCache(cacheFactory, invalidationChannel);
+   }
+
+   private CollectionCache createCache(CacheFactory cacheFactory, LoopbackCacheInvalidationChannel invalidationChannel) {
+      CollectionCache cache = new CollectionCache(cacheFactory, invalidationChannel, collectionDao, selectedWorkspace);
+      cache.initCaches();
+      return cache;
+   }
+
+   private static Collection prepareCollection(String code, String name) {
+      Collection collection = new JsonCollection(code, name, "fa-eye", "#00ee00", new JsonPermissions());
+      collection.setId(COLLECTION_ID);
+      collection.setDocumentsCount(0);
+      return collection;
+   }
+
+   private static UpdateCollectionStatistics statistics(int count) {
+      return new UpdateCollectionStatistics(PROJECT_ID, COLLECTION_ID, Collections.singletonMap(ATTRIBUTE, count), count, LocalDateTime.now());
+   }
+
+   private static Map<String, Integer> getAttributesUsage(Collection collection) {
+      return collection.getAttributes().stream().collect(Collectors.toMap(Attribute::getFullName, Attribute::getUsageCount));
+   }
+
+   @Test
+   public void testGetCollectionCached() {
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME);
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME);
+
+      Mockito.verify(collectionDao, Mockito.times(1)).getCollectionByCode(CODE);
+   }
+
+   @Test
+   public void testUpdateCollectionInvalidates() {
+      collectionCache.getCollection(CODE);
+
+      Mockito.when(collectionDao.getCollectionByCode(CODE)).thenReturn(prepareCollection(CODE, NAME2));
+      collectionCache.onUpdateCollection(new UpdateCollection(PROJECT_ID, prepareCollection(CODE, NAME2)));
+
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME2);
+      Mockito.verify(collectionDao, Mockito.times(2)).getCollectionByCode(CODE);
+   }
+
+   @Test
+   public void testRenameCollectionInvalidatesPreviousCode() {
+      collectionCache.getCollection(CODE);
+
+      collectionCache.onUpdateCollection(new UpdateCollection(PROJECT_ID, prepareCollection(CODE2, NAME)));
+
+      assertThat(cacheFactory.getMap("collections")).isEmpty();
+   }
+
+   @Test
+   public void testRemoveCollectionInvalidates() {
+      collectionCache.getCollection(CODE);
+
+      collectionCache.onRemoveCollection(new RemoveCollection(PROJECT_ID, COLLECTION_ID));
+
+      assertThat(cacheFactory.getMap("collections")).isEmpty();
+      assertThat(cacheFactory.getMap("collectionKeys")).isEmpty();
+   }
+
+   @Test
+   public void testRemoveCollectionFromOtherNode() {
+      CollectionCache otherNodeCache = createCache(new MapCacheFactory(), new LoopbackCacheInvalidationChannel(invalidationChannel));
+      collectionCache.getCollection(CODE);
+
+      // the other node has never cached the removed collection
+      otherNodeCache.onRemoveCollection(new RemoveCollection(PROJECT_ID, COLLECTION_ID));
+
+      assertThat(cacheFactory.getMap("collections")).isEmpty();
+      assertThat(cacheFactory.getMap("collectionKeys")).isEmpty();
+   }
+
+   @Test
+   public void testRemoveUncachedCollectionKeepsOthers() {
+      collectionCache.getCollection(CODE);
+
+      collectionCache.onRemoveCollection(new RemoveCollection(PROJECT_ID, "59a4348a8eed1e53942d2d2c"));
+
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME);
+      Mockito.verify(collectionDao, Mockito.times(1)).getCollectionByCode(CODE);
+   }
+
+   @Test
+   public void testInvalidationFromOtherNode() {
+      CollectionCache otherNodeCache = createCache(new MapCacheFactory(), new LoopbackCacheInvalidationChannel(invalidationChannel));
+      collectionCache.getCollection(CODE);
+
+      Mockito.when(collectionDao.getCollectionByCode(CODE)).thenReturn(prepareCollection(CODE, NAME2));
+      otherNodeCache.onUpdateCollection(new UpdateCollection(PROJECT_ID, prepareCollection(CODE, NAME2)));
+
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME2);
+   }
+
+   @Test
+   public void testStaleReadDoesNotOverwriteInvalidation() {
+      // the collection gets updated while the first reader is still loading the old one
+      AtomicInteger reads = new AtomicInteger();
+      Mockito.when(collectionDao.getCollectionByCode(CODE)).thenAnswer(invocation -> {
+         if (reads.getAndIncrement() > 0) {
+            return prepareCollection(CODE, NAME2);
+         }
+         collectionCache.onUpdateCollection(new UpdateCollection(PROJECT_ID, prepareCollection(CODE, NAME2)));
+         return prepareCollection(CODE, NAME);
+      });
+
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME);
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME2);
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME2);
+      Mockito.verify(collectionDao, Mockito.times(2)).getCollectionByCode(CODE);
+   }
+
+   @Test
+   public void testStaleReadDoesNotOverwriteRemoteInvalidation() {
+      CollectionCache otherNodeCache = createCache(new MapCacheFactory(), new LoopbackCacheInvalidationChannel(invalidationChannel));
+      AtomicInteger reads = new AtomicInteger();
+      Mockito.when(collectionDao.getCollectionByCode(CODE)).thenAnswer(invocation -> {
+         if (reads.getAndIncrement() > 0) {
+            return prepareCollection(CODE, NAME2);
+         }
+         otherNodeCache.onUpdateCollection(new UpdateCollection(PROJECT_ID, prepareCollection(CODE, NAME2)));
+         return prepareCollection(CODE, NAME);
+      });
+
+      collectionCache.getCollection(CODE);
+
+      assertThat(collectionCache.getCollection(CODE).getName()).isEqualTo(NAME2);
+   }
+
+   @Test
+   public void testStaleReadDoesNotLoseStatistics() {
+      AtomicInteger reads = new AtomicInteger();
+      Mockito.when(collectionDao.getCollectionByCode(CODE)).thenAnswer(invocation -> {
+         if (reads.getAndIncrement() > 0) {
+            Collection updatedCollection = prepareCollection(CODE, NAME);
+            updatedCollection.setDocumentsCount(2);
+            return updatedCollection;
+         }
+         collectionCache.onUpdateCollectionStatistics(statistics(2));
+         return prepareCollection(CODE, NAME);
+      });
+
+      collectionCache.getCollection(CODE);
+
+      assertThat(collectionCache.getCollection(CODE).getDocumentsCount()).isEqualTo(2);
+   }
+
+   @Test
+   public void testStatisticsAppliedToCachedCollection() {
+      collectionCache.getCollection(CODE);
+
+      collectionCache.onUpdateCollectionStatistics(statistics(2));
+      collectionCache.onUpdateCollectionStatistics(statistics(3));
+
+      Collection collection = collectionCache.getCollection(CODE);
+      assertThat(collection.getDocumentsCount()).isEqualTo(5);
+      assertThat(getAttributesUsage(collection)).containsEntry(ATTRIBUTE, 5);
+      Mockito.verify(collectionDao, Mockito.times(1)).getCollectionByCode(CODE);
+   }
+
+   @Test
+   public void testEvictedKeyInvalidatesCollection() {
+      collectionCache.getCollection(CODE);
+
+      // the key cache evicts its entry on its own
+      cacheFactory.getMap("collectionKeys").clear();
+      Mockito.when(collectionDao.getCollectionByCode(CODE)).thenReturn(prepareCollection(CODE, NAME2));
+      collectionCache.onUpdateCollectionStatistics(statistics(1));
+
+      Collection collection = collectionCache.getCollection(CODE);
+      assertThat(collection.getName()).isEqualTo(NAME2);
+      assertThat(collection.getDocumentsCount()).isEqualTo(0);
+      Mockito.verify(collectionDao, Mockito.times(2)).getCollectionByCode(CODE);
+   }
+
+   @Test
+   public void testCallersGetCopies() {
+      collectionCache.getCollection(CODE).setDocumentsCount(5);
+
+      assertThat(collectionCache.getCollection(CODE).getDocumentsCount()).isEqualTo(0);
+   }
+
+   private static class MapCacheFactory implements CacheFactory {
+
+      private final Map<String, Map<String, ?>> maps = new HashMap<>();
+
+      @Override
+      public <T> Cache<T> getCache() {
+         return getCache(null);
+      }
+
+      @Override
+      public <T> Cache<T> getCache(final String cacheName) {
+         Map<String, T> map = new ConcurrentHashMap<>();
+         maps.put(cacheName, map);
+         return new MapCache<>(map);
+      }
+
+      Map<String, ?> getMap(final String cacheName) {
+         return maps.get(cacheName);
+      }
+   }
+
+   private static class MapCache<T> implements Cache<T> {
+
+      private final Map<String, T> map;
+
+      MapCache(final Map<String, T> map) {
+         this.map = map;
+      }
+
+      @Override
+      public T get(final String key) {
+         return map.get(key);
+      }
+
+      @Override
+      public T computeIfAbsent(final String key, final Function<String, T> fce) {
+         return map.computeIfAbsent(key, fce);
+      }
+
+      @Override
+      public void set(final String key, final T t) {
+         map.put(key, t);
+      }
+
+      @Override
+      public T remove(final String key) {
+         return map.remove(key);
+      }
+
+      @Override
+      public void lock(final String key) {
+      }
+
+      @Override
+      public void unlock(final String key) {
+      }
+
+      @Override
+      public boolean tryLock(final String key) {
+         return true;
+      }
+
+      @Override
+      public void clear() {
+         map.clear();
+      }
+   }
+}
@@ -0,0 +1,96 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedExecutorTest {
+
+   private static final int TASKS = 50;
+   private static final int PARALLELISM = 3;
+
+   private ExecutorService pool;
+
+   @Before
+   public void createPool() {
+      pool = Executors.newFixedThreadPool(10);
+   }
+
+   @After
+   public void shutdownPool() {
+      pool.shutdownNow();
+   }
+
+   @Test
+   public void testParallelismIsBounded() throws Exception {
+      BoundedExecutor executor = new BoundedExecutor(pool, PARALLELISM);
+
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger maxRunning = new AtomicInteger();
+      CountDownLatch finished = new CountDownLatch(TASKS);
+
+      for (int i = 0; i < TASKS; i++) {
+         executor.execute(() -> {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+               Thread.sleep(2);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            finished.countDown();
+         });
+      }
+
+      assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(maxRunning.get()).isBetween(1, PARALLELISM);
+   }
+
+   @Test
+   public void testFailingTaskReleasesSlot() throws Exception {
+      BoundedExecutor executor = new BoundedExecutor(pool, 1);
+      CountDownLatch finished = new CountDownLatch(1);
+
+      executor.execute(() -> {
+         throw new IllegalStateException("failure");
+      });
+      executor.execute(finished::countDown);
+
+      assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+   }
+
+   @Test
+   public void testInvalidParallelism() {
+      assertThatThrownBy(() -> new BoundedExecutor(pool, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+   }
+}
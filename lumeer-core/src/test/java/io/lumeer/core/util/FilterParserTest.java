@@ -0,0 +1,110 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.lumeer.engine.api.exception.InvalidQueryException;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.filter.CompositeFilter;
+import io.lumeer.storage.api.filter.ConditionType;
+import io.lumeer.storage.api.filter.SearchFilter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+public class FilterParserTest {
+
+   private static final BiFunction<String, String, Object> NO_ENCODING = (attribute, value) -> value;
+   private static final BiFunction<String, String, Object> NUMBER_ENCODING = (attribute, value) -> {
+      try {
+         return Long.valueOf(value);
+      } catch (NumberFormatException e) {
+         return value;
+      }
+   };
+
+   @Test
+   public void testParseConditions() throws Exception {
+      for (ConditionType type : ConditionType.values()) {
+         SearchFilter filter = FilterParser.parse("name " + type.getSymbol() + " value", NO_ENCODING);
+         assertThat(filter).isEqualTo(new AttributeFilter("name", type, "value"));
+      }
+   }
+
+   @Test
+   public void testParseWithoutSpaces() throws Exception {
+      assertThat(FilterParser.parse("age>=18", NUMBER_ENCODING)).isEqualTo(new AttributeFilter("age", ConditionType.GREATER_THAN_EQUALS, 18L));
+      assertThat(FilterParser.parse("age!=18", NO_ENCODING)).isEqualTo(new AttributeFilter("age", ConditionType.NOT_EQUALS, "18"));
+   }
+
+   @Test
+   public void testParseQuotedValue() throws Exception {
+      SearchFilter filter = FilterParser.parse("note = \"a AND b > 5\"", NUMBER_ENCODING);
+      assertThat(filter).isEqualTo(new AttributeFilter("note", ConditionType.EQUALS, "a AND b > 5"));
+
+      assertThat(FilterParser.parse("age > \"18\"", NUMBER_ENCODING)).isEqualTo(new AttributeFilter("age", ConditionType.GREATER_THAN, "18"));
+   }
+
+   @Test
+   public void testParseEncodedEquality() throws Exception {
+      assertThat(FilterParser.parse("age = 18", NUMBER_ENCODING)).isEqualTo(CompositeFilter.or(Arrays.asList(
+            new AttributeFilter("age", ConditionType.EQUALS, 18L),
+            new AttributeFilter("age", ConditionType.EQUALS, "18"))));
+      assertThat(FilterParser.parse("age != 18", NUMBER_ENCODING)).isEqualTo(CompositeFilter.and(Arrays.asList(
+            new AttributeFilter("age", ConditionType.NOT_EQUALS, 18L),
+            new AttributeFilter("age", ConditionType.NOT_EQUALS, "18"))));
+      assertThat(FilterParser.parse("age ~ 18", NUMBER_ENCODING)).isEqualTo(new AttributeFilter("age", ConditionType.CONTAINS, "18"));
+   }
+
+   @Test
+   public void testParseLogicalOperators() throws Exception {
+      SearchFilter filter = FilterParser.parse("a < 1 and b > 2 OR c ~ x", NO_ENCODING);
+
+      assertThat(filter).isEqualTo(CompositeFilter.or(Arrays.asList(
+            CompositeFilter.and(Arrays.asList(
+                  new AttributeFilter("a", ConditionType.LOWER_THAN, "1"),
+                  new AttributeFilter("b", ConditionType.GREATER_THAN, "2"))),
+            new AttributeFilter("c", ConditionType.CONTAINS, "x"))));
+   }
+
+   @Test
+   public void testParseInvalidFilter() {
+      assertThatThrownBy(() -> FilterParser.parse("", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("age", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("age >", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("= 5", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("a = 1 AND", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("a = \"1", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+   }
+
+   @Test
+   public void testParseOperatorAttribute() {
+      assertThatThrownBy(() -> FilterParser.parse("$where = 1", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("a = 1 OR $where = 1", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("a.$where = 1", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+      assertThatThrownBy(() -> FilterParser.parse("a\0b = 1", NO_ENCODING)).isInstanceOf(InvalidQueryException.class);
+
+      assertThat(FilterParser.parse("a.b$ = 1", NO_ENCODING)).isEqualTo(new AttributeFilter("a.b$", ConditionType.EQUALS, "1"));
+   }
+}
@@ -0,0 +1,140 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.dto.JsonAttribute;
+import io.lumeer.api.dto.JsonCollection;
+import io.lumeer.api.dto.JsonPermissions;
+import io.lumeer.api.model.Attribute;
+import io.lumeer.api.model.Collection;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.filter.CompositeFilter;
+import io.lumeer.storage.api.filter.ConditionType;
+import io.lumeer.storage.api.filter.SearchFilter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class IndexAdvisorTest {
+
+   private static final String COLLECTION_ID = "59a51b83d412bc2da88b010f";
+
+   private static final String AGE = "age";
+   private static final String NAME = "name";
+   private static final String CITY = "city";
+   private static final String UNUSED = "unused";
+
+   private IndexAdvisor indexAdvisor;
+   private Collection collection;
+
+   @Before
+   public void prepareAdvisor() {
+      indexAdvisor = new IndexAdvisor(2, 0);
+
+      collection = new JsonCollection("CODE", "name", "fa-eye", "#00ee00", new JsonPermissions());
+      collection.setId(COLLECTION_ID);
+      Set<Attribute> attributes = Stream.of(new JsonAttribute(AGE, AGE, Collections.emptySet(), 100),
+            new JsonAttribute(NAME, NAME, Collections.emptySet(), 50),
+            new JsonAttribute(CITY, CITY, Collections.emptySet(), 80),
+            new JsonAttribute(UNUSED, UNUSED, Collections.emptySet(), 0))
+                                        .collect(Collectors.toCollection(HashSet::new));
+      collection.setAttributes(attributes);
+   }
+
+   private static SearchFilter filter(String attribute) {
+      return new AttributeFilter(attribute, ConditionType.EQUALS, 1);
+   }
+
+   private void recordQuery(int times, SearchFilter... filters) {
+      for (int i = 0; i < times; i++) {
+         indexAdvisor.recordQuery(COLLECTION_ID, Arrays.asList(filters));
+      }
+   }
+
+   @Test
+   public void testAdviseSingleFieldIndexes() {
+      recordQuery(5, filter(NAME));
+      recordQuery(3, filter(CITY));
+      recordQuery(1, filter(AGE));
+
+      assertThat(indexAdvisor.adviseIndexes(collection, 5)).containsExactly(
+            Collections.singletonList(NAME), Collections.singletonList(CITY));
+   }
+
+   @Test
+   public void testAdviseCompoundIndex() {
+      recordQuery(4, filter(NAME), filter(AGE));
+      recordQuery(3, filter(AGE));
+
+      // the single field index is covered by the compound one as the more used attribute goes first
+      assertThat(indexAdvisor.adviseIndexes(collection, 5)).containsExactly(Arrays.asList(AGE, NAME));
+   }
+
+   @Test
+   public void testAdviseAlternatives() {
+      recordQuery(3, CompositeFilter.or(Arrays.asList(filter(NAME), filter(CITY))));
+
+      List<List<String>> indexes = indexAdvisor.adviseIndexes(collection, 5);
+      assertThat(indexes).containsExactly(Collections.singletonList(CITY), Collections.singletonList(NAME));
+   }
+
+   @Test
+   public void testLimitAndUnusedAttributes() {
+      recordQuery(5, filter(UNUSED));
+      recordQuery(4, filter("missing"));
+      recordQuery(3, filter(NAME));
+      recordQuery(2, filter(CITY));
+
+      assertThat(indexAdvisor.adviseIndexes(collection, 1)).containsExactly(Collections.singletonList(NAME));
+      assertThat(indexAdvisor.adviseIndexes(collection, 0)).isEmpty();
+   }
+
+   @Test
+   public void testPatternsFadeOut() {
+      recordQuery(4, filter(NAME));
+
+      assertThat(indexAdvisor.adviseIndexes(collection, 5)).containsExactly(Collections.singletonList(NAME));
+      assertThat(indexAdvisor.adviseIndexes(collection, 5)).containsExactly(Collections.singletonList(NAME));
+      assertThat(indexAdvisor.adviseIndexes(collection, 5)).isEmpty();
+   }
+
+   @Test
+   public void testAdviceDue() {
+      assertThat(indexAdvisor.isAdviceDue(COLLECTION_ID)).isFalse();
+
+      recordQuery(1, filter(NAME));
+      assertThat(indexAdvisor.isAdviceDue(COLLECTION_ID)).isTrue();
+
+      IndexAdvisor slowAdvisor = new IndexAdvisor(2, 60_000);
+      slowAdvisor.recordQuery(COLLECTION_ID, Collections.singletonList(filter(NAME)));
+      assertThat(slowAdvisor.isAdviceDue(COLLECTION_ID)).isTrue();
+      assertThat(slowAdvisor.isAdviceDue(COLLECTION_ID)).isFalse();
+   }
+}
@@ -21,12 +21,29 @@ package io.lumeer.remote.rest;
 
 import io.lumeer.core.WorkspaceKeeper;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
 
 abstract class AbstractService {
 
@@ -36,14 +53,87 @@ abstract class AbstractService {
    @Inject
    protected WorkspaceKeeper workspaceKeeper;
 
+   @Context
+   private Request restRequest;
+
+   @Context
+   private Providers providers;
+
    protected URI getResourceUri(String additionalPath) {
       return UriBuilder.fromUri(request.getRequestURL() + "/" + additionalPath).build();
    }
 
+   protected UriBuilder getRequestUriBuilder() {
+      return UriBuilder.fromUri(request.getRequestURL().toString());
+   }
+
    protected URI getParentUri(String... urlEnd) {
       String fullPath = request.getRequestURL().toString();
       String regex = "\\/" + Arrays.stream(urlEnd).collect(Collectors.joining("\\/")) + "\\/?$";
       String parentPath = fullPath.replaceFirst(regex, "");
       return UriBuilder.fromUri(parentPath).build();
    }
+
+   /**
+    * Builds a response for a GET request whose entity tag is known before the entity is loaded. The entity is
+    * loaded only when the client does not have the current representation yet.
+    *
+    * @param entityTag
+    *       Entity tag of the current representation.
+    * @param entity
+    *       Supplier of the entity, not called when the request is answered with 304.
+    * @return Response with the entity or 304 Not Modified.
+    */
+   protected Response getConditionalResponse(EntityTag entityTag, Supplier<?> entity) {
+      Response.ResponseBuilder response = restRequest.evaluatePreconditions(entityTag);
+      if (response == null) {
+         response = Response.ok(entity.get());
+      }
+
+      // clients may store the representation but have to revalidate it with the entity tag
+      CacheControl cacheControl = new CacheControl();
+      cacheControl.setPrivate(true);
+      cacheControl.setNoCache(true);
+      return response.tag(entityTag).cacheControl(cacheControl).build();
+   }
+
+   /**
+    * Builds a response for a GET request of a resource without a version. The entity tag is the digest of the
+    * serialized entity, which is sent as it is when it differs from the representation the client has.
+    *
+    * @param entity
+    *       Entity to send.
+    * @return Response with the entity or 304 Not Modified.
+    */
+   protected Response getConditionalResponse(Object entity) {
+      byte[] content = writeJson(entity);
+      return getConditionalResponse(new EntityTag(digest(content)), () -> content);
+   }
+
+   @SuppressWarnings("unchecked")
+   private byte[] writeJson(Object entity) {
+      Class<Object> type = (Class<Object>) entity.getClass();
+      Annotation[] annotations = new Annotation[0];
+      MessageBodyWriter<Object> writer = providers.getMessageBodyWriter(type, type, annotations, MediaType.APPLICATION_JSON_TYPE);
+      if (writer == null) {
+         throw new InternalServerErrorException("No JSON writer for " + type.getName());
+      }
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try {
+         writer.writeTo(entity, type, type, annotations, MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+      } catch (IOException e) {
+         throw new InternalServerErrorException(e);
+      }
+      return output.toByteArray();
+   }
+
+   private static String digest(byte[] content) {
+      try {
+         MessageDigest md = MessageDigest.getInstance("SHA-256");
+         return Base64.getUrlEncoder().withoutPadding().encodeToString(md.digest(content));
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
 }
@@ -29,6 +29,8 @@ import io.lumeer.api.model.Pagination;
 import io.lumeer.api.model.Permission;
 import io.lumeer.api.model.Permissions;
 import io.lumeer.core.facade.CollectionFacade;
+import io.lumeer.core.facade.IndexFacade;
+import io.lumeer.storage.api.index.DataIndex;
 
 import java.net.URI;
 import java.util.List;
@@ -64,6 +66,9 @@ public class CollectionService extends AbstractService {
    @Inject
    private CollectionFacade collectionFacade;
 
+   @Inject
+   private IndexFacade indexFacade;
+
    @PostConstruct
    public void init() {
       workspaceKeeper.setWorkspace(organizationCode, projectCode);
@@ -95,25 +100,25 @@ public class CollectionService extends AbstractService {
 
    @GET
    @Path("{collectionCode}")
-   public JsonCollection getCollection(@PathParam("collectionCode") String collectionCode) {
+   public Response getCollection(@PathParam("collectionCode") String collectionCode) {
       Collection collection = collectionFacade.getCollection(collectionCode);
-      return JsonCollection.convert(collection);
+      return getConditionalResponse(JsonCollection.convert(collection));
    }
 
    @GET
-   public List<JsonCollection> getCollections(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize) {
+   public Response getCollections(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize) {
       Pagination pagination = new Pagination(page, pageSize);
 
       List<Collection> collections = collectionFacade.getCollections(pagination);
-      return JsonCollection.convert(collections);
+      return getConditionalResponse(JsonCollection.convert(collections));
    }
 
    @GET
    @Deprecated
    @Path("{collectionCode}/attributes")
-   public Set<JsonAttribute> getCollectionAttributes(@PathParam("collectionCode") String collectionCode) {
-      Set<Attribute> attributes = getCollection(collectionCode).getAttributes();
-      return JsonAttribute.convert(attributes);
+   public Response getCollectionAttributes(@PathParam("collectionCode") String collectionCode) {
+      Set<Attribute> attributes = collectionFacade.getCollection(collectionCode).getAttributes();
+      return getConditionalResponse(JsonAttribute.convert(attributes));
    }
 
    @PUT
@@ -173,4 +178,28 @@ public class CollectionService extends AbstractService {
       return Response.ok().link(getParentUri("groups", group), "parent").build();
    }
 
+   @GET
+   @Path("{collectionCode}/indexes")
+   public List<DataIndex> getIndexes(@PathParam("collectionCode") String code) {
+      return indexFacade.getIndexes(code);
+   }
+
+   @POST
+   @Path("{collectionCode}/indexes")
+   public DataIndex createIndex(@PathParam("collectionCode") String code, List<String> attributes) {
+      return indexFacade.createIndex(code, attributes);
+   }
+
+   @DELETE
+   @Path("{collectionCode}/indexes")
+   public Response dropIndex(@PathParam("collectionCode") String code, @QueryParam("attribute") List<String> attributes) {
+      if (attributes == null || attributes.isEmpty()) {
+         throw new BadRequestException("attribute");
+      }
+
+      indexFacade.dropIndex(code, attributes);
+
+      return Response.ok().link(getParentUri("indexes"), "parent").build();
+   }
+
 }
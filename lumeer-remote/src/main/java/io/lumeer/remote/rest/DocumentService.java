@@ -19,27 +19,34 @@
  */
 package io.lumeer.remote.rest;
 
+import io.lumeer.api.dto.JsonBulkResult;
 import io.lumeer.api.dto.JsonDocument;
 import io.lumeer.api.model.Document;
+import io.lumeer.api.model.DocumentPage;
 import io.lumeer.api.model.Pagination;
 import io.lumeer.core.facade.DocumentFacade;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.remote.rest.annotation.PATCH;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -49,6 +56,8 @@ import javax.ws.rs.core.Response;
 @Path("organizations/{organizationCode}/projects/{projectCode}/collections/{collectionCode}/documents")
 public class DocumentService extends AbstractService {
 
+   public static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+
    @PathParam("organizationCode")
    private String organizationCode;
 
@@ -74,20 +83,38 @@ public class DocumentService extends AbstractService {
       return Response.created(resourceUri).build();
    }
 
+   @POST
+   @Path("bulk")
+   public List<JsonBulkResult> createDocuments(List<JsonDocument> documents) {
+      return documentFacade.createDocuments(collectionCode, new ArrayList<>(documents));
+   }
+
+   @PATCH
+   @Path("bulk")
+   public List<JsonBulkResult> patchDocumentsData(List<JsonDocument> documents) {
+      return documentFacade.patchDocumentsData(collectionCode, new ArrayList<>(documents));
+   }
+
+   @DELETE
+   @Path("bulk")
+   public List<JsonBulkResult> deleteDocuments(List<String> documentIds) {
+      return documentFacade.deleteDocuments(collectionCode, documentIds);
+   }
+
    @PUT
    @Path("{documentId}/data")
-   public Response updateDocumentData(@PathParam("documentId") String documentId, DataDocument data) {
-      Document storedDocument = documentFacade.updateDocumentData(collectionCode, documentId, data);
+   public Response updateDocumentData(@PathParam("documentId") String documentId, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, DataDocument data) {
+      Document storedDocument = documentFacade.updateDocumentData(collectionCode, documentId, data, parseDataVersion(ifMatch));
 
-      return Response.ok(JsonDocument.convert(storedDocument)).build();
+      return Response.ok(JsonDocument.convert(storedDocument)).tag(getEntityTag(storedDocument)).build();
    }
 
    @PATCH
    @Path("{documentId}/data")
-   public Response patchDocumentData(@PathParam("documentId") String documentId, DataDocument data) {
-      Document storedDocument = documentFacade.patchDocumentData(collectionCode, documentId, data);
+   public Response patchDocumentData(@PathParam("documentId") String documentId, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, DataDocument data) {
+      Document storedDocument = documentFacade.patchDocumentData(collectionCode, documentId, data, parseDataVersion(ifMatch));
 
-      return Response.ok(JsonDocument.convert(storedDocument)).build();
+      return Response.ok(JsonDocument.convert(storedDocument)).tag(getEntityTag(storedDocument)).build();
    }
 
    @DELETE
@@ -100,17 +127,69 @@ public class DocumentService extends AbstractService {
 
    @GET
    @Path("{documentId}")
-   public JsonDocument getDocument(@PathParam("documentId") String documentId) {
-      Document document = documentFacade.getDocument(collectionCode, documentId);
-      return JsonDocument.convert(document);
+   public Response getDocument(@PathParam("documentId") String documentId) {
+      // the data version decides about 304 before the data is read, data read later are never older than the tag
+      EntityTag entityTag = new EntityTag(String.valueOf(documentFacade.getDocumentDataVersion(collectionCode, documentId)));
+      return getConditionalResponse(entityTag, () -> JsonDocument.convert(documentFacade.getDocument(collectionCode, documentId)));
    }
 
    @GET
-   public List<JsonDocument> getDocuments(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize) {
-      Pagination pagination = new Pagination(page, pageSize);
+   public Response getDocuments(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize, @QueryParam("lastId") String lastId) {
+      if (lastId != null && (pageSize == null || pageSize <= 0)) {
+         throw new BadRequestException("lastId requires a positive pageSize");
+      }
+
+      // keyset paging continues after the last seen document, the page number is irrelevant then
+      Pagination pagination = lastId != null ? new Pagination(0, pageSize, lastId) : new Pagination(page, pageSize);
+
+      DocumentPage documentPage;
+      try {
+         documentPage = documentFacade.getDocuments(collectionCode, pagination);
+      } catch (IllegalArgumentException ex) {
+         // incomplete paging parameters or a lastId that is not a document id
+         throw new BadRequestException(ex.getMessage(), ex);
+      }
+
+      Response.ResponseBuilder response = Response.ok(JsonDocument.convert(documentPage.getDocuments()));
+      String nextLastId = documentPage.getNextLastId();
+      if (nextLastId != null) {
+         response.header(CONTINUATION_TOKEN_HEADER, nextLastId)
+                 .link(getNextPageUri(pageSize, nextLastId), "next");
+      }
+      return response.build();
+   }
+
+   private static EntityTag getEntityTag(Document document) {
+      return new EntityTag(String.valueOf(document.getDataVersion()));
+   }
+
+   /**
+    * Reads the expected data version from an If-Match header carrying the entity tag of a previous response.
+    *
+    * @param ifMatch
+    *       Value of the header, may be null.
+    * @return The expected data version, null when the update is unconditional.
+    */
+   private static Integer parseDataVersion(String ifMatch) {
+      if (ifMatch == null || ifMatch.trim().isEmpty() || ifMatch.trim().equals("*")) {
+         return null;
+      }
+
+      String tag = ifMatch.trim();
+      if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+         throw new BadRequestException();
+      }
+      try {
+         return Integer.valueOf(tag.substring(1, tag.length() - 1));
+      } catch (NumberFormatException e) {
+         throw new BadRequestException(e);
+      }
+   }
 
-      List<Document> documents = documentFacade.getDocuments(collectionCode, pagination);
-      return JsonDocument.convert(documents);
+   private URI getNextPageUri(Integer pageSize, String lastId) {
+      return getRequestUriBuilder().queryParam("pageSize", pageSize)
+                                   .queryParam("lastId", lastId)
+                                   .build();
    }
 
 }
@@ -20,13 +20,17 @@
 package io.lumeer.remote.rest;
 
 import io.lumeer.api.dto.JsonCollection;
+import io.lumeer.api.dto.JsonImportProgress;
 import io.lumeer.api.model.Collection;
 import io.lumeer.core.facade.ImportFacade;
 
+import java.io.InputStream;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -54,9 +58,15 @@ public class ImportService extends AbstractService {
    }
 
    @POST
-   @Consumes(MediaType.TEXT_PLAIN)
-   public JsonCollection importDocuments(@QueryParam("format") String format, @QueryParam("name") String name, String data) {
-      Collection collection = importFacade.importDocuments(format, name,  data);
+   @Consumes({ MediaType.TEXT_PLAIN, "text/csv" })
+   public JsonCollection importDocuments(@QueryParam("format") String format, @QueryParam("name") String name, @QueryParam("importId") String importId, InputStream data) {
+      Collection collection = importFacade.importDocuments(format, name, data, importId);
       return JsonCollection.convert(collection);
    }
+
+   @GET
+   @Path("{importId}")
+   public JsonImportProgress getImportProgress(@PathParam("importId") String importId) {
+      return importFacade.getImportProgress(importId).orElseThrow(NotFoundException::new);
+   }
 }
@@ -42,6 +42,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 @RequestScoped
 @Produces(MediaType.APPLICATION_JSON)
@@ -49,6 +50,8 @@ import javax.ws.rs.core.MediaType;
 @Path("organizations/{organizationCode}/projects/{projectCode}/search")
 public class SearchService extends AbstractService {
 
+   public static final String SEARCH_ERROR_HEADER = "X-Search-Error";
+
    @PathParam("organizationCode")
    private String organizationCode;
 
@@ -79,20 +82,29 @@ public class SearchService extends AbstractService {
 
    @POST
    @Path("collections")
-   public List<JsonCollection> searchCollections(JsonQuery query) {
-      return searchFacade.searchCollections(query).stream()
-                         .map(JsonCollection::convert)
-                         .collect(Collectors.toList());
-
+   public Response searchCollections(JsonQuery query) {
+      List<JsonCollection> collections = searchFacade.searchCollections(query).stream()
+                                                     .map(JsonCollection::convert)
+                                                     .collect(Collectors.toList());
+      return createPartialResponse(collections);
    }
 
    @POST
    @Path("documents")
-   public List<JsonDocument> searchDocuments(JsonQuery query) {
-      return searchFacade.searchDocuments(query).stream()
-                         .map(JsonDocument::convert)
-                         .collect(Collectors.toList());
+   public Response searchDocuments(JsonQuery query) {
+      List<JsonDocument> documents = searchFacade.searchDocuments(query).stream()
+                                                 .map(JsonDocument::convert)
+                                                 .collect(Collectors.toList());
+      return createPartialResponse(documents);
+   }
 
+   /**
+    * Adds one error header per collection the search could not search, the results are partial then.
+    */
+   private Response createPartialResponse(Object entity) {
+      Response.ResponseBuilder response = Response.ok(entity);
+      searchFacade.getCollectionErrors().forEach((collectionCode, error) -> response.header(SEARCH_ERROR_HEADER, collectionCode + ": " + error));
+      return response.build();
    }
 
    @POST
@@ -93,17 +93,17 @@ public class ViewService extends AbstractService {
 
    @GET
    @Path("{viewCode}")
-   public JsonView getView(@PathParam("viewCode") String code) {
+   public Response getView(@PathParam("viewCode") String code) {
       View view = viewFacade.getViewByCode(code);
-      return JsonView.convert(view);
+      return getConditionalResponse(JsonView.convert(view));
    }
 
    @GET
-   public List<JsonView> getViews(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize) {
+   public Response getViews(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize) {
       Pagination pagination = new Pagination(page, pageSize);
 
       List<View> views = viewFacade.getViews(pagination);
-      return JsonView.convert(views);
+      return getConditionalResponse(JsonView.convert(views));
    }
 
    @GET
@@ -19,12 +19,16 @@
  */
 package io.lumeer.storage.api.dao;
 
+import io.lumeer.api.model.Attribute;
 import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Permissions;
 import io.lumeer.api.model.Project;
 import io.lumeer.storage.api.query.SearchQuery;
 import io.lumeer.storage.api.query.SuggestionQuery;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface CollectionDao {
@@ -37,10 +41,52 @@ public interface CollectionDao {
 
    Collection createCollection(Collection collection);
 
+   /**
+    * Updates the code, name, icon and color of the collection. Permissions, attributes and usage statistics are kept.
+    *
+    * @param id
+    *       Collection id.
+    * @param collection
+    *       Collection holding the new values.
+    * @return The updated collection.
+    */
    Collection updateCollection(String id, Collection collection);
 
+   Collection updateCollectionPermissions(String id, Permissions permissions);
+
+   /**
+    * Replaces the definition of the attribute or adds it when it does not exist yet. The usage count of an existing
+    * attribute is kept, it is maintained by {@link #updateCollectionStatistics(String, Map, int, LocalDateTime)} only.
+    *
+    * @param id
+    *       Collection id.
+    * @param attributeFullName
+    *       Full name of the attribute being updated.
+    * @param attribute
+    *       New definition of the attribute.
+    * @return The updated collection.
+    */
+   Collection updateCollectionAttribute(String id, String attributeFullName, Attribute attribute);
+
+   Collection deleteCollectionAttribute(String id, String attributeFullName);
+
    void deleteCollection(String id);
 
+   /**
+    * Atomically increments the usage statistics of the given collection without rewriting the whole entity.
+    * The changes may be delayed and merged with other increments when the storage coalesces statistics updates.
+    *
+    * @param id
+    *       Collection id.
+    * @param attributesUsage
+    *       Usage count increments by attribute full names, missing attributes are created.
+    * @param documentsCount
+    *       Documents count increment.
+    * @param lastTimeUsed
+    *       Time of the usage, kept only when it is later than the stored one.
+    */
+   void updateCollectionStatistics(String id, Map<String, Integer> attributesUsage, int documentsCount, LocalDateTime lastTimeUsed);
+
    Collection getCollectionByCode(String code);
 
    List<Collection> getCollections(SearchQuery query);
@@ -19,13 +19,21 @@
  */
 package io.lumeer.storage.api.dao;
 
+import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.storage.api.index.DataIndex;
 import io.lumeer.storage.api.query.SearchQuery;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 public interface DataDao {
 
+   int INITIAL_VERSION = 1;
+
    void createDataRepository(String collectionId);
 
    void deleteDataRepository(String collectionId);
@@ -34,16 +42,169 @@ public interface DataDao {
 
    List<DataDocument> createData(String collectionId, List<DataDocument> data);
 
-   DataDocument updateData(String collectionId, String documentId, DataDocument data);
+   /**
+    * Replaces the data of the document and increments its version in a single atomic write.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param documentId
+    *       Document id.
+    * @param data
+    *       New data of the document.
+    * @param expectedVersion
+    *       Version the data must have for the write to happen, null to replace the data whatever its version is.
+    * @return The new data with the new version stored under {@link LumeerConst.Document#METADATA_VERSION_KEY}.
+    * @throws io.lumeer.storage.api.exception.VersionConflictException
+    *       When the stored version differs from the expected one.
+    */
+   DataDocument updateData(String collectionId, String documentId, DataDocument data, Integer expectedVersion);
+
+   /**
+    * Sets the given attributes of the document and increments its version in a single atomic write.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param documentId
+    *       Document id.
+    * @param data
+    *       Attributes to set.
+    * @param expectedVersion
+    *       Version the data must have for the write to happen, null to patch the data whatever its version is.
+    * @return The patched data with the new version stored under {@link LumeerConst.Document#METADATA_VERSION_KEY}.
+    * @throws io.lumeer.storage.api.exception.VersionConflictException
+    *       When the stored version differs from the expected one.
+    */
+   DataDocument patchData(String collectionId, String documentId, DataDocument data, Integer expectedVersion);
 
-   DataDocument patchData(String collectionId, String documentId, DataDocument data);
+   /**
+    * Patches the data of several documents with a single bulk write. Each document is patched only if its data still
+    * has the version read just before the write and, when given, the version expected by the caller.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param data
+    *       Attributes to set by document id.
+    * @param expectedVersions
+    *       Versions expected by the caller by document id, documents without an expected version are patched whatever
+    *       their version is.
+    * @return New versions of the patched documents by their ids. Documents that do not exist or have another version
+    * are not patched and are missing in the result.
+    */
+   Map<String, Integer> patchData(String collectionId, Map<String, DataDocument> data, Map<String, Integer> expectedVersions);
 
    void deleteData(String collectionId, String documentId);
 
+   /**
+    * Deletes the data of several documents with a single delete.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param documentIds
+    *       Ids of the documents.
+    */
+   void deleteData(String collectionId, List<String> documentIds);
+
+   /**
+    * Reads the data of one document including its version stored under {@link LumeerConst.Document#METADATA_VERSION_KEY}.
+    * The data read by the queries do not contain the version.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param documentId
+    *       Document id.
+    * @return The data with its version.
+    */
    DataDocument getData(String collectionId, String documentId);
 
+   /**
+    * Reads only the version of the data, which is enough to decide whether a client has the current data.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param documentId
+    *       Document id.
+    * @return The version of the data, 0 for data stored before the data were versioned.
+    */
+   int getDataVersion(String collectionId, String documentId);
+
    List<DataDocument> getData(String collectionId, SearchQuery query);
 
+   Stream<DataDocument> getDataStream(String collectionId, SearchQuery query, int batchSize);
+
    long getDataCount(String collectionId, SearchQuery query);
 
+   boolean hasData(String collectionId, SearchQuery query);
+
+   /**
+    * Reads the data on the given executor. The query runs against the database of the workspace this DAO was created for,
+    * the executor threads do not need any request context. The time left until the deadline, when the query starts,
+    * is passed to the database as the query time limit, a query started after the deadline fails without being sent.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param query
+    *       Data search query.
+    * @param deadline
+    *       Time in milliseconds since the epoch by which the query must finish.
+    * @param executor
+    *       Executor to run the query on.
+    * @return Future with the matching data, completed exceptionally with {@link io.lumeer.storage.api.exception.StorageException}
+    * when the deadline passed.
+    */
+   CompletableFuture<List<DataDocument>> getDataAsync(String collectionId, SearchQuery query, long deadline, Executor executor);
+
+   /**
+    * Checks on the given executor whether there is at least one document matching the query.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param query
+    *       Data search query.
+    * @param deadline
+    *       Time in milliseconds since the epoch by which the query must finish.
+    * @param executor
+    *       Executor to run the query on.
+    * @return Future with true if and only if some data match the query.
+    * @see #getDataAsync(String, SearchQuery, long, Executor)
+    */
+   CompletableFuture<Boolean> hasDataAsync(String collectionId, SearchQuery query, long deadline, Executor executor);
+
+   /**
+    * Gets the secondary attribute indexes of the data collection, the id and fulltext indexes are not included.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @return The attribute indexes.
+    */
+   List<DataIndex> getIndexes(String collectionId);
+
+   /**
+    * Builds the index in the background so that the data collection stays available.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param index
+    *       The index to create.
+    */
+   void createIndex(String collectionId, DataIndex index);
+
+   /**
+    * Makes the automatic indexes of the data collection match the advised ones on the given executor. The manual indexes
+    * are kept, the advised indexes already covered by a manual index are skipped and the remaining ones are taken in their
+    * order until the collection has the maximal number of indexes.
+    *
+    * @param collectionId
+    *       Collection id.
+    * @param advisedIndexes
+    *       Attribute lists of the advised indexes, the most useful first.
+    * @param maxIndexes
+    *       Maximal number of indexes of the collection.
+    * @param executor
+    *       Executor to build the indexes on.
+    * @return Future completed when the indexes are updated.
+    */
+   CompletableFuture<Void> updateAutomaticIndexesAsync(String collectionId, List<List<String>> advisedIndexes, int maxIndexes, Executor executor);
+
+   void dropIndex(String collectionId, DataIndex index);
+
 }
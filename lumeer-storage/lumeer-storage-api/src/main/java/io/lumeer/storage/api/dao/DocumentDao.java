@@ -22,7 +22,9 @@ package io.lumeer.storage.api.dao;
 import io.lumeer.api.model.Document;
 import io.lumeer.api.model.Project;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface DocumentDao {
 
@@ -36,14 +38,60 @@ public interface DocumentDao {
 
    Document updateDocument(String id, Document document);
 
+   /**
+    * Records a write of the document data. The data version is only ever raised, so writes recorded out of order do
+    * not move it back.
+    *
+    * @param collectionId
+    *       Id of the collection the document must belong to.
+    * @param id
+    *       Id of the document.
+    * @param dataVersion
+    *       Version of the data after the write.
+    * @param updatedBy
+    *       User updating the document.
+    * @param updateDate
+    *       Time of the update.
+    * @return The updated document.
+    */
+   Document updateDataVersion(String collectionId, String id, int dataVersion, String updatedBy, LocalDateTime updateDate);
+
+   /**
+    * Records a write of the data of several documents with a single bulk write.
+    *
+    * @param collectionId
+    *       Id of the collection the documents must belong to.
+    * @param dataVersions
+    *       Versions of the data after the write by document id.
+    * @param updatedBy
+    *       User updating the documents.
+    * @param updateDate
+    *       Time of the update.
+    * @see #updateDataVersion(String, String, int, String, LocalDateTime)
+    */
+   void updateDataVersions(String collectionId, Map<String, Integer> dataVersions, String updatedBy, LocalDateTime updateDate);
+
    void deleteDocument(String id);
 
    void deleteDocuments(String collectionId);
 
+   /**
+    * Deletes the documents with the given ids that belong to the collection, documents of other collections are left
+    * untouched.
+    *
+    * @param collectionId
+    *       Id of the collection.
+    * @param ids
+    *       Ids of the documents.
+    */
+   void deleteDocuments(String collectionId, List<String> ids);
+
    Document getDocumentById(String id);
 
    List<Document> getDocumentsByIds(String... ids);
 
+   List<Document> getDocumentsByIds(String collectionId, List<String> ids);
+
    void setProject(Project project);
 
 }
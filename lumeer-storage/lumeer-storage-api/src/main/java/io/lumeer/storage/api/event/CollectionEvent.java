@@ -0,0 +1,43 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.event;
+
+/**
+ * CDI event that carries information about manipulation with a collection stored in a project.
+ */
+public abstract class CollectionEvent {
+
+   private final String projectId;
+
+   private final String collectionId;
+
+   public CollectionEvent(final String projectId, final String collectionId) {
+      this.projectId = projectId;
+      this.collectionId = collectionId;
+   }
+
+   public String getProjectId() {
+      return projectId;
+   }
+
+   public String getCollectionId() {
+      return collectionId;
+   }
+}
@@ -0,0 +1,84 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.event;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Change of a single data document. It carries only the names of the changed and removed attributes, the observers
+ * read the current values from the storage when they need them.
+ */
+public class DataChange {
+
+   public enum Type {
+      CREATE, UPDATE, PATCH, DELETE
+   }
+
+   private final Type type;
+
+   private final String collectionId;
+
+   private final String documentId;
+
+   private final Set<String> changedAttributes;
+
+   private final Set<String> removedAttributes;
+
+   public DataChange(final Type type, final String collectionId, final String documentId, final Set<String> changedAttributes, final Set<String> removedAttributes) {
+      this.type = type;
+      this.collectionId = collectionId;
+      this.documentId = documentId;
+      this.changedAttributes = Collections.unmodifiableSet(new LinkedHashSet<>(changedAttributes));
+      this.removedAttributes = Collections.unmodifiableSet(new LinkedHashSet<>(removedAttributes));
+   }
+
+   public Type getType() {
+      return type;
+   }
+
+   public String getCollectionId() {
+      return collectionId;
+   }
+
+   public String getDocumentId() {
+      return documentId;
+   }
+
+   public Set<String> getChangedAttributes() {
+      return changedAttributes;
+   }
+
+   public Set<String> getRemovedAttributes() {
+      return removedAttributes;
+   }
+
+   @Override
+   public String toString() {
+      return "DataChange{" +
+            "type=" + type +
+            ", collectionId='" + collectionId + '\'' +
+            ", documentId='" + documentId + '\'' +
+            ", changedAttributes=" + changedAttributes +
+            ", removedAttributes=" + removedAttributes +
+            '}';
+   }
+}
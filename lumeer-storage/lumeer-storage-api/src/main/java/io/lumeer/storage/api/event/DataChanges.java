@@ -0,0 +1,51 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.event;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CDI event that carries the data changes made by one write operation, in the order they were made.
+ * It is fired right after the write, so a bulk write of a large import is published chunk by chunk.
+ * The changes made on other nodes are fired as remote events when sharing the changes is enabled by the storage.
+ */
+public class DataChanges {
+
+   private final List<DataChange> changes;
+
+   private final boolean remote;
+
+   public DataChanges(final List<DataChange> changes, final boolean remote) {
+      this.changes = Collections.unmodifiableList(changes);
+      this.remote = remote;
+   }
+
+   public List<DataChange> getChanges() {
+      return changes;
+   }
+
+   /**
+    * @return True if and only if the changes were made on another node.
+    */
+   public boolean isRemote() {
+      return remote;
+   }
+}
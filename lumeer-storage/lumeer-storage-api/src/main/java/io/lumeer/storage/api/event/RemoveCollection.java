@@ -2,7 +2,7 @@
  * -----------------------------------------------------------------------\
  * Lumeer
  *  
- * Copyright (C) 2016 the original author or authors.
+ * Copyright (C) since 2016 the original author or authors.
  *  
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,21 +17,14 @@
  * limitations under the License.
  * -----------------------------------------------------------------------/
  */
-package io.lumeer.engine.api.task;
+package io.lumeer.storage.api.event;
 
 /**
- * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ * CDI event that is sent when a collection is deleted.
  */
-public class SearchTask implements Task {
+public class RemoveCollection extends CollectionEvent {
 
-   private String query;
-
-   public SearchTask(final String query) {
-      this.query = query;
-   }
-
-   @Override
-   public void process() {
-      // TBD
+   public RemoveCollection(final String projectId, final String collectionId) {
+      super(projectId, collectionId);
    }
 }
@@ -0,0 +1,39 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.event;
+
+import io.lumeer.api.model.Collection;
+
+/**
+ * CDI event that is sent when a collection is created or updated.
+ */
+public class UpdateCollection extends CollectionEvent {
+
+   private final Collection collection;
+
+   public UpdateCollection(final String projectId, final Collection collection) {
+      super(projectId, collection.getId());
+      this.collection = collection;
+   }
+
+   public Collection getCollection() {
+      return collection;
+   }
+}
@@ -0,0 +1,55 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.event;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * CDI event that is sent when the usage statistics of a collection are incremented.
+ */
+public class UpdateCollectionStatistics extends CollectionEvent {
+
+   private final Map<String, Integer> attributesUsage;
+
+   private final int documentsCount;
+
+   private final LocalDateTime lastTimeUsed;
+
+   public UpdateCollectionStatistics(final String projectId, final String collectionId, final Map<String, Integer> attributesUsage, final int documentsCount, final LocalDateTime lastTimeUsed) {
+      super(projectId, collectionId);
+      this.attributesUsage = Collections.unmodifiableMap(attributesUsage);
+      this.documentsCount = documentsCount;
+      this.lastTimeUsed = lastTimeUsed;
+   }
+
+   public Map<String, Integer> getAttributesUsage() {
+      return attributesUsage;
+   }
+
+   public int getDocumentsCount() {
+      return documentsCount;
+   }
+
+   public LocalDateTime getLastTimeUsed() {
+      return lastTimeUsed;
+   }
+}
@@ -0,0 +1,40 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.exception;
+
+import io.lumeer.api.exception.LumeerException;
+import io.lumeer.api.model.ResourceType;
+
+/**
+ * Thrown when a conditional update expects a different version of the resource than the one currently stored.
+ */
+public class VersionConflictException extends LumeerException {
+
+   private final ResourceType resourceType;
+
+   public VersionConflictException(final ResourceType resourceType) {
+      super(resourceType.toString());
+      this.resourceType = resourceType;
+   }
+
+   public ResourceType getResourceType() {
+      return resourceType;
+   }
+}
@@ -0,0 +1,85 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.filter;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public class AttributeFilter implements SearchFilter {
+
+   private final String attribute;
+   private final ConditionType condition;
+   private final Object value;
+
+   public AttributeFilter(final String attribute, final ConditionType condition, final Object value) {
+      this.attribute = attribute;
+      this.condition = condition;
+      this.value = value;
+   }
+
+   public String getAttribute() {
+      return attribute;
+   }
+
+   public ConditionType getCondition() {
+      return condition;
+   }
+
+   public Object getValue() {
+      return value;
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof AttributeFilter)) {
+         return false;
+      }
+
+      final AttributeFilter that = (AttributeFilter) o;
+
+      if (!attribute.equals(that.attribute)) {
+         return false;
+      }
+      if (condition != that.condition) {
+         return false;
+      }
+      return value != null ? value.equals(that.value) : that.value == null;
+   }
+
+   @Override
+   public int hashCode() {
+      int result = attribute.hashCode();
+      result = 31 * result + condition.hashCode();
+      result = 31 * result + (value != null ? value.hashCode() : 0);
+      return result;
+   }
+
+   @Override
+   public String toString() {
+      return "AttributeFilter{" +
+            "attribute='" + attribute + '\'' +
+            ", condition=" + condition +
+            ", value=" + value +
+            '}';
+   }
+}
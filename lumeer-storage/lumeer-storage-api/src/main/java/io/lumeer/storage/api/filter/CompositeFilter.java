@@ -0,0 +1,82 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.filter;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public class CompositeFilter implements SearchFilter {
+
+   public enum Operator {
+      AND, OR
+   }
+
+   private final Operator operator;
+   private final List<SearchFilter> filters;
+
+   public CompositeFilter(final Operator operator, final List<SearchFilter> filters) {
+      this.operator = operator;
+      this.filters = Collections.unmodifiableList(filters);
+   }
+
+   public static CompositeFilter and(final List<SearchFilter> filters) {
+      return new CompositeFilter(Operator.AND, filters);
+   }
+
+   public static CompositeFilter or(final List<SearchFilter> filters) {
+      return new CompositeFilter(Operator.OR, filters);
+   }
+
+   public Operator getOperator() {
+      return operator;
+   }
+
+   public List<SearchFilter> getFilters() {
+      return filters;
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof CompositeFilter)) {
+         return false;
+      }
+
+      final CompositeFilter that = (CompositeFilter) o;
+      return operator == that.operator && filters.equals(that.filters);
+   }
+
+   @Override
+   public int hashCode() {
+      return 31 * operator.hashCode() + filters.hashCode();
+   }
+
+   @Override
+   public String toString() {
+      return "CompositeFilter{" +
+            "operator=" + operator +
+            ", filters=" + filters +
+            '}';
+   }
+}
@@ -0,0 +1,65 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.filter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public enum ConditionType {
+
+   EQUALS("="),
+   NOT_EQUALS("!="),
+   LOWER_THAN("<"),
+   LOWER_THAN_EQUALS("<="),
+   GREATER_THAN(">"),
+   GREATER_THAN_EQUALS(">="),
+   CONTAINS("~");
+
+   private final String symbol;
+
+   ConditionType(final String symbol) {
+      this.symbol = symbol;
+   }
+
+   public String getSymbol() {
+      return symbol;
+   }
+
+   public static Optional<ConditionType> fromSymbol(String symbol) {
+      return Arrays.stream(values())
+                   .filter(type -> type.symbol.equals(symbol))
+                   .findFirst();
+   }
+
+   /**
+    * Gets the condition symbols ordered so that a longer symbol always precedes its prefixes (e.g. "&lt;=" before "&lt;").
+    *
+    * @return The symbols of all condition types.
+    */
+   public static List<String> getSymbols() {
+      return Arrays.stream(values())
+                   .map(ConditionType::getSymbol)
+                   .sorted(Comparator.comparing(String::length).reversed())
+                   .collect(Collectors.toList());
+   }
+}
@@ -0,0 +1,79 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.api.index;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Secondary ascending index on the attributes of a data collection.
+ */
+@Immutable
+public class DataIndex {
+
+   private final List<String> attributes;
+   private final boolean automatic;
+
+   /**
+    * @param attributes
+    *       Full names of the indexed attributes in the order of the compound index.
+    * @param automatic
+    *       Whether the index is managed by the index advisor, which may drop it when it is no longer used.
+    */
+   public DataIndex(final List<String> attributes, final boolean automatic) {
+      this.attributes = Collections.unmodifiableList(attributes);
+      this.automatic = automatic;
+   }
+
+   public List<String> getAttributes() {
+      return attributes;
+   }
+
+   public boolean isAutomatic() {
+      return automatic;
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof DataIndex)) {
+         return false;
+      }
+
+      final DataIndex dataIndex = (DataIndex) o;
+      return automatic == dataIndex.automatic && attributes.equals(dataIndex.attributes);
+   }
+
+   @Override
+   public int hashCode() {
+      return 31 * attributes.hashCode() + (automatic ? 1 : 0);
+   }
+
+   @Override
+   public String toString() {
+      return "DataIndex{" +
+            "attributes=" + attributes +
+            ", automatic=" + automatic +
+            '}';
+   }
+}
@@ -19,8 +19,12 @@
  */
 package io.lumeer.storage.api.query;
 
+import io.lumeer.storage.api.filter.SearchFilter;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.concurrent.Immutable;
 
@@ -29,12 +33,16 @@ public class SearchQuery extends DatabaseQuery {
 
    private final String fulltext;
    private final Set<String> collectionCodes;
+   private final String lastId;
+   private final List<SearchFilter> filters;
 
    private SearchQuery(Builder builder) {
       super(builder);
 
       this.fulltext = builder.fulltext;
       this.collectionCodes = builder.collectionCodes;
+      this.lastId = builder.lastId;
+      this.filters = builder.filters;
    }
 
    public String getFulltext() {
@@ -45,6 +53,19 @@ public class SearchQuery extends DatabaseQuery {
       return Collections.unmodifiableSet(collectionCodes);
    }
 
+   public String getLastId() {
+      return lastId;
+   }
+
+   /**
+    * Gets the attribute filters, all of them must be satisfied by the matching documents.
+    *
+    * @return The attribute filters.
+    */
+   public List<SearchFilter> getFilters() {
+      return Collections.unmodifiableList(filters);
+   }
+
    public boolean isFulltextQuery() {
       return fulltext != null && !fulltext.isEmpty();
    }
@@ -53,8 +74,16 @@ public class SearchQuery extends DatabaseQuery {
       return collectionCodes != null && !collectionCodes.isEmpty();
    }
 
+   public boolean isKeysetQuery() {
+      return lastId != null && !lastId.isEmpty();
+   }
+
+   public boolean isFiltersQuery() {
+      return filters != null && !filters.isEmpty();
+   }
+
    public boolean isBasicQuery() {
-      return !isFulltextQuery() && !isCollectionCodesQuery();
+      return !isFulltextQuery() && !isCollectionCodesQuery() && !isFiltersQuery();
    }
 
    public static Builder createBuilder(String user) {
@@ -65,6 +94,8 @@ public class SearchQuery extends DatabaseQuery {
 
       private String fulltext;
       private Set<String> collectionCodes = new HashSet<>();
+      private String lastId;
+      private List<SearchFilter> filters = new ArrayList<>();
 
       private Builder(final String user) {
          super(user);
@@ -80,6 +111,16 @@ public class SearchQuery extends DatabaseQuery {
          return this;
       }
 
+      public Builder lastId(String lastId) {
+         this.lastId = lastId;
+         return this;
+      }
+
+      public Builder filters(List<SearchFilter> filters) {
+         this.filters = filters;
+         return this;
+      }
+
       public SearchQuery build() {
          validate();
 
@@ -0,0 +1,180 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb;
+
+import com.mongodb.CursorType;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows a capped collection with a tailable cursor and passes every new message to a consumer on a background thread.
+ * Only the messages appended after the start are delivered. When the collection rolls over the last delivered message,
+ * the tailer resumes from the newest message and reports the gap, the messages in between are lost.
+ */
+public class CappedCollectionTailer {
+
+   private static final Logger log = Logger.getLogger(CappedCollectionTailer.class.getName());
+
+   private static final long RETRY_DELAY = 1000;
+
+   private static final String ID = "_id";
+
+   private final MongoCollection<Document> collection;
+   private final ThreadFactory threadFactory;
+   private final Consumer<Document> messageConsumer;
+   private final Runnable gapListener;
+
+   private volatile boolean running;
+   private Thread tailingThread;
+
+   /**
+    * @param collection
+    *       Capped collection to follow.
+    * @param threadFactory
+    *       Factory of the tailing thread, the container managed one when running in the application server.
+    * @param messageConsumer
+    *       Receives the new messages one by one.
+    * @param gapListener
+    *       Called when some messages were overwritten before they could be delivered.
+    */
+   public CappedCollectionTailer(final MongoCollection<Document> collection, final ThreadFactory threadFactory, final Consumer<Document> messageConsumer, final Runnable gapListener) {
+      this.collection = collection;
+      this.threadFactory = threadFactory;
+      this.messageConsumer = messageConsumer;
+      this.gapListener = gapListener;
+   }
+
+   public static MongoCollection<Document> getOrCreateCollection(final MongoDatabase database, final String collectionName, final long sizeInBytes) {
+      if (!database.listCollectionNames().into(new ArrayList<>()).contains(collectionName)) {
+         try {
+            database.createCollection(collectionName, new CreateCollectionOptions().capped(true).sizeInBytes(sizeInBytes));
+            // tailable cursors on an empty capped collection are closed immediately
+            database.getCollection(collectionName).insertOne(new Document());
+         } catch (MongoException e) {
+            // created concurrently by another node
+         }
+      }
+
+      return database.getCollection(collectionName);
+   }
+
+   public void start() {
+      running = true;
+
+      final ObjectId lastId = getLastId();
+      tailingThread = threadFactory.newThread(() -> tail(lastId));
+      tailingThread.start();
+   }
+
+   public void stop() {
+      running = false;
+
+      if (tailingThread != null) {
+         tailingThread.interrupt();
+         tailingThread = null;
+      }
+   }
+
+   private void tail(final ObjectId startId) {
+      ObjectId lastId = startId;
+
+      while (running) {
+         // the last seen message is matched again, a tailable cursor with no initial match would be dead immediately
+         try (MongoCursor<Document> cursor = collection.find(lastId != null ? Filters.gte(ID, lastId) : new Document())
+                                                       .cursorType(CursorType.TailableAwait)
+                                                       .noCursorTimeout(true)
+                                                       .iterator()) {
+            boolean first = true;
+            while (running) {
+               final Document message = cursor.tryNext();
+               if (message != null) {
+                  final ObjectId id = message.getObjectId(ID);
+                  if (first && lastId != null && !id.equals(lastId)) {
+                     // the last seen message is gone, so are the messages that followed it
+                     reportGap();
+                  }
+                  first = false;
+
+                  if (!id.equals(lastId)) {
+                     lastId = id;
+                     deliver(message);
+                  }
+               } else if (cursor.getServerCursor() == null) {
+                  // resume from the newest message, starting from the oldest one would deliver old messages again
+                  final ObjectId newestId = getLastId();
+                  if (newestId != null && !newestId.equals(lastId)) {
+                     reportGap();
+                  }
+                  lastId = newestId;
+                  sleep();
+                  break;
+               }
+            }
+         } catch (MongoException e) {
+            if (running) {
+               log.log(Level.WARNING, "Tailable cursor on " + collection.getNamespace() + " failed, reconnecting", e);
+               sleep();
+            }
+         }
+      }
+   }
+
+   private ObjectId getLastId() {
+      final Document last = collection.find().sort(new Document("$natural", -1)).limit(1).first();
+      return last != null ? last.getObjectId(ID) : null;
+   }
+
+   private void deliver(final Document message) {
+      try {
+         messageConsumer.accept(message);
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Consumer of " + collection.getNamespace() + " failed", e);
+      }
+   }
+
+   private void reportGap() {
+      log.log(Level.WARNING, "Capped collection " + collection.getNamespace() + " rolled over before all messages were read");
+      try {
+         gapListener.run();
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Gap listener of " + collection.getNamespace() + " failed", e);
+      }
+   }
+
+   private void sleep() {
+      try {
+         Thread.sleep(RETRY_DELAY);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
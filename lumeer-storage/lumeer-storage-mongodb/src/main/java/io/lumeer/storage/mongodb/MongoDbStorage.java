@@ -20,8 +20,10 @@
 package io.lumeer.storage.mongodb;
 
 import static com.mongodb.client.model.Aggregates.*;
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
 import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.or;
 import static com.mongodb.client.model.Sorts.descending;
 import static com.mongodb.client.model.Updates.*;
 
@@ -40,21 +42,27 @@ import io.lumeer.storage.mongodb.codecs.BigDecimalCodec;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoCredential;
 import com.mongodb.MongoNamespace;
 import com.mongodb.MongoWriteException;
 import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import org.bson.BsonDocument;
 import org.bson.Document;
@@ -71,8 +79,11 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
@@ -91,8 +102,8 @@ public class MongoDbStorage implements DataStorage {
    private final Morphia morphia;
    private AdvancedDatastore datastore;
 
-   private long cacheLastUpdated = 0L;
-   private Cache<List<String>> collectionsCache;
+   private volatile long cacheLastUpdated = 0L;
+   private Cache<Set<String>> collectionsCache;
 
    public MongoDbStorage(Morphia morphia) {
       this.morphia = morphia;
@@ -103,12 +114,43 @@ public class MongoDbStorage implements DataStorage {
       this.collectionsCache = cacheProvider.getCache(COLLECTION_CACHE);
    }
 
-   private List<String> getCollectionCache() {
-      return collectionsCache.get();
+   /**
+    * Gets the cached set of collection names, reloading it from the database when it is missing or older than 5 seconds.
+    * The set is a concurrent one and it is updated in place without any locking.
+    *
+    * @return The cached set of collection names.
+    */
+   private Set<String> getCollectionCache() {
+      Set<String> collections = collectionsCache.get();
+
+      if (collections == null || cacheLastUpdated + 5000 < System.currentTimeMillis()) {
+         collections = ConcurrentHashMap.newKeySet();
+         database.listCollectionNames().into(collections);
+         collectionsCache.set(collections);
+         cacheLastUpdated = System.currentTimeMillis();
+      }
+
+      return collections;
+   }
+
+   private void addCachedCollection(final String collectionName) {
+      if (collectionsCache != null) {
+         final Set<String> collections = collectionsCache.get();
+
+         if (collections != null && !collections.contains(collectionName)) {
+            collections.add(collectionName);
+         }
+      }
    }
 
-   private void setCollectionCache(final List<String> collections) {
-      collectionsCache.set(collections);
+   private void removeCachedCollection(final String collectionName) {
+      if (collectionsCache != null) {
+         final Set<String> collections = collectionsCache.get();
+
+         if (collections != null) {
+            collections.remove(collectionName);
+         }
+      }
    }
 
    @Override
@@ -145,20 +187,9 @@ public class MongoDbStorage implements DataStorage {
    }
 
    @Override
-   @SuppressWarnings("unchecked")
    public List<String> getAllCollections() {
       if (collectionsCache != null) {
-         collectionsCache.lock(COLLECTION_CACHE);
-         try {
-            if (getCollectionCache() == null || cacheLastUpdated + 5000 < System.currentTimeMillis()) {
-               setCollectionCache(database.listCollectionNames().into(new ArrayList<>()));
-               cacheLastUpdated = System.currentTimeMillis();
-            }
-         } finally {
-            collectionsCache.unlock(COLLECTION_CACHE);
-         }
-
-         return getCollectionCache();
+         return new ArrayList<>(getCollectionCache());
       } else {
          return database.listCollectionNames().into(new ArrayList<>());
       }
@@ -166,74 +197,32 @@ public class MongoDbStorage implements DataStorage {
 
    @Override
    public void createCollection(final String collectionName) {
-      if (collectionsCache != null) {
-         collectionsCache.lock(COLLECTION_CACHE);
-         try {
-            final List<String> collections = getCollectionCache();
-
-            if (collections != null) {
-               collections.add(collectionName);
-            } else {
-               setCollectionCache(new ArrayList<>(Collections.singletonList(collectionName)));
-            }
-
-            database.createCollection(collectionName);
-         } finally {
-            collectionsCache.unlock(COLLECTION_CACHE);
-         }
-      } else {
-         database.createCollection(collectionName);
-      }
+      database.createCollection(collectionName);
+      addCachedCollection(collectionName);
    }
 
    @Override
    public void dropCollection(final String collectionName) {
-      if (collectionsCache != null) {
-         collectionsCache.lock(COLLECTION_CACHE);
-         try {
-            final List<String> collections = getCollectionCache();
-
-            if (collections != null) {
-               collections.remove(collectionName);
-            }
-
-            database.getCollection(collectionName).drop();
-         } finally {
-            collectionsCache.unlock(COLLECTION_CACHE);
-         }
-      } else {
-         database.getCollection(collectionName).drop();
-      }
+      database.getCollection(collectionName).drop();
+      removeCachedCollection(collectionName);
    }
 
    @Override
    public void renameCollection(final String oldCollectionName, final String newCollectionName) {
-      if (collectionsCache != null) {
-         collectionsCache.lock(COLLECTION_CACHE);
-         try {
-            final List<String> collections = getCollectionCache();
-
-            if (collections != null) {
-               collections.remove(oldCollectionName);
-               collections.add(newCollectionName);
-            }
-
-            if (hasCollection(oldCollectionName)) {
-               database.getCollection(oldCollectionName).renameCollection(new MongoNamespace(database.getName(), newCollectionName));
-            }
-         } finally {
-            collectionsCache.unlock(COLLECTION_CACHE);
-         }
-      } else {
-         if (hasCollection(oldCollectionName)) {
-            database.getCollection(oldCollectionName).renameCollection(new MongoNamespace(database.getName(), newCollectionName));
-         }
+      if (hasCollection(oldCollectionName)) {
+         database.getCollection(oldCollectionName).renameCollection(new MongoNamespace(database.getName(), newCollectionName));
+         removeCachedCollection(oldCollectionName);
+         addCachedCollection(newCollectionName);
       }
    }
 
    @Override
    public boolean hasCollection(final String collectionName) {
-      return getAllCollections().contains(collectionName);
+      if (collectionsCache != null) {
+         return getCollectionCache().contains(collectionName);
+      } else {
+         return getAllCollections().contains(collectionName);
+      }
    }
 
    @Override
@@ -245,24 +234,10 @@ public class MongoDbStorage implements DataStorage {
    public String createDocument(final String collectionName, final DataDocument dataDocument) {
       Document doc = new Document(dataDocument);
 
-      if (collectionsCache != null) {
-         collectionsCache.lock(COLLECTION_CACHE);
-         try {
-            final List<String> collections = getCollectionCache();
-
-            if (collections != null) {
-               collections.add(collectionName);
-            } else {
-               setCollectionCache(new ArrayList<>(Collections.singletonList(collectionName)));
-            }
-
-            database.getCollection(collectionName).insertOne(doc);
-         } finally {
-            collectionsCache.unlock(COLLECTION_CACHE);
-         }
-      } else {
-         database.getCollection(collectionName).insertOne(doc);
-      }
+      // the insert implicitly creates a missing collection
+      database.getCollection(collectionName).insertOne(doc);
+      addCachedCollection(collectionName);
+
       return doc.containsKey(LumeerConst.Document.ID) ? doc.getObjectId(LumeerConst.Document.ID).toString() : null;
    }
 
@@ -272,24 +247,8 @@ public class MongoDbStorage implements DataStorage {
                                               .map(MongoUtils::dataDocumentToDocument)
                                               .collect(Collectors.toList());
 
-      if (collectionsCache != null) {
-         collectionsCache.lock(COLLECTION_CACHE);
-         try {
-            final List<String> collections = getCollectionCache();
-
-            if (collections != null) {
-               collections.add(collectionName);
-            } else {
-               setCollectionCache(new ArrayList<>(Collections.singletonList(collectionName)));
-            }
-
-            database.getCollection(collectionName).insertMany(documents, new InsertManyOptions().ordered(false));
-         } finally {
-            collectionsCache.unlock(COLLECTION_CACHE);
-         }
-      } else {
-         database.getCollection(collectionName).insertMany(documents, new InsertManyOptions().ordered(false));
-      }
+      database.getCollection(collectionName).insertMany(documents, new InsertManyOptions().ordered(false));
+      addCachedCollection(collectionName);
 
       return documents.stream()
                       .filter(d -> d.containsKey(LumeerConst.Document.ID))
@@ -312,6 +271,34 @@ public class MongoDbStorage implements DataStorage {
       }
    }
 
+   @Override
+   public List<Integer> createOldDocuments(final String collectionName, final List<DataDocument> documents) {
+      if (documents.isEmpty()) {
+         return Collections.emptyList();
+      }
+
+      List<Document> oldDocuments = documents.stream().map(dataDocument -> {
+         Document doc = new Document(dataDocument);
+         doc.put(LumeerConst.Document.ID, new BasicDBObject(LumeerConst.Document.ID, new ObjectId(dataDocument.getId()))
+               .append(LumeerConst.Document.METADATA_VERSION_KEY, dataDocument.getInteger(LumeerConst.Document.METADATA_VERSION_KEY, 0)));
+         return doc;
+      }).collect(Collectors.toList());
+
+      try {
+         database.getCollection(collectionName).insertMany(oldDocuments, new InsertManyOptions().ordered(false));
+      } catch (MongoBulkWriteException e) {
+         // backups of already stored versions are kept as they are
+         boolean onlyDuplicates = e.getWriteErrors().stream().allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()).equals(ErrorCategory.DUPLICATE_KEY));
+         if (!onlyDuplicates) {
+            throw e;
+         }
+
+         return e.getWriteErrors().stream().map(BulkWriteError::getIndex).sorted().collect(Collectors.toList());
+      }
+
+      return Collections.emptyList();
+   }
+
    @Override
    public DataDocument readDocumentIncludeAttrs(final String collectionName, final DataFilter filter, final List<String> attributes) {
       Document document = database.getCollection(collectionName).find(filter.<Bson>get()).projection(Projections.include(attributes)).limit(1).first();
@@ -345,6 +332,72 @@ public class MongoDbStorage implements DataStorage {
       database.getCollection(collectionName).replaceOne(filter.<Bson>get(), replaceDoc, new UpdateOptions().upsert(true));
    }
 
+   @Override
+   public void updateDocuments(final String collectionName, final List<DataDocument> updatedDocuments) {
+      if (updatedDocuments.isEmpty()) {
+         return;
+      }
+
+      List<UpdateOneModel<Document>> updateModels = updatedDocuments.stream().map(dataDocument -> {
+         DataDocument toUpdate = new DataDocument(dataDocument);
+         toUpdate.remove(LumeerConst.Document.ID);
+         return new UpdateOneModel<Document>(eq(LumeerConst.Document.ID, new ObjectId(dataDocument.getId())), new BasicDBObject("$set", new BasicDBObject(toUpdate)),
+               new UpdateOptions().upsert(true));
+      }).collect(Collectors.toList());
+
+      database.getCollection(collectionName).bulkWrite(updateModels, new BulkWriteOptions().ordered(false));
+   }
+
+   @Override
+   public void replaceDocuments(final String collectionName, final List<DataDocument> replaceDocuments) {
+      if (replaceDocuments.isEmpty()) {
+         return;
+      }
+
+      List<ReplaceOneModel<Document>> replaceModels = replaceDocuments.stream().map(dataDocument -> {
+         DataDocument toReplace = new DataDocument(dataDocument);
+         toReplace.remove(LumeerConst.Document.ID);
+         return new ReplaceOneModel<>(eq(LumeerConst.Document.ID, new ObjectId(dataDocument.getId())), new Document(toReplace));
+      }).collect(Collectors.toList());
+
+      database.getCollection(collectionName).bulkWrite(replaceModels, new BulkWriteOptions().ordered(false));
+   }
+
+   @Override
+   public Set<String> replaceDocuments(final String collectionName, final List<DataDocument> replaceDocuments, final Map<String, Integer> expectedVersions) {
+      if (replaceDocuments.isEmpty()) {
+         return Collections.emptySet();
+      }
+
+      // the bulk result does not tell which documents matched, the replacements carry a token to find them afterwards
+      String writeToken = MongoUtils.createWriteToken();
+      List<ReplaceOneModel<Document>> replaceModels = replaceDocuments.stream().map(dataDocument -> {
+         DataDocument toReplace = new DataDocument(dataDocument);
+         toReplace.remove(LumeerConst.Document.ID);
+         toReplace.put(MongoUtils.WRITE_TOKEN, writeToken);
+         return new ReplaceOneModel<>(versionFilter(dataDocument.getId(), expectedVersions.getOrDefault(dataDocument.getId(), 0)), new Document(toReplace));
+      }).collect(Collectors.toList());
+
+      MongoCollection<Document> collection = database.getCollection(collectionName);
+      BulkWriteResult result = collection.bulkWrite(replaceModels, new BulkWriteOptions().ordered(false));
+      List<ObjectId> ids = replaceDocuments.stream().map(document -> new ObjectId(document.getId())).collect(Collectors.toList());
+      if (result.getMatchedCount() == replaceModels.size()) {
+         MongoUtils.removeWriteToken(collection, ids, writeToken);
+         return Collections.emptySet();
+      }
+
+      Set<String> notReplaced = replaceDocuments.stream().map(DataDocument::getId).collect(Collectors.toSet());
+      notReplaced.removeAll(MongoUtils.collectWrittenDocuments(collection, ids, writeToken));
+      return notReplaced;
+   }
+
+   private static Bson versionFilter(final String documentId, final int version) {
+      // documents created before versioning have no version, they are at version 0
+      Bson versionFilter = version == 0 ? or(eq(LumeerConst.Document.METADATA_VERSION_KEY, 0), exists(LumeerConst.Document.METADATA_VERSION_KEY, false))
+            : eq(LumeerConst.Document.METADATA_VERSION_KEY, version);
+      return and(eq(LumeerConst.Document.ID, new ObjectId(documentId)), versionFilter);
+   }
+
    @Override
    public void dropDocument(final String collectionName, final DataFilter filter) {
       database.getCollection(collectionName).deleteOne(filter.<Bson>get());
@@ -475,6 +528,28 @@ public class MongoDbStorage implements DataStorage {
 
    @Override
    public List<DataDocument> search(String collectionName, DataFilter filter, final DataSort sort, List<String> attributes, final int skip, int limit) {
+      FindIterable<Document> documents = find(collectionName, filter, sort, attributes);
+      if (skip > 0) {
+         documents = documents.skip(skip);
+      }
+      if (limit > 0) {
+         documents = documents.limit(limit);
+      }
+
+      return MongoUtils.convertIterableToList(documents);
+   }
+
+   @Override
+   public Stream<DataDocument> stream(final String collectionName, final DataFilter filter, final DataSort sort, final List<String> attributes, final int batchSize) {
+      FindIterable<Document> documents = find(collectionName, filter, sort, attributes);
+      if (batchSize > 0) {
+         documents = documents.batchSize(batchSize);
+      }
+
+      return MongoUtils.convertIterableToStream(documents);
+   }
+
+   private FindIterable<Document> find(final String collectionName, final DataFilter filter, final DataSort sort, final List<String> attributes) {
       MongoCollection<Document> collection = database.getCollection(collectionName);
       FindIterable<Document> documents = filter != null ? collection.find(filter.<Bson>get()) : collection.find();
       if (sort != null) {
@@ -483,14 +558,8 @@ public class MongoDbStorage implements DataStorage {
       if (attributes != null && !attributes.isEmpty()) {
          documents.projection(Projections.fields(Projections.include(attributes)));
       }
-      if (skip > 0) {
-         documents = documents.skip(skip);
-      }
-      if (limit > 0) {
-         documents = documents.limit(limit);
-      }
 
-      return MongoUtils.convertIterableToList(documents);
+      return documents;
    }
 
    @Override
@@ -560,18 +629,13 @@ public class MongoDbStorage implements DataStorage {
          return Collections.emptyList();
       }
 
-      final List<DataDocument> result = new LinkedList<>();
       final List<Document> documents = new LinkedList<>();
       for (final DataDocument d : stages) {
          documents.add(MongoUtils.dataDocumentToDocument(d));
       }
 
       AggregateIterable<Document> resultDocuments = database.getCollection(collectionName).aggregate(documents);
-      resultDocuments.into(new LinkedList<>()).forEach(d -> {
-         result.add(MongoUtils.convertDocument(d));
-      });
-
-      return result;
+      return MongoUtils.convertIterableToList(resultDocuments);
    }
 
    @Override
@@ -633,7 +697,7 @@ public class MongoDbStorage implements DataStorage {
    @Override
    public void invalidateCaches() {
       if (collectionsCache != null) {
-         collectionsCache.remove(COLLECTION_CACHE);
+         collectionsCache.remove(Cache.DEFAULT_ENTRY_KEY);
       }
    }
 
@@ -30,6 +30,7 @@ import io.lumeer.engine.api.data.DataStorageDialect;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Sorts;
 import org.bson.BsonDocument;
+import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
@@ -113,11 +114,46 @@ public class MongoDbStorageDialect implements DataStorageDialect {
       return createFilter(eq(LumeerConst.Document.ID, and(eq(LumeerConst.Document.ID, new ObjectId(documentId)), eq(LumeerConst.Document.METADATA_VERSION_KEY, version))));
    }
 
+   @Override
+   public DataFilter documentNestedIdsFilter(final List<String> documentIds) {
+      List<ObjectId> ids = documentIds.stream()
+                                      .map(ObjectId::new)
+                                      .collect(Collectors.toList());
+      return fieldValuesFilter(concatFields(LumeerConst.Document.ID, LumeerConst.Document.ID), ids);
+   }
+
+   @Override
+   public DataFilter documentNestedIdsFilterWithVersions(final Map<String, Integer> documentVersions) {
+      // the nested ids are matched as whole documents, the field order must be the same as in createOldDocument
+      List<Document> ids = documentVersions.entrySet().stream()
+                                           .map(e -> new Document(LumeerConst.Document.ID, new ObjectId(e.getKey())).append(LumeerConst.Document.METADATA_VERSION_KEY, e.getValue()))
+                                           .collect(Collectors.toList());
+      return fieldValuesFilter(LumeerConst.Document.ID, ids);
+   }
+
    @Override
    public DataFilter documentIdFilter(final String documentId) {
       return fieldValueFilter(LumeerConst.Document.ID, new ObjectId(documentId));
    }
 
+   @Override
+   public DataFilter documentIdsFilter(final List<String> documentIds) {
+      List<ObjectId> ids = documentIds.stream()
+                                      .map(ObjectId::new)
+                                      .collect(Collectors.toList());
+      return fieldValuesFilter(LumeerConst.Document.ID, ids);
+   }
+
+   @Override
+   public DataFilter documentIdGreaterThanFilter(final String documentId) {
+      return createFilter(gt(LumeerConst.Document.ID, new ObjectId(documentId)));
+   }
+
+   @Override
+   public DataFilter fieldValuesFilter(final String fieldName, final List<?> values) {
+      return createFilter(Filters.in(fieldName, values));
+   }
+
    @Override
    public DataFilter multipleFieldsValueFilter(final Map<String, Object> fields) {
       List<Bson> bsons = new ArrayList<>();
@@ -133,6 +169,14 @@ public class MongoDbStorageDialect implements DataStorageDialect {
       return createFilter(and(mongoDbFilters));
    }
 
+   @Override
+   public DataFilter anyOfFilters(final DataFilter... filters) {
+      List<Bson> mongoDbFilters = Arrays.stream(filters)
+                                        .map(DataFilter::<Bson>get)
+                                        .collect(Collectors.toList());
+      return createFilter(Filters.or(mongoDbFilters));
+   }
+
    @Override
    public DataFilter collectionPermissionsRoleFilter(final String role, final String user, final List<String> groups) {
       List<Bson> groupsFilters = groups.stream()
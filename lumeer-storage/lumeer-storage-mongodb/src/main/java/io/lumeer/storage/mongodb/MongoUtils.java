@@ -22,25 +22,89 @@ package io.lumeer.storage.mongodb;
 import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.data.DataDocument;
 
+import com.mongodb.Block;
 import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
 import org.bson.BsonDocument;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author <a href="kubedo8@gmail.com">Jakub Rodák</a>
  */
 public class MongoUtils {
 
+   /**
+    * Field holding the token of the bulk write that wrote the document. A bulk write result tells only how many documents
+    * matched, the token tells exactly which ones. It is removed right after the write.
+    */
+   public static final String WRITE_TOKEN = LumeerConst.Document.METADATA_PREFIX + "write-token";
+
    private MongoUtils() {
 
    }
 
+   /**
+    * Creates a token unique to one bulk write.
+    *
+    * @return The new token.
+    */
+   public static String createWriteToken() {
+      return new ObjectId().toHexString();
+   }
+
+   /**
+    * Gets the documents that still carry the token of a bulk write and removes the token from all of them.
+    * A document written by someone else after the bulk write may have lost the token, it is not returned then.
+    *
+    * @param collection
+    *       Collection the bulk write was done in.
+    * @param ids
+    *       Ids of the documents the bulk write targeted.
+    * @param writeToken
+    *       Token written by the bulk write.
+    * @return Ids of the documents written by the bulk write.
+    */
+   public static Set<String> collectWrittenDocuments(final MongoCollection<Document> collection, final List<ObjectId> ids, final String writeToken) {
+      Bson filter = Filters.and(Filters.in(LumeerConst.Document.ID, ids), Filters.eq(WRITE_TOKEN, writeToken));
+      Set<String> written = new HashSet<>();
+      collection.find(filter)
+                .projection(Projections.include(LumeerConst.Document.ID))
+                .forEach((Block<Document>) document -> written.add(document.getObjectId(LumeerConst.Document.ID).toHexString()));
+
+      removeWriteToken(collection, ids, writeToken);
+      return written;
+   }
+
+   /**
+    * Removes the token of a bulk write from the written documents.
+    *
+    * @param collection
+    *       Collection the bulk write was done in.
+    * @param ids
+    *       Ids of the documents the bulk write targeted.
+    * @param writeToken
+    *       Token written by the bulk write.
+    */
+   public static void removeWriteToken(final MongoCollection<Document> collection, final List<ObjectId> ids, final String writeToken) {
+      collection.updateMany(Filters.and(Filters.in(LumeerConst.Document.ID, ids), Filters.eq(WRITE_TOKEN, writeToken)), Updates.unset(WRITE_TOKEN));
+   }
+
    public static DataDocument convertDocument(Document document) {
       MongoUtils.replaceId(document);
       DataDocument dataDocument = new DataDocument(document);
@@ -50,11 +114,32 @@ public class MongoUtils {
 
    public static List<DataDocument> convertIterableToList(MongoIterable<Document> documents) {
       final List<DataDocument> result = new ArrayList<>();
-      documents.into(new ArrayList<>()).forEach(d -> result.add(MongoUtils.convertDocument(d)));
+      try (MongoCursor<Document> cursor = documents.iterator()) {
+         while (cursor.hasNext()) {
+            result.add(MongoUtils.convertDocument(cursor.next()));
+         }
+      }
 
       return result;
    }
 
+   /**
+    * Wraps the cursor of the given iterable into a lazy stream of converted documents.
+    * The cursor is closed when the stream is closed.
+    *
+    * @param documents
+    *       Iterable to read documents from.
+    * @return Stream of converted documents.
+    */
+   public static Stream<DataDocument> convertIterableToStream(MongoIterable<Document> documents) {
+      final MongoCursor<Document> cursor = documents.iterator();
+      final Spliterator<Document> spliterator = Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL);
+
+      return StreamSupport.stream(spliterator, false)
+                          .map(MongoUtils::convertDocument)
+                          .onClose(cursor::close);
+   }
+
    public static String convertBsonToJson(Bson object) {
       return object.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()).toJson();
    }
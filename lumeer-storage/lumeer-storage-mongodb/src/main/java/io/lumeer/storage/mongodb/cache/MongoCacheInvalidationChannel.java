@@ -0,0 +1,151 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb.cache;
+
+import io.lumeer.engine.annotation.SystemDataStorage;
+import io.lumeer.engine.api.cache.CacheInvalidationChannel;
+import io.lumeer.engine.api.cache.CacheInvalidationListener;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.storage.mongodb.CappedCollectionTailer;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Invalidation channel backed by a capped collection in the system database. Every node appends its invalidations
+ * to the collection and follows it with a tailable cursor, so the messages reach all nodes connected to the same database.
+ * When the collection rolls over before a node reads all messages, the node invalidates its caches completely.
+ */
+@ApplicationScoped
+public class MongoCacheInvalidationChannel implements CacheInvalidationChannel {
+
+   private static final Logger log = Logger.getLogger(MongoCacheInvalidationChannel.class.getName());
+
+   public static final String COLLECTION_NAME = "cacheInvalidations";
+
+   private static final long COLLECTION_SIZE = 1024 * 1024;
+
+   private static final String NODE = "node";
+   private static final String CACHE = "cache";
+   private static final String KEY = "key";
+
+   @Inject
+   @SystemDataStorage
+   private DataStorage dataStorage;
+
+   @Inject
+   private ManagedThreadFactory managedThreadFactory;
+
+   private final String nodeId = UUID.randomUUID().toString();
+   private final Map<String, List<CacheInvalidationListener>> listeners = new ConcurrentHashMap<>();
+
+   private MongoDatabase database;
+   private ThreadFactory threadFactory;
+   private MongoCollection<Document> collection;
+   private CappedCollectionTailer tailer;
+
+   @PostConstruct
+   public void init() {
+      setDatabase((MongoDatabase) dataStorage.getDatabase());
+      setThreadFactory(managedThreadFactory);
+      start();
+   }
+
+   @PreDestroy
+   public void destroy() {
+      stop();
+   }
+
+   public void setDatabase(final MongoDatabase database) {
+      this.database = database;
+   }
+
+   public void setThreadFactory(final ThreadFactory threadFactory) {
+      this.threadFactory = threadFactory;
+   }
+
+   public void start() {
+      collection = CappedCollectionTailer.getOrCreateCollection(database, COLLECTION_NAME, COLLECTION_SIZE);
+
+      // messages published before the start are not interesting, the local caches are empty
+      tailer = new CappedCollectionTailer(collection, threadFactory, this::dispatch, this::invalidateAll);
+      tailer.start();
+   }
+
+   public void stop() {
+      if (tailer != null) {
+         tailer.stop();
+         tailer = null;
+      }
+   }
+
+   public String getNodeId() {
+      return nodeId;
+   }
+
+   @Override
+   public void publish(final String cacheName, final String key) {
+      collection.insertOne(new Document(NODE, nodeId).append(CACHE, cacheName).append(KEY, key));
+   }
+
+   @Override
+   public void subscribe(final String cacheName, final CacheInvalidationListener listener) {
+      listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+   }
+
+   private void dispatch(final Document message) {
+      if (nodeId.equals(message.getString(NODE)) || !message.containsKey(CACHE)) {
+         return;
+      }
+
+      notifyListeners(listeners.getOrDefault(message.getString(CACHE), Collections.emptyList()), message.getString(KEY));
+   }
+
+   private void invalidateAll() {
+      // the lost messages could have invalidated any entry
+      listeners.values().forEach(cacheListeners -> notifyListeners(cacheListeners, null));
+   }
+
+   private static void notifyListeners(final List<CacheInvalidationListener> cacheListeners, final String key) {
+      cacheListeners.forEach(listener -> {
+         try {
+            listener.onInvalidation(key);
+         } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Cache invalidation listener failed", e);
+         }
+      });
+   }
+}
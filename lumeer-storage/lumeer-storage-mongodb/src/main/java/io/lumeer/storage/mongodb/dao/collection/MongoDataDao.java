@@ -20,37 +20,88 @@
 package io.lumeer.storage.mongodb.dao.collection;
 
 import io.lumeer.api.model.ResourceType;
+import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.event.DataChange;
+import io.lumeer.storage.api.event.DataChanges;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
 import io.lumeer.storage.api.exception.StorageException;
+import io.lumeer.storage.api.exception.VersionConflictException;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.filter.CompositeFilter;
+import io.lumeer.storage.api.filter.SearchFilter;
+import io.lumeer.storage.api.index.DataIndex;
 import io.lumeer.storage.api.query.SearchQuery;
 import io.lumeer.storage.mongodb.MongoUtils;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.Block;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
-import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndReplaceOptions;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import org.bson.BsonDocument;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.enterprise.context.RequestScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
 
+/**
+ * Stores the data of documents. Every write fires a {@link DataChanges} event right after it is done, the event carries
+ * only the ids of the written documents and the names of the changed attributes.
+ */
 @RequestScoped
 public class MongoDataDao extends CollectionScopedDao implements DataDao {
 
    private static final String ID = "_id";
+   private static final String VERSION = LumeerConst.Document.METADATA_VERSION_KEY;
    private static final String PREFIX = "data_c-";
 
+   private static final String INDEX_KEY = "key";
+   private static final String INDEX_NAME = "name";
+   private static final String FULLTEXT_INDEX_KEY = "_fts";
+   // attribute names never start with '$', so no default index name can carry this prefix
+   private static final String AUTOMATIC_INDEX_PREFIX = "$auto_";
+
+   @Inject
+   private Event<DataChanges> dataChangesEvent;
+
    @Override
    public void createDataRepository(final String collectionId) {
       database.createCollection(dataCollectionName(collectionId));
@@ -68,51 +119,187 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
 
    @Override
    public DataDocument createData(final String collectionId, final String documentId, final DataDocument data) {
-      Document document = new Document(data).append(ID, new ObjectId(documentId));
+      Document document = new Document(data).append(ID, new ObjectId(documentId)).append(VERSION, INITIAL_VERSION);
       dataCollection(collectionId).insertOne(document);
+      fireChange(createChange(DataChange.Type.CREATE, collectionId, documentId, data.keySet(), Collections.emptySet()));
       return data;
    }
 
    @Override
    public List<DataDocument> createData(final String collectionId, final List<DataDocument> data) {
-      List<Document> documents = data.stream().map(dataDocument -> new Document(dataDocument).append(ID, new ObjectId(dataDocument.getId()))).collect(Collectors.toList());
+      List<Document> documents = data.stream()
+                                     .map(dataDocument -> new Document(dataDocument).append(ID, new ObjectId(dataDocument.getId())).append(VERSION, INITIAL_VERSION))
+                                     .collect(Collectors.toList());
       dataCollection(collectionId).insertMany(documents);
 
+      List<DataChange> changes = new ArrayList<>(documents.size());
       for (int i = 0; i < documents.size(); i++) {
          Object idObj = documents.get(i).get(ID);
          String id = idObj instanceof String ? (String) idObj : ((ObjectId) idObj).toHexString();
          data.get(i).setId(id);
+         changes.add(createChange(DataChange.Type.CREATE, collectionId, id, data.get(i).keySet(), Collections.emptySet()));
       }
+      fireChanges(changes);
       return data;
    }
 
    @Override
-   public DataDocument updateData(final String collectionId, final String documentId, final DataDocument data) {
-      Document document = new Document(data);
-      FindOneAndReplaceOptions options = new FindOneAndReplaceOptions().returnDocument(ReturnDocument.AFTER);
+   public DataDocument updateData(final String collectionId, final String documentId, final DataDocument data, final Integer expectedVersion) {
+      FindOneAndReplaceOptions options = new FindOneAndReplaceOptions().returnDocument(ReturnDocument.BEFORE);
+
+      // a replacement can not increment the version, so the current version is read and the write is retried until
+      // no other write gets in between
+      while (true) {
+         int version = expectedVersion != null ? expectedVersion : getDataVersion(collectionId, documentId);
+
+         Document document = new Document(data);
+         document.remove(ID);
+         document.put(VERSION, version + 1);
+
+         // the original document is needed for the diff, the updated one is the replacement with the original id
+         Document originalDocument = dataCollection(collectionId).findOneAndReplace(versionFilter(documentId, version), document, options);
+         if (originalDocument != null) {
+            Document updatedDocument = new Document(ID, originalDocument.get(ID));
+            document.forEach(updatedDocument::putIfAbsent);
+
+            fireChange(createUpdateChange(collectionId, documentId, originalDocument, updatedDocument));
+            return MongoUtils.convertDocument(updatedDocument);
+         }
 
-      Document updatedDocument = dataCollection(collectionId).findOneAndReplace(idFilter(documentId), document, options);
-      if (updatedDocument == null) {
-         throw new StorageException("Document '" + documentId + "' has not been updated (replaced).");
+         if (expectedVersion != null) {
+            throw versionConflictOrNotFound(collectionId, documentId);
+         }
       }
-      return MongoUtils.convertDocument(updatedDocument);
    }
 
    @Override
-   public DataDocument patchData(final String collectionId, final String documentId, final DataDocument data) {
-      Document updateDocument = new Document("$set", new Document(data));
+   public DataDocument patchData(final String collectionId, final String documentId, final DataDocument data, final Integer expectedVersion) {
+      Bson update = patchUpdate(data);
+      Bson filter = expectedVersion != null ? versionFilter(documentId, expectedVersion) : idFilter(documentId);
       FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
 
-      Document patchedDocument = dataCollection(collectionId).findOneAndUpdate(idFilter(documentId), updateDocument, options);
+      Document patchedDocument = dataCollection(collectionId).findOneAndUpdate(filter, update, options);
       if (patchedDocument == null) {
-         throw new StorageException("Document '" + documentId + "' has not been patched (partially updated).");
+         throw versionConflictOrNotFound(collectionId, documentId);
       }
+      fireChange(createChange(DataChange.Type.PATCH, collectionId, documentId, data.keySet(), Collections.emptySet()));
       return MongoUtils.convertDocument(patchedDocument);
    }
 
+   @Override
+   public Map<String, Integer> patchData(final String collectionId, final Map<String, DataDocument> data, final Map<String, Integer> expectedVersions) {
+      Map<String, Integer> versions = getDataVersions(collectionId, data.keySet());
+
+      // the bulk result does not tell which documents matched, the updates write a token to find them afterwards
+      String writeToken = MongoUtils.createWriteToken();
+      Map<String, Integer> newVersions = new LinkedHashMap<>();
+      List<WriteModel<Document>> updates = new ArrayList<>();
+      data.forEach((documentId, attributes) -> {
+         Integer version = versions.get(documentId);
+         Integer expectedVersion = expectedVersions.get(documentId);
+         if (version != null && (expectedVersion == null || expectedVersion.equals(version))) {
+            updates.add(new UpdateOneModel<>(versionFilter(documentId, version), Updates.combine(patchUpdate(attributes), Updates.set(MongoUtils.WRITE_TOKEN, writeToken))));
+            newVersions.put(documentId, version + 1);
+         }
+      });
+      if (updates.isEmpty()) {
+         return newVersions;
+      }
+
+      MongoCollection<Document> collection = dataCollection(collectionId);
+      BulkWriteResult result = collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+      List<ObjectId> ids = toObjectIds(newVersions.keySet());
+      if (result.getMatchedCount() < updates.size()) {
+         // some documents were written since their versions were read, only the ones holding the token were patched
+         Set<String> patched = MongoUtils.collectWrittenDocuments(collection, ids, writeToken);
+         newVersions.keySet().retainAll(patched);
+      } else {
+         MongoUtils.removeWriteToken(collection, ids, writeToken);
+      }
+
+      fireChanges(newVersions.keySet().stream()
+                             .map(documentId -> createChange(DataChange.Type.PATCH, collectionId, documentId, data.get(documentId).keySet(), Collections.emptySet()))
+                             .collect(Collectors.toList()));
+      return newVersions;
+   }
+
+   private Map<String, Integer> getDataVersions(final String collectionId, final Set<String> documentIds) {
+      Map<String, Integer> versions = new HashMap<>();
+      dataCollection(collectionId).find(Filters.in(ID, toObjectIds(documentIds)))
+                                  .projection(Projections.include(VERSION))
+                                  .forEach((Block<Document>) document -> {
+                                     Number version = (Number) document.get(VERSION);
+                                     versions.put(document.getObjectId(ID).toHexString(), version != null ? version.intValue() : 0);
+                                  });
+      return versions;
+   }
+
+   private static Bson patchUpdate(final DataDocument data) {
+      Document attributes = new Document(data);
+      attributes.remove(ID);
+      attributes.remove(VERSION);
+
+      Bson increment = Updates.inc(VERSION, 1);
+      return attributes.isEmpty() ? increment : Updates.combine(new Document("$set", attributes), increment);
+   }
+
+   private RuntimeException versionConflictOrNotFound(final String collectionId, final String documentId) {
+      // tells a missing document from a stale version only on the failure path
+      getDataVersion(collectionId, documentId);
+      return new VersionConflictException(ResourceType.DOCUMENT);
+   }
+
    @Override
    public void deleteData(final String collectionId, final String documentId) {
       dataCollection(collectionId).deleteOne(idFilter(documentId));
+      fireChange(createChange(DataChange.Type.DELETE, collectionId, documentId, Collections.emptySet(), Collections.emptySet()));
+   }
+
+   @Override
+   public void deleteData(final String collectionId, final List<String> documentIds) {
+      if (documentIds.isEmpty()) {
+         return;
+      }
+      dataCollection(collectionId).deleteMany(Filters.in(ID, toObjectIds(documentIds)));
+      fireChanges(documentIds.stream()
+                             .map(documentId -> createChange(DataChange.Type.DELETE, collectionId, documentId, Collections.emptySet(), Collections.emptySet()))
+                             .collect(Collectors.toList()));
+   }
+
+   private static DataChange createUpdateChange(final String collectionId, final String documentId, final Document originalDocument, final Document updatedDocument) {
+      Set<String> changedAttributes = updatedDocument.entrySet().stream()
+                                                     .filter(entry -> !Objects.equals(entry.getValue(), originalDocument.get(entry.getKey())))
+                                                     .map(Map.Entry::getKey)
+                                                     .collect(Collectors.toCollection(LinkedHashSet::new));
+
+      Set<String> removedAttributes = new HashSet<>(originalDocument.keySet());
+      removedAttributes.removeAll(updatedDocument.keySet());
+
+      return createChange(DataChange.Type.UPDATE, collectionId, documentId, changedAttributes, removedAttributes);
+   }
+
+   private static DataChange createChange(final DataChange.Type type, final String collectionId, final String documentId, final Set<String> changedAttributes, final Set<String> removedAttributes) {
+      Set<String> changed = new LinkedHashSet<>(changedAttributes);
+      changed.remove(ID);
+      changed.remove(VERSION);
+
+      Set<String> removed = new HashSet<>(removedAttributes);
+      removed.remove(VERSION);
+      return new DataChange(type, collectionId, documentId, changed, removed);
+   }
+
+   private void fireChange(final DataChange change) {
+      fireChanges(Collections.singletonList(change));
+   }
+
+   private void fireChanges(final List<DataChange> changes) {
+      if (!changes.isEmpty()) {
+         dataChangesEvent.fire(new DataChanges(changes, false));
+      }
+   }
+
+   public void setDataChangesEvent(final Event<DataChanges> dataChangesEvent) {
+      this.dataChangesEvent = dataChangesEvent;
    }
 
    @Override
@@ -124,10 +311,61 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
       return MongoUtils.convertDocument(mongoCursor.next());
    }
 
+   @Override
+   public int getDataVersion(final String collectionId, final String documentId) {
+      Document document = dataCollection(collectionId).find(idFilter(documentId))
+                                                      .projection(Projections.include(VERSION))
+                                                      .first();
+      if (document == null) {
+         throw new ResourceNotFoundException(ResourceType.DOCUMENT);
+      }
+      Number version = (Number) document.get(VERSION);
+      return version != null ? version.intValue() : 0;
+   }
+
    @Override
    public List<DataDocument> getData(final String collectionId, final SearchQuery query) {
-      MongoIterable<Document> mongoIterable = dataCollection(collectionId).find(createFilter(query));
-      return MongoUtils.convertIterableToList(mongoIterable);
+      try (Stream<DataDocument> data = getDataStream(collectionId, query, 0)) {
+         return data.collect(Collectors.toList());
+      }
+   }
+
+   @Override
+   public Stream<DataDocument> getDataStream(final String collectionId, final SearchQuery query, final int batchSize) {
+      FindIterable<Document> findIterable = findData(collectionId, query);
+      if (batchSize > 0) {
+         findIterable.batchSize(batchSize);
+      }
+      return MongoUtils.convertIterableToStream(findIterable);
+   }
+
+   private FindIterable<Document> findData(final String collectionId, final SearchQuery query) {
+      FindIterable<Document> findIterable = dataCollection(collectionId).find(createPaginationFilter(query))
+                                                                        .projection(Projections.exclude(VERSION));
+      addPaginationOptions(findIterable, query);
+      return findIterable;
+   }
+
+   private Bson createPaginationFilter(SearchQuery query) {
+      Bson filter = createFilter(query);
+      if (query.isKeysetQuery()) {
+         return Filters.and(filter, Filters.gt(ID, new ObjectId(query.getLastId())));
+      }
+      return filter;
+   }
+
+   private static void addPaginationOptions(FindIterable<Document> findIterable, SearchQuery query) {
+      Integer page = query.getPage();
+      Integer pageSize = query.getPageSize();
+
+      if (pageSize != null) {
+         findIterable.sort(Sorts.ascending(ID))
+                     .limit(pageSize);
+
+         if (!query.isKeysetQuery() && page != null) {
+            findIterable.skip(page * pageSize);
+         }
+      }
    }
 
    @Override
@@ -135,8 +373,157 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
       return dataCollection(collectionId).count(createFilter(query));
    }
 
+   @Override
+   public boolean hasData(final String collectionId, final SearchQuery query) {
+      return findAnyData(collectionId, query).first() != null;
+   }
+
+   private FindIterable<Document> findAnyData(final String collectionId, final SearchQuery query) {
+      return dataCollection(collectionId).find(createFilter(query))
+                                         .projection(Projections.include(ID))
+                                         .limit(1);
+   }
+
+   @Override
+   public CompletableFuture<List<DataDocument>> getDataAsync(final String collectionId, final SearchQuery query, final long deadline, final Executor executor) {
+      // runs on this instance directly, the request scoped proxy is not usable from the executor threads
+      return CompletableFuture.supplyAsync(() -> withDeadline(deadline, maxTime ->
+            MongoUtils.convertIterableToList(findData(collectionId, query).maxTime(maxTime, TimeUnit.MILLISECONDS))), executor);
+   }
+
+   @Override
+   public CompletableFuture<Boolean> hasDataAsync(final String collectionId, final SearchQuery query, final long deadline, final Executor executor) {
+      return CompletableFuture.supplyAsync(() -> withDeadline(deadline, maxTime ->
+            findAnyData(collectionId, query).maxTime(maxTime, TimeUnit.MILLISECONDS).first() != null), executor);
+   }
+
+   /**
+    * Runs the query with the time left until the deadline as its time limit.
+    */
+   private static <T> T withDeadline(final long deadline, final LongFunction<T> query) {
+      long maxTime = deadline - System.currentTimeMillis();
+      if (maxTime <= 0) {
+         throw new StorageException("Search time limit exceeded");
+      }
+
+      try {
+         return query.apply(maxTime);
+      } catch (MongoExecutionTimeoutException e) {
+         throw new StorageException("Search time limit exceeded");
+      }
+   }
+
+   @Override
+   public List<DataIndex> getIndexes(final String collectionId) {
+      List<DataIndex> indexes = new ArrayList<>();
+      for (Document index : dataCollection(collectionId).listIndexes()) {
+         Document keys = index.get(INDEX_KEY, Document.class);
+         if (keys.containsKey(ID) || keys.containsKey(FULLTEXT_INDEX_KEY)) {
+            continue;
+         }
+         List<String> attributes = new ArrayList<>(keys.keySet());
+         indexes.add(new DataIndex(attributes, automaticIndexName(attributes).equals(index.getString(INDEX_NAME))));
+      }
+      return indexes;
+   }
+
+   @Override
+   public void createIndex(final String collectionId, final DataIndex index) {
+      if (index.getAttributes().stream().anyMatch(attribute -> !isIndexAttributeValid(attribute))) {
+         throw new StorageException("Invalid index attributes: " + index.getAttributes());
+      }
+
+      IndexOptions options = new IndexOptions().background(true);
+      if (index.isAutomatic()) {
+         options.name(automaticIndexName(index.getAttributes()));
+      }
+      dataCollection(collectionId).createIndex(Indexes.ascending(index.getAttributes()), options);
+   }
+
+   @Override
+   public CompletableFuture<Void> updateAutomaticIndexesAsync(final String collectionId, final List<List<String>> advisedIndexes, final int maxIndexes, final Executor executor) {
+      // runs on this instance directly, the request scoped proxy is not usable from the executor threads
+      return CompletableFuture.runAsync(() -> {
+         List<DataIndex> indexes = getIndexes(collectionId);
+         List<List<String>> manualIndexes = indexes.stream().filter(index -> !index.isAutomatic()).map(DataIndex::getAttributes).collect(Collectors.toList());
+         List<List<String>> automaticIndexes = advisedIndexes.stream()
+                                                             .filter(attributes -> !manualIndexes.contains(attributes))
+                                                             .filter(attributes -> !attributes.isEmpty() && attributes.stream().allMatch(MongoDataDao::isIndexAttributeValid))
+                                                             .limit(Math.max(0, maxIndexes - manualIndexes.size()))
+                                                             .collect(Collectors.toList());
+
+         indexes.stream()
+                .filter(index -> index.isAutomatic() && !automaticIndexes.contains(index.getAttributes()))
+                .forEach(index -> dropIndex(collectionId, index));
+         automaticIndexes.stream()
+                         .filter(attributes -> indexes.stream().noneMatch(index -> index.getAttributes().equals(attributes)))
+                         .forEach(attributes -> createIndex(collectionId, new DataIndex(attributes, true)));
+      }, executor);
+   }
+
+   private static String automaticIndexName(final List<String> attributes) {
+      return AUTOMATIC_INDEX_PREFIX + String.join("_", attributes);
+   }
+
+   /**
+    * Rejects attribute names that the database would not take as plain field paths.
+    */
+   private static boolean isIndexAttributeValid(final String attribute) {
+      return attribute != null && !attribute.isEmpty() && attribute.indexOf('\0') < 0
+            && Arrays.stream(attribute.split("\\.", -1)).noneMatch(part -> part.isEmpty() || part.startsWith("$"));
+   }
+
+   @Override
+   public void dropIndex(final String collectionId, final DataIndex index) {
+      dataCollection(collectionId).dropIndex(Indexes.ascending(index.getAttributes()));
+   }
+
    private Bson createFilter(SearchQuery query) {
-      return query.isFulltextQuery() ? Filters.text(query.getFulltext()) : new BsonDocument();
+      List<Bson> filters = new ArrayList<>();
+      if (query.isFulltextQuery()) {
+         filters.add(Filters.text(query.getFulltext()));
+      }
+      if (query.isFiltersQuery()) {
+         query.getFilters().forEach(filter -> filters.add(createFilter(filter)));
+      }
+
+      if (filters.isEmpty()) {
+         return new BsonDocument();
+      }
+      return filters.size() == 1 ? filters.get(0) : Filters.and(filters);
+   }
+
+   private static Bson createFilter(SearchFilter filter) {
+      if (filter instanceof CompositeFilter) {
+         CompositeFilter compositeFilter = (CompositeFilter) filter;
+         List<Bson> filters = compositeFilter.getFilters().stream()
+                                             .map(MongoDataDao::createFilter)
+                                             .collect(Collectors.toList());
+         return compositeFilter.getOperator() == CompositeFilter.Operator.AND ? Filters.and(filters) : Filters.or(filters);
+      }
+
+      AttributeFilter attributeFilter = (AttributeFilter) filter;
+      String attribute = attributeFilter.getAttribute();
+      Object value = attributeFilter.getValue();
+
+      switch (attributeFilter.getCondition()) {
+         case EQUALS:
+            return Filters.eq(attribute, value);
+         case NOT_EQUALS:
+            return Filters.ne(attribute, value);
+         case LOWER_THAN:
+            return Filters.lt(attribute, value);
+         case LOWER_THAN_EQUALS:
+            return Filters.lte(attribute, value);
+         case GREATER_THAN:
+            return Filters.gt(attribute, value);
+         case GREATER_THAN_EQUALS:
+            return Filters.gte(attribute, value);
+         case CONTAINS:
+            return Filters.regex(attribute, Pattern.quote(String.valueOf(value)), "i");
+         default:
+            throw new IllegalArgumentException("Unsupported filter condition " + attributeFilter.getCondition());
+      }
    }
 
    MongoCollection<Document> dataCollection(String collectionId) {
@@ -150,4 +537,15 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
    private static Bson idFilter(String id) {
       return Filters.eq(ID, new ObjectId(id));
    }
+
+   private static List<ObjectId> toObjectIds(Collection<String> ids) {
+      // malformed ids can not match any document
+      return ids.stream().filter(ObjectId::isValid).map(ObjectId::new).collect(Collectors.toList());
+   }
+
+   private static Bson versionFilter(String id, int version) {
+      // data stored before the data were versioned have no version, they count as version 0
+      Bson versionCondition = version == 0 ? Filters.or(Filters.eq(VERSION, 0), Filters.exists(VERSION, false)) : Filters.eq(VERSION, version);
+      return Filters.and(idFilter(id), versionCondition);
+   }
 }
@@ -0,0 +1,107 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb.dao.project;
+
+import io.lumeer.storage.api.event.UpdateCollectionStatistics;
+import io.lumeer.storage.mongodb.model.MorphiaCollection;
+import io.lumeer.storage.mongodb.model.embedded.MorphiaAttribute;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Usage statistics increments of a single collection. Increments of several document insertions can be merged together
+ * and are written with atomic updates in one bulk write, so concurrent writers never overwrite each other's counts.
+ */
+class CollectionStatistics {
+
+   private static final String ID = "_id";
+   private static final String ATTRIBUTE_FULL_NAME = MorphiaCollection.ATTRIBUTES + "." + MorphiaAttribute.FULL_NAME;
+   private static final String ATTRIBUTE_USAGE_COUNT = MorphiaCollection.ATTRIBUTES + ".$." + MorphiaAttribute.USAGE_COUNT;
+
+   private final Map<String, Integer> attributesUsage;
+   private int documentsCount;
+   private LocalDateTime lastTimeUsed;
+
+   CollectionStatistics(final Map<String, Integer> attributesUsage, final int documentsCount, final LocalDateTime lastTimeUsed) {
+      this.attributesUsage = new HashMap<>(attributesUsage);
+      this.documentsCount = documentsCount;
+      this.lastTimeUsed = lastTimeUsed;
+   }
+
+   CollectionStatistics merge(final CollectionStatistics other) {
+      other.attributesUsage.forEach((attribute, count) -> attributesUsage.merge(attribute, count, Integer::sum));
+      documentsCount += other.documentsCount;
+      if (lastTimeUsed == null || (other.lastTimeUsed != null && other.lastTimeUsed.isAfter(lastTimeUsed))) {
+         lastTimeUsed = other.lastTimeUsed;
+      }
+      return this;
+   }
+
+   void write(final MongoCollection<Document> collection, final String collectionId) {
+      collection.bulkWrite(createWriteModels(new ObjectId(collectionId)));
+   }
+
+   UpdateCollectionStatistics createEvent(final String projectId, final String collectionId) {
+      return new UpdateCollectionStatistics(projectId, collectionId, attributesUsage, documentsCount, lastTimeUsed);
+   }
+
+   private List<WriteModel<Document>> createWriteModels(final ObjectId id) {
+      List<WriteModel<Document>> models = new ArrayList<>();
+
+      List<Bson> updates = new ArrayList<>();
+      updates.add(Updates.inc(MorphiaCollection.DOCUMENTS_COUNT, documentsCount));
+      if (lastTimeUsed != null) {
+         // stored the same way as Morphia converts LocalDateTime
+         updates.add(Updates.max(MorphiaCollection.LAST_TIME_USED, Date.from(lastTimeUsed.atZone(ZoneId.systemDefault()).toInstant())));
+      }
+      models.add(new UpdateOneModel<>(Filters.eq(ID, id), Updates.combine(updates)));
+
+      // positional updates can touch a single array element only, so every attribute takes two updates:
+      // append the attribute when it is missing and then increment its usage count
+      attributesUsage.forEach((attribute, count) -> {
+         Document newAttribute = new Document(MorphiaAttribute.NAME, attribute)
+               .append(MorphiaAttribute.FULL_NAME, attribute)
+               .append(MorphiaAttribute.CONSTRAINTS, Collections.emptyList())
+               .append(MorphiaAttribute.USAGE_COUNT, 0);
+         models.add(new UpdateOneModel<>(Filters.and(Filters.eq(ID, id), Filters.ne(ATTRIBUTE_FULL_NAME, attribute)),
+               Updates.push(MorphiaCollection.ATTRIBUTES, newAttribute)));
+         models.add(new UpdateOneModel<>(Filters.and(Filters.eq(ID, id), Filters.eq(ATTRIBUTE_FULL_NAME, attribute)),
+               Updates.inc(ATTRIBUTE_USAGE_COUNT, count)));
+      });
+
+      return models;
+   }
+}
@@ -0,0 +1,142 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb.dao.project;
+
+import io.lumeer.storage.api.event.CollectionEvent;
+
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+/**
+ * Merges collection statistics increments and writes them once per flush interval, so that a collection under
+ * a high insert rate receives a single bulk update per interval instead of one per inserted document.
+ * Coalescing is disabled unless the system property {@value #FLUSH_INTERVAL_PROPERTY} is set to a positive number of milliseconds.
+ */
+@ApplicationScoped
+public class CollectionStatisticsCoalescer {
+
+   private static final Logger log = Logger.getLogger(CollectionStatisticsCoalescer.class.getName());
+
+   public static final String FLUSH_INTERVAL_PROPERTY = "lumeer.collection.statistics.flushInterval";
+
+   @Inject
+   private Event<CollectionEvent> collectionEvent;
+
+   private final long flushInterval;
+   private final ConcurrentMap<String, PendingStatistics> pendingStatistics = new ConcurrentHashMap<>();
+
+   private ScheduledExecutorService scheduler;
+
+   public CollectionStatisticsCoalescer() {
+      this(Long.getLong(FLUSH_INTERVAL_PROPERTY, 0L));
+   }
+
+   CollectionStatisticsCoalescer(final long flushInterval) {
+      this.flushInterval = flushInterval;
+   }
+
+   @PostConstruct
+   public void start() {
+      if (isEnabled()) {
+         scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "collection-statistics");
+            thread.setDaemon(true);
+            return thread;
+         });
+         scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   @PreDestroy
+   public void stop() {
+      if (scheduler != null) {
+         scheduler.shutdown();
+         scheduler = null;
+      }
+      flush();
+   }
+
+   public boolean isEnabled() {
+      return flushInterval > 0;
+   }
+
+   void add(final String projectId, final MongoCollection<Document> collection, final String collectionId, final CollectionStatistics statistics) {
+      String key = collection.getNamespace().getFullName() + "/" + collectionId;
+
+      // compute holds the lock of the entry, so the merge never races with another merge or with the removal in flush
+      pendingStatistics.compute(key, (k, pending) -> pending == null ?
+            new PendingStatistics(projectId, collection, collectionId, statistics) : pending.merge(statistics));
+   }
+
+   public void flush() {
+      for (String key : pendingStatistics.keySet()) {
+         PendingStatistics pending = pendingStatistics.remove(key);
+         if (pending != null) {
+            pending.write();
+         }
+      }
+   }
+
+   void setCollectionEvent(final Event<CollectionEvent> collectionEvent) {
+      this.collectionEvent = collectionEvent;
+   }
+
+   private class PendingStatistics {
+
+      private final String projectId;
+      private final MongoCollection<Document> collection;
+      private final String collectionId;
+      private final CollectionStatistics statistics;
+
+      private PendingStatistics(final String projectId, final MongoCollection<Document> collection, final String collectionId, final CollectionStatistics statistics) {
+         this.projectId = projectId;
+         this.collection = collection;
+         this.collectionId = collectionId;
+         this.statistics = statistics;
+      }
+
+      private PendingStatistics merge(final CollectionStatistics other) {
+         statistics.merge(other);
+         return this;
+      }
+
+      private void write() {
+         try {
+            statistics.write(collection, collectionId);
+            collectionEvent.fire(statistics.createEvent(projectId, collectionId));
+         } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Unable to write statistics of collection " + collectionId, e);
+         }
+      }
+   }
+}
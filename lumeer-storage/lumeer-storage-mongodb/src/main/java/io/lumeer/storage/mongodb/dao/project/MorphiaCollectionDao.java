@@ -19,10 +19,17 @@
  */
 package io.lumeer.storage.mongodb.dao.project;
 
+import static io.lumeer.storage.mongodb.model.common.MorphiaEntity.ID;
+
+import io.lumeer.api.model.Attribute;
 import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Permissions;
 import io.lumeer.api.model.Project;
 import io.lumeer.api.model.ResourceType;
 import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.event.CollectionEvent;
+import io.lumeer.storage.api.event.RemoveCollection;
+import io.lumeer.storage.api.event.UpdateCollection;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
 import io.lumeer.storage.api.query.DatabaseQuery;
 import io.lumeer.storage.api.query.SearchQuery;
@@ -32,22 +39,43 @@ import io.lumeer.storage.mongodb.model.MorphiaCollection;
 import io.lumeer.storage.mongodb.model.MorphiaView;
 import io.lumeer.storage.mongodb.model.common.MorphiaResource;
 import io.lumeer.storage.mongodb.model.embedded.MorphiaAttribute;
+import io.lumeer.storage.mongodb.model.embedded.MorphiaPermissions;
 
 import com.mongodb.WriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
+import org.mongodb.morphia.FindAndModifyOptions;
 import org.mongodb.morphia.query.FindOptions;
 import org.mongodb.morphia.query.Query;
+import org.mongodb.morphia.query.UpdateOperations;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.enterprise.context.RequestScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
 
 @RequestScoped
 public class MorphiaCollectionDao extends ProjectScopedDao implements CollectionDao {
 
    private static final String PREFIX = "collections_p-";
+   private static final String ATTRIBUTE_FULL_NAME = MorphiaCollection.ATTRIBUTES + "." + MorphiaAttribute.FULL_NAME;
+   private static final String ATTRIBUTE_POSITIONAL = MorphiaCollection.ATTRIBUTES + ".$.";
+
+   @Inject
+   private Event<CollectionEvent> collectionEvent;
+
+   @Inject
+   private CollectionStatisticsCoalescer statisticsCoalescer;
 
    @Override
    public void createCollectionsRepository(Project project) {
@@ -64,23 +92,108 @@ public class MorphiaCollectionDao extends ProjectScopedDao implements Collection
    public Collection createCollection(final Collection collection) {
       MorphiaCollection morphiaCollection = new MorphiaCollection(collection);
       datastore.insert(databaseCollection(), morphiaCollection);
+      collectionEvent.fire(new UpdateCollection(getProject().get().getId(), morphiaCollection));
       return morphiaCollection;
    }
 
    @Override
    public Collection updateCollection(final String id, final Collection collection) {
-      MorphiaCollection morphiaCollection = new MorphiaCollection(collection);
-      morphiaCollection.setId(id);
-      datastore.save(databaseCollection(), morphiaCollection);
+      UpdateOperations<MorphiaCollection> operations = datastore.createUpdateOperations(MorphiaCollection.class)
+                                                                .set(MorphiaCollection.CODE, collection.getCode())
+                                                                .set(MorphiaCollection.NAME, collection.getName());
+      setOrUnset(operations, MorphiaCollection.ICON, collection.getIcon());
+      setOrUnset(operations, MorphiaCollection.COLOR, collection.getColor());
+
+      return updateCollection(id, operations);
+   }
+
+   @Override
+   public Collection updateCollectionPermissions(final String id, final Permissions permissions) {
+      UpdateOperations<MorphiaCollection> operations = datastore.createUpdateOperations(MorphiaCollection.class)
+                                                                .set(MorphiaCollection.PERMISSIONS, new MorphiaPermissions(permissions));
+      return updateCollection(id, operations);
+   }
+
+   @Override
+   public Collection updateCollectionAttribute(final String id, final String attributeFullName, final Attribute attribute) {
+      MongoCollection<Document> collection = database.getCollection(databaseCollection());
+      ObjectId objectId = new ObjectId(id);
+
+      Bson update = Updates.combine(Updates.set(ATTRIBUTE_POSITIONAL + MorphiaAttribute.NAME, attribute.getName()),
+            Updates.set(ATTRIBUTE_POSITIONAL + MorphiaAttribute.FULL_NAME, attribute.getFullName()),
+            Updates.set(ATTRIBUTE_POSITIONAL + MorphiaAttribute.CONSTRAINTS, new ArrayList<>(attribute.getConstraints())));
+      UpdateResult result = collection.updateOne(Filters.and(Filters.eq(ID, objectId), Filters.eq(ATTRIBUTE_FULL_NAME, attributeFullName)), update);
+
+      if (result.getMatchedCount() == 0) {
+         Document newAttribute = new Document(MorphiaAttribute.NAME, attribute.getName())
+               .append(MorphiaAttribute.FULL_NAME, attribute.getFullName())
+               .append(MorphiaAttribute.CONSTRAINTS, new ArrayList<>(attribute.getConstraints()))
+               .append(MorphiaAttribute.USAGE_COUNT, attribute.getUsageCount() != null ? attribute.getUsageCount() : 0);
+         collection.updateOne(Filters.and(Filters.eq(ID, objectId), Filters.ne(ATTRIBUTE_FULL_NAME, attribute.getFullName())),
+               Updates.push(MorphiaCollection.ATTRIBUTES, newAttribute));
+      }
+
+      return fireUpdatedCollection(objectId);
+   }
+
+   @Override
+   public Collection deleteCollectionAttribute(final String id, final String attributeFullName) {
+      ObjectId objectId = new ObjectId(id);
+      database.getCollection(databaseCollection())
+              .updateOne(Filters.eq(ID, objectId), Updates.pull(MorphiaCollection.ATTRIBUTES, new Document(MorphiaAttribute.FULL_NAME, attributeFullName)));
+
+      return fireUpdatedCollection(objectId);
+   }
+
+   private Collection updateCollection(final String id, final UpdateOperations<MorphiaCollection> operations) {
+      Query<MorphiaCollection> query = datastore.createQuery(databaseCollection(), MorphiaCollection.class)
+                                                .field(ID).equal(new ObjectId(id));
+      MorphiaCollection morphiaCollection = datastore.findAndModify(query, operations, new FindAndModifyOptions().returnNew(true));
+      if (morphiaCollection == null) {
+         throw new ResourceNotFoundException(ResourceType.COLLECTION);
+      }
+      collectionEvent.fire(new UpdateCollection(getProject().get().getId(), morphiaCollection));
+      return morphiaCollection;
+   }
+
+   private Collection fireUpdatedCollection(final ObjectId id) {
+      MorphiaCollection morphiaCollection = datastore.get(databaseCollection(), MorphiaCollection.class, id);
+      if (morphiaCollection == null) {
+         throw new ResourceNotFoundException(ResourceType.COLLECTION);
+      }
+      collectionEvent.fire(new UpdateCollection(getProject().get().getId(), morphiaCollection));
       return morphiaCollection;
    }
 
+   private static void setOrUnset(final UpdateOperations<MorphiaCollection> operations, final String field, final Object value) {
+      if (value != null) {
+         operations.set(field, value);
+      } else {
+         operations.unset(field);
+      }
+   }
+
    @Override
    public void deleteCollection(final String id) {
       WriteResult writeResult = datastore.delete(databaseCollection(), MorphiaCollection.class, new ObjectId(id));
       if (writeResult.getN() != 1) {
          throw new WriteFailedException(writeResult);
       }
+      collectionEvent.fire(new RemoveCollection(getProject().get().getId(), id));
+   }
+
+   @Override
+   public void updateCollectionStatistics(final String id, final Map<String, Integer> attributesUsage, final int documentsCount, final LocalDateTime lastTimeUsed) {
+      MongoCollection<Document> collection = database.getCollection(databaseCollection());
+      String projectId = getProject().get().getId();
+      CollectionStatistics statistics = new CollectionStatistics(attributesUsage, documentsCount, lastTimeUsed);
+
+      if (statisticsCoalescer.isEnabled()) {
+         statisticsCoalescer.add(projectId, collection, id, statistics);
+      } else {
+         statistics.write(collection, id);
+         collectionEvent.fire(statistics.createEvent(projectId, id));
+      }
    }
 
    @Override
@@ -159,6 +272,14 @@ public class MorphiaCollectionDao extends ProjectScopedDao implements Collection
       return mongoQuery;
    }
 
+   public void setCollectionEvent(final Event<CollectionEvent> collectionEvent) {
+      this.collectionEvent = collectionEvent;
+   }
+
+   public void setStatisticsCoalescer(final CollectionStatisticsCoalescer statisticsCoalescer) {
+      this.statisticsCoalescer = statisticsCoalescer;
+   }
+
    private String databaseCollection(Project project) {
       return PREFIX + project.getId();
    }
@@ -31,13 +31,23 @@ import io.lumeer.storage.mongodb.model.MorphiaCollection;
 import io.lumeer.storage.mongodb.model.MorphiaDocument;
 
 import com.mongodb.WriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import org.bson.types.ObjectId;
+import org.mongodb.morphia.FindAndModifyOptions;
 import org.mongodb.morphia.query.Query;
+import org.mongodb.morphia.query.UpdateOperations;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import javax.enterprise.context.RequestScoped;
 
@@ -83,6 +93,41 @@ public class MorphiaDocumentDao extends ProjectScopedDao implements DocumentDao
       return morphiaDocument;
    }
 
+   @Override
+   public Document updateDataVersion(final String collectionId, final String id, final int dataVersion, final String updatedBy, final LocalDateTime updateDate) {
+      Query<MorphiaDocument> query = datastore.createQuery(databaseCollection(), MorphiaDocument.class)
+                                              .field(ID).equal(new ObjectId(id))
+                                              .field(MorphiaDocument.COLLECTION_ID).equal(collectionId);
+
+      UpdateOperations<MorphiaDocument> operations = datastore.createUpdateOperations(MorphiaDocument.class)
+                                                              .max(MorphiaDocument.DATA_VERSION, dataVersion)
+                                                              .set(MorphiaDocument.UPDATED_BY, updatedBy)
+                                                              .set(MorphiaDocument.UPDATE_DATE, updateDate);
+
+      MorphiaDocument document = datastore.findAndModify(query, operations, new FindAndModifyOptions().returnNew(true));
+      if (document == null) {
+         throw new ResourceNotFoundException(ResourceType.DOCUMENT);
+      }
+      return document;
+   }
+
+   @Override
+   public void updateDataVersions(final String collectionId, final Map<String, Integer> dataVersions, final String updatedBy, final LocalDateTime updateDate) {
+      if (dataVersions.isEmpty()) {
+         return;
+      }
+
+      Date date = MorphiaDocument.convertLocalDateTimeToDate(updateDate);
+      List<WriteModel<org.bson.Document>> updates = dataVersions.entrySet().stream()
+                                                                .map(entry -> new UpdateOneModel<org.bson.Document>(
+                                                                      Filters.and(Filters.eq(ID, new ObjectId(entry.getKey())), Filters.eq(MorphiaDocument.COLLECTION_ID, collectionId)),
+                                                                      Updates.combine(Updates.max(MorphiaDocument.DATA_VERSION, entry.getValue()),
+                                                                            Updates.set(MorphiaDocument.UPDATED_BY, updatedBy),
+                                                                            Updates.set(MorphiaDocument.UPDATE_DATE, date))))
+                                                                .collect(Collectors.toList());
+      database.getCollection(databaseCollection()).bulkWrite(updates, new BulkWriteOptions().ordered(false));
+   }
+
    @Override
    public void deleteDocument(final String id) {
       WriteResult writeResult = datastore.delete(databaseCollection(), MorphiaDocument.class, new ObjectId(id));
@@ -98,6 +143,14 @@ public class MorphiaDocumentDao extends ProjectScopedDao implements DocumentDao
       datastore.delete(query);
    }
 
+   @Override
+   public void deleteDocuments(final String collectionId, final List<String> ids) {
+      Query<MorphiaDocument> query = datastore.createQuery(databaseCollection(), MorphiaDocument.class)
+                                              .field(ID).in(toObjectIds(ids))
+                                              .field(MorphiaDocument.COLLECTION_ID).equal(collectionId);
+      datastore.delete(query);
+   }
+
    @Override
    public Document getDocumentById(final String id) {
       Document document = datastore.createQuery(databaseCollection(), MorphiaDocument.class)
@@ -118,6 +171,20 @@ public class MorphiaDocumentDao extends ProjectScopedDao implements DocumentDao
       return new ArrayList<>(documents);
    }
 
+   @Override
+   public List<Document> getDocumentsByIds(final String collectionId, final List<String> ids) {
+      List<MorphiaDocument> documents = datastore.createQuery(databaseCollection(), MorphiaDocument.class)
+                                                 .field(ID).in(toObjectIds(ids))
+                                                 .field(MorphiaDocument.COLLECTION_ID).equal(collectionId)
+                                                 .asList();
+      return new ArrayList<>(documents);
+   }
+
+   private static List<ObjectId> toObjectIds(List<String> ids) {
+      // malformed ids can not match any document
+      return ids.stream().filter(ObjectId::isValid).map(ObjectId::new).collect(Collectors.toList());
+   }
+
    private String databaseCollection(Project project) {
       return PREFIX + project.getId();
    }
@@ -0,0 +1,199 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb.event;
+
+import io.lumeer.engine.annotation.SystemDataStorage;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.storage.api.event.DataChange;
+import io.lumeer.storage.api.event.DataChanges;
+import io.lumeer.storage.mongodb.CappedCollectionTailer;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Shares the data changes between the nodes connected to the same system database. Every node appends its local
+ * {@link DataChanges} to a capped collection and follows it with a {@link CappedCollectionTailer}, the changes made
+ * on other nodes are fired again as remote {@link DataChanges} events.
+ * Sharing is disabled unless the system property {@value #SHARE_PROPERTY} is set to true.
+ */
+@ApplicationScoped
+public class MongoDataChangeFeed {
+
+   private static final Logger log = Logger.getLogger(MongoDataChangeFeed.class.getName());
+
+   public static final String SHARE_PROPERTY = "lumeer.data.changes.share";
+
+   public static final String COLLECTION_NAME = "dataChanges";
+
+   private static final long COLLECTION_SIZE = 16 * 1024 * 1024;
+   private static final int MESSAGE_SIZE = 100;
+
+   private static final String NODE = "node";
+   private static final String CHANGES = "changes";
+   private static final String TYPE = "type";
+   private static final String COLLECTION = "collection";
+   private static final String DOCUMENT = "document";
+   private static final String CHANGED = "changed";
+   private static final String REMOVED = "removed";
+
+   @Inject
+   @SystemDataStorage
+   private DataStorage dataStorage;
+
+   @Inject
+   private ManagedThreadFactory managedThreadFactory;
+
+   @Inject
+   private Event<DataChanges> dataChangesEvent;
+
+   private final String nodeId = UUID.randomUUID().toString();
+   private final boolean enabled;
+
+   private MongoDatabase database;
+   private ThreadFactory threadFactory;
+   private MongoCollection<Document> collection;
+   private CappedCollectionTailer tailer;
+
+   public MongoDataChangeFeed() {
+      this(Boolean.getBoolean(SHARE_PROPERTY));
+   }
+
+   MongoDataChangeFeed(final boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   @PostConstruct
+   public void init() {
+      if (enabled) {
+         setDatabase((MongoDatabase) dataStorage.getDatabase());
+         setThreadFactory(managedThreadFactory);
+         start();
+      }
+   }
+
+   @PreDestroy
+   public void destroy() {
+      stop();
+   }
+
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   public void setDatabase(final MongoDatabase database) {
+      this.database = database;
+   }
+
+   public void setThreadFactory(final ThreadFactory threadFactory) {
+      this.threadFactory = threadFactory;
+   }
+
+   public void setDataChangesEvent(final Event<DataChanges> dataChangesEvent) {
+      this.dataChangesEvent = dataChangesEvent;
+   }
+
+   public void start() {
+      collection = CappedCollectionTailer.getOrCreateCollection(database, COLLECTION_NAME, COLLECTION_SIZE);
+
+      // only the changes made after the start are delivered
+      tailer = new CappedCollectionTailer(collection, threadFactory, this::dispatch, this::onGap);
+      tailer.start();
+   }
+
+   public void stop() {
+      if (tailer != null) {
+         tailer.stop();
+         tailer = null;
+      }
+   }
+
+   public void onDataChanges(@Observes final DataChanges event) {
+      if (tailer == null || event.isRemote()) {
+         return;
+      }
+
+      final List<DataChange> changes = event.getChanges();
+      try {
+         // large batches are split so that no message exceeds the maximum document size
+         for (int i = 0; i < changes.size(); i += MESSAGE_SIZE) {
+            final List<Document> message = changes.subList(i, Math.min(i + MESSAGE_SIZE, changes.size())).stream()
+                                                  .map(MongoDataChangeFeed::toDocument)
+                                                  .collect(Collectors.toList());
+            collection.insertOne(new Document(NODE, nodeId).append(CHANGES, message));
+         }
+      } catch (MongoException e) {
+         log.log(Level.WARNING, "Unable to share data changes with other nodes", e);
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private void dispatch(final Document message) {
+      if (nodeId.equals(message.getString(NODE)) || !message.containsKey(CHANGES)) {
+         return;
+      }
+
+      final List<DataChange> changes = ((List<Document>) message.get(CHANGES)).stream()
+                                                                              .map(MongoDataChangeFeed::fromDocument)
+                                                                              .collect(Collectors.toList());
+      dataChangesEvent.fire(new DataChanges(changes, true));
+   }
+
+   private void onGap() {
+      // the data changes are notifications only, the observers read the current data again on the next change
+      log.log(Level.WARNING, "Some data changes made on other nodes were not delivered");
+   }
+
+   private static Document toDocument(final DataChange change) {
+      return new Document(TYPE, change.getType().name())
+            .append(COLLECTION, change.getCollectionId())
+            .append(DOCUMENT, change.getDocumentId())
+            .append(CHANGED, new ArrayList<>(change.getChangedAttributes()))
+            .append(REMOVED, new ArrayList<>(change.getRemovedAttributes()));
+   }
+
+   @SuppressWarnings("unchecked")
+   private static DataChange fromDocument(final Document document) {
+      return new DataChange(DataChange.Type.valueOf(document.getString(TYPE)),
+            document.getString(COLLECTION),
+            document.getString(DOCUMENT),
+            new LinkedHashSet<>((List<String>) document.get(CHANGED)),
+            new HashSet<>((List<String>) document.get(REMOVED)));
+   }
+}
@@ -212,7 +212,7 @@ public class MorphiaDocument extends MorphiaEntity implements Document {
       return new org.bson.Document(dataDocument);
    }
 
-   private Date convertLocalDateTimeToDate(LocalDateTime dateTime) {
+   public static Date convertLocalDateTimeToDate(LocalDateTime dateTime) {
       if (dateTime == null) {
          return null;
       }
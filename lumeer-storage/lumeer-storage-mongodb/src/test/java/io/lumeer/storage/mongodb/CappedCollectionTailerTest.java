@@ -0,0 +1,131 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class CappedCollectionTailerTest extends MongoDbTestBase {
+
+   private static final String COLLECTION_NAME = "tailerTest";
+   private static final String NUMBER = "number";
+   private static final String PADDING = "padding";
+
+   private CappedCollectionTailer tailer;
+
+   @After
+   public void stopTailer() {
+      if (tailer != null) {
+         tailer.stop();
+      }
+   }
+
+   private static Document message(int number) {
+      return new Document(NUMBER, number).append(PADDING, String.join("", Collections.nCopies(100, "x")));
+   }
+
+   private static List<Integer> numbers(List<Document> messages) {
+      return messages.stream().map(message -> message.getInteger(NUMBER)).collect(Collectors.toList());
+   }
+
+   @Test
+   public void testDeliverNewMessagesOnly() throws InterruptedException {
+      MongoCollection<Document> collection = CappedCollectionTailer.getOrCreateCollection(database, COLLECTION_NAME, 1024 * 1024);
+      collection.insertOne(message(0));
+
+      List<Document> messages = new CopyOnWriteArrayList<>();
+      CountDownLatch latch = new CountDownLatch(2);
+      tailer = new CappedCollectionTailer(collection, Executors.defaultThreadFactory(), message -> {
+         messages.add(message);
+         latch.countDown();
+      }, () -> {
+      });
+      tailer.start();
+
+      collection.insertOne(message(1));
+      collection.insertOne(message(2));
+
+      assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(numbers(messages)).containsExactly(1, 2);
+   }
+
+   @Test
+   public void testResumeFromNewestMessageAfterRollover() throws InterruptedException {
+      MongoCollection<Document> collection = CappedCollectionTailer.getOrCreateCollection(database, COLLECTION_NAME, 4096);
+      for (int i = 0; i < 10; i++) {
+         collection.insertOne(message(-i));
+      }
+
+      List<Document> messages = new CopyOnWriteArrayList<>();
+      CountDownLatch firstReceived = new CountDownLatch(1);
+      CountDownLatch rolledOver = new CountDownLatch(1);
+      CountDownLatch gapReported = new CountDownLatch(1);
+      CountDownLatch lastReceived = new CountDownLatch(1);
+
+      tailer = new CappedCollectionTailer(collection, Executors.defaultThreadFactory(), message -> {
+         messages.add(message);
+         if (Integer.valueOf(1).equals(message.getInteger(NUMBER))) {
+            // keep the cursor on the first message until the collection rolls over it
+            firstReceived.countDown();
+            await(rolledOver);
+         } else if (Integer.valueOf(1000).equals(message.getInteger(NUMBER))) {
+            lastReceived.countDown();
+         }
+      }, gapReported::countDown);
+      tailer.start();
+
+      collection.insertOne(message(1));
+      assertThat(firstReceived.await(10, TimeUnit.SECONDS)).isTrue();
+      for (int i = 2; i < 200; i++) {
+         collection.insertOne(message(i));
+      }
+      rolledOver.countDown();
+
+      assertThat(gapReported.await(10, TimeUnit.SECONDS)).isTrue();
+      collection.insertOne(message(1000));
+      assertThat(lastReceived.await(10, TimeUnit.SECONDS)).isTrue();
+
+      List<Integer> numbers = numbers(messages);
+      assertThat(numbers).doesNotHaveDuplicates();
+      assertThat(numbers).doesNotContainNull();
+      assertThat(numbers.stream().allMatch(number -> number > 0)).isTrue();
+      assertThat(numbers).isSorted();
+   }
+
+   private static void await(CountDownLatch latch) {
+      try {
+         latch.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
@@ -0,0 +1,110 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb;
+
+import static io.lumeer.storage.mongodb.EmbeddedMongoDb.*;
+
+import io.lumeer.engine.api.cache.Cache;
+import io.lumeer.engine.api.cache.CacheProvider;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.StorageConnection;
+
+import org.mockito.Mockito;
+import org.mongodb.morphia.Morphia;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of serial and concurrent single document inserts through {@link MongoDbStorage} with the collection name cache enabled.
+ * It is not run with the tests, start it manually with optional arguments &lt;threads&gt; &lt;documents per thread&gt;.
+ * The database given by the lumeer.db.* system properties is used, an embedded one is started for localhost.
+ */
+public class MongoDbStorageBenchmark {
+
+   private static final String COLLECTION = "benchmarkInserts";
+
+   @SuppressWarnings("unchecked")
+   public static void main(final String[] args) throws Exception {
+      final int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+      final int documentsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+      final EmbeddedMongoDb embeddedMongoDb = new EmbeddedMongoDb();
+      embeddedMongoDb.start();
+
+      final MongoDbStorage mongoDbStorage = new MongoDbStorage(new Morphia());
+      try {
+         mongoDbStorage.connect(new StorageConnection(HOST, PORT, USER, PASSWORD), NAME, SSL);
+
+         final Set<String> cachedCollections = ConcurrentHashMap.newKeySet();
+         final Cache<Set<String>> cache = Mockito.mock(Cache.class);
+         Mockito.when(cache.get()).thenReturn(cachedCollections);
+         final CacheProvider cacheProvider = Mockito.mock(CacheProvider.class);
+         Mockito.when(cacheProvider.getCache(Mockito.anyString())).thenReturn((Cache) cache);
+         mongoDbStorage.setCacheProvider(cacheProvider);
+
+         // warm up
+         measure(mongoDbStorage, threads, documentsPerThread / 10);
+         measure(mongoDbStorage, 1, threads * documentsPerThread / 10);
+
+         final long serial = measure(mongoDbStorage, 1, threads * documentsPerThread);
+         final long parallel = measure(mongoDbStorage, threads, documentsPerThread);
+
+         System.out.printf("%,d inserts: serial %,d ms, %d threads %,d ms, speedup %.2fx%n", threads * documentsPerThread,
+               TimeUnit.NANOSECONDS.toMillis(serial), threads, TimeUnit.NANOSECONDS.toMillis(parallel), (double) serial / parallel);
+      } finally {
+         mongoDbStorage.dropCollection(COLLECTION);
+         mongoDbStorage.disconnect();
+         embeddedMongoDb.stop();
+      }
+   }
+
+   private static long measure(final MongoDbStorage mongoDbStorage, final int threads, final int documentsPerThread) throws Exception {
+      mongoDbStorage.dropCollection(COLLECTION);
+
+      final ExecutorService executor = Executors.newFixedThreadPool(threads);
+      final List<Future<?>> futures = new ArrayList<>();
+      final long start = System.nanoTime();
+
+      try {
+         for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+               for (int j = 0; j < documentsPerThread; j++) {
+                  mongoDbStorage.createDocument(COLLECTION, new DataDocument("key", "value").append("number", j));
+               }
+            }));
+         }
+
+         for (Future<?> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      return System.nanoTime() - start;
+   }
+}
@@ -23,6 +23,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.cache.Cache;
+import io.lumeer.engine.api.cache.CacheProvider;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.data.DataFilter;
 import io.lumeer.engine.api.data.DataStorageStats;
@@ -33,12 +35,23 @@ import com.mongodb.client.model.Filters;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class MongoDbStorageTest extends MongoDbTestBase {
 
@@ -60,8 +73,13 @@ public class MongoDbStorageTest extends MongoDbTestBase {
    private final String COLLECTION_CREATE_AND_READ_DOCUMENT = "collectionCreateAndReadDocument";
    private final String COLLECTION_CREATE_DOCUMENTS = "collectionCreateDocuments";
    private final String COLLECTION_CREATE_DOCUMENTS_EXCEPTION = "collectionCreateDocumentsWithException";
+   private final String COLLECTION_CONCURRENT_INSERTS = "collectionConcurrentInserts";
    private final String COLLECTION_CREATE_AND_READ_OLD_DOCUMENT = "collectionCreateAndReadOldDocument";
+   private final String COLLECTION_CREATE_OLD_DOCUMENTS = "collectionCreateOldDocuments";
+   private final String COLLECTION_SEARCH_OLD_DOCUMENTS = "collectionSearchOldDocuments";
    private final String COLLECTION_UPDATE_DOCUMENT = "collectionUpdateDocument";
+   private final String COLLECTION_UPDATE_DOCUMENTS = "collectionUpdateDocuments";
+   private final String COLLECTION_REPLACE_DOCUMENTS = "collectionReplaceDocuments";
    private final String COLLECTION_REPLACE_DOCUMENT = "collectionReplaceDocument";
    private final String COLLECTION_DROP_DOCUMENT = "collectionDropDocument";
    private final String COLLECTION_DROP_MANY = "collectionDropMany";
@@ -69,6 +87,7 @@ public class MongoDbStorageTest extends MongoDbTestBase {
    private final String COLLECTION_SEARCH_ATTRS = "collectionSearchAttrs";
    private final String COLLECTION_SEARCH = "collectionSearch";
    private final String COLLECTION_SEARCH_PROJECTION = "collectionSearchWithProjection";
+   private final String COLLECTION_STREAM = "collectionStream";
    private final String COLLECTION_INDEXES = "collectionIndexes";
    private final String COLLECTION_RUN = "collectionSearchRaw";
    private final String COLLECTION_RENAME_ATTRIBUTE = "collectionRenameAttribute";
@@ -99,13 +118,19 @@ public class MongoDbStorageTest extends MongoDbTestBase {
       mongoDbStorage.dropCollection(COLLECTION_CREATE_AND_READ_DOCUMENT);
       mongoDbStorage.dropCollection(COLLECTION_CREATE_DOCUMENTS);
       mongoDbStorage.dropCollection(COLLECTION_CREATE_DOCUMENTS_EXCEPTION);
+      mongoDbStorage.dropCollection(COLLECTION_CONCURRENT_INSERTS);
       mongoDbStorage.dropCollection(COLLECTION_CREATE_AND_READ_OLD_DOCUMENT);
+      mongoDbStorage.dropCollection(COLLECTION_CREATE_OLD_DOCUMENTS);
+      mongoDbStorage.dropCollection(COLLECTION_SEARCH_OLD_DOCUMENTS);
       mongoDbStorage.dropCollection(COLLECTION_UPDATE_DOCUMENT);
+      mongoDbStorage.dropCollection(COLLECTION_UPDATE_DOCUMENTS);
+      mongoDbStorage.dropCollection(COLLECTION_REPLACE_DOCUMENTS);
       mongoDbStorage.dropCollection(COLLECTION_DROP_DOCUMENT);
       mongoDbStorage.dropCollection(COLLECTION_DROP_MANY);
       mongoDbStorage.dropCollection(COLLECTION_DROP_ATTRIBUTE);
       mongoDbStorage.dropCollection(COLLECTION_SEARCH_ATTRS);
       mongoDbStorage.dropCollection(COLLECTION_SEARCH);
+      mongoDbStorage.dropCollection(COLLECTION_STREAM);
       mongoDbStorage.dropCollection(COLLECTION_INDEXES);
       mongoDbStorage.dropCollection(COLLECTION_RUN);
       mongoDbStorage.dropCollection(COLLECTION_RENAME_ATTRIBUTE);
@@ -217,6 +242,57 @@ public class MongoDbStorageTest extends MongoDbTestBase {
       assertThat(search).hasSize(4);
    }
 
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testConcurrentInserts() throws Exception {
+      final int threads = 8;
+      final int documentsPerThread = 250;
+
+      final Set<String> cachedCollections = ConcurrentHashMap.newKeySet();
+      final Cache<Set<String>> cache = Mockito.mock(Cache.class);
+      Mockito.when(cache.get()).thenReturn(cachedCollections);
+      Mockito.when(cache.get(Cache.DEFAULT_ENTRY_KEY)).thenReturn(cachedCollections);
+      final CacheProvider cacheProvider = Mockito.mock(CacheProvider.class);
+      Mockito.when(cacheProvider.getCache(Mockito.anyString())).thenReturn((Cache) cache);
+      mongoDbStorage.setCacheProvider(cacheProvider);
+
+      // the collection does not exist yet, all threads race to create it implicitly by their first insert
+      assertThat(mongoDbStorage.hasCollection(COLLECTION_CONCURRENT_INSERTS)).isFalse();
+
+      final Set<String> ids = ConcurrentHashMap.newKeySet();
+      final CountDownLatch start = new CountDownLatch(1);
+      final ExecutorService executor = Executors.newFixedThreadPool(threads);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+         futures.add(executor.submit(() -> {
+            start.await();
+            for (int j = 0; j < documentsPerThread; j++) {
+               ids.add(mongoDbStorage.createDocument(COLLECTION_CONCURRENT_INSERTS, createDummyDocument()));
+            }
+            return null;
+         }));
+      }
+
+      start.countDown();
+      try {
+         for (Future<?> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      // every insert got its own id and every document is stored
+      assertThat(ids).hasSize(threads * documentsPerThread).doesNotContainNull();
+      List<DataDocument> documents = mongoDbStorage.search(COLLECTION_CONCURRENT_INSERTS, null, null, 0, 0);
+      assertThat(documents).extracting(DataDocument::getId).hasSize(threads * documentsPerThread).containsOnlyElementsOf(ids);
+
+      // the collection exists exactly once in the database and it is known to the cache
+      List<String> collections = database.listCollectionNames().into(new ArrayList<>());
+      assertThat(collections.stream().filter(COLLECTION_CONCURRENT_INSERTS::equals).count()).isEqualTo(1);
+      assertThat(mongoDbStorage.hasCollection(COLLECTION_CONCURRENT_INSERTS)).isTrue();
+   }
+
    @Test
    public void testCreateAndReadOldDocument() throws Exception {
       mongoDbStorage.createCollection(COLLECTION_CREATE_AND_READ_OLD_DOCUMENT);
@@ -233,6 +309,111 @@ public class MongoDbStorageTest extends MongoDbTestBase {
       assertThat(readDocument).isNull();
    }
 
+   @Test
+   public void testSearchOldDocumentsOfManyDocuments() throws Exception {
+      mongoDbStorage.createCollection(COLLECTION_SEARCH_OLD_DOCUMENTS);
+
+      String id1 = "507f191e810c19729de860ea";
+      String id2 = "507f191e810c19729de860eb";
+      String id3 = "507f191e810c19729de860ec";
+      for (int version = 1; version <= 3; version++) {
+         mongoDbStorage.createOldDocument(COLLECTION_SEARCH_OLD_DOCUMENTS, createDummyDocument(), id1, version);
+         mongoDbStorage.createOldDocument(COLLECTION_SEARCH_OLD_DOCUMENTS, createDummyDocument(), id2, version);
+         mongoDbStorage.createOldDocument(COLLECTION_SEARCH_OLD_DOCUMENTS, createDummyDocument(), id3, version);
+      }
+
+      List<DataDocument> byIds = mongoDbStorage.search(COLLECTION_SEARCH_OLD_DOCUMENTS, mongoDbStorageDialect.documentNestedIdsFilter(Arrays.asList(id1, id2)), null, 0, 0);
+      assertThat(byIds).hasSize(6);
+      assertThat(byIds).extracting(document -> document.getDataDocument(LumeerConst.Document.ID).getString(LumeerConst.Document.ID)).containsOnly(id1, id2);
+
+      Map<String, Integer> versions = new HashMap<>();
+      versions.put(id1, 1);
+      versions.put(id2, 3);
+      List<DataDocument> byVersions = mongoDbStorage.search(COLLECTION_SEARCH_OLD_DOCUMENTS, mongoDbStorageDialect.documentNestedIdsFilterWithVersions(versions), null, 0, 0);
+      assertThat(byVersions).extracting(document -> document.getDataDocument(LumeerConst.Document.ID).getString(LumeerConst.Document.ID)
+            + ":" + document.getDataDocument(LumeerConst.Document.ID).getInteger(LumeerConst.Document.METADATA_VERSION_KEY))
+                            .containsOnly(id1 + ":1", id2 + ":3");
+   }
+
+   @Test
+   public void testCreateOldDocuments() throws Exception {
+      mongoDbStorage.createCollection(COLLECTION_CREATE_OLD_DOCUMENTS);
+
+      String dummyKey = "507f191e810c19729de860ea";
+      DataDocument existing = createDummyDocument();
+      mongoDbStorage.createOldDocument(COLLECTION_CREATE_OLD_DOCUMENTS, existing, dummyKey, 1);
+
+      List<DataDocument> documents = new ArrayList<>();
+      for (int version = 0; version < 3; version++) {
+         DataDocument document = createDummyDocument();
+         document.setId(dummyKey);
+         document.put(LumeerConst.Document.METADATA_VERSION_KEY, version);
+         documents.add(document);
+      }
+
+      assertThat(mongoDbStorage.createOldDocuments(COLLECTION_CREATE_OLD_DOCUMENTS, documents)).containsExactly(1);
+      assertThat(mongoDbStorage.readDocument(COLLECTION_CREATE_OLD_DOCUMENTS, mongoDbStorageDialect.documentNestedIdFilterWithVersion(dummyKey, 0))).isNotNull();
+      assertThat(mongoDbStorage.readDocument(COLLECTION_CREATE_OLD_DOCUMENTS, mongoDbStorageDialect.documentNestedIdFilterWithVersion(dummyKey, 2))).isNotNull();
+      assertThat(mongoDbStorage.createOldDocuments(COLLECTION_CREATE_OLD_DOCUMENTS, Collections.emptyList())).isEmpty();
+   }
+
+   @Test
+   public void testUpdateDocuments() throws Exception {
+      mongoDbStorage.createCollection(COLLECTION_UPDATE_DOCUMENTS);
+
+      String id1 = mongoDbStorage.createDocument(COLLECTION_UPDATE_DOCUMENTS, new DataDocument("a", 1).append("b", 2));
+      String id2 = mongoDbStorage.createDocument(COLLECTION_UPDATE_DOCUMENTS, new DataDocument("a", 3).append("b", 4));
+
+      DataDocument update1 = new DataDocument("a", 10);
+      update1.setId(id1);
+      DataDocument update2 = new DataDocument("c", 5);
+      update2.setId(id2);
+      mongoDbStorage.updateDocuments(COLLECTION_UPDATE_DOCUMENTS, Arrays.asList(update1, update2));
+
+      DataDocument document1 = mongoDbStorage.readDocument(COLLECTION_UPDATE_DOCUMENTS, mongoDbStorageDialect.documentIdFilter(id1));
+      DataDocument document2 = mongoDbStorage.readDocument(COLLECTION_UPDATE_DOCUMENTS, mongoDbStorageDialect.documentIdFilter(id2));
+
+      SoftAssertions assertions = new SoftAssertions();
+      assertions.assertThat(document1.getInteger("a")).isEqualTo(10);
+      assertions.assertThat(document1.getInteger("b")).isEqualTo(2);
+      assertions.assertThat(document2.getInteger("a")).isEqualTo(3);
+      assertions.assertThat(document2.getInteger("c")).isEqualTo(5);
+      assertions.assertAll();
+   }
+
+   @Test
+   public void testReplaceDocumentsWithVersion() throws Exception {
+      mongoDbStorage.createCollection(COLLECTION_REPLACE_DOCUMENTS);
+
+      String id1 = mongoDbStorage.createDocument(COLLECTION_REPLACE_DOCUMENTS, new DataDocument("a", 1));
+      String id2 = mongoDbStorage.createDocument(COLLECTION_REPLACE_DOCUMENTS, new DataDocument("a", 2).append(LumeerConst.Document.METADATA_VERSION_KEY, 3));
+
+      DataDocument replace1 = new DataDocument("b", 10).append(LumeerConst.Document.METADATA_VERSION_KEY, 1);
+      replace1.setId(id1);
+      DataDocument replace2 = new DataDocument("b", 20).append(LumeerConst.Document.METADATA_VERSION_KEY, 3);
+      replace2.setId(id2);
+
+      Map<String, Integer> versions = new HashMap<>();
+      versions.put(id1, 0);
+      // the document was changed by someone else to the version the batch would write
+      versions.put(id2, 2);
+      assertThat(mongoDbStorage.replaceDocuments(COLLECTION_REPLACE_DOCUMENTS, Arrays.asList(replace1, replace2), versions)).containsOnly(id2);
+
+      DataDocument document1 = mongoDbStorage.readDocument(COLLECTION_REPLACE_DOCUMENTS, mongoDbStorageDialect.documentIdFilter(id1));
+      DataDocument document2 = mongoDbStorage.readDocument(COLLECTION_REPLACE_DOCUMENTS, mongoDbStorageDialect.documentIdFilter(id2));
+
+      SoftAssertions assertions = new SoftAssertions();
+      assertions.assertThat(document1).doesNotContainKey("a").doesNotContainKey(MongoUtils.WRITE_TOKEN).containsEntry("b", 10);
+      assertions.assertThat(document1.getInteger(LumeerConst.Document.METADATA_VERSION_KEY)).isEqualTo(1);
+      assertions.assertThat(document2).doesNotContainKey("b").containsEntry("a", 2);
+      assertions.assertAll();
+
+      versions.put(id2, 3);
+      replace2.put(LumeerConst.Document.METADATA_VERSION_KEY, 4);
+      assertThat(mongoDbStorage.replaceDocuments(COLLECTION_REPLACE_DOCUMENTS, Collections.singletonList(replace2), versions)).isEmpty();
+      assertThat(mongoDbStorage.readDocument(COLLECTION_REPLACE_DOCUMENTS, mongoDbStorageDialect.documentIdFilter(id2))).containsEntry("b", 20);
+   }
+
    @Test
    public void testUpdateDocument() throws Exception {
       mongoDbStorage.createCollection(COLLECTION_UPDATE_DOCUMENT);
@@ -412,6 +593,27 @@ public class MongoDbStorageTest extends MongoDbTestBase {
       assertThat(searchDocuments).extracting(d -> d.getString(DUMMY_KEY2)).containsOnly((String) null);
    }
 
+   @Test
+   public void testStream() {
+      mongoDbStorage.createCollection(COLLECTION_STREAM);
+
+      for (int i = 0; i < 100; i++) {
+         DataDocument insertedDocument = createDummyDocument();
+         mongoDbStorage.createDocument(COLLECTION_STREAM, insertedDocument);
+      }
+
+      try (Stream<DataDocument> documents = mongoDbStorage.stream(COLLECTION_STREAM, null, null, null, 7)) {
+         assertThat(documents.count()).isEqualTo(100);
+      }
+
+      try (Stream<DataDocument> documents = mongoDbStorage.stream(COLLECTION_STREAM, null, null, Collections.singletonList(DUMMY_KEY1), 10)) {
+         List<DataDocument> firstDocuments = documents.limit(5).collect(Collectors.toList());
+         assertThat(firstDocuments).hasSize(5);
+         assertThat(firstDocuments).extracting(d -> d.getString(DUMMY_KEY2)).containsOnly((String) null);
+         assertThat(firstDocuments).extracting(DataDocument::getId).doesNotContainNull();
+      }
+   }
+
    @Test
    public void testRun() throws Exception {
       mongoDbStorage.createCollection(COLLECTION_RUN);
@@ -0,0 +1,103 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MongoCacheInvalidationChannelTest extends MongoDbTestBase {
+
+   private static final String CACHE = "users";
+   private static final String OTHER_CACHE = "projects";
+   private static final String KEY1 = "user1";
+   private static final String KEY2 = "user2";
+
+   private MongoCacheInvalidationChannel node1;
+   private MongoCacheInvalidationChannel node2;
+
+   @Before
+   public void initChannels() {
+      node1 = new MongoCacheInvalidationChannel();
+      node1.setDatabase(database);
+      node1.setThreadFactory(Executors.defaultThreadFactory());
+      node1.start();
+
+      node2 = new MongoCacheInvalidationChannel();
+      node2.setDatabase(database);
+      node2.setThreadFactory(Executors.defaultThreadFactory());
+      node2.start();
+   }
+
+   @After
+   public void stopChannels() {
+      node1.stop();
+      node2.stop();
+   }
+
+   @Test
+   public void testPublishToOtherNodes() throws InterruptedException {
+      List<String> node1Keys = new CopyOnWriteArrayList<>();
+      List<String> node2Keys = new CopyOnWriteArrayList<>();
+      List<String> otherCacheKeys = new CopyOnWriteArrayList<>();
+      CountDownLatch latch = new CountDownLatch(2);
+
+      node1.subscribe(CACHE, node1Keys::add);
+      node2.subscribe(CACHE, key -> {
+         node2Keys.add(key);
+         latch.countDown();
+      });
+      node2.subscribe(OTHER_CACHE, otherCacheKeys::add);
+
+      node1.publish(CACHE, KEY1);
+      node1.publish(CACHE, KEY2);
+
+      assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(node2Keys).containsExactly(KEY1, KEY2);
+      assertThat(node1Keys).isEmpty();
+      assertThat(otherCacheKeys).isEmpty();
+   }
+
+   @Test
+   public void testPublishWholeCacheInvalidation() throws InterruptedException {
+      List<String> keys = new CopyOnWriteArrayList<>();
+      CountDownLatch latch = new CountDownLatch(1);
+
+      node2.subscribe(CACHE, key -> {
+         keys.add(key);
+         latch.countDown();
+      });
+
+      node1.publish(CACHE, null);
+
+      assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(keys).containsExactly((String) null);
+   }
+}
@@ -20,21 +20,51 @@
 package io.lumeer.storage.mongodb.dao.collection;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 import io.lumeer.api.model.Collection;
+import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.event.DataChange;
+import io.lumeer.storage.api.event.DataChanges;
+import io.lumeer.storage.api.exception.ResourceNotFoundException;
+import io.lumeer.storage.api.exception.StorageException;
+import io.lumeer.storage.api.exception.VersionConflictException;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.filter.CompositeFilter;
+import io.lumeer.storage.api.filter.ConditionType;
+import io.lumeer.storage.api.filter.SearchFilter;
+import io.lumeer.storage.api.index.DataIndex;
 import io.lumeer.storage.api.query.SearchQuery;
 import io.lumeer.storage.mongodb.MongoDbTestBase;
+import io.lumeer.storage.mongodb.MongoUtils;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.enterprise.event.Event;
 
 public class MongoDataDaoTest extends MongoDbTestBase {
 
@@ -51,6 +81,7 @@ public class MongoDataDaoTest extends MongoDbTestBase {
    private MongoDataDao dataDao;
 
    @Before
+   @SuppressWarnings("unchecked")
    public void initDataDao() {
       Collection collection = Mockito.mock(Collection.class);
       Mockito.when(collection.getId()).thenReturn(COLLECTION_ID);
@@ -58,6 +89,7 @@ public class MongoDataDaoTest extends MongoDbTestBase {
       dataDao = new MongoDataDao();
       dataDao.setDatabase(database);
       dataDao.setDatastore(datastore);
+      dataDao.setDataChangesEvent(Mockito.mock(Event.class));
 
       dataDao.createDataRepository(COLLECTION_ID);
    }
@@ -103,7 +135,7 @@ public class MongoDataDaoTest extends MongoDbTestBase {
       String id = createDocument();
 
       DataDocument data = new DataDocument().append(KEY1, VALUE2);
-      dataDao.updateData(COLLECTION_ID, id, data);
+      dataDao.updateData(COLLECTION_ID, id, data, null);
 
       MongoCursor<Document> mongoCursor = dataCollection().find().iterator();
       assertThat(mongoCursor.hasNext()).isTrue();
@@ -123,7 +155,7 @@ public class MongoDataDaoTest extends MongoDbTestBase {
       String id = createDocument();
 
       DataDocument data = new DataDocument().append(KEY1, VALUE2);
-      dataDao.patchData(COLLECTION_ID, id, data);
+      dataDao.patchData(COLLECTION_ID, id, data, null);
 
       MongoCursor<Document> mongoCursor = dataCollection().find().iterator();
       assertThat(mongoCursor.hasNext()).isTrue();
@@ -133,6 +165,112 @@ public class MongoDataDaoTest extends MongoDbTestBase {
       assertThat(document).containsEntry(KEY2, VALUE2);
    }
 
+   @Test
+   public void testDataVersion() {
+      String id = createDocument();
+      assertThat(dataDao.getDataVersion(COLLECTION_ID, id)).isEqualTo(0);
+
+      DataDocument updatedData = dataDao.updateData(COLLECTION_ID, id, new DataDocument(KEY1, VALUE2), 0);
+      assertThat(updatedData).containsEntry(LumeerConst.Document.METADATA_VERSION_KEY, 1);
+
+      DataDocument patchedData = dataDao.patchData(COLLECTION_ID, id, new DataDocument(KEY2, VALUE1), null);
+      assertThat(patchedData).containsEntry(LumeerConst.Document.METADATA_VERSION_KEY, 2);
+      assertThat(dataDao.getDataVersion(COLLECTION_ID, id)).isEqualTo(2);
+
+      assertThatThrownBy(() -> dataDao.patchData(COLLECTION_ID, id, new DataDocument(KEY2, VALUE2), 1))
+            .isInstanceOf(VersionConflictException.class);
+      assertThatThrownBy(() -> dataDao.updateData(COLLECTION_ID, id, new DataDocument(KEY2, VALUE2), 1))
+            .isInstanceOf(VersionConflictException.class);
+
+      DataDocument storedData = dataDao.getData(COLLECTION_ID, id);
+      assertThat(storedData).containsEntry(KEY1, VALUE2)
+                            .containsEntry(KEY2, VALUE1)
+                            .containsEntry(LumeerConst.Document.METADATA_VERSION_KEY, 2);
+   }
+
+   @Test
+   public void testDataVersionNotExistingDocument() {
+      assertThatThrownBy(() -> dataDao.patchData(COLLECTION_ID, DOCUMENT_ID, new DataDocument(KEY1, VALUE1), 1))
+            .isInstanceOf(ResourceNotFoundException.class);
+      assertThatThrownBy(() -> dataDao.updateData(COLLECTION_ID, DOCUMENT_ID, new DataDocument(KEY1, VALUE1), null))
+            .isInstanceOf(ResourceNotFoundException.class);
+   }
+
+   @Test
+   public void testPatchDataBulk() {
+      String id = createDocument();
+      String id2 = createDocument();
+      String id3 = createDocument();
+
+      Map<String, DataDocument> data = new HashMap<>();
+      data.put(id, new DataDocument(KEY1, VALUE2));
+      data.put(id2, new DataDocument(KEY1, VALUE2));
+      data.put(id3, new DataDocument(KEY1, VALUE2));
+      data.put(DOCUMENT_ID, new DataDocument(KEY1, VALUE2));
+
+      Map<String, Integer> versions = dataDao.patchData(COLLECTION_ID, data, Collections.singletonMap(id2, 3));
+      assertThat(versions).containsOnly(entry(id, 1), entry(id3, 1));
+
+      assertThat(dataDao.getData(COLLECTION_ID, id)).containsEntry(KEY1, VALUE2).containsEntry(KEY2, VALUE2);
+      assertThat(dataDao.getData(COLLECTION_ID, id2)).containsEntry(KEY1, VALUE1);
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testPatchDataBulkConcurrentWrite() {
+      String id = createDocument();
+      String id2 = createDocument();
+
+      // another writer patches the second document after its version was read, before the bulk write
+      AtomicInteger dataCollectionCalls = new AtomicInteger();
+      MongoDataDao racingDataDao = new MongoDataDao() {
+         @Override
+         MongoCollection<Document> dataCollection(final String collectionId) {
+            if (dataCollectionCalls.incrementAndGet() == 2) {
+               super.dataCollection(collectionId).updateOne(Filters.eq("_id", new ObjectId(id2)),
+                     Updates.combine(Updates.set(KEY1, VALUE1), Updates.inc(LumeerConst.Document.METADATA_VERSION_KEY, 1)));
+            }
+            return super.dataCollection(collectionId);
+         }
+      };
+      racingDataDao.setDatabase(database);
+      racingDataDao.setDatastore(datastore);
+      racingDataDao.setDataChangesEvent(Mockito.mock(Event.class));
+
+      Map<String, DataDocument> data = new HashMap<>();
+      data.put(id, new DataDocument(KEY1, VALUE2));
+      data.put(id2, new DataDocument(KEY1, VALUE2));
+
+      // the concurrent write brought the second document to the version the patch would write, it is not our patch
+      assertThat(racingDataDao.patchData(COLLECTION_ID, data, Collections.emptyMap())).containsOnly(entry(id, 1));
+
+      assertThat(dataDao.getData(COLLECTION_ID, id)).containsEntry(KEY1, VALUE2).doesNotContainKey(MongoUtils.WRITE_TOKEN);
+      assertThat(dataDao.getData(COLLECTION_ID, id2)).containsEntry(KEY1, VALUE1).doesNotContainKey(MongoUtils.WRITE_TOKEN);
+   }
+
+   @Test
+   public void testDeleteDataBulk() {
+      String id = createDocument();
+      String id2 = createDocument();
+      String id3 = createDocument();
+
+      dataDao.deleteData(COLLECTION_ID, Arrays.asList(id, id3, "malformed"));
+      assertThat(dataCollection().find()).extracting(document -> document.getObjectId("_id").toHexString()).containsOnly(id2);
+   }
+
+   @Test
+   public void testCreatedDataVersion() {
+      DataDocument data = new DataDocument(KEY1, VALUE1);
+      dataDao.createData(COLLECTION_ID, DOCUMENT_ID, data);
+      assertThat(dataDao.getDataVersion(COLLECTION_ID, DOCUMENT_ID)).isEqualTo(DataDao.INITIAL_VERSION);
+
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER).build();
+      List<DataDocument> storedData = dataDao.getData(COLLECTION_ID, searchQuery);
+      assertThat(storedData).hasSize(1);
+      assertThat(storedData.get(0)).containsEntry(KEY1, VALUE1)
+                                   .doesNotContainKey(LumeerConst.Document.METADATA_VERSION_KEY);
+   }
+
    @Test
    public void testPatchNestedAttributes() {
 
@@ -174,7 +312,43 @@ public class MongoDataDaoTest extends MongoDbTestBase {
 
    @Test
    public void testGetDataWithPagination() {
+      String id1 = createDocument(KEY1, VALUE1);
+      String id2 = createDocument(KEY1, VALUE1);
+      String id3 = createDocument(KEY1, VALUE1);
+      String id4 = createDocument(KEY1, VALUE1);
+      String id5 = createDocument(KEY1, VALUE1);
+
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER)
+                                           .page(1)
+                                           .pageSize(2)
+                                           .build();
+      List<DataDocument> data = dataDao.getData(COLLECTION_ID, searchQuery);
+      assertThat(data).extracting(DataDocument::getId).containsExactly(id3, id4);
+   }
+
+   @Test
+   public void testGetDataWithKeysetPagination() {
+      String id1 = createDocument(KEY1, VALUE1);
+      String id2 = createDocument(KEY1, VALUE1);
+      String id3 = createDocument(KEY1, VALUE1);
+      String id4 = createDocument(KEY1, VALUE1);
+      String id5 = createDocument(KEY1, VALUE1);
 
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER)
+                                           .page(0)
+                                           .pageSize(2)
+                                           .lastId(id2)
+                                           .build();
+      List<DataDocument> data = dataDao.getData(COLLECTION_ID, searchQuery);
+      assertThat(data).extracting(DataDocument::getId).containsExactly(id3, id4);
+
+      searchQuery = SearchQuery.createBuilder(USER)
+                               .page(0)
+                               .pageSize(2)
+                               .lastId(id4)
+                               .build();
+      data = dataDao.getData(COLLECTION_ID, searchQuery);
+      assertThat(data).extracting(DataDocument::getId).containsExactly(id5);
    }
 
    @Test
@@ -191,6 +365,18 @@ public class MongoDataDaoTest extends MongoDbTestBase {
       assertThat(data).extracting(DataDocument::getId).containsOnly(id2, id3);
    }
 
+   @Test
+   public void testGetDataStream() {
+      String id1 = createDocument(KEY1, VALUE1);
+      String id2 = createDocument(KEY1, VALUE2);
+      String id3 = createDocument(KEY2, VALUE1);
+
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER).build();
+      try (Stream<DataDocument> data = dataDao.getDataStream(COLLECTION_ID, searchQuery, 1)) {
+         assertThat(data.collect(Collectors.toList())).extracting(DataDocument::getId).containsOnly(id1, id2, id3);
+      }
+   }
+
    @Test
    @Ignore("Does not work at the moment")
    public void testGetDataByFulltextAttributeName() {
@@ -225,6 +411,185 @@ public class MongoDataDaoTest extends MongoDbTestBase {
       assertThat(count).isEqualTo(2);
    }
 
+   @Test
+   public void testHasData() {
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER)
+                                           .fulltext("fulltext")
+                                           .build();
+      createDocument(KEY1, VALUE1);
+      assertThat(dataDao.hasData(COLLECTION_ID, searchQuery)).isFalse();
+
+      createDocument(KEY1, "fulltext");
+      assertThat(dataDao.hasData(COLLECTION_ID, searchQuery)).isTrue();
+   }
+
+   @Test
+   public void testGetDataAsync() throws Exception {
+      String id1 = createDocument(KEY1, VALUE1);
+      String id2 = createDocument(KEY2, VALUE2);
+
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER).build();
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         long deadline = System.currentTimeMillis() + 60_000;
+         List<DataDocument> data = dataDao.getDataAsync(COLLECTION_ID, searchQuery, deadline, executor).get();
+         assertThat(data).extracting(DataDocument::getId).containsOnly(id1, id2);
+         assertThat(dataDao.hasDataAsync(COLLECTION_ID, searchQuery, deadline, executor).get()).isTrue();
+      } finally {
+         executor.shutdown();
+      }
+   }
+
+   @Test
+   public void testGetDataAsyncAfterDeadline() {
+      createDocument(KEY1, VALUE1);
+
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER).build();
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         long deadline = System.currentTimeMillis() - 1;
+         assertThatThrownBy(() -> dataDao.getDataAsync(COLLECTION_ID, searchQuery, deadline, executor).get())
+               .isInstanceOf(ExecutionException.class)
+               .hasCauseInstanceOf(StorageException.class);
+         assertThatThrownBy(() -> dataDao.hasDataAsync(COLLECTION_ID, searchQuery, deadline, executor).get())
+               .isInstanceOf(ExecutionException.class)
+               .hasCauseInstanceOf(StorageException.class);
+      } finally {
+         executor.shutdown();
+      }
+   }
+
+   @Test
+   public void testGetDataWithFilters() {
+      String id1 = createNumberDocument(10, "first value");
+      String id2 = createNumberDocument(20, "second value");
+      String id3 = createNumberDocument(30, "third");
+
+      assertThat(getFilteredData(new AttributeFilter(KEY1, ConditionType.GREATER_THAN, 15))).containsOnly(id2, id3);
+      assertThat(getFilteredData(new AttributeFilter(KEY1, ConditionType.LOWER_THAN_EQUALS, 20))).containsOnly(id1, id2);
+      assertThat(getFilteredData(new AttributeFilter(KEY1, ConditionType.NOT_EQUALS, 20))).containsOnly(id1, id3);
+      assertThat(getFilteredData(new AttributeFilter(KEY2, ConditionType.CONTAINS, "VALUE"))).containsOnly(id1, id2);
+      assertThat(getFilteredData(new AttributeFilter(KEY2, ConditionType.CONTAINS, "."))).isEmpty();
+      assertThat(getFilteredData(new AttributeFilter(KEY1, ConditionType.GREATER_THAN, 15),
+            CompositeFilter.or(Arrays.asList(new AttributeFilter(KEY1, ConditionType.EQUALS, 10), new AttributeFilter(KEY2, ConditionType.EQUALS, "third")))))
+            .containsOnly(id3);
+   }
+
+   @Test
+   public void testIndexes() {
+      assertThat(dataDao.getIndexes(COLLECTION_ID)).isEmpty();
+
+      DataIndex manualIndex = new DataIndex(Collections.singletonList(KEY1), false);
+      DataIndex automaticIndex = new DataIndex(Arrays.asList(KEY2, KEY1), true);
+      dataDao.createIndex(COLLECTION_ID, manualIndex);
+      dataDao.createIndex(COLLECTION_ID, automaticIndex);
+      assertThat(dataDao.getIndexes(COLLECTION_ID)).containsOnly(manualIndex, automaticIndex);
+
+      dataDao.dropIndex(COLLECTION_ID, automaticIndex);
+      assertThat(dataDao.getIndexes(COLLECTION_ID)).containsOnly(manualIndex);
+   }
+
+   @Test
+   public void testUpdateAutomaticIndexes() throws Exception {
+      DataIndex manualIndex = new DataIndex(Collections.singletonList(KEY1), false);
+      DataIndex obsoleteIndex = new DataIndex(Arrays.asList(KEY1, KEY2), true);
+      dataDao.createIndex(COLLECTION_ID, manualIndex);
+      dataDao.createIndex(COLLECTION_ID, obsoleteIndex);
+
+      List<List<String>> advisedIndexes = Arrays.asList(Collections.singletonList(KEY1), Collections.singletonList("$where"), Collections.singletonList(KEY2), Arrays.asList(KEY2, KEY1));
+      dataDao.updateAutomaticIndexesAsync(COLLECTION_ID, advisedIndexes, 2, Runnable::run).get();
+
+      // the manual index is kept, the invalid name is skipped and only one automatic index fits
+      assertThat(dataDao.getIndexes(COLLECTION_ID)).containsOnly(manualIndex, new DataIndex(Collections.singletonList(KEY2), true));
+   }
+
+   @Test
+   public void testManualIndexNamedLikeAutomatic() throws Exception {
+      // the default name of this index is "auto_x_1"
+      DataIndex manualIndex = new DataIndex(Collections.singletonList("auto_x"), false);
+      dataDao.createIndex(COLLECTION_ID, manualIndex);
+      assertThat(dataDao.getIndexes(COLLECTION_ID)).containsOnly(manualIndex);
+
+      dataDao.updateAutomaticIndexesAsync(COLLECTION_ID, Collections.singletonList(Collections.singletonList(KEY1)), 2, Runnable::run).get();
+      assertThat(dataDao.getIndexes(COLLECTION_ID)).containsOnly(manualIndex, new DataIndex(Collections.singletonList(KEY1), true));
+   }
+
+   @Test
+   public void testCreateIndexWithInvalidAttribute() {
+      assertThatThrownBy(() -> dataDao.createIndex(COLLECTION_ID, new DataIndex(Arrays.asList(KEY1, "a.$gt"), false)))
+            .isInstanceOf(StorageException.class);
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testDataChanges() {
+      Event<DataChanges> dataChangesEvent = Mockito.mock(Event.class);
+      dataDao.setDataChangesEvent(dataChangesEvent);
+      String id = createDocument();
+
+      DataDocument updatedData = dataDao.updateData(COLLECTION_ID, id, new DataDocument(KEY1, VALUE2), null);
+      assertThat(updatedData.getId()).isEqualTo(id);
+      assertThat(updatedData).containsEntry(KEY1, VALUE2);
+
+      dataDao.patchData(COLLECTION_ID, id, new DataDocument(KEY2, VALUE1), null);
+      dataDao.deleteData(COLLECTION_ID, id);
+
+      // every write is published on its own right after it is done
+      ArgumentCaptor<DataChanges> captor = ArgumentCaptor.forClass(DataChanges.class);
+      Mockito.verify(dataChangesEvent, Mockito.times(3)).fire(captor.capture());
+      assertThat(captor.getAllValues()).extracting(DataChanges::isRemote).containsOnly(false);
+      assertThat(captor.getAllValues()).extracting(event -> event.getChanges().size()).containsOnly(1);
+
+      List<DataChange> changes = captor.getAllValues().stream().map(event -> event.getChanges().get(0)).collect(Collectors.toList());
+      assertThat(changes).extracting(DataChange::getType).containsExactly(DataChange.Type.UPDATE, DataChange.Type.PATCH, DataChange.Type.DELETE);
+      assertThat(changes).extracting(DataChange::getDocumentId).containsOnly(id);
+
+      assertThat(changes.get(0).getChangedAttributes()).containsOnly(KEY1);
+      assertThat(changes.get(0).getRemovedAttributes()).containsOnly(KEY2);
+      assertThat(changes.get(1).getChangedAttributes()).containsOnly(KEY2);
+      assertThat(changes.get(2).getChangedAttributes()).isEmpty();
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testDataChangesOfBulkWrites() {
+      Event<DataChanges> dataChangesEvent = Mockito.mock(Event.class);
+      dataDao.setDataChangesEvent(dataChangesEvent);
+
+      List<DataDocument> documents = dataDao.createData(COLLECTION_ID, Arrays.asList(new DataDocument(KEY1, VALUE1), new DataDocument(KEY1, VALUE2)));
+      List<String> ids = documents.stream().map(DataDocument::getId).collect(Collectors.toList());
+      dataDao.deleteData(COLLECTION_ID, ids);
+
+      // one event per bulk write, not per document
+      ArgumentCaptor<DataChanges> captor = ArgumentCaptor.forClass(DataChanges.class);
+      Mockito.verify(dataChangesEvent, Mockito.times(2)).fire(captor.capture());
+
+      List<DataChange> created = captor.getAllValues().get(0).getChanges();
+      assertThat(created).extracting(DataChange::getType).containsOnly(DataChange.Type.CREATE);
+      assertThat(created).extracting(DataChange::getDocumentId).containsExactlyElementsOf(ids);
+      assertThat(created.get(0).getChangedAttributes()).containsOnly(KEY1);
+
+      List<DataChange> deleted = captor.getAllValues().get(1).getChanges();
+      assertThat(deleted).extracting(DataChange::getType).containsOnly(DataChange.Type.DELETE);
+      assertThat(deleted).extracting(DataChange::getDocumentId).containsExactlyElementsOf(ids);
+   }
+
+   private String createNumberDocument(int number, String value) {
+      Document document = new Document(KEY1, number).append(KEY2, value);
+      dataCollection().insertOne(document);
+      return document.getObjectId("_id").toHexString();
+   }
+
+   private List<String> getFilteredData(SearchFilter... filters) {
+      SearchQuery searchQuery = SearchQuery.createBuilder(USER)
+                                           .filters(Arrays.asList(filters))
+                                           .build();
+      assertThat(dataDao.getDataCount(COLLECTION_ID, searchQuery)).isEqualTo(dataDao.getData(COLLECTION_ID, searchQuery).size());
+      return dataDao.getData(COLLECTION_ID, searchQuery).stream()
+                    .map(DataDocument::getId)
+                    .collect(Collectors.toList());
+   }
+
    private MongoCollection<Document> dataCollection() {
       return dataDao.dataCollection(COLLECTION_ID);
    }
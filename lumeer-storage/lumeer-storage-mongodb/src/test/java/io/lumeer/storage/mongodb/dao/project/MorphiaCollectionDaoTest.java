@@ -21,7 +21,9 @@ package io.lumeer.storage.mongodb.dao.project;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
+import io.lumeer.api.dto.JsonAttribute;
 import io.lumeer.api.model.Attribute;
 import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.Permission;
@@ -29,6 +31,10 @@ import io.lumeer.api.model.Project;
 import io.lumeer.api.model.Resource;
 import io.lumeer.api.model.Role;
 import io.lumeer.api.model.View;
+import io.lumeer.storage.api.event.CollectionEvent;
+import io.lumeer.storage.api.event.RemoveCollection;
+import io.lumeer.storage.api.event.UpdateCollection;
+import io.lumeer.storage.api.event.UpdateCollectionStatistics;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
 import io.lumeer.storage.api.exception.StorageException;
 import io.lumeer.storage.api.query.SearchQuery;
@@ -44,15 +50,26 @@ import org.bson.types.ObjectId;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import javax.enterprise.event.Event;
 
 public class MorphiaCollectionDaoTest extends MongoDbTestBase {
 
@@ -110,6 +127,8 @@ public class MorphiaCollectionDaoTest extends MongoDbTestBase {
 
    private MorphiaCollectionDao collectionDao;
 
+   private Event<CollectionEvent> collectionEvent;
+
    @Before
    public void initCollectionDao() {
       Project project = Mockito.mock(Project.class);
@@ -119,6 +138,10 @@ public class MorphiaCollectionDaoTest extends MongoDbTestBase {
       collectionDao.setDatabase(database);
       collectionDao.setDatastore(datastore);
 
+      collectionEvent = Mockito.mock(Event.class);
+      collectionDao.setCollectionEvent(collectionEvent);
+      collectionDao.setStatisticsCoalescer(new CollectionStatisticsCoalescer(0));
+
       collectionDao.setProject(project);
       collectionDao.createCollectionsRepository(project);
    }
@@ -194,11 +217,76 @@ public class MorphiaCollectionDaoTest extends MongoDbTestBase {
    }
 
    @Test
-   @Ignore("Stored anyway with the current implementation")
    public void testUpdateCollectionNotExisting() {
       MorphiaCollection collection = prepareCollection(CODE);
       assertThatThrownBy(() -> collectionDao.updateCollection(COLLECTION_ID, collection))
-            .isInstanceOf(StorageException.class);
+            .isInstanceOf(ResourceNotFoundException.class);
+   }
+
+   @Test
+   public void testUpdateCollectionKeepsStatistics() {
+      String id = createCollection(CODE).getId();
+      collectionDao.updateCollectionStatistics(id, Collections.singletonMap(ATTRIBUTE2_NAME, 2), 2, LocalDateTime.now());
+
+      // the stale copy still holds the counts from before the increments
+      MorphiaCollection collection = prepareCollection(CODE2);
+      collection.setName(NAME_FULLTEXT);
+      collection.setPermissions(new MorphiaPermissions());
+      Collection updatedCollection = collectionDao.updateCollection(id, collection);
+      assertThat(updatedCollection.getCode()).isEqualTo(CODE2);
+      assertThat(updatedCollection.getName()).isEqualTo(NAME_FULLTEXT);
+
+      MorphiaCollection storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(DOCUMENTS_COUNT + 2);
+      assertThat(getAttributesUsage(storedCollection)).containsOnly(entry(ATTRIBUTE2_NAME, 2));
+      assertThat(storedCollection.getPermissions()).isEqualTo(PERMISSIONS);
+   }
+
+   @Test
+   public void testUpdateCollectionPermissions() {
+      String id = createCollection(CODE).getId();
+      collectionDao.updateCollectionStatistics(id, Collections.emptyMap(), 2, LocalDateTime.now());
+
+      MorphiaPermissions permissions = new MorphiaPermissions();
+      permissions.updateUserPermissions(new MorphiaPermission(USER2, Collections.singleton(Role.READ.toString())));
+      Collection updatedCollection = collectionDao.updateCollectionPermissions(id, permissions);
+      assertThat(updatedCollection.getPermissions()).isEqualTo(permissions);
+
+      MorphiaCollection storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(storedCollection.getPermissions()).isEqualTo(permissions);
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(DOCUMENTS_COUNT + 2);
+   }
+
+   @Test
+   public void testUpdateCollectionAttribute() {
+      String id = createCollection(CODE).getId();
+      collectionDao.updateCollectionStatistics(id, Collections.singletonMap(ATTRIBUTE2_NAME, 3), 3, LocalDateTime.now());
+
+      collectionDao.updateCollectionAttribute(id, ATTRIBUTE2_NAME, new JsonAttribute(ATTRIBUTE2_NAME + "2", ATTRIBUTE2_NAME + "2", Collections.singleton("isNumber"), 0));
+
+      MorphiaCollection storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(getAttributesUsage(storedCollection)).containsOnly(entry(ATTRIBUTE2_NAME + "2", 3));
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(DOCUMENTS_COUNT + 3);
+
+      collectionDao.updateCollectionAttribute(id, ATTRIBUTE1_NAME, new JsonAttribute(ATTRIBUTE1_NAME, ATTRIBUTE1_NAME, Collections.emptySet(), 0));
+      storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(getAttributesUsage(storedCollection)).containsOnly(entry(ATTRIBUTE2_NAME + "2", 3), entry(ATTRIBUTE1_NAME, 0));
+   }
+
+   @Test
+   public void testDeleteCollectionAttribute() {
+      String id = createCollection(CODE).getId();
+      Map<String, Integer> attributesUsage = new HashMap<>();
+      attributesUsage.put(ATTRIBUTE1_NAME, 1);
+      attributesUsage.put(ATTRIBUTE2_NAME, 2);
+      collectionDao.updateCollectionStatistics(id, attributesUsage, 2, LocalDateTime.now());
+
+      Collection updatedCollection = collectionDao.deleteCollectionAttribute(id, ATTRIBUTE1_NAME);
+      assertThat(getAttributesUsage(updatedCollection)).containsOnly(entry(ATTRIBUTE2_NAME, 2));
+
+      MorphiaCollection storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(getAttributesUsage(storedCollection)).containsOnly(entry(ATTRIBUTE2_NAME, 2));
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(DOCUMENTS_COUNT + 2);
    }
 
    @Test
@@ -211,12 +299,112 @@ public class MorphiaCollectionDaoTest extends MongoDbTestBase {
       assertThat(storedCollection).isNull();
    }
 
+   @Test
+   public void testCollectionEvents() {
+      String id = collectionDao.createCollection(prepareCollection(CODE)).getId();
+      collectionDao.updateCollection(id, prepareCollection(CODE2));
+      collectionDao.deleteCollection(id);
+
+      ArgumentCaptor<CollectionEvent> captor = ArgumentCaptor.forClass(CollectionEvent.class);
+      Mockito.verify(collectionEvent, Mockito.times(3)).fire(captor.capture());
+
+      List<CollectionEvent> events = captor.getAllValues();
+      assertThat(events).extracting(CollectionEvent::getProjectId).containsOnly(PROJECT_ID);
+      assertThat(events).extracting(CollectionEvent::getCollectionId).containsOnly(id);
+      assertThat(events.get(0)).isInstanceOf(UpdateCollection.class);
+      assertThat(((UpdateCollection) events.get(0)).getCollection().getCode()).isEqualTo(CODE);
+      assertThat(events.get(1)).isInstanceOf(UpdateCollection.class);
+      assertThat(((UpdateCollection) events.get(1)).getCollection().getCode()).isEqualTo(CODE2);
+      assertThat(events.get(2)).isInstanceOf(RemoveCollection.class);
+   }
+
    @Test
    public void testDeleteCollectionNotExisting() {
       assertThatThrownBy(() -> collectionDao.deleteCollection(COLLECTION_ID))
             .isInstanceOf(StorageException.class);
    }
 
+   @Test
+   public void testUpdateCollectionStatistics() {
+      String id = createCollection(CODE).getId();
+      LocalDateTime time = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+      collectionDao.updateCollectionStatistics(id, Collections.singletonMap(ATTRIBUTE2_NAME, 1), 1, time);
+
+      Map<String, Integer> attributesUsage = new HashMap<>();
+      attributesUsage.put(ATTRIBUTE2_NAME, 2);
+      attributesUsage.put(ATTRIBUTE1_NAME, 2);
+      collectionDao.updateCollectionStatistics(id, attributesUsage, 2, time.minusDays(1));
+
+      MorphiaCollection storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(3);
+      assertThat(storedCollection.getLastTimeUsed()).isEqualTo(time);
+      assertThat(getAttributesUsage(storedCollection)).containsOnly(entry(ATTRIBUTE1_NAME, 2), entry(ATTRIBUTE2_NAME, 3));
+
+      ArgumentCaptor<CollectionEvent> captor = ArgumentCaptor.forClass(CollectionEvent.class);
+      Mockito.verify(collectionEvent, Mockito.times(2)).fire(captor.capture());
+      assertThat(captor.getAllValues()).extracting(Object::getClass).containsOnly(UpdateCollectionStatistics.class);
+   }
+
+   @Test
+   public void testUpdateCollectionStatisticsConcurrently() throws Exception {
+      String id = createCollection(CODE).getId();
+      int threads = 8;
+      int updates = 50;
+
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+         tasks.add(() -> {
+            for (int j = 0; j < updates; j++) {
+               collectionDao.updateCollectionStatistics(id, Collections.singletonMap(ATTRIBUTE2_NAME, 1), 1, LocalDateTime.now());
+            }
+            return null;
+         });
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+         for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      MorphiaCollection storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(threads * updates);
+      assertThat(getAttributesUsage(storedCollection)).containsOnly(entry(ATTRIBUTE2_NAME, threads * updates));
+   }
+
+   @Test
+   public void testUpdateCollectionStatisticsCoalesced() {
+      CollectionStatisticsCoalescer coalescer = new CollectionStatisticsCoalescer(60000);
+      coalescer.setCollectionEvent(collectionEvent);
+      collectionDao.setStatisticsCoalescer(coalescer);
+
+      String id = createCollection(CODE).getId();
+      for (int i = 0; i < 3; i++) {
+         collectionDao.updateCollectionStatistics(id, Collections.singletonMap(ATTRIBUTE2_NAME, 1), 1, LocalDateTime.now());
+      }
+
+      MorphiaCollection storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(DOCUMENTS_COUNT);
+      Mockito.verifyZeroInteractions(collectionEvent);
+
+      coalescer.flush();
+
+      storedCollection = datastore.get(collectionDao.databaseCollection(), MorphiaCollection.class, new ObjectId(id));
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(DOCUMENTS_COUNT + 3);
+      assertThat(getAttributesUsage(storedCollection)).containsOnly(entry(ATTRIBUTE2_NAME, 3));
+      Mockito.verify(collectionEvent).fire(Mockito.any(UpdateCollectionStatistics.class));
+   }
+
+   private static Map<String, Integer> getAttributesUsage(Collection collection) {
+      return collection.getAttributes().stream()
+                       .filter(attribute -> Objects.nonNull(attribute.getFullName()))
+                       .collect(Collectors.toMap(Attribute::getFullName, Attribute::getUsageCount));
+   }
+
    @Test
    public void testGetCollectionByCode() {
       createCollection(CODE);
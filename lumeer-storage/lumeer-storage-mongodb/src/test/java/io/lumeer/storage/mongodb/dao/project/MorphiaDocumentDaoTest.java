@@ -40,7 +40,11 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MorphiaDocumentDaoTest extends MongoDbTestBase {
 
@@ -54,6 +58,7 @@ public class MorphiaDocumentDaoTest extends MongoDbTestBase {
    private static final String USER2 = "testUser2";
 
    private static final String COLLECTION_ID = "59a51b83d412bc2da88b010f";
+   private static final String NOT_EXISTING_COLLECTION_ID = "59a51b83d412bc2da88b0110";
    private static final LocalDateTime CREATION_DATE = LocalDateTime.now();
    private static final String CREATED_BY = USER;
    private static final int DATA_VERSION = 1;
@@ -164,6 +169,74 @@ public class MorphiaDocumentDaoTest extends MongoDbTestBase {
       assertions.assertAll();
    }
 
+   @Test
+   public void testUpdateDataVersion() {
+      String id = createDocument().getId();
+
+      LocalDateTime updateDate = LocalDateTime.now();
+      Document updatedDocument = documentDao.updateDataVersion(COLLECTION_ID, id, DATA_VERSION2, UPDATED_BY, updateDate);
+      assertThat(updatedDocument.getDataVersion()).isEqualTo(DATA_VERSION2);
+
+      // an older write recorded later does not move the version back
+      documentDao.updateDataVersion(COLLECTION_ID, id, DATA_VERSION, UPDATED_BY, updateDate);
+
+      Document storedDocument = datastore.get(documentDao.databaseCollection(), MorphiaDocument.class, new ObjectId(id));
+      SoftAssertions assertions = new SoftAssertions();
+      assertions.assertThat(storedDocument.getCollectionId()).isEqualTo(COLLECTION_ID);
+      assertions.assertThat(storedDocument.getCreatedBy()).isEqualTo(CREATED_BY);
+      assertions.assertThat(storedDocument.getUpdatedBy()).isEqualTo(UPDATED_BY);
+      assertions.assertThat(storedDocument.getUpdateDate()).isEqualTo(updateDate);
+      assertions.assertThat(storedDocument.getDataVersion()).isEqualTo(DATA_VERSION2);
+      assertions.assertAll();
+   }
+
+   @Test
+   public void testUpdateDataVersionOtherCollection() {
+      String id = createDocument().getId();
+
+      assertThatThrownBy(() -> documentDao.updateDataVersion(NOT_EXISTING_COLLECTION_ID, id, DATA_VERSION2, UPDATED_BY, LocalDateTime.now()))
+            .isInstanceOf(ResourceNotFoundException.class);
+
+      Document storedDocument = datastore.get(documentDao.databaseCollection(), MorphiaDocument.class, new ObjectId(id));
+      assertThat(storedDocument.getDataVersion()).isEqualTo(DATA_VERSION);
+   }
+
+   @Test
+   public void testDeleteDocumentsOfCollection() {
+      String id = createDocument().getId();
+      MorphiaDocument otherDocument = prepareDocument();
+      otherDocument.setCollectionId(NOT_EXISTING_COLLECTION_ID);
+      datastore.save(documentDao.databaseCollection(), otherDocument);
+      String otherId = otherDocument.getId();
+
+      assertThat(documentDao.getDocumentsByIds(COLLECTION_ID, Arrays.asList(id, otherId, "malformed"))).extracting(Document::getId).containsOnly(id);
+
+      documentDao.deleteDocuments(COLLECTION_ID, Arrays.asList(id, otherId));
+      assertThat(datastore.get(documentDao.databaseCollection(), MorphiaDocument.class, new ObjectId(id))).isNull();
+      assertThat(datastore.get(documentDao.databaseCollection(), MorphiaDocument.class, new ObjectId(otherId))).isNotNull();
+   }
+
+   @Test
+   public void testUpdateDataVersions() {
+      String id = createDocument().getId();
+      String id2 = createDocument().getId();
+
+      Map<String, Integer> dataVersions = new HashMap<>();
+      dataVersions.put(id, DATA_VERSION2);
+      dataVersions.put(id2, DATA_VERSION2);
+      documentDao.updateDataVersions(COLLECTION_ID, dataVersions, UPDATED_BY, LocalDateTime.now());
+      documentDao.updateDataVersions(NOT_EXISTING_COLLECTION_ID, Collections.singletonMap(id, 5), UPDATED_BY, LocalDateTime.now());
+
+      assertThat(documentDao.getDocumentsByIds(id, id2)).extracting(Document::getDataVersion).containsOnly(DATA_VERSION2);
+      assertThat(documentDao.getDocumentsByIds(id, id2)).extracting(Document::getUpdatedBy).containsOnly(UPDATED_BY);
+   }
+
+   @Test
+   public void testUpdateDataVersionNotExisting() {
+      assertThatThrownBy(() -> documentDao.updateDataVersion(COLLECTION_ID, DOCUMENT_ID, DATA_VERSION2, UPDATED_BY, LocalDateTime.now()))
+            .isInstanceOf(ResourceNotFoundException.class);
+   }
+
    @Test
    @Ignore("Stored anyway with the current implementation")
    public void testUpdateDocumentNotExisting() {
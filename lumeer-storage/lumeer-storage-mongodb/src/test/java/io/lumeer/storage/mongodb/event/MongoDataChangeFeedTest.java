@@ -0,0 +1,115 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.storage.mongodb.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.api.event.DataChange;
+import io.lumeer.storage.api.event.DataChanges;
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.event.Event;
+
+public class MongoDataChangeFeedTest extends MongoDbTestBase {
+
+   private static final String COLLECTION_ID = "59a51b83d412bc2da88b010f";
+   private static final String DOCUMENT_ID = "59a58ba7d412bc562eea2e6a";
+
+   private static final String KEY1 = "A";
+   private static final String KEY2 = "B";
+
+   private MongoDataChangeFeed node1;
+   private MongoDataChangeFeed node2;
+
+   private List<DataChanges> node1Changes = new CopyOnWriteArrayList<>();
+   private List<DataChanges> node2Changes = new CopyOnWriteArrayList<>();
+   private CountDownLatch latch = new CountDownLatch(1);
+
+   @Before
+   public void initFeeds() {
+      node1 = createFeed(node1Changes);
+      node2 = createFeed(node2Changes);
+   }
+
+   @SuppressWarnings("unchecked")
+   private MongoDataChangeFeed createFeed(List<DataChanges> receivedChanges) {
+      Event<DataChanges> dataChangesEvent = Mockito.mock(Event.class);
+      Mockito.doAnswer(invocation -> {
+         receivedChanges.add(invocation.getArgument(0));
+         latch.countDown();
+         return null;
+      }).when(dataChangesEvent).fire(Mockito.any(DataChanges.class));
+
+      MongoDataChangeFeed feed = new MongoDataChangeFeed(true);
+      feed.setDatabase(database);
+      feed.setThreadFactory(Executors.defaultThreadFactory());
+      feed.setDataChangesEvent(dataChangesEvent);
+      feed.start();
+      return feed;
+   }
+
+   @After
+   public void stopFeeds() {
+      node1.stop();
+      node2.stop();
+   }
+
+   @Test
+   public void testShareChangesWithOtherNodes() throws InterruptedException {
+      DataChange update = new DataChange(DataChange.Type.UPDATE, COLLECTION_ID, DOCUMENT_ID, Collections.singleton(KEY1), Collections.singleton(KEY2));
+      DataChange delete = new DataChange(DataChange.Type.DELETE, COLLECTION_ID, DOCUMENT_ID, Collections.emptySet(), Collections.emptySet());
+
+      node1.onDataChanges(new DataChanges(Arrays.asList(update, delete), false));
+
+      assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(node1Changes).isEmpty();
+      assertThat(node2Changes).hasSize(1);
+
+      DataChanges received = node2Changes.get(0);
+      assertThat(received.isRemote()).isTrue();
+      assertThat(received.getChanges()).extracting(DataChange::getType).containsExactly(DataChange.Type.UPDATE, DataChange.Type.DELETE);
+      assertThat(received.getChanges().get(0).getDocumentId()).isEqualTo(DOCUMENT_ID);
+      assertThat(received.getChanges().get(0).getCollectionId()).isEqualTo(COLLECTION_ID);
+      assertThat(received.getChanges().get(0).getChangedAttributes()).containsOnly(KEY1);
+      assertThat(received.getChanges().get(0).getRemovedAttributes()).containsOnly(KEY2);
+   }
+
+   @Test
+   public void testRemoteChangesAreNotSharedAgain() throws InterruptedException {
+      DataChange delete = new DataChange(DataChange.Type.DELETE, COLLECTION_ID, DOCUMENT_ID, Collections.emptySet(), Collections.emptySet());
+
+      node1.onDataChanges(new DataChanges(Collections.singletonList(delete), true));
+
+      assertThat(latch.await(1, TimeUnit.SECONDS)).isFalse();
+      assertThat(node2Changes).isEmpty();
+   }
+}
@@ -0,0 +1,279 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.cache.simple;
+
+import io.lumeer.engine.api.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache with a maximum size and optional write and access expiration.
+ *
+ * The entries are spread over a fixed number of segments, each one being a LRU ordered map with its own monitor,
+ * so that concurrent readers of different keys rarely contend. Entry locks are striped over a fixed array
+ * of locks instead of being created per key, thus the memory used by locks does not grow with the number of keys.
+ *
+ * @param <T>
+ *       Type of values stored in the cache.
+ */
+public class BoundedCache<T> implements Cache<T> {
+
+   private static final int SEGMENTS = 16;
+   private static final int LOCK_STRIPES = 64;
+
+   private final long expireAfterWrite;
+   private final long expireAfterAccess;
+   private final LongSupplier clock;
+
+   private final List<Segment> segments;
+   private final ReentrantLock[] locks;
+
+   private final LongAdder hitCount = new LongAdder();
+   private final LongAdder missCount = new LongAdder();
+   private final LongAdder evictionCount = new LongAdder();
+
+   public BoundedCache(final CacheConfiguration configuration) {
+      this(configuration, System::currentTimeMillis);
+   }
+
+   BoundedCache(final CacheConfiguration configuration, final LongSupplier clock) {
+      this.expireAfterWrite = configuration.getExpireAfterWrite();
+      this.expireAfterAccess = configuration.getExpireAfterAccess();
+      this.clock = clock;
+
+      final long maximumSize = configuration.getMaximumSize();
+      final int segmentCapacity = maximumSize > 0 ? (int) Math.min(Integer.MAX_VALUE, Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS)) : Integer.MAX_VALUE;
+
+      this.segments = new ArrayList<>(SEGMENTS);
+      for (int i = 0; i < SEGMENTS; i++) {
+         segments.add(new Segment(segmentCapacity));
+      }
+
+      this.locks = new ReentrantLock[LOCK_STRIPES];
+      for (int i = 0; i < LOCK_STRIPES; i++) {
+         locks[i] = new ReentrantLock();
+      }
+   }
+
+   @Override
+   public T get(final String key) {
+      final Segment segment = segment(key);
+
+      synchronized (segment) {
+         final T value = segment.getValue(key, clock.getAsLong());
+         if (value != null) {
+            hitCount.increment();
+         } else {
+            missCount.increment();
+         }
+
+         return value;
+      }
+   }
+
+   @Override
+   public T computeIfAbsent(final String key, final Function<String, T> fce) {
+      final T value = get(key);
+      if (value != null) {
+         return value;
+      }
+
+      // the value is computed outside of the segment monitor so that slow loaders do not block other keys
+      final T computed = fce.apply(key);
+      if (computed == null) {
+         return null;
+      }
+
+      final Segment segment = segment(key);
+      synchronized (segment) {
+         final long now = clock.getAsLong();
+         final T concurrent = segment.getValue(key, now);
+         if (concurrent != null) {
+            return concurrent;
+         }
+
+         segment.put(key, new Entry<>(computed, now));
+         return computed;
+      }
+   }
+
+   @Override
+   public void set(final String key, final T t) {
+      final Segment segment = segment(key);
+
+      synchronized (segment) {
+         if (t == null) {
+            segment.remove(key);
+         } else {
+            segment.put(key, new Entry<>(t, clock.getAsLong()));
+         }
+      }
+   }
+
+   @Override
+   public T remove(final String key) {
+      final Segment segment = segment(key);
+
+      synchronized (segment) {
+         final Entry<T> entry = segment.remove(key);
+         return entry != null ? entry.value : null;
+      }
+   }
+
+   @Override
+   public void lock(final String key) {
+      lockFor(key).lock();
+   }
+
+   @Override
+   public void unlock(final String key) {
+      final ReentrantLock lock = lockFor(key);
+
+      if (lock.isHeldByCurrentThread()) {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public boolean tryLock(final String key) {
+      return lockFor(key).tryLock();
+   }
+
+   @Override
+   public void clear() {
+      segments.forEach(segment -> {
+         synchronized (segment) {
+            segment.clear();
+         }
+      });
+   }
+
+   /**
+    * Removes all expired entries. Expired entries are otherwise removed lazily when they are accessed or evicted.
+    */
+   public void cleanUp() {
+      final long now = clock.getAsLong();
+
+      segments.forEach(segment -> {
+         synchronized (segment) {
+            final Iterator<Entry<T>> iterator = segment.values().iterator();
+            while (iterator.hasNext()) {
+               if (isExpired(iterator.next(), now)) {
+                  iterator.remove();
+                  evictionCount.increment();
+               }
+            }
+         }
+      });
+   }
+
+   public long size() {
+      long size = 0;
+      for (final Segment segment : segments) {
+         synchronized (segment) {
+            size += segment.size();
+         }
+      }
+
+      return size;
+   }
+
+   public CacheStatistics getStatistics() {
+      return new CacheStatistics(hitCount.sum(), missCount.sum(), evictionCount.sum(), size());
+   }
+
+   private Segment segment(final String key) {
+      return segments.get(spread(key.hashCode()) & (SEGMENTS - 1));
+   }
+
+   private ReentrantLock lockFor(final String key) {
+      return locks[spread(key.hashCode()) & (LOCK_STRIPES - 1)];
+   }
+
+   private static int spread(final int hash) {
+      return hash ^ (hash >>> 16);
+   }
+
+   private boolean isExpired(final Entry<T> entry, final long now) {
+      return (expireAfterWrite > 0 && now - entry.writeTime >= expireAfterWrite)
+            || (expireAfterAccess > 0 && now - entry.accessTime >= expireAfterAccess);
+   }
+
+   private static final class Entry<T> {
+
+      private final T value;
+      private final long writeTime;
+      private long accessTime;
+
+      private Entry(final T value, final long writeTime) {
+         this.value = value;
+         this.writeTime = writeTime;
+         this.accessTime = writeTime;
+      }
+   }
+
+   /**
+    * Access ordered map evicting its least recently used entry once it grows over the capacity.
+    * All methods must be called while holding the segment monitor.
+    */
+   private final class Segment extends LinkedHashMap<String, Entry<T>> {
+
+      private final int capacity;
+
+      private Segment(final int capacity) {
+         super(16, 0.75f, true);
+         this.capacity = capacity;
+      }
+
+      private T getValue(final String key, final long now) {
+         final Entry<T> entry = get(key);
+         if (entry == null) {
+            return null;
+         }
+
+         if (isExpired(entry, now)) {
+            remove(key);
+            evictionCount.increment();
+            return null;
+         }
+
+         entry.accessTime = now;
+         return entry.value;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Entry<T>> eldest) {
+         if (size() > capacity) {
+            evictionCount.increment();
+            return true;
+         }
+
+         return false;
+      }
+   }
+}
@@ -0,0 +1,57 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.cache.simple;
+
+import io.lumeer.engine.api.cache.Cache;
+import io.lumeer.engine.api.cache.CacheFactory;
+
+import java.io.Serializable;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+import javax.interceptor.Interceptor;
+
+/**
+ * Creates size and time bounded caches configured per cache name by {@link CacheConfiguration}.
+ * Caches configured without any limit fall back to {@link SimpleCache}.
+ */
+@Alternative
+@Priority(Interceptor.Priority.APPLICATION)
+@ApplicationScoped
+public class BoundedCacheFactory implements CacheFactory, Serializable {
+
+   @Override
+   public <T> Cache<T> getCache() {
+      return createCache(CacheConfiguration.getDefault());
+   }
+
+   @Override
+   public <T> Cache<T> getCache(final String cacheName) {
+      return createCache(CacheConfiguration.forCache(cacheName));
+   }
+
+   private static <T> Cache<T> createCache(final CacheConfiguration configuration) {
+      if (configuration.isUnbounded()) {
+         return new SimpleCache<>();
+      }
+
+      return new BoundedCache<>(configuration);
+   }
+}
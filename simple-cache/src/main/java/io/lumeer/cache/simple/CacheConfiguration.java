@@ -0,0 +1,128 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.cache.simple;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Limits of a bounded cache. The values are read from system properties so that each cache can be tuned without a rebuild:
+ * <code>lumeer.cache.&lt;cacheName&gt;.maximumSize</code>, <code>lumeer.cache.&lt;cacheName&gt;.expireAfterWrite</code> and
+ * <code>lumeer.cache.&lt;cacheName&gt;.expireAfterAccess</code> (both in milliseconds). Missing values fall back to
+ * <code>lumeer.cache.default.*</code> and then to the built-in defaults. A value of 0 means no limit.
+ */
+@Immutable
+public class CacheConfiguration {
+
+   public static final long DEFAULT_MAXIMUM_SIZE = 10_000L;
+   public static final long DEFAULT_EXPIRE_AFTER_WRITE = 10 * 60 * 1000L;
+   public static final long DEFAULT_EXPIRE_AFTER_ACCESS = 0L;
+
+   private static final String PROPERTY_PREFIX = "lumeer.cache.";
+   private static final String DEFAULT_CACHE_NAME = "default";
+   private static final String MAXIMUM_SIZE = ".maximumSize";
+   private static final String EXPIRE_AFTER_WRITE = ".expireAfterWrite";
+   private static final String EXPIRE_AFTER_ACCESS = ".expireAfterAccess";
+
+   private final long maximumSize;
+   private final long expireAfterWrite;
+   private final long expireAfterAccess;
+
+   private CacheConfiguration(final Builder builder) {
+      this.maximumSize = builder.maximumSize;
+      this.expireAfterWrite = builder.expireAfterWrite;
+      this.expireAfterAccess = builder.expireAfterAccess;
+   }
+
+   public long getMaximumSize() {
+      return maximumSize;
+   }
+
+   public long getExpireAfterWrite() {
+      return expireAfterWrite;
+   }
+
+   public long getExpireAfterAccess() {
+      return expireAfterAccess;
+   }
+
+   public boolean isUnbounded() {
+      return maximumSize <= 0 && expireAfterWrite <= 0 && expireAfterAccess <= 0;
+   }
+
+   public static CacheConfiguration getDefault() {
+      return forCache(DEFAULT_CACHE_NAME);
+   }
+
+   public static CacheConfiguration forCache(final String cacheName) {
+      return createBuilder()
+            .maximumSize(getProperty(cacheName, MAXIMUM_SIZE, DEFAULT_MAXIMUM_SIZE))
+            .expireAfterWrite(getProperty(cacheName, EXPIRE_AFTER_WRITE, DEFAULT_EXPIRE_AFTER_WRITE))
+            .expireAfterAccess(getProperty(cacheName, EXPIRE_AFTER_ACCESS, DEFAULT_EXPIRE_AFTER_ACCESS))
+            .build();
+   }
+
+   private static long getProperty(final String cacheName, final String suffix, final long defaultValue) {
+      final String defaultProperty = System.getProperty(PROPERTY_PREFIX + DEFAULT_CACHE_NAME + suffix);
+      final String value = System.getProperty(PROPERTY_PREFIX + cacheName + suffix, defaultProperty);
+
+      try {
+         return value != null ? Long.parseLong(value.trim()) : defaultValue;
+      } catch (NumberFormatException e) {
+         return defaultValue;
+      }
+   }
+
+   public static Builder createBuilder() {
+      return new Builder();
+   }
+
+   public static class Builder {
+
+      private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+      private long expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+      private long expireAfterAccess = DEFAULT_EXPIRE_AFTER_ACCESS;
+
+      private Builder() {
+      }
+
+      public Builder maximumSize(final long maximumSize) {
+         this.maximumSize = maximumSize;
+         return this;
+      }
+
+      public Builder expireAfterWrite(final long expireAfterWrite) {
+         this.expireAfterWrite = expireAfterWrite;
+         return this;
+      }
+
+      public Builder expireAfterAccess(final long expireAfterAccess) {
+         this.expireAfterAccess = expireAfterAccess;
+         return this;
+      }
+
+      public CacheConfiguration build() {
+         if (maximumSize < 0 || expireAfterWrite < 0 || expireAfterAccess < 0) {
+            throw new IllegalArgumentException("cache limits must not be negative");
+         }
+
+         return new CacheConfiguration(this);
+      }
+   }
+}
@@ -0,0 +1,77 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.cache.simple;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Snapshot of cache usage counters.
+ */
+@Immutable
+public class CacheStatistics {
+
+   private final long hitCount;
+   private final long missCount;
+   private final long evictionCount;
+   private final long size;
+
+   public CacheStatistics(final long hitCount, final long missCount, final long evictionCount, final long size) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+   }
+
+   public long getHitCount() {
+      return hitCount;
+   }
+
+   public long getMissCount() {
+      return missCount;
+   }
+
+   /**
+    * Gets the number of entries removed because of the size limit or expiration.
+    *
+    * @return Number of evicted entries.
+    */
+   public long getEvictionCount() {
+      return evictionCount;
+   }
+
+   public long getSize() {
+      return size;
+   }
+
+   public double getHitRate() {
+      final long requestCount = hitCount + missCount;
+      return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+   }
+
+   @Override
+   public String toString() {
+      return "CacheStatistics{" +
+            "hitCount=" + hitCount +
+            ", missCount=" + missCount +
+            ", evictionCount=" + evictionCount +
+            ", size=" + size +
+            '}';
+   }
+}
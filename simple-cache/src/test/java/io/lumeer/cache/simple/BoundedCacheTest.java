@@ -0,0 +1,155 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.cache.simple;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BoundedCacheTest {
+
+   private static final String KEY1 = "key1";
+   private static final String KEY2 = "key2";
+   private static final String VALUE1 = "value1";
+   private static final String VALUE2 = "value2";
+
+   private AtomicLong time;
+
+   @Before
+   public void initClock() {
+      time = new AtomicLong(1000L);
+   }
+
+   private BoundedCache<String> createCache(long maximumSize, long expireAfterWrite, long expireAfterAccess) {
+      CacheConfiguration configuration = CacheConfiguration.createBuilder()
+                                                           .maximumSize(maximumSize)
+                                                           .expireAfterWrite(expireAfterWrite)
+                                                           .expireAfterAccess(expireAfterAccess)
+                                                           .build();
+      return new BoundedCache<>(configuration, time::get);
+   }
+
+   @Test
+   public void testGetAndSet() {
+      BoundedCache<String> cache = createCache(100, 0, 0);
+
+      cache.set(KEY1, VALUE1);
+      assertThat(cache.get(KEY1)).isEqualTo(VALUE1);
+      assertThat(cache.get(KEY2)).isNull();
+      assertThat(cache.remove(KEY1)).isEqualTo(VALUE1);
+      assertThat(cache.get(KEY1)).isNull();
+
+      CacheStatistics statistics = cache.getStatistics();
+      assertThat(statistics.getHitCount()).isEqualTo(1);
+      assertThat(statistics.getMissCount()).isEqualTo(2);
+      assertThat(statistics.getSize()).isEqualTo(0);
+   }
+
+   @Test
+   public void testComputeIfAbsent() {
+      BoundedCache<String> cache = createCache(100, 0, 0);
+      AtomicInteger loads = new AtomicInteger();
+
+      assertThat(cache.computeIfAbsent(KEY1, key -> VALUE1 + loads.incrementAndGet())).isEqualTo(VALUE1 + 1);
+      assertThat(cache.computeIfAbsent(KEY1, key -> VALUE1 + loads.incrementAndGet())).isEqualTo(VALUE1 + 1);
+      assertThat(loads.get()).isEqualTo(1);
+   }
+
+   @Test
+   public void testMaximumSize() {
+      BoundedCache<String> cache = createCache(32, 0, 0);
+
+      for (int i = 0; i < 1000; i++) {
+         cache.set(KEY1 + i, VALUE1);
+      }
+
+      assertThat(cache.size()).isLessThanOrEqualTo(32);
+      assertThat(cache.getStatistics().getEvictionCount()).isGreaterThanOrEqualTo(1000 - 32);
+   }
+
+   @Test
+   public void testExpireAfterWrite() {
+      BoundedCache<String> cache = createCache(100, 500, 0);
+
+      cache.set(KEY1, VALUE1);
+      time.addAndGet(400);
+      assertThat(cache.get(KEY1)).isEqualTo(VALUE1);
+
+      time.addAndGet(100);
+      assertThat(cache.get(KEY1)).isNull();
+      assertThat(cache.getStatistics().getEvictionCount()).isEqualTo(1);
+   }
+
+   @Test
+   public void testExpireAfterAccess() {
+      BoundedCache<String> cache = createCache(100, 0, 500);
+
+      cache.set(KEY1, VALUE1);
+      cache.set(KEY2, VALUE2);
+      time.addAndGet(400);
+      assertThat(cache.get(KEY1)).isEqualTo(VALUE1);
+
+      time.addAndGet(400);
+      assertThat(cache.get(KEY1)).isEqualTo(VALUE1);
+
+      cache.cleanUp();
+      assertThat(cache.size()).isEqualTo(1);
+      assertThat(cache.get(KEY2)).isNull();
+   }
+
+   @Test
+   public void testLocks() throws InterruptedException {
+      BoundedCache<String> cache = createCache(100, 0, 0);
+
+      AtomicBoolean lockedByOtherThread = new AtomicBoolean(true);
+
+      cache.lock(KEY1);
+      try {
+         Thread thread = new Thread(() -> lockedByOtherThread.set(cache.tryLock(KEY1)));
+         thread.start();
+         thread.join();
+      } finally {
+         cache.unlock(KEY1);
+      }
+
+      assertThat(lockedByOtherThread.get()).isFalse();
+
+      assertThat(cache.tryLock(KEY1)).isTrue();
+      cache.unlock(KEY1);
+   }
+
+   @Test
+   public void testUnboundedConfigurationFallsBackToSimpleCache() {
+      System.setProperty("lumeer.cache.unboundedTestCache.maximumSize", "0");
+      System.setProperty("lumeer.cache.unboundedTestCache.expireAfterWrite", "0");
+      try {
+         assertThat(new BoundedCacheFactory().<String>getCache("unboundedTestCache")).isInstanceOf(SimpleCache.class);
+         assertThat(new BoundedCacheFactory().<String>getCache("boundedTestCache")).isInstanceOf(BoundedCache.class);
+      } finally {
+         System.clearProperty("lumeer.cache.unboundedTestCache.maximumSize");
+         System.clearProperty("lumeer.cache.unboundedTestCache.expireAfterWrite");
+      }
+   }
+}
@@ -19,24 +19,23 @@
  */
 package io.lumeer.engine.controller;
 
-import io.lumeer.engine.annotation.UserDataStorage;
+import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.batch.Batch;
-import io.lumeer.engine.api.batch.MergeBatch;
-import io.lumeer.engine.api.batch.SplitBatch;
-import io.lumeer.engine.api.constraint.InvalidConstraintException;
 import io.lumeer.engine.api.data.DataDocument;
-import io.lumeer.engine.api.data.DataStorage;
-import io.lumeer.engine.api.exception.DbException;
+import io.lumeer.engine.api.task.TaskInfo;
+import io.lumeer.engine.provider.DataStorageProvider;
+import io.lumeer.engine.task.BatchTask;
+import io.lumeer.engine.task.LocalTaskContext;
+import io.lumeer.engine.task.TaskProcessor;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.util.List;
 import javax.enterprise.context.SessionScoped;
 import javax.inject.Inject;
 
 /**
  * Runs various types of batches.
+ * Batches are processed in chunks of {@value LumeerConst.Batch#CHUNK_SIZE_PROPERTY} documents,
+ * either in the calling thread or as background tasks.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -46,153 +45,59 @@ public class BatchFacade implements Serializable {
    private static final long serialVersionUID = -6509744496908392550L;
 
    @Inject
-   @UserDataStorage
-   private DataStorage dataStorage;
+   private DataStorageProvider dataStorageProvider;
 
    @Inject
-   private DocumentFacade documentFacade;
+   private CollectionMetadataFacade collectionMetadataFacade;
 
    @Inject
-   private CollectionMetadataFacade collectionMetadataFacade;
+   private VersionFacade versionFacade;
 
-   public void executeBatch(final Batch batch) throws DbException, InvalidConstraintException {
-      // first check collection size
-      if (dataStorage.count(batch.getCollectionCode(), null) > 10000) {
-         throw new UnsupportedOperationException("Cannot run a batch process on collections with more than 10000 documents.");
-      }
-
-      if (batch instanceof MergeBatch) {
-         internalExecuteBatch((MergeBatch) batch);
-      } else if (batch instanceof SplitBatch) {
-         internalExecuteBatch((SplitBatch) batch);
-      }
-   }
+   @Inject
+   private OrganizationFacade organizationFacade;
 
-   private void internalExecuteBatch(final MergeBatch batch) throws DbException, InvalidConstraintException {
-      List<DataDocument> documents = dataStorage.search(batch.getCollectionCode(), null, null, 0, 0);
-
-      for (final DataDocument doc : documents) {
-         if (batch.getMergeType() == MergeBatch.MergeType.JOIN) {
-            final StringBuilder sb = new StringBuilder();
-
-            batch.getAttributes().forEach(attr -> {
-               final Object value = doc.get(attr);
-
-               if (value != null) {
-                  if (sb.length() > 0) {
-                     sb.append(batch.getJoin());
-                  }
-
-                  sb.append(value);
-               }
-            });
-
-            doc.put(batch.getResultAttribute(), sb.toString());
-         } else if (batch.getMergeType() == MergeBatch.MergeType.SUM) {
-            double sum = 0d;
-            long longSum = 0l;
-            BigDecimal bigDecimal = new BigDecimal("0");
-            BigInteger bigInteger = new BigInteger("0");
-            boolean wasFloating = false;
-            boolean onlyBigDecimal = true;
-            boolean onlyBigInteger = true;
-
-            for (final String attr : batch.getAttributes()) {
-               final Object value = doc.get(attr);
-
-               if (value != null) {
-                  if (value instanceof Double) {
-                     sum = sum + (double) value;
-                     wasFloating = true;
-                     onlyBigDecimal = false;
-                  } else if (value instanceof Integer) {
-                     sum = sum + (int) value;
-                     longSum = longSum + (int) value;
-                     onlyBigDecimal = false;
-                  } else if (value instanceof Long) {
-                     sum = sum + (long) value;
-                     longSum = longSum + (long) value;
-                     onlyBigDecimal = false;
-                  } else if (value instanceof Float) {
-                     sum = sum + (float) value;
-                     wasFloating = true;
-                     onlyBigDecimal = false;
-                  } else if (value instanceof Byte) {
-                     sum = sum + (byte) value;
-                     longSum = longSum + (byte) value;
-                     onlyBigDecimal = false;
-                  } else if (value instanceof BigDecimal) {
-                     bigDecimal = bigDecimal.add((BigDecimal) value);
-                     sum = sum + ((BigDecimal) value).doubleValue();
-                     onlyBigInteger = false;
-                  } else if (value instanceof BigInteger) {
-                     bigDecimal = bigDecimal.add(new BigDecimal((BigInteger) value));
-                     bigInteger = bigInteger.add((BigInteger) value);
-                     sum = sum + ((BigInteger) value).longValue();
-                  }
-               }
-            }
-
-            // now see what types we had and try to be as restrictive as possible
-            if (onlyBigInteger) {
-               doc.put(batch.getResultAttribute(), bigInteger);
-            } else if (onlyBigDecimal) {
-               doc.put(batch.getResultAttribute(), bigDecimal);
-            } else if (!wasFloating) {
-               doc.put(batch.getResultAttribute(), longSum);
-            } else {
-               doc.put(batch.getResultAttribute(), sum);
-            }
-         } else {
-            final DataDocument subDoc = new DataDocument();
-
-            batch.getAttributes().forEach(attr -> {
-               final Object value = doc.get(attr);
-
-               if (value != null) {
-                  subDoc.put(attr, doc.get(attr));
-               }
-            });
-
-            doc.put(batch.getResultAttribute(), subDoc);
-         }
-
-         if (!batch.isKeepOriginal()) {
-            batch.getAttributes().forEach(a -> {
-               try {
-                  documentFacade.dropAttribute(batch.getCollectionCode(), doc.getId(), a);
-               } catch (DbException e) {
-                  // nps, we cannot do m ore
-               }
-               doc.remove(a); // TODO check - for future compatibility but has no effect now
-            });
-         }
-
-         documentFacade.updateDocument(batch.getCollectionCode(), doc);
-      }
-   }
+   @Inject
+   private ProjectFacade projectFacade;
 
-   private void internalExecuteBatch(final SplitBatch batch) throws DbException, InvalidConstraintException {
-      List<DataDocument> documents = dataStorage.search(batch.getCollectionCode(), null, null, 0, 0);
+   @Inject
+   private UserFacade userFacade;
+
+   @Inject
+   private BatchTask batchTask;
 
-      for (final DataDocument doc : documents) {
-         final Object value = doc.get(batch.getAttribute());
+   @Inject
+   private TaskProcessor taskProcessor;
+
+   /**
+    * Runs the batch in the calling thread.
+    *
+    * @param batch
+    *       The batch to run.
+    */
+   public void executeBatch(final Batch batch) {
+      batchTask.process(new LocalTaskContext(userFacade.getUserEmail(), createParameters(batch), dataStorageProvider.getUserStorage()));
+   }
 
-         if (value != null) {
-            final String original = value instanceof String ? (String) value : value.toString();
-            final String[] parts = original.split(batch.getDelimiter(), batch.getSplitAttributes().size());
+   /**
+    * Starts the batch as a background task.
+    *
+    * @param batch
+    *       The batch to run.
+    * @return The info about the queued task.
+    */
+   public TaskInfo startBatch(final Batch batch) {
+      final DataDocument parameters = createParameters(batch);
+      dataStorageProvider.getUserStorage(); // the task runs once the organization storage is connected
+
+      return taskProcessor.submit(LumeerConst.Batch.TASK_TYPE, organizationFacade.getOrganizationCode(), projectFacade.getCurrentProjectId(),
+            userFacade.getUserEmail(), parameters);
+   }
 
-            for (int i = 0; i < parts.length; i++) {
-               doc.put(batch.getSplitAttributes().get(i), batch.isTrim() ? parts[i].trim() : parts[i]);
-            }
-         }
-         if (!batch.isKeepOriginal()) {
-            documentFacade.dropAttribute(batch.getCollectionCode(), doc.getId(), batch.getAttribute());
-            doc.remove(batch.getAttribute()); // TODO check - for future compatibility
-         }
+   private DataDocument createParameters(final Batch batch) {
+      final String collectionCode = batch.getCollectionCode();
+      collectionMetadataFacade.setLastTimeUsedNow(collectionCode);
 
-         documentFacade.updateDocument(batch.getCollectionCode(), doc);
-      }
+      return BatchTask.createParameters(batch, versionFacade.buildShadowCollectionName(collectionCode), collectionMetadataFacade.metadataCollection());
    }
 
 }
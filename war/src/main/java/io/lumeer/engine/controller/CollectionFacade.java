@@ -192,6 +192,8 @@ public class CollectionFacade implements Serializable {
 
       linkingFacade.dropLinksForCollection(collectionCode, null, LumeerConst.Linking.LinkDirection.FROM);
       linkingFacade.dropLinksForCollection(collectionCode, null, LumeerConst.Linking.LinkDirection.TO);
+      // the documents of the collection stay in the graph without their links otherwise
+      linkingFacade.invalidateLinkGraph();
       collectionMetadataFacade.dropMetadata(collectionCode);
       dataStorage.dropCollection(collectionCode);
       versionFacade.trashShadowCollection(collectionCode);
@@ -23,6 +23,7 @@ import io.lumeer.engine.annotation.UserDataStorage;
 import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.constraint.Constraint;
 import io.lumeer.engine.api.constraint.ConstraintManager;
+import io.lumeer.engine.api.constraint.ConstraintPlan;
 import io.lumeer.engine.api.constraint.InvalidConstraintException;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.data.DataFilter;
@@ -50,6 +51,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -86,6 +89,11 @@ public class CollectionMetadataFacade implements Serializable {
 
    private ConstraintManager constraintManager;
 
+   /**
+    * Compiled constraints keyed by the locale and the constraint configurations, so they never get stale.
+    */
+   private transient Map<String, ConstraintPlan> constraintPlans;
+
    /**
     * Initializes constraint manager.
     */
@@ -93,7 +101,7 @@ public class CollectionMetadataFacade implements Serializable {
    public void initConstraintManager() {
       try {
          constraintManager = new ConstraintManager();
-         constraintManager.setLocale(Locale.forLanguageTag(configurationFacade.getConfigurationString(LumeerConst.USER_LOCALE_PROPERTY).orElse("en-US")));
+         constraintManager.setLocale(getUserLocale());
       } catch (InvalidConstraintException e) {
          throw new IllegalStateException("Illegal constraint prefix collision: ", e);
       }
@@ -382,6 +390,19 @@ public class CollectionMetadataFacade implements Serializable {
                      .collect(Collectors.toList());
    }
 
+   /**
+    * Gets an immutable snapshot of collection attributes read by a single query.
+    *
+    * @param collectionCode
+    *       collection code
+    * @return unmodifiable map of collection attributes by their full names
+    */
+   public Map<String, Attribute> getAttributesSnapshot(String collectionCode) {
+      Map<String, Attribute> attributes = getAttributesInfo(collectionCode).stream()
+                                                                          .collect(Collectors.toMap(Attribute::getFullName, Function.identity(), (a1, a2) -> a1));
+      return Collections.unmodifiableMap(attributes);
+   }
+
    /**
     * Gets complete info about one attribute.
     *
@@ -640,28 +661,26 @@ public class CollectionMetadataFacade implements Serializable {
     *       attribute name
     * @param value
     *       attribute value
-    * @param collectionCode
-    *       collection code
+    * @param attributes
+    *       snapshot of all collection attributes by their names
     * @return null when the value is not valid, fixed value when the value is fixable, original value when the value is valid
     * @throws InvalidConstraintException
     *       When the constraint configuration was wrong.
     * @throws InvalidValueException
     *       When it was not possible to properly encode the value.
     */
-   private Object checkAndConvertAttributeValue(final Attribute attribute, final Object value, final String collectionCode) throws InvalidConstraintException, InvalidValueException {
+   private Object checkAndConvertAttributeValue(final Attribute attribute, final Object value, final Map<String, Attribute> attributes) throws InvalidConstraintException, InvalidValueException {
       // if the value is DataDocument, we check it recursively
       if (value instanceof DataDocument) {
 
          final DataDocument beforeCheck = (DataDocument) value;
          final DataDocument afterCheck = new DataDocument();
 
-         Set<String> names = getAttributesNames(collectionCode);
-
          for (String key : beforeCheck.keySet()) {
-            if (!names.contains(key)) { // attribute does not exist - no need to check anything
+            if (!attributes.containsKey(key)) { // attribute does not exist - no need to check anything
                afterCheck.put(key, beforeCheck.get(key));
             } else {
-               Object newValue = checkAndConvertAttributeValue(getAttributeInfo(collectionCode, key), beforeCheck.get(key), collectionCode);
+               Object newValue = checkAndConvertAttributeValue(attributes.get(key), beforeCheck.get(key), attributes);
                afterCheck.put(key, newValue);
             }
          }
@@ -677,11 +696,9 @@ public class CollectionMetadataFacade implements Serializable {
       // other types
       final List<String> constraintConfigurations = attribute.getConstraints();
 
-      final ConstraintManager constraintManager = new ConstraintManager(constraintConfigurations);
-      constraintManager.setLocale(Locale.forLanguageTag(configurationFacade.getConfigurationString(LumeerConst.USER_LOCALE_PROPERTY)
-                                                                           .orElse("en-US")));
+      final ConstraintPlan constraintPlan = getConstraintPlan(constraintConfigurations);
 
-      Constraint.ConstraintResult result = constraintManager.isValid(value.toString());
+      Constraint.ConstraintResult result = constraintPlan.isValid(value.toString());
 
       if (result == Constraint.ConstraintResult.INVALID) {
          throw new InvalidValueException("Invalid value for attribute " + attribute.getName() + " given its constraints.");
@@ -689,9 +706,9 @@ public class CollectionMetadataFacade implements Serializable {
 
       final Object encoded;
       if (result == Constraint.ConstraintResult.FIXABLE) {
-         encoded = constraintManager.encode(constraintManager.fix(value.toString()));
+         encoded = constraintPlan.encode(constraintPlan.fix(value.toString()));
       } else {
-         encoded = constraintManager.encode(value);
+         encoded = constraintPlan.encode(value);
       }
 
       if (encoded == null) {
@@ -716,14 +733,14 @@ public class CollectionMetadataFacade implements Serializable {
     */
    public DataDocument checkAndConvertAttributesValues(final String collectionCode, final DataDocument document) throws InvalidValueException, InvalidConstraintException {
       final DataDocument results = new DataDocument();
-      Set<String> names = getAttributesNames(collectionCode);
+      final Map<String, Attribute> attributes = getAttributesSnapshot(collectionCode);
 
       for (Map.Entry<String, Object> entry : document.entrySet()) {
          String key = entry.getKey();
-         if (!names.contains(key)) { // attribute does not exist - no need to check anything
+         if (!attributes.containsKey(key)) { // attribute does not exist - no need to check anything
             results.append(key, entry.getValue());
          } else {
-            results.append(key, checkAndConvertAttributeValue(getAttributeInfo(collectionCode, key), entry.getValue(), collectionCode));
+            results.append(key, checkAndConvertAttributeValue(attributes.get(key), entry.getValue(), attributes));
          }
       }
 
@@ -744,15 +761,42 @@ public class CollectionMetadataFacade implements Serializable {
     *       When it was not possible to properly decode the value.
     */
    public DataDocument decodeAttributeValues(final String collectionCode, final DataDocument document) throws InvalidConstraintException, InvalidValueException {
+      return decodeAttributeValues(getAttributesSnapshot(collectionCode), document);
+   }
+
+   /**
+    * Decodes attributes of all given documents based on the constraints. Collection metadata are read just once for all documents.
+    *
+    * @param collectionCode
+    *       collection code
+    * @param documents
+    *       The documents the attributes of which should be decoded.
+    * @return New documents with decoded values in the same order.
+    * @throws InvalidConstraintException
+    *       When the constraint configuration was wrong.
+    * @throws InvalidValueException
+    *       When it was not possible to properly decode the value.
+    */
+   public List<DataDocument> decodeAttributeValues(final String collectionCode, final List<DataDocument> documents) throws InvalidConstraintException, InvalidValueException {
+      final Map<String, Attribute> attributes = getAttributesSnapshot(collectionCode);
+      final List<DataDocument> results = new ArrayList<>(documents.size());
+
+      for (DataDocument document : documents) {
+         results.add(decodeAttributeValues(attributes, document));
+      }
+
+      return results;
+   }
+
+   private DataDocument decodeAttributeValues(final Map<String, Attribute> attributes, final DataDocument document) throws InvalidConstraintException, InvalidValueException {
       final DataDocument results = new DataDocument();
-      Set<String> names = getAttributesNames(collectionCode);
 
       for (Map.Entry<String, Object> entry : document.entrySet()) {
          String key = entry.getKey();
-         if (!names.contains(key)) { // attribute does not exist - no need to check anything
+         if (!attributes.containsKey(key)) { // attribute does not exist - no need to check anything
             results.append(key, entry.getValue());
          } else {
-            results.append(key, decodeDocumentValue(getAttributeInfo(collectionCode, key), entry.getValue(), collectionCode));
+            results.append(key, decodeDocumentValue(attributes.get(key), entry.getValue(), attributes));
          }
       }
       return results;
@@ -766,28 +810,26 @@ public class CollectionMetadataFacade implements Serializable {
     *       The attribute meta-data.
     * @param value
     *       The attribute value.
-    * @param collectionCode
-    *       collection code
+    * @param attributes
+    *       snapshot of all collection attributes by their names
     * @return Decoded value.
     * @throws InvalidConstraintException
     *       When the constraint configuration was wrong.
     * @throws InvalidValueException
     *       When it was not possible to properly decode the value.
     */
-   private Object decodeDocumentValue(final Attribute attribute, final Object value, final String collectionCode) throws InvalidConstraintException, InvalidValueException {
+   private Object decodeDocumentValue(final Attribute attribute, final Object value, final Map<String, Attribute> attributes) throws InvalidConstraintException, InvalidValueException {
       // if the value is DataDocument, we check it recursively
       if (value instanceof DataDocument) {
 
          final DataDocument beforeCheck = (DataDocument) value;
          final DataDocument afterCheck = new DataDocument();
 
-         Set<String> names = getAttributesNames(collectionCode);
-
          for (String key : beforeCheck.keySet()) {
-            if (!names.contains(key)) { // attribute does not exist - no need to check anything
+            if (!attributes.containsKey(key)) { // attribute does not exist - no need to check anything
                afterCheck.put(key, beforeCheck.get(key));
             } else {
-               Object newValue = decodeDocumentValue(getAttributeInfo(collectionCode, key), beforeCheck.get(key), collectionCode);
+               Object newValue = decodeDocumentValue(attributes.get(key), beforeCheck.get(key), attributes);
                afterCheck.put(key, newValue);
             }
          }
@@ -796,14 +838,13 @@ public class CollectionMetadataFacade implements Serializable {
       }
 
       final List<String> constraintConfigurations = attribute.getConstraints();
-      final ConstraintManager constraintManager = new ConstraintManager(constraintConfigurations);
-      final Object decoded = constraintManager.decode(value);
+      final Object decoded = getConstraintPlan(constraintConfigurations).decode(value);
 
       if (value != null && decoded == null) {
          throw new InvalidValueException("Unable to decode value from database: " + value.toString());
       }
 
-      return constraintManager.decode(value);
+      return decoded;
    }
 
    /**
@@ -837,8 +878,7 @@ public class CollectionMetadataFacade implements Serializable {
 
       ConstraintManager constraintManager = null;
       try {
-         constraintManager = new ConstraintManager(existingConstraints);
-         initConstraintManager(constraintManager);
+         constraintManager = new ConstraintManager(existingConstraints, getUserLocale());
       } catch (InvalidConstraintException e) { // thrown when already existing constraints are in conflict
          throw new IllegalStateException("Illegal constraint prefix collision: ", e);
       }
@@ -939,9 +979,26 @@ public class CollectionMetadataFacade implements Serializable {
       return LumeerConst.Collection.METADATA_COLLECTION_PREFIX + projectId;
    }
 
-   // initializes constraint manager
-   private void initConstraintManager(ConstraintManager constraintManager) {
-      constraintManager.setLocale(Locale.forLanguageTag(configurationFacade.getConfigurationString(LumeerConst.USER_LOCALE_PROPERTY).orElse("en-US")));
+   private Locale getUserLocale() {
+      return Locale.forLanguageTag(configurationFacade.getConfigurationString(LumeerConst.USER_LOCALE_PROPERTY).orElse("en-US"));
+   }
+
+   // compiles the constraints just once for each locale
+   private ConstraintPlan getConstraintPlan(final List<String> constraintConfigurations) throws InvalidConstraintException {
+      if (constraintPlans == null) {
+         constraintPlans = new ConcurrentHashMap<>();
+      }
+
+      final Locale locale = getUserLocale();
+      final String key = locale.toLanguageTag() + "\n" + String.join("\n", constraintConfigurations);
+
+      ConstraintPlan plan = constraintPlans.get(key);
+      if (plan == null) {
+         plan = ConstraintPlan.compile(constraintConfigurations, locale);
+         constraintPlans.put(key, plan);
+      }
+
+      return plan;
    }
 
    private DataDocument getMetadataKeyValue(String collectionCode, String key) {
@@ -23,12 +23,19 @@ import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.data.StorageConnection;
 import io.lumeer.engine.api.dto.Config;
+import io.lumeer.engine.controller.configuration.ConfigurationCache;
 import io.lumeer.engine.controller.configuration.ConfigurationManipulator;
 import io.lumeer.engine.controller.configuration.DefaultConfigurationProducer;
 import io.lumeer.engine.util.Resources;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -57,6 +64,9 @@ public class ConfigurationFacade implements Serializable {
    @Inject
    private ConfigurationManipulator configurationManipulator;
 
+   @Inject
+   private ConfigurationCache configurationCache;
+
    @Inject
    private DefaultConfigurationProducer defaultConfigurationProducer;
 
@@ -511,18 +521,57 @@ public class ConfigurationFacade implements Serializable {
 
    /**
     * Returns an Config value of the given key by priority (User, Organization, Project).
+    * The configurations of all levels are resolved at once and cached until any configuration changes.
     *
     * @param key
     *       the name of key
     * @return Config value of the given key
     */
    private Config getConfiguration(final String key) {
-      Config projectConfig = getProjectConfiguration(key);
+      final String user = userFacade.getUserEmail();
+      final String organization = organizationFacade.getOrganizationId();
+      final String project = projectFacade.getCurrentProjectId();
+
+      final Config config = configurationCache.getConfigurations(user, organization, project, () -> loadConfigurations(user, organization, project)).get(key);
+      return config != null ? config : new Config(key, defaultConfigurationProducer.get(key));
+   }
+
+   /**
+    * Reads the configurations of all levels and resolves them by priority. All user levels are read by a single query.
+    *
+    * @param user
+    *       user email
+    * @param organization
+    *       organization id
+    * @param project
+    *       project id
+    * @return Map of resolved configurations by their keys
+    */
+   private Map<String, Config> loadConfigurations(final String user, final String organization, final String project) {
+      final String userProjectConfigName = createConfigName(organization, project, user);
+      final String userOrganizationConfigName = createConfigName(organization, user);
+      final Map<String, List<Config>> userConfigs = configurationManipulator.getConfigurations(USER_CONFIG_COLLECTION,
+            Arrays.asList(userProjectConfigName, userOrganizationConfigName, user));
+
+      final Map<ConfigurationLevel, Map<String, Config>> levels = new EnumMap<>(ConfigurationLevel.class);
+      levels.put(ConfigurationLevel.USER_PROJECT, configsByKey(userConfigs.get(userProjectConfigName)));
+      levels.put(ConfigurationLevel.USER_ORGANIZATION, configsByKey(userConfigs.get(userOrganizationConfigName)));
+      levels.put(ConfigurationLevel.USER_GLOBAL, configsByKey(userConfigs.get(user)));
+      levels.put(ConfigurationLevel.PROJECT, configsByKey(configurationManipulator.getConfigurations(PROJECT_CONFIG_COLLECTION, createConfigName(organization, project))));
+      levels.put(ConfigurationLevel.ORGANIZATION, configsByKey(configurationManipulator.getConfigurations(ORGANIZATION_CONFIG_COLLECTION, organization)));
+
+      final Map<String, Config> configs = new HashMap<>();
+      levels.values().forEach(level -> level.keySet().forEach(key -> configs.computeIfAbsent(key, k -> resolveConfiguration(levels, k))));
+      return Collections.unmodifiableMap(configs);
+   }
+
+   private static Config resolveConfiguration(final Map<ConfigurationLevel, Map<String, Config>> levels, final String key) {
+      Config projectConfig = levels.get(ConfigurationLevel.PROJECT).get(key);
       boolean projectRestricted = projectConfig != null && projectConfig.isRestricted();
-      Config organizationConfig = getOrganizationConfiguration(key);
+      Config organizationConfig = levels.get(ConfigurationLevel.ORGANIZATION).get(key);
       boolean organizationRestricted = organizationConfig != null && organizationConfig.isRestricted();
 
-      Config userConfigProject = getUserConfiguration(ConfigurationLevel.USER_PROJECT, key);
+      Config userConfigProject = levels.get(ConfigurationLevel.USER_PROJECT).get(key);
       if (userConfigProject != null && !projectRestricted && !organizationRestricted) {
          return userConfigProject;
       }
@@ -531,7 +580,7 @@ public class ConfigurationFacade implements Serializable {
          return projectConfig;
       }
 
-      Config userConfigOrganization = getUserConfiguration(ConfigurationLevel.USER_ORGANIZATION, key);
+      Config userConfigOrganization = levels.get(ConfigurationLevel.USER_ORGANIZATION).get(key);
       if (userConfigOrganization != null && !organizationRestricted) {
          return userConfigOrganization;
       }
@@ -540,12 +589,16 @@ public class ConfigurationFacade implements Serializable {
          return organizationConfig;
       }
 
-      Config userConfigGlobal = getUserConfiguration(ConfigurationLevel.USER_GLOBAL, key);
-      if (userConfigGlobal != null) {
-         return userConfigGlobal;
-      }
+      return levels.get(ConfigurationLevel.USER_GLOBAL).get(key);
+   }
 
-      return new Config(key, defaultConfigurationProducer.get(key));
+   private static Map<String, Config> configsByKey(final List<Config> configs) {
+      final Map<String, Config> configsByKey = new LinkedHashMap<>();
+      if (configs != null) {
+         // the first config with the key wins, the same as when reading a single config
+         configs.forEach(config -> configsByKey.putIfAbsent(config.getKey(), config));
+      }
+      return configsByKey;
    }
 
    /**
@@ -639,7 +692,8 @@ public class ConfigurationFacade implements Serializable {
    }
 
    private static Optional<DataDocument> createOptionalDataDocument(Config config) {
-      return config != null && config.getValue() instanceof DataDocument ? Optional.of((DataDocument) config.getValue()) : Optional.empty();
+      // the config can be cached, callers get their own copy of the document
+      return config != null && config.getValue() instanceof DataDocument ? Optional.of(new DataDocument((DataDocument) config.getValue())) : Optional.empty();
    }
 
    private static Optional<String> createOptionalString(Config config) {
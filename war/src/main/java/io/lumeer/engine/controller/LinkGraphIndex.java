@@ -0,0 +1,150 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.controller;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.cache.CacheInvalidationChannel;
+import io.lumeer.engine.util.LinkGraph;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Keeps the link graphs of projects in memory when the system property {@value LumeerConst.Linking.Graph#ENABLED_PROPERTY}
+ * is set to true. A graph is loaded on its first use and then updated together with the stored links.
+ * Other nodes drop their graph of the project on every change, they load it again on its next use.
+ * Without the property the graph is loaded for each traversal and thrown away.
+ */
+@ApplicationScoped
+public class LinkGraphIndex {
+
+   private static final String LINK_GRAPH_CACHE = "linkGraphs";
+
+   @Inject
+   private CacheInvalidationChannel invalidationChannel;
+
+   private final ConcurrentMap<String, LinkGraph> graphs = new ConcurrentHashMap<>();
+
+   // counts the changes of each project's links, a graph loaded while its links changed is not kept
+   private final ConcurrentMap<String, AtomicLong> modifications = new ConcurrentHashMap<>();
+
+   @PostConstruct
+   public void init() {
+      invalidationChannel.subscribe(LINK_GRAPH_CACHE, projectId -> {
+         if (projectId != null) {
+            invalidateLocally(projectId);
+         } else {
+            modifications.values().forEach(AtomicLong::incrementAndGet);
+            graphs.clear();
+         }
+      });
+   }
+
+   public boolean isEnabled() {
+      return Boolean.getBoolean(LumeerConst.Linking.Graph.ENABLED_PROPERTY);
+   }
+
+   /**
+    * Gets the graph of the project. The graph is loaded outside of the map, so loading one project does not block
+    * the others. When the links of the project change during the load, the loaded graph is used once and not kept.
+    *
+    * @param projectId
+    *       Project id.
+    * @param loader
+    *       Loads the graph from the data storage when it is not kept in memory.
+    * @return The link graph.
+    */
+   public LinkGraph getGraph(final String projectId, final Supplier<LinkGraph> loader) {
+      if (!isEnabled()) {
+         return loader.get();
+      }
+
+      LinkGraph graph = graphs.get(projectId);
+      if (graph != null) {
+         return graph;
+      }
+
+      AtomicLong modificationCount = modifications.computeIfAbsent(projectId, id -> new AtomicLong());
+      long loadedModification = modificationCount.get();
+      LinkGraph loadedGraph = loader.get();
+      if (modificationCount.get() != loadedModification) {
+         return loadedGraph;
+      }
+
+      graph = graphs.putIfAbsent(projectId, loadedGraph);
+      if (graph != null) {
+         return graph;
+      }
+
+      // a change between the check and the put did not reach the new graph
+      if (modificationCount.get() != loadedModification) {
+         graphs.remove(projectId, loadedGraph);
+      }
+      return loadedGraph;
+   }
+
+   /**
+    * Applies the change to the graph of the project when it is loaded. A graph being loaded at the same time is
+    * not kept, so no link is lost.
+    *
+    * @param projectId
+    *       Project id.
+    * @param update
+    *       The change of the graph.
+    */
+   public void update(final String projectId, final Consumer<LinkGraph> update) {
+      if (!isEnabled()) {
+         return;
+      }
+
+      modifications.computeIfAbsent(projectId, id -> new AtomicLong()).incrementAndGet();
+      graphs.computeIfPresent(projectId, (id, graph) -> {
+         update.accept(graph);
+         return graph;
+      });
+      invalidationChannel.publish(LINK_GRAPH_CACHE, projectId);
+   }
+
+   /**
+    * Drops the graph of the project on all nodes, it is loaded again on its next use.
+    *
+    * @param projectId
+    *       Project id.
+    */
+   public void invalidate(final String projectId) {
+      if (!isEnabled()) {
+         return;
+      }
+
+      invalidateLocally(projectId);
+      invalidationChannel.publish(LINK_GRAPH_CACHE, projectId);
+   }
+
+   private void invalidateLocally(final String projectId) {
+      modifications.computeIfAbsent(projectId, id -> new AtomicLong()).incrementAndGet();
+      graphs.remove(projectId);
+   }
+}
@@ -23,23 +23,33 @@ import static io.lumeer.engine.api.LumeerConst.Index;
 import static io.lumeer.engine.api.LumeerConst.Linking;
 
 import io.lumeer.engine.annotation.UserDataStorage;
+import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.data.DataFilter;
+import io.lumeer.engine.api.data.DataSort;
 import io.lumeer.engine.api.data.DataStorage;
 import io.lumeer.engine.api.data.DataStorageDialect;
 import io.lumeer.engine.api.dto.LinkInstance;
 import io.lumeer.engine.api.dto.LinkType;
 import io.lumeer.engine.api.event.DropDocument;
+import io.lumeer.engine.api.exception.DocumentNotFoundException;
 import io.lumeer.engine.api.exception.UserCollectionNotFoundException;
 import io.lumeer.engine.util.ErrorMessageBuilder;
+import io.lumeer.engine.util.LinkGraph;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.SessionScoped;
 import javax.enterprise.event.Observes;
@@ -52,6 +62,9 @@ import javax.inject.Inject;
 @SessionScoped
 public class LinkingFacade implements Serializable {
 
+   private static final int READ_BATCH_SIZE = 1000;
+   private static final int GRAPH_LOAD_BATCH_SIZE = 10_000;
+
    @Inject
    @UserDataStorage
    private DataStorage dataStorage;
@@ -65,9 +78,13 @@ public class LinkingFacade implements Serializable {
    @Inject
    private CollectionMetadataFacade collectionMetadataFacade;
 
+   @Inject
+   private LinkGraphIndex linkGraphIndex;
+
    public void onDropDocument(@Observes(notifyObserver = Reception.IF_EXISTS) final DropDocument dropDocument) throws UserCollectionNotFoundException {
       dropLinksForDocument(dropDocument.getCollectionName(), dropDocument.getDocument().getId(), null, Linking.LinkDirection.FROM);
       dropLinksForDocument(dropDocument.getCollectionName(), dropDocument.getDocument().getId(), null, Linking.LinkDirection.TO);
+      updateLinkGraph(graph -> graph.removeDocument(dropDocument.getDocument().getId()));
    }
 
    @PostConstruct
@@ -96,9 +113,10 @@ public class LinkingFacade implements Serializable {
     */
    public List<LinkType> readLinkTypesForCollection(final String collectionCode, final Linking.LinkDirection linkDirection) throws UserCollectionNotFoundException {
       String collectionId = getCollectionId(collectionCode);
+      Map<String, String> collectionNames = new HashMap<>();
       return readLinkingTypesForCollection(collectionId, null, linkDirection)
             .stream()
-            .map(this::convertLinkTypeToRealNames)
+            .map(linkType -> convertLinkTypeToRealNames(linkType, collectionNames))
             .collect(Collectors.toList());
    }
 
@@ -117,18 +135,21 @@ public class LinkingFacade implements Serializable {
       String collectionId = getCollectionId(collectionCode);
 
       List<DataDocument> linkingDocs = readLinkingTypesForCollection(collectionId, role, linkDirection);
+      if (linkingDocs.isEmpty()) {
+         return new ArrayList<>();
+      }
 
-      List<LinkInstance> linkInstances = new ArrayList<>();
-      String linkingCollectionName = buildCollectionName();
-      for (DataDocument lt : linkingDocs) {
-         LinkType linkType = convertLinkTypeToRealNames(lt);
+      Map<String, String> collectionNames = new HashMap<>();
+      Map<String, LinkType> linkTypes = new HashMap<>();
+      linkingDocs.forEach(lt -> linkTypes.put(lt.getId(), convertLinkTypeToRealNames(lt, collectionNames)));
 
-         List<DataDocument> ls = dataStorage.search(linkingCollectionName, dataStorageDialect.fieldValueFilter(Linking.Instance.ATTR_TYPE_ID, lt.getId()), null, 0, 0);
-         for (DataDocument doc : ls) {
-            String fromDocumentId = linkDirection == Linking.LinkDirection.FROM ? doc.getString(Linking.Instance.ATTR_FROM_ID) : doc.getString(Linking.Instance.ATTR_TO_ID);
-            String toDocumentId = linkDirection == Linking.LinkDirection.FROM ? doc.getString(Linking.Instance.ATTR_TO_ID) : doc.getString(Linking.Instance.ATTR_FROM_ID);
-            linkInstances.add(new LinkInstance(linkType, fromDocumentId, toDocumentId, doc.getDataDocument(Linking.Instance.ATTR_ATTRIBUTES)));
-         }
+      List<DataDocument> ls = dataStorage.search(buildCollectionName(), filterLinkingInstances(new ArrayList<>(linkTypes.keySet())), null, 0, 0);
+
+      List<LinkInstance> linkInstances = new ArrayList<>();
+      for (DataDocument doc : ls) {
+         String fromDocumentId = linkDirection == Linking.LinkDirection.FROM ? doc.getString(Linking.Instance.ATTR_FROM_ID) : doc.getString(Linking.Instance.ATTR_TO_ID);
+         String toDocumentId = linkDirection == Linking.LinkDirection.FROM ? doc.getString(Linking.Instance.ATTR_TO_ID) : doc.getString(Linking.Instance.ATTR_FROM_ID);
+         linkInstances.add(new LinkInstance(linkTypes.get(doc.getString(Linking.Instance.ATTR_TYPE_ID)), fromDocumentId, toDocumentId, doc.getDataDocument(Linking.Instance.ATTR_ATTRIBUTES)));
       }
       return linkInstances;
    }
@@ -186,10 +207,37 @@ public class LinkingFacade implements Serializable {
     * @return List of all linked documents.
     */
    public List<DataDocument> readLinkedDocumentsForDocument(final String collectionCode, final String documentId, final String role, final Linking.LinkDirection linkDirection) throws UserCollectionNotFoundException {
+      return readLinkedDocumentsForDocument(collectionCode, documentId, role, linkDirection, 0, 0);
+   }
+
+   /**
+    * Read one page of linking documents for specified document. The documents are ordered by the creation of their links
+    * and each page is loaded by a single query for the links and one query per linked collection.
+    *
+    * @param collectionCode
+    *       Collection code
+    * @param documentId
+    *       The id of the document to search for links.
+    * @param role
+    *       Role name.
+    * @param linkDirection
+    *       Direction of link, {@link Linking.LinkDirection#BOTH} pages through the links of both directions at once.
+    * @param page
+    *       The page number starting with 0.
+    * @param pageSize
+    *       The maximal number of links on the page, 0 means all links.
+    * @return List of linked documents on the page.
+    */
+   public List<DataDocument> readLinkedDocumentsForDocument(final String collectionCode, final String documentId, final String role, final Linking.LinkDirection linkDirection, final int page, final int pageSize) throws UserCollectionNotFoundException {
       String collectionId = getCollectionId(collectionCode);
 
-      List<DataDocument> linkingDocs = readLinkingTypesForCollection(collectionId, role, linkDirection);
-      return readDocumentsFromLinkInstances(linkingDocs, documentId, linkDirection);
+      Map<Linking.LinkDirection, List<DataDocument>> linkingDocs = new EnumMap<>(Linking.LinkDirection.class);
+      for (Linking.LinkDirection direction : Arrays.asList(Linking.LinkDirection.FROM, Linking.LinkDirection.TO)) {
+         if (linkDirection == Linking.LinkDirection.BOTH || linkDirection == direction) {
+            linkingDocs.put(direction, readLinkingTypesForCollection(collectionId, role, direction));
+         }
+      }
+      return readDocumentsFromLinkInstances(collectionId, linkingDocs, documentId, page * pageSize, pageSize);
    }
 
    /**
@@ -212,7 +260,7 @@ public class LinkingFacade implements Serializable {
       String secondCollectionId = getCollectionId(secondCollectionCode);
 
       List<DataDocument> linkingDocs = readLinkingTypesBetweenCollections(firstCollectionId, secondCollectionId, role, linkDirection);
-      return readDocumentsFromLinkInstances(linkingDocs, firstDocumentId, linkDirection);
+      return readDocumentsFromLinkInstances(firstCollectionId, Collections.singletonMap(linkDirection, linkingDocs), firstDocumentId, 0, 0);
    }
 
    /**
@@ -253,9 +301,17 @@ public class LinkingFacade implements Serializable {
          String id = lt.getId();
          dataStorage.dropManyDocuments(linkingCollectionName, filterLinkingInstance(id));
          dataStorage.dropDocument(Linking.Type.NAME, dataStorageDialect.documentIdFilter(id));
+         updateLinkGraph(graph -> graph.removeLinks(lt.getString(Linking.Type.ATTR_FROM_COLLECTION_ID), lt.getString(Linking.Type.ATTR_TO_COLLECTION_ID), lt.getString(Linking.Type.ATTR_ROLE)));
       }
    }
 
+   /**
+    * Drops the link graph of the current project, it is loaded again on its next use.
+    */
+   public void invalidateLinkGraph() {
+      linkGraphIndex.invalidate(projectFacade.getCurrentProjectId());
+   }
+
    /**
     * Drop link between two documents.
     *
@@ -281,6 +337,7 @@ public class LinkingFacade implements Serializable {
       for (DataDocument lt : linkingTypes) {
          String id = lt.getId();
          dataStorage.dropManyDocuments(collectionName, filterLinkingInstanceBetweenDocuments(id, firstDocumentId, secondDocumentId, linkDirection));
+         updateLinkGraph(graph -> graph.removeLinks(firstDocumentId, lt.getString(Linking.Type.ATTR_ROLE), linkDirection, null, secondDocumentId));
          if (linkTypeIsEmpty(id)) {
             dataStorage.dropDocument(Linking.Type.NAME, dataStorageDialect.documentIdFilter(id));
          }
@@ -338,6 +395,7 @@ public class LinkingFacade implements Serializable {
             .append(Linking.Instance.ATTR_TO_ID, linkDirection == Linking.LinkDirection.FROM ? secondDocumentId : firstDocumentId)
             .append(Linking.Instance.ATTR_ATTRIBUTES, attributes);
       dataStorage.createDocument(buildCollectionName(), dataDocument);
+      addToLinkGraph(firstCollectionId, firstDocumentId, secondCollectionId, secondDocumentId, role, linkDirection);
    }
 
    /**
@@ -373,22 +431,205 @@ public class LinkingFacade implements Serializable {
          );
       }
       dataStorage.createDocuments(buildCollectionName(), dataDocuments);
+      for (String secondDocumentId : secondDocumentsIds) {
+         addToLinkGraph(firstCollectionId, firstDocumentId, secondCollectionId, secondDocumentId, role, linkDirection);
+      }
    }
 
-   private List<DataDocument> readDocumentsFromLinkInstances(final List<DataDocument> linkingDocs, final String documentId, final Linking.LinkDirection linkDirection) {
-      List<DataDocument> links = new ArrayList<>();
-      String collectionName = buildCollectionName();
-      for (DataDocument lt : linkingDocs) {
-         String readCollectionNameId = linkDirection == Linking.LinkDirection.FROM ? lt.getString(Linking.Type.ATTR_TO_COLLECTION_ID) : lt.getString(Linking.Type.ATTR_FROM_COLLECTION_ID);
-         String readCollectionName = collectionMetadataFacade.getCollectionCode(readCollectionNameId);
-         String param = linkDirection == Linking.LinkDirection.FROM ? Linking.Instance.ATTR_TO_ID : Linking.Instance.ATTR_FROM_ID;
-         List<DataDocument> docs = dataStorage.search(collectionName, filterLinkingInstanceForDocument(lt.getId(), documentId, linkDirection), null, 0, 0);
-         for (DataDocument dc : docs) {
-            String id = dc.getString(param);
-            DataDocument doc = dataStorage.readDocument(readCollectionName, dataStorageDialect.documentIdFilter(id));
-            if (doc != null) {
-               links.add(doc);
+   /**
+    * Finds the documents reachable from the given document within the given number of hops.
+    *
+    * @param collectionCode
+    *       The code of the document's collection.
+    * @param documentId
+    *       The id of the start document.
+    * @param role
+    *       Role of the followed links, null follows links of any role.
+    * @param linkDirection
+    *       Direction of the followed links.
+    * @param depth
+    *       The maximal number of hops.
+    * @return Ids of the readable reachable documents with their collection code and distance, the closest documents first.
+    * @throws DocumentNotFoundException
+    *       When the document is not in the collection.
+    */
+   public List<DataDocument> readReachableDocuments(final String collectionCode, final String documentId, final String role, final Linking.LinkDirection linkDirection, final int depth) throws UserCollectionNotFoundException, DocumentNotFoundException {
+      LinkGraph graph = getLinkGraph(collectionCode, documentId);
+      Map<String, String> collectionCodes = new HashMap<>();
+      Map<String, Boolean> readableCollections = new HashMap<>();
+      return graph.getReachableDocuments(documentId, role, linkDirection, depth).entrySet().stream()
+                  .map(entry -> createGraphDocument(graph, entry.getKey(), collectionCodes).append(Linking.Graph.ATTR_DISTANCE, entry.getValue()))
+                  .filter(document -> isReadable(document, readableCollections))
+                  .collect(Collectors.toList());
+   }
+
+   /**
+    * Finds the shortest path between two documents.
+    *
+    * @param collectionCode
+    *       The code of the start document's collection.
+    * @param documentId
+    *       The id of the start document.
+    * @param targetDocumentId
+    *       The id of the target document.
+    * @param role
+    *       Role of the followed links, null follows links of any role.
+    * @param linkDirection
+    *       Direction of the followed links.
+    * @param depth
+    *       The maximal length of the path.
+    * @return Ids of the documents on the path with their collection code, empty when there is no such path or when
+    * some document on the path is not readable.
+    * @throws DocumentNotFoundException
+    *       When the start document is not in the collection.
+    */
+   public List<DataDocument> readShortestPath(final String collectionCode, final String documentId, final String targetDocumentId, final String role, final Linking.LinkDirection linkDirection, final int depth) throws UserCollectionNotFoundException, DocumentNotFoundException {
+      LinkGraph graph = getLinkGraph(collectionCode, documentId);
+      Map<String, String> collectionCodes = new HashMap<>();
+      Map<String, Boolean> readableCollections = new HashMap<>();
+      List<DataDocument> path = graph.getShortestPath(documentId, targetDocumentId, role, linkDirection, depth).stream()
+                                     .map(id -> createGraphDocument(graph, id, collectionCodes))
+                                     .collect(Collectors.toList());
+
+      // a path with hidden documents would reveal them anyway
+      return path.stream().allMatch(document -> isReadable(document, readableCollections)) ? path : Collections.emptyList();
+   }
+
+   /**
+    * Counts the distinct documents linked with the given document.
+    *
+    * @param collectionCode
+    *       The code of the document's collection.
+    * @param documentId
+    *       The id of the document.
+    * @param role
+    *       Role of the counted links, null counts links of any role.
+    * @param linkDirection
+    *       Direction of the counted links.
+    * @return The number of readable linked documents.
+    * @throws DocumentNotFoundException
+    *       When the document is not in the collection.
+    */
+   public int countLinkedDocuments(final String collectionCode, final String documentId, final String role, final Linking.LinkDirection linkDirection) throws UserCollectionNotFoundException, DocumentNotFoundException {
+      return readReachableDocuments(collectionCode, documentId, role, linkDirection, 1).size();
+   }
+
+   private DataDocument createGraphDocument(final LinkGraph graph, final String documentId, final Map<String, String> collectionCodes) {
+      String collectionCode = collectionCodes.computeIfAbsent(graph.getCollectionId(documentId), collectionMetadataFacade::getCollectionCode);
+      return new DataDocument(LumeerConst.Document.ID, documentId)
+            .append(Linking.Graph.ATTR_COLLECTION, collectionCode);
+   }
+
+   /**
+    * Gets the link graph of the current project and checks that the start document belongs to the collection.
+    * Documents without links are not in the graph, there is nothing to reveal about them.
+    */
+   private LinkGraph getLinkGraph(final String collectionCode, final String documentId) throws UserCollectionNotFoundException, DocumentNotFoundException {
+      String collectionId = getCollectionId(collectionCode);
+
+      LinkGraph graph = getLinkGraph();
+      String documentCollectionId = graph.getCollectionId(documentId);
+      if (documentCollectionId != null && !documentCollectionId.equals(collectionId)) {
+         throw new DocumentNotFoundException(ErrorMessageBuilder.documentNotFoundString());
+      }
+      return graph;
+   }
+
+   private boolean isReadable(final DataDocument graphDocument, final Map<String, Boolean> readableCollections) {
+      String collectionCode = graphDocument.getString(Linking.Graph.ATTR_COLLECTION);
+      return collectionCode != null && readableCollections.computeIfAbsent(collectionCode,
+            code -> collectionMetadataFacade.hasRole(projectFacade.getCurrentProjectCode(), code, LumeerConst.Security.ROLE_READ));
+   }
+
+   private LinkGraph getLinkGraph() {
+      return linkGraphIndex.getGraph(projectFacade.getCurrentProjectId(), this::loadLinkGraph);
+   }
+
+   private LinkGraph loadLinkGraph() {
+      LinkGraph graph = new LinkGraph();
+      Map<String, DataDocument> linkTypes = dataStorage.search(Linking.Type.NAME, dataStorageDialect.fieldValueFilter(Linking.Type.ATTR_PROJECT, projectFacade.getCurrentProjectId()), null, 0, 0).stream()
+                                                       .collect(Collectors.toMap(DataDocument::getId, Function.identity()));
+      String linkingCollectionName = buildCollectionName();
+      if (linkTypes.isEmpty() || !dataStorage.hasCollection(linkingCollectionName)) {
+         return graph;
+      }
+
+      List<String> attributes = Arrays.asList(Linking.Instance.ATTR_TYPE_ID, Linking.Instance.ATTR_FROM_ID, Linking.Instance.ATTR_TO_ID);
+      try (Stream<DataDocument> instances = dataStorage.stream(linkingCollectionName, null, null, attributes, GRAPH_LOAD_BATCH_SIZE)) {
+         instances.forEach(instance -> {
+            DataDocument lt = linkTypes.get(instance.getString(Linking.Instance.ATTR_TYPE_ID));
+            if (lt != null) {
+               graph.addLink(lt.getString(Linking.Type.ATTR_FROM_COLLECTION_ID), instance.getString(Linking.Instance.ATTR_FROM_ID),
+                     lt.getString(Linking.Type.ATTR_TO_COLLECTION_ID), instance.getString(Linking.Instance.ATTR_TO_ID), lt.getString(Linking.Type.ATTR_ROLE));
             }
+         });
+      }
+      return graph;
+   }
+
+   private void addToLinkGraph(final String firstCollectionId, final String firstDocumentId, final String secondCollectionId, final String secondDocumentId, final String role, final Linking.LinkDirection linkDirection) {
+      if (linkDirection == Linking.LinkDirection.FROM) {
+         updateLinkGraph(graph -> graph.addLink(firstCollectionId, firstDocumentId, secondCollectionId, secondDocumentId, role));
+      } else {
+         updateLinkGraph(graph -> graph.addLink(secondCollectionId, secondDocumentId, firstCollectionId, firstDocumentId, role));
+      }
+   }
+
+   private void updateLinkGraph(final Consumer<LinkGraph> update) {
+      linkGraphIndex.update(projectFacade.getCurrentProjectId(), update);
+   }
+
+   private List<DataDocument> readDocumentsFromLinkInstances(final String collectionId, final Map<Linking.LinkDirection, List<DataDocument>> linkingDocs, final String documentId, final int skip, final int limit) {
+      Map<String, DataDocument> linkTypes = new HashMap<>();
+      List<DataFilter> instanceFilters = new ArrayList<>();
+      linkingDocs.forEach((direction, lts) -> {
+         if (!lts.isEmpty()) {
+            lts.forEach(lt -> linkTypes.put(lt.getId(), lt));
+            instanceFilters.add(filterLinkingInstancesForDocument(lts.stream().map(DataDocument::getId).collect(Collectors.toList()), documentId, direction));
+         }
+      });
+      if (instanceFilters.isEmpty()) {
+         return new ArrayList<>();
+      }
+
+      DataFilter filter = instanceFilters.size() == 1 ? instanceFilters.get(0) : dataStorageDialect.anyOfFilters(instanceFilters.toArray(new DataFilter[0]));
+      DataSort sort = limit > 0 ? dataStorageDialect.documentFieldSort(LumeerConst.Document.ID, LumeerConst.SORT_ASCENDING_ORDER) : null;
+      List<DataDocument> instances = dataStorage.search(buildCollectionName(), filter, sort, skip, limit);
+
+      // target collection id and target document id of each link, in the order of the links
+      List<String[]> targets = new ArrayList<>();
+      Map<String, List<String>> documentIdsByCollection = new HashMap<>();
+      for (DataDocument instance : instances) {
+         DataDocument lt = linkTypes.get(instance.getString(Linking.Instance.ATTR_TYPE_ID));
+         boolean outgoing = documentId.equals(instance.getString(Linking.Instance.ATTR_FROM_ID)) && collectionId.equals(lt.getString(Linking.Type.ATTR_FROM_COLLECTION_ID));
+         String targetCollectionId = outgoing ? lt.getString(Linking.Type.ATTR_TO_COLLECTION_ID) : lt.getString(Linking.Type.ATTR_FROM_COLLECTION_ID);
+         String targetDocumentId = outgoing ? instance.getString(Linking.Instance.ATTR_TO_ID) : instance.getString(Linking.Instance.ATTR_FROM_ID);
+
+         targets.add(new String[] { targetCollectionId, targetDocumentId });
+         documentIdsByCollection.computeIfAbsent(targetCollectionId, id -> new ArrayList<>()).add(targetDocumentId);
+      }
+
+      Map<String, Map<String, DataDocument>> documents = new HashMap<>();
+      documentIdsByCollection.forEach((targetCollectionId, ids) -> {
+         String targetCollectionCode = collectionMetadataFacade.getCollectionCode(targetCollectionId);
+         Map<String, DataDocument> collectionDocuments = new HashMap<>();
+         documents.put(targetCollectionId, collectionDocuments);
+         if (targetCollectionCode == null) {
+            return;
+         }
+
+         for (int i = 0; i < ids.size(); i += READ_BATCH_SIZE) {
+            List<String> batch = ids.subList(i, Math.min(i + READ_BATCH_SIZE, ids.size()));
+            dataStorage.search(targetCollectionCode, dataStorageDialect.documentIdsFilter(batch), null, 0, 0)
+                       .forEach(doc -> collectionDocuments.put(doc.getId(), doc));
+         }
+      });
+
+      List<DataDocument> links = new ArrayList<>();
+      for (String[] target : targets) {
+         DataDocument doc = documents.get(target[0]).get(target[1]);
+         if (doc != null) {
+            links.add(doc);
          }
       }
       return links;
@@ -399,6 +640,8 @@ public class LinkingFacade implements Serializable {
       for (DataDocument lt : linkingDocs) {
          String id = lt.getId();
          dataStorage.dropManyDocuments(collectionName, filterLinkingInstanceForDocument(id, documentId, linkDirection));
+         String otherCollectionId = linkDirection == Linking.LinkDirection.FROM ? lt.getString(Linking.Type.ATTR_TO_COLLECTION_ID) : lt.getString(Linking.Type.ATTR_FROM_COLLECTION_ID);
+         updateLinkGraph(graph -> graph.removeLinks(documentId, lt.getString(Linking.Type.ATTR_ROLE), linkDirection, otherCollectionId, null));
          if (linkTypeIsEmpty(id)) {
             dataStorage.dropDocument(Linking.Type.NAME, dataStorageDialect.documentIdFilter(id));
          }
@@ -456,6 +699,15 @@ public class LinkingFacade implements Serializable {
       return dataStorageDialect.fieldValueFilter(Linking.Instance.ATTR_TYPE_ID, typeId);
    }
 
+   private DataFilter filterLinkingInstances(final List<String> typeIds) {
+      return dataStorageDialect.fieldValuesFilter(Linking.Instance.ATTR_TYPE_ID, typeIds);
+   }
+
+   private DataFilter filterLinkingInstancesForDocument(final List<String> typeIds, final String documentId, Linking.LinkDirection linkDirection) {
+      return dataStorageDialect.combineFilters(filterLinkingInstances(typeIds),
+            dataStorageDialect.fieldValueFilter(linkDirection == Linking.LinkDirection.FROM ? Linking.Instance.ATTR_FROM_ID : Linking.Instance.ATTR_TO_ID, documentId));
+   }
+
    private DataFilter filterLinkingInstanceForDocument(final String typeId, final String documentId, Linking.LinkDirection linkDirection) {
       Map<String, Object> fields = new HashMap<>();
       fields.put(Linking.Instance.ATTR_TYPE_ID, typeId);
@@ -496,9 +748,9 @@ public class LinkingFacade implements Serializable {
       return Linking.PREFIX + "_" + projectFacade.getCurrentProjectId();
    }
 
-   private LinkType convertLinkTypeToRealNames(DataDocument linkType) {
-      String fromCollection = collectionMetadataFacade.getCollectionName(linkType.getString(Linking.Type.ATTR_FROM_COLLECTION_ID));
-      String toCollection = collectionMetadataFacade.getCollectionName(linkType.getString(Linking.Type.ATTR_TO_COLLECTION_ID));
+   private LinkType convertLinkTypeToRealNames(DataDocument linkType, Map<String, String> collectionNames) {
+      String fromCollection = collectionNames.computeIfAbsent(linkType.getString(Linking.Type.ATTR_FROM_COLLECTION_ID), collectionMetadataFacade::getCollectionName);
+      String toCollection = collectionNames.computeIfAbsent(linkType.getString(Linking.Type.ATTR_TO_COLLECTION_ID), collectionMetadataFacade::getCollectionName);
       return new LinkType(fromCollection, toCollection, Linking.Type.ATTR_ROLE);
    }
 
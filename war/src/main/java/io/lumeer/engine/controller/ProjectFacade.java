@@ -60,6 +60,9 @@ public class ProjectFacade {
    @Inject
    private UserFacade userFacade;
 
+   @Inject
+   private LinkGraphIndex linkGraphIndex;
+
    private String projectCode = "default";
    private String projectId = null;
 
@@ -272,7 +275,11 @@ public class ProjectFacade {
     *       code of the project to drop
     */
    public void dropProject(final String projectCode) {
+      String projectId = getProjectId(projectCode);
       dataStorage.dropDocument(LumeerConst.Project.COLLECTION_NAME, projectCodeFilter(projectCode));
+      if (projectId != null) {
+         linkGraphIndex.invalidate(projectId);
+      }
    }
 
    private DataFilter projectCodeFilter(String projectCode) {
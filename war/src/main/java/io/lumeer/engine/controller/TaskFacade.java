@@ -0,0 +1,107 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.controller;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.exception.UnauthorizedAccessException;
+import io.lumeer.engine.api.exception.UnsuccessfulOperationException;
+import io.lumeer.engine.api.task.TaskInfo;
+import io.lumeer.engine.task.TaskProcessor;
+
+import java.io.Serializable;
+import javax.enterprise.context.SessionScoped;
+import javax.inject.Inject;
+
+/**
+ * Gives access to the background tasks of the current project. Only the user who created a task and the managers
+ * of the organization can see and control it.
+ */
+@SessionScoped
+public class TaskFacade implements Serializable {
+
+   private static final long serialVersionUID = 4810375209185712467L;
+
+   @Inject
+   private TaskProcessor taskProcessor;
+
+   @Inject
+   private OrganizationFacade organizationFacade;
+
+   @Inject
+   private ProjectFacade projectFacade;
+
+   @Inject
+   private SecurityFacade securityFacade;
+
+   @Inject
+   private UserFacade userFacade;
+
+   /**
+    * Gets state and progress of a task.
+    *
+    * @param taskId
+    *       Id of the task.
+    * @return The task info or null when there is no such task in the project.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the task nor a manager of the organization.
+    */
+   public TaskInfo getTask(final String taskId) throws UnauthorizedAccessException {
+      final TaskInfo task = taskProcessor.getTaskInfo(organizationFacade.getOrganizationCode(), projectFacade.getCurrentProjectId(), taskId);
+      if (task != null && !userFacade.getUserEmail().equals(task.getUser())
+            && !securityFacade.hasOrganizationRole(organizationFacade.getOrganizationCode(), LumeerConst.Security.ROLE_MANAGE)) {
+         throw new UnauthorizedAccessException();
+      }
+      return task;
+   }
+
+   /**
+    * Cancels a task. A running task stops at its next checkpoint.
+    *
+    * @param taskId
+    *       Id of the task.
+    * @return The task info or null when there is no such task in the project.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the task nor a manager of the organization.
+    */
+   public TaskInfo cancelTask(final String taskId) throws UnauthorizedAccessException {
+      if (getTask(taskId) == null) {
+         return null;
+      }
+      return taskProcessor.cancel(organizationFacade.getOrganizationCode(), projectFacade.getCurrentProjectId(), taskId);
+   }
+
+   /**
+    * Resumes a cancelled or failed task from its last checkpoint.
+    *
+    * @param taskId
+    *       Id of the task.
+    * @return The task info or null when there is no such task in the project.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the task nor a manager of the organization.
+    * @throws UnsuccessfulOperationException
+    *       When the task is neither cancelled nor failed.
+    */
+   public TaskInfo resumeTask(final String taskId) throws UnauthorizedAccessException, UnsuccessfulOperationException {
+      if (getTask(taskId) == null) {
+         return null;
+      }
+      return taskProcessor.resume(organizationFacade.getOrganizationCode(), projectFacade.getCurrentProjectId(), taskId);
+   }
+}
@@ -29,19 +29,39 @@ import io.lumeer.engine.api.exception.AttributeNotFoundException;
 import io.lumeer.engine.api.exception.CollectionNotFoundException;
 import io.lumeer.engine.api.exception.DocumentNotFoundException;
 import io.lumeer.engine.api.exception.VersionUpdateConflictException;
+import io.lumeer.engine.task.TaskProcessor;
+import io.lumeer.engine.task.VersionCompactionTask;
 import io.lumeer.engine.util.ErrorMessageBuilder;
+import io.lumeer.engine.util.VersionHistory;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.enterprise.context.SessionScoped;
 import javax.inject.Inject;
 
 /**
  * Provides document versioning capabilities.
+ * Old versions are kept in a shadow collection. With {@value LumeerConst.Version#SNAPSHOT_INTERVAL_PROPERTY} greater than 1,
+ * only every n-th version is stored as a full copy and the others as deltas against it, see {@link VersionHistory}.
+ * When {@value LumeerConst.Version#RETENTION_COUNT_PROPERTY} or {@value LumeerConst.Version#RETENTION_DAYS_PROPERTY}
+ * is set, old versions of a document are dropped by a background task.
  */
 @SessionScoped
 public class VersionFacade implements Serializable {
 
+   /**
+    * Minimal number of versions between two compactions of a document.
+    */
+   private static final int COMPACTION_INTERVAL = 10;
+
    @Inject
    @UserDataStorage
    private DataStorage dataStorage;
@@ -49,6 +69,18 @@ public class VersionFacade implements Serializable {
    @Inject
    private DataStorageDialect dataStorageDialect;
 
+   @Inject
+   private TaskProcessor taskProcessor;
+
+   @Inject
+   private OrganizationFacade organizationFacade;
+
+   @Inject
+   private ProjectFacade projectFacade;
+
+   @Inject
+   private UserFacade userFacade;
+
    /**
     * Return document version.
     *
@@ -154,6 +186,87 @@ public class VersionFacade implements Serializable {
       return newVersion;
    }
 
+   /**
+    * Creates new versions of many documents at once. Backups of all documents are written to shadow collection
+    * in a single bulk insert and the documents are then updated in a single bulk write.
+    * A document the backup of which already exists is not updated, the conflict is reported instead.
+    *
+    * @param collectionCode
+    *       collection name, where documents are stored
+    * @param actualDocuments
+    *       existing documents
+    * @param newDocuments
+    *       new versions of the documents in the same order as the existing documents,
+    *       their version is set to the new version of the document
+    * @param replace
+    *       whether perform replace or update
+    * @return conflicts by ids of the documents that were not updated, empty map when all documents were updated
+    * @throws AttributeNotFoundException
+    *       if any of the documents does not contain id
+    */
+   public Map<String, VersionUpdateConflictException> newDocumentVersions(String collectionCode, List<DataDocument> actualDocuments, List<DataDocument> newDocuments, boolean replace) throws AttributeNotFoundException {
+      if (actualDocuments.size() != newDocuments.size()) {
+         throw new IllegalArgumentException("Each existing document must have exactly one new version.");
+      }
+      if (actualDocuments.stream().anyMatch(document -> document.getId() == null)) {
+         throw new AttributeNotFoundException(ErrorMessageBuilder.idNotFoundString());
+      }
+
+      createShadowCollection(collectionCode);
+
+      final String shadowCollection = buildShadowCollectionName(collectionCode);
+      final int snapshotInterval = Integer.getInteger(LumeerConst.Version.SNAPSHOT_INTERVAL_PROPERTY, LumeerConst.Version.DEFAULT_SNAPSHOT_INTERVAL);
+
+      actualDocuments.forEach(this::createMetadata);
+      final Map<String, DataDocument> snapshots = readSnapshots(shadowCollection, actualDocuments, snapshotInterval);
+
+      final List<DataDocument> backups = new ArrayList<>();
+      for (DataDocument actualDocument : actualDocuments) {
+         final int version = getDocumentVersion(actualDocument);
+         final int snapshotVersion = VersionHistory.getSnapshotVersion(version, snapshotInterval);
+
+         final DataDocument backup = snapshotVersion == version ? actualDocument : createBackup(actualDocument, snapshots.get(actualDocument.getId()), snapshotVersion);
+         backup.setId(actualDocument.getId());
+         backups.add(backup);
+      }
+
+      final Set<Integer> conflicting = new HashSet<>(dataStorage.createOldDocuments(shadowCollection, backups));
+      final Map<String, VersionUpdateConflictException> conflicts = new HashMap<>();
+      final List<DataDocument> updatedDocuments = new ArrayList<>();
+      final List<String> compactedIds = new ArrayList<>();
+
+      for (int i = 0; i < actualDocuments.size(); i++) {
+         final String id = actualDocuments.get(i).getId();
+         final int oldVersion = getDocumentVersion(actualDocuments.get(i));
+
+         if (conflicting.contains(i)) {
+            conflicts.put(id, new VersionUpdateConflictException("Version " + oldVersion + " of document " + id + " has already been backed up."));
+         } else {
+            final DataDocument newDocument = newDocuments.get(i);
+            createMetadata(newDocument);
+            newDocument.replace(LumeerConst.Document.METADATA_VERSION_KEY, oldVersion + 1);
+            newDocument.setId(id);
+            updatedDocuments.add(newDocument);
+
+            if (oldVersion % Math.max(snapshotInterval, COMPACTION_INTERVAL) == 0) {
+               compactedIds.add(id);
+            }
+         }
+      }
+
+      if (!compactedIds.isEmpty()) {
+         compactVersions(shadowCollection, compactedIds);
+      }
+
+      if (replace) {
+         dataStorage.replaceDocuments(collectionCode, updatedDocuments);
+      } else {
+         dataStorage.updateDocuments(collectionCode, updatedDocuments);
+      }
+
+      return conflicts;
+   }
+
    /**
     * Create shadow collection if not created. Backup document with
     * same id as document in collection. Then replace document in
@@ -226,13 +339,108 @@ public class VersionFacade implements Serializable {
       createMetadata(document);
       createShadowCollection(collectionCode);
 
+      final String shadowCollection = buildShadowCollectionName(collectionCode);
+      final int version = getDocumentVersion(document);
+      final int snapshotInterval = Integer.getInteger(LumeerConst.Version.SNAPSHOT_INTERVAL_PROPERTY, LumeerConst.Version.DEFAULT_SNAPSHOT_INTERVAL);
+
       try {
-         dataStorage.createOldDocument(buildShadowCollectionName(collectionCode), document, document.getId(), getDocumentVersion(document));
+         dataStorage.createOldDocument(shadowCollection, createBackup(shadowCollection, document, version, snapshotInterval), document.getId(), version);
       } catch (Exception e) {
          throw new VersionUpdateConflictException(e.getMessage(), e.getCause());
       }
 
-      return getDocumentVersion(document);
+      if (version % Math.max(snapshotInterval, COMPACTION_INTERVAL) == 0) {
+         compactVersions(shadowCollection, Collections.singletonList(document.getId()));
+      }
+
+      return version;
+   }
+
+   /**
+    * Creates the document to be stored in shadow collection. The document is stored as a delta when its snapshot exists.
+    *
+    * @param shadowCollection
+    *       shadow collection name
+    * @param document
+    *       document to back up
+    * @param version
+    *       version of the document
+    * @param snapshotInterval
+    *       number of versions between two snapshots
+    * @return the full document or its delta
+    */
+   private DataDocument createBackup(String shadowCollection, DataDocument document, int version, int snapshotInterval) {
+      final int snapshotVersion = VersionHistory.getSnapshotVersion(version, snapshotInterval);
+      if (snapshotVersion == version) {
+         return document;
+      }
+
+      final DataDocument snapshot = dataStorage.readDocument(shadowCollection, dataStorageDialect.documentNestedIdFilterWithVersion(document.getId(), snapshotVersion));
+
+      return createBackup(document, snapshot, snapshotVersion);
+   }
+
+   /**
+    * Creates the document to be stored in shadow collection against an already read snapshot.
+    *
+    * @param document
+    *       document to back up
+    * @param snapshot
+    *       stored snapshot of the document, null when it does not exist
+    * @param snapshotVersion
+    *       version of the snapshot
+    * @return the full document or its delta
+    */
+   private DataDocument createBackup(DataDocument document, DataDocument snapshot, int snapshotVersion) {
+      return snapshot != null && !VersionHistory.isDelta(snapshot) ? VersionHistory.createDelta(snapshot, document, snapshotVersion) : document;
+   }
+
+   /**
+    * Reads the snapshots needed to back up the given documents with a single query.
+    *
+    * @param shadowCollection
+    *       shadow collection name
+    * @param documents
+    *       documents to back up
+    * @param snapshotInterval
+    *       number of versions between two snapshots
+    * @return stored snapshots by ids of the documents, documents stored as snapshots themselves are not present
+    */
+   private Map<String, DataDocument> readSnapshots(String shadowCollection, List<DataDocument> documents, int snapshotInterval) {
+      final Map<String, Integer> snapshotVersions = new HashMap<>();
+      for (DataDocument document : documents) {
+         final int version = getDocumentVersion(document);
+         final int snapshotVersion = VersionHistory.getSnapshotVersion(version, snapshotInterval);
+         if (snapshotVersion != version) {
+            snapshotVersions.put(document.getId(), snapshotVersion);
+         }
+      }
+
+      if (snapshotVersions.isEmpty()) {
+         return Collections.emptyMap();
+      }
+
+      return dataStorage.search(shadowCollection, dataStorageDialect.documentNestedIdsFilterWithVersions(snapshotVersions), null, 0, 0)
+                        .stream()
+                        .collect(Collectors.toMap(snapshot -> snapshot.getDataDocument(LumeerConst.Document.ID).getString(LumeerConst.Document.ID), Function.identity(), (s1, s2) -> s1));
+   }
+
+   /**
+    * Schedules dropping of the document versions out of the retention limits. All given documents are compacted by a single task.
+    *
+    * @param shadowCollection
+    *       shadow collection name
+    * @param documentIds
+    *       ids of documents
+    */
+   private void compactVersions(String shadowCollection, List<String> documentIds) {
+      final int retentionCount = Integer.getInteger(LumeerConst.Version.RETENTION_COUNT_PROPERTY, 0);
+      final int retentionDays = Integer.getInteger(LumeerConst.Version.RETENTION_DAYS_PROPERTY, 0);
+
+      if (retentionCount > 0 || retentionDays > 0) {
+         taskProcessor.submit(LumeerConst.Version.TASK_TYPE, organizationFacade.getOrganizationCode(), projectFacade.getCurrentProjectId(),
+               userFacade.getUserEmail(), VersionCompactionTask.createParameters(shadowCollection, documentIds, retentionCount, retentionDays));
+      }
    }
 
    /**
@@ -303,10 +511,22 @@ public class VersionFacade implements Serializable {
     *       if document cannot be found
     */
    public DataDocument readOldDocumentVersion(String collectionCode, String documentId, int version) throws DocumentNotFoundException {
-      final DataDocument data = dataStorage.readDocument(buildShadowCollectionName(collectionCode), dataStorageDialect.documentNestedIdFilterWithVersion(documentId, version));
+      final String shadowCollection = buildShadowCollectionName(collectionCode);
+      final DataDocument data = dataStorage.readDocument(shadowCollection, dataStorageDialect.documentNestedIdFilterWithVersion(documentId, version));
       if (data == null) {
          throw new DocumentNotFoundException(ErrorMessageBuilder.documentNotFoundString());
       }
+
+      if (VersionHistory.isDelta(data)) {
+         final DataDocument snapshot = dataStorage.readDocument(shadowCollection,
+               dataStorageDialect.documentNestedIdFilterWithVersion(documentId, VersionHistory.getBaseVersion(data)));
+         if (snapshot == null) {
+            throw new DocumentNotFoundException(ErrorMessageBuilder.documentNotFoundString());
+         }
+
+         return VersionHistory.applyDelta(snapshot, data);
+      }
+
       return data;
    }
 
@@ -323,8 +543,26 @@ public class VersionFacade implements Serializable {
     *       if collection does not exists
     */
    public List<DataDocument> getDocumentVersions(String collectionCode, String documentId) throws CollectionNotFoundException {
+      final String shadowCollection = buildShadowCollectionName(collectionCode);
       final DataFilter filter = dataStorageDialect.documentNestedIdFilter(documentId);
-      List<DataDocument> dataDocuments = dataStorage.search(buildShadowCollectionName(collectionCode), filter, null, 0, 100);
+      final List<DataDocument> shadowDocuments = dataStorage.search(shadowCollection, filter, null, 0, 100);
+
+      // deltas are applied to snapshots from the same result, missing snapshots are read just once
+      final Map<Integer, DataDocument> snapshots = new HashMap<>();
+      shadowDocuments.stream().filter(document -> !VersionHistory.isDelta(document)).forEach(document -> snapshots.put(getDocumentVersion(document), document));
+
+      final List<DataDocument> dataDocuments = new ArrayList<>();
+      for (DataDocument document : shadowDocuments) {
+         if (VersionHistory.isDelta(document)) {
+            final DataDocument snapshot = snapshots.computeIfAbsent(VersionHistory.getBaseVersion(document),
+                  version -> dataStorage.readDocument(shadowCollection, dataStorageDialect.documentNestedIdFilterWithVersion(documentId, version)));
+            if (snapshot != null) {
+               dataDocuments.add(VersionHistory.applyDelta(snapshot, document));
+            }
+         } else {
+            dataDocuments.add(document);
+         }
+      }
 
       DataDocument main = dataStorage.readDocument(collectionCode, dataStorageDialect.documentIdFilter(documentId));
       dataDocuments.add(main);
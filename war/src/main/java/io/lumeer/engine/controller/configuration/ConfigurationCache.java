@@ -0,0 +1,102 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.controller.configuration;
+
+import io.lumeer.engine.api.cache.Cache;
+import io.lumeer.engine.api.cache.CacheFactory;
+import io.lumeer.engine.api.cache.CacheInvalidationChannel;
+import io.lumeer.engine.api.dto.Config;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Caches the configurations resolved over all configuration levels by user, organization and project.
+ * Any configuration change invalidates the whole cache on all nodes, because a change of an organization or project
+ * configuration affects the resolved configurations of all their users.
+ * Every invalidation increments a generation counter, a loaded configuration is kept only when no invalidation happened
+ * while it was being loaded.
+ */
+@ApplicationScoped
+public class ConfigurationCache {
+
+   private static final String CONFIGURATION_CACHE = "configurations";
+
+   @Inject
+   private CacheFactory cacheFactory;
+
+   @Inject
+   private CacheInvalidationChannel invalidationChannel;
+
+   private Cache<Map<String, Config>> configurationCache;
+
+   private final AtomicLong generation = new AtomicLong();
+
+   @PostConstruct
+   public void initCache() {
+      configurationCache = cacheFactory.getCache(CONFIGURATION_CACHE);
+      invalidationChannel.subscribe(CONFIGURATION_CACHE, key -> {
+         generation.incrementAndGet();
+         configurationCache.clear();
+      });
+   }
+
+   /**
+    * Gets the resolved configurations, they are loaded when they are not cached.
+    *
+    * @param user
+    *       User email.
+    * @param organization
+    *       Organization id.
+    * @param project
+    *       Project id.
+    * @param loader
+    *       Loads the resolved configurations by their keys.
+    * @return The resolved configurations by their keys.
+    */
+   public Map<String, Config> getConfigurations(final String user, final String organization, final String project, final Supplier<Map<String, Config>> loader) {
+      String key = user + "/" + organization + "/" + project;
+      Map<String, Config> configurations = configurationCache.get(key);
+      if (configurations == null) {
+         long readGeneration = generation.get();
+         configurations = loader.get();
+         setIfCurrent(key, configurations, readGeneration);
+      }
+      return configurations;
+   }
+
+   private void setIfCurrent(String key, Map<String, Config> configurations, long readGeneration) {
+      configurationCache.set(key, configurations);
+      if (generation.get() != readGeneration) {
+         // a configuration may have changed while it was being loaded, the next read loads it again
+         configurationCache.remove(key);
+      }
+   }
+
+   public void clear() {
+      generation.incrementAndGet();
+      configurationCache.clear();
+      invalidationChannel.publish(CONFIGURATION_CACHE, null);
+   }
+}
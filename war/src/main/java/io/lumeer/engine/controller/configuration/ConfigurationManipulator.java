@@ -50,6 +50,9 @@ public class ConfigurationManipulator implements Serializable {
    @SystemDataStorage
    private DataStorage systemDataStorage;
 
+   @Inject
+   private ConfigurationCache configurationCache;
+
    /**
     * Removes the whole attribute located in 'config' field in configuration entry.
     *
@@ -63,6 +66,7 @@ public class ConfigurationManipulator implements Serializable {
    public void resetConfigurationAttribute(final String collectionName, final String namevalue, final String attributeName) {
       systemDataStorage.removeItemFromArray(collectionName, entryFilter(namevalue),
             LumeerConst.Configuration.CONFIGS, new DataDocument(LumeerConst.Configuration.CONFIGS_CONFIG_KEY, attributeName));
+      configurationCache.clear();
    }
 
    /**
@@ -156,6 +160,24 @@ public class ConfigurationManipulator implements Serializable {
       return configs.stream().map(Config::new).collect(Collectors.toList());
    }
 
+   /**
+    * Returns all configurations of several entries read by a single query.
+    *
+    * @param collectionName
+    *       the name of collection in system database
+    * @param nameValues
+    *       the unique name values of stored configuration entries
+    * @return Map from the name values of existing entries to their configurations
+    */
+   public Map<String, List<Config>> getConfigurations(final String collectionName, final List<String> nameValues) {
+      List<DataDocument> documents = systemDataStorage.search(collectionName, dataStorageDialect.fieldValuesFilter(LumeerConst.Configuration.NAMEVALUE, nameValues), null);
+
+      Map<String, List<Config>> configurations = new HashMap<>();
+      documents.forEach(document -> configurations.put(document.getString(LumeerConst.Configuration.NAMEVALUE),
+            document.getArrayList(LumeerConst.Configuration.CONFIGS, DataDocument.class).stream().map(Config::new).collect(Collectors.toList())));
+      return configurations;
+   }
+
    private DataFilter entryFilter(final String nameValue) {
       return dataStorageDialect.fieldValueFilter(LumeerConst.Configuration.NAMEVALUE, nameValue);
    }
@@ -176,6 +198,7 @@ public class ConfigurationManipulator implements Serializable {
             .append(LumeerConst.Configuration.NAMEVALUE, nameValue)
             .append(LumeerConst.Configuration.CONFIGS, configsDocuments);
       systemDataStorage.updateDocument(collectionName, configDocument, entryFilter(nameValue));
+      configurationCache.clear();
    }
 
 }
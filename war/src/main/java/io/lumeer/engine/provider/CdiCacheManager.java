@@ -60,7 +60,7 @@ public class CdiCacheManager implements CacheManager, Serializable {
    public <T> Cache<T> getCache(final String name) {
       final String key = organizationFacade.getOrganizationCode() + "/" + projectFacade.getCurrentProjectCode();
       final Map<String, Cache> localCaches = caches.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
-      final Cache<T> cache = localCaches.computeIfAbsent(name, k -> cacheFactory.getCache());
+      final Cache<T> cache = localCaches.computeIfAbsent(name, k -> cacheFactory.getCache(name));
 
       return cache;
    }
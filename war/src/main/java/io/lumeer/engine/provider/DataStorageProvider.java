@@ -22,6 +22,7 @@ package io.lumeer.engine.provider;
 import io.lumeer.engine.api.cache.CacheManager;
 import io.lumeer.engine.api.data.DataStorage;
 import io.lumeer.engine.api.data.DataStorageFactory;
+import io.lumeer.engine.api.event.ConnectUserStorage;
 import io.lumeer.engine.controller.ConfigurationFacade;
 import io.lumeer.engine.controller.OrganizationFacade;
 
@@ -29,6 +30,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 
 /**
@@ -53,9 +55,34 @@ public class DataStorageProvider {
    @Inject
    private CacheManager cacheManager;
 
+   @Inject
+   private Event<ConnectUserStorage> connectUserStorageEvent;
+
    public DataStorage getUserStorage() {
-      return connections.computeIfAbsent(organizationFacade.getOrganizationCode(),
+      final String organizationCode = organizationFacade.getOrganizationCode();
+
+      final DataStorage connected = connections.get(organizationCode);
+      if (connected != null) {
+         return connected;
+      }
+
+      final DataStorage dataStorage = connections.computeIfAbsent(organizationCode,
             k -> dataStorageFactory.getStorage(cacheManager.getCacheProvider("userDataStorage"), configurationFacade.getDataStorage(), configurationFacade.getDataStorageDatabase(), configurationFacade.getDataStorageUseSsl()));
+      // fired outside of the map update, the observers may use the storage right away
+      connectUserStorageEvent.fire(new ConnectUserStorage(organizationCode));
+      return dataStorage;
+   }
+
+   /**
+    * Gets the user storage of the organization when it has already been connected.
+    * Unlike {@link #getUserStorage()}, it does not need the organization configuration and can be used outside of requests.
+    *
+    * @param organizationCode
+    *       Code of the organization.
+    * @return The connected storage or null.
+    */
+   public DataStorage getConnectedUserStorage(final String organizationCode) {
+      return connections.get(organizationCode);
    }
 
    public DataStorage getSystemStorage() {
@@ -0,0 +1,165 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.push;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+/**
+ * A connected WebSocket client with its own bounded queue of outgoing messages.
+ * Messages are sent asynchronously one after another, so a publisher never waits for a slow client.
+ * When the queue is full, the oldest message is dropped. A message with a coalescing key replaces a queued
+ * message with the same key, so a client that is behind only gets the latest state of an object.
+ */
+public class PushClient implements SendHandler {
+
+   private static final Logger log = Logger.getLogger(PushClient.class.getName());
+
+   private final Session session;
+   private final String channel;
+   private final int maxQueueSize;
+   private final LongAdder droppedMessages;
+   private final LongAdder coalescedMessages;
+   private final Set<String> observedObjects = ConcurrentHashMap.newKeySet();
+
+   // guarded by this
+   private final Deque<OutgoingMessage> queue = new ArrayDeque<>();
+   private boolean sending;
+
+   public PushClient(final Session session, final String channel, final int maxQueueSize, final LongAdder droppedMessages, final LongAdder coalescedMessages) {
+      this.session = session;
+      this.channel = channel;
+      this.maxQueueSize = maxQueueSize;
+      this.droppedMessages = droppedMessages;
+      this.coalescedMessages = coalescedMessages;
+   }
+
+   public Session getSession() {
+      return session;
+   }
+
+   public String getChannel() {
+      return channel;
+   }
+
+   /**
+    * @return Ids of the objects observed by this client.
+    */
+   public Set<String> getObservedObjects() {
+      return observedObjects;
+   }
+
+   public boolean isAuthenticated() {
+      return session.getUserProperties().containsKey(PushService.LUMEER_AUTH_HEADER);
+   }
+
+   public synchronized int getQueueSize() {
+      return queue.size();
+   }
+
+   /**
+    * Queues the message for sending.
+    *
+    * @param message
+    *       The message to send.
+    * @param coalescingKey
+    *       Key of the object the message is about, or null when the message must not replace any other.
+    */
+   public void send(final String message, final String coalescingKey) {
+      final String next;
+
+      synchronized (this) {
+         if (coalescingKey != null) {
+            for (final OutgoingMessage queued : queue) {
+               if (coalescingKey.equals(queued.coalescingKey)) {
+                  queued.text = message;
+                  coalescedMessages.increment();
+                  return;
+               }
+            }
+         }
+
+         if (queue.size() >= maxQueueSize) {
+            queue.pollFirst();
+            droppedMessages.increment();
+         }
+         queue.addLast(new OutgoingMessage(message, coalescingKey));
+
+         if (sending) {
+            return;
+         }
+         sending = true;
+         next = queue.pollFirst().text;
+      }
+
+      sendAsync(next);
+   }
+
+   @Override
+   public void onResult(final SendResult result) {
+      if (!result.isOK()) {
+         log.log(Level.FINE, "Unable to send push notification: ", result.getException());
+      }
+
+      final String next;
+      synchronized (this) {
+         if (!session.isOpen()) {
+            droppedMessages.add(queue.size());
+            queue.clear();
+         }
+
+         final OutgoingMessage message = queue.pollFirst();
+         if (message == null) {
+            sending = false;
+            return;
+         }
+         next = message.text;
+      }
+
+      sendAsync(next);
+   }
+
+   private void sendAsync(final String message) {
+      try {
+         session.getAsyncRemote().sendText(message, this);
+      } catch (RuntimeException e) {
+         onResult(new SendResult(e));
+      }
+   }
+
+   private static class OutgoingMessage {
+
+      private String text;
+      private final String coalescingKey;
+
+      private OutgoingMessage(final String text, final String coalescingKey) {
+         this.text = text;
+         this.coalescingKey = coalescingKey;
+      }
+   }
+}
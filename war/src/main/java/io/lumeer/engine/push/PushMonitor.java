@@ -2,7 +2,7 @@
  * -----------------------------------------------------------------------\
  * Lumeer
  *  
- * Copyright (C) 2016 the original author or authors.
+ * Copyright (C) since 2016 the original author or authors.
  *  
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,30 +17,29 @@
  * limitations under the License.
  * -----------------------------------------------------------------------/
  */
-package io.lumeer.engine.util;
+package io.lumeer.engine.push;
 
-import java.util.logging.Logger;
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
 
 /**
- * TODO JMS is disabled at the moment
- *
- * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
+ * Exposes the state of push notification delivery.
  */
-@RequestScoped
-public class JmsService {
-
-   //@Resource(mappedName = "java:/jms/queue/TaskQueue")
-   //private Queue taskQueue;
-
-   //@Inject
-   //private JMSContext context;
+@Path("push-stats")
+@ApplicationScoped
+public class PushMonitor {
 
    @Inject
-   private Logger log;
+   private PushService pushService;
 
-   /*public void enqueueTask(final Task task) {
-      context.createProducer().send(taskQueue, task);
-   }*/
+   @GET
+   @Path("/")
+   @Produces(MediaType.APPLICATION_JSON)
+   public PushStatistics getStatistics() {
+      return pushService.getStatistics();
+   }
 }
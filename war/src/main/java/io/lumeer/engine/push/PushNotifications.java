@@ -19,8 +19,6 @@
  */
 package io.lumeer.engine.push;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.websocket.CloseReason;
@@ -60,17 +58,14 @@ public class PushNotifications {
          if (session.getUserProperties().containsKey(PushService.LUMEER_AUTH_HEADER)) {
             if (message.startsWith("observe ")) {
                final String objectId = message.substring(8);
-               pushService.getObservedObjects().computeIfAbsent(objectId, k -> ConcurrentHashMap.newKeySet()).add(session);
+               pushService.observe(session, objectId);
 
                return "observing";
             }
 
             if (message.startsWith("unobserve ")) {
                final String objectId = message.substring(10);
-               final Set<Session> sessions = pushService.getObservedObjects().get(objectId);
-               if (sessions != null) {
-                  sessions.remove(session);
-               }
+               pushService.unobserve(session, objectId);
 
                return "not observing";
             }
@@ -82,7 +77,7 @@ public class PushNotifications {
 
    @OnOpen
    public void open(final Session session) {
-      pushService.getSessions().add(session);
+      pushService.register(session);
    }
 
    @OnClose
@@ -93,10 +88,7 @@ public class PushNotifications {
          pushService.getTokens().remove(token);
       }
 
-      // un-register all observations
-      pushService.getObservedObjects().forEach((k, v) -> v.remove(session));
-
-      // delete the session
-      pushService.getSessions().remove(session);
+      // delete the session and all its observations
+      pushService.unregister(session);
    }
 }
\ No newline at end of file
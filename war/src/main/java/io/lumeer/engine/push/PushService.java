@@ -22,22 +22,27 @@ package io.lumeer.engine.push;
 import io.lumeer.engine.api.event.DocumentEvent;
 import io.lumeer.engine.api.push.PushMessage;
 import io.lumeer.engine.controller.UserFacade;
+import io.lumeer.storage.api.event.DataChange;
+import io.lumeer.storage.api.event.DataChanges;
 
-import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.enterprise.event.Reception;
 import javax.inject.Inject;
-import javax.websocket.EncodeException;
 import javax.websocket.Session;
 
 /**
  * Sends message to clients using web sockets.
+ * Clients are indexed by their channel and by the objects they observe, and each of them has a bounded queue of
+ * outgoing messages sent asynchronously, so publishing never blocks on slow clients.
+ * The queue size is set by the system property {@value #QUEUE_SIZE_PROPERTY}.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -49,85 +54,137 @@ public class PushService {
     */
    public static final String LUMEER_AUTH_HEADER = "lumeer.auth";
 
-   @Inject
-   private PushNotifications pushNotifications;
+   /**
+    * WebSocket endpoint path parameter with the channel name.
+    */
+   public static final String CHANNEL_PARAMETER = "channel";
 
-   @Inject
-   private Logger log;
+   public static final String QUEUE_SIZE_PROPERTY = "lumeer.push.queueSize";
+   public static final int DEFAULT_QUEUE_SIZE = 100;
 
    @Inject
    private UserFacade userFacade;
 
    /**
-    * Currently opened sessions with clients.
+    * Currently opened sessions with clients by session id.
     */
-   private Set<Session> sessions = ConcurrentHashMap.newKeySet();
+   private final Map<String, PushClient> clients = new ConcurrentHashMap<>();
+
+   /**
+    * Clients by the channel they are connected to.
+    */
+   private final Map<String, Set<PushClient>> channels = new ConcurrentHashMap<>();
 
    /**
     * Authentication tokens of clients authenticated via HTTP.
     */
-   private Map<String, Long> tokens = new ConcurrentHashMap<>();
+   private final Map<String, Long> tokens = new ConcurrentHashMap<>();
 
    /**
     * Clients registered to observe given objects.
     */
-   private Map<String, Set<Session>> observedObjects = new ConcurrentHashMap<>();
+   private final Map<String, Set<PushClient>> observedObjects = new ConcurrentHashMap<>();
 
-   public Set<Session> getSessions() {
-      return sessions;
-   }
+   private final LongAdder droppedMessages = new LongAdder();
+   private final LongAdder coalescedMessages = new LongAdder();
 
    public Map<String, Long> getTokens() {
       return tokens;
    }
 
-   public Map<String, Set<Session>> getObservedObjects() {
-      return observedObjects;
+   /**
+    * Registers a newly opened client session.
+    *
+    * @param session
+    *       The opened session.
+    */
+   public void register(final Session session) {
+      final String channel = session.getPathParameters().getOrDefault(CHANNEL_PARAMETER, "");
+      final PushClient client = new PushClient(session, channel, Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE), droppedMessages, coalescedMessages);
+
+      clients.put(session.getId(), client);
+      channels.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(client);
+   }
+
+   /**
+    * Removes a closed client session together with all its observations.
+    *
+    * @param session
+    *       The closed session.
+    */
+   public void unregister(final Session session) {
+      final PushClient client = clients.remove(session.getId());
+      if (client == null) {
+         return;
+      }
+
+      removeFromIndex(channels, client.getChannel(), client);
+      client.getObservedObjects().forEach(objectId -> removeFromIndex(observedObjects, objectId, client));
+   }
+
+   public void observe(final Session session, final String objectId) {
+      final PushClient client = clients.get(session.getId());
+      if (client != null) {
+         client.getObservedObjects().add(objectId);
+         observedObjects.computeIfAbsent(objectId, k -> ConcurrentHashMap.newKeySet()).add(client);
+      }
+   }
+
+   public void unobserve(final Session session, final String objectId) {
+      final PushClient client = clients.get(session.getId());
+      if (client != null) {
+         client.getObservedObjects().remove(objectId);
+         removeFromIndex(observedObjects, objectId, client);
+      }
+   }
+
+   private static void removeFromIndex(final Map<String, Set<PushClient>> index, final String key, final PushClient client) {
+      index.computeIfPresent(key, (k, indexed) -> {
+         indexed.remove(client);
+         return indexed.isEmpty() ? null : indexed;
+      });
+   }
+
+   /**
+    * Gets the current state of the outgoing queues.
+    *
+    * @return The push statistics.
+    */
+   public PushStatistics getStatistics() {
+      int queuedMessages = 0;
+      int maxQueueSize = 0;
+
+      for (final PushClient client : clients.values()) {
+         final int queueSize = client.getQueueSize();
+         queuedMessages += queueSize;
+         maxQueueSize = Math.max(maxQueueSize, queueSize);
+      }
+
+      return new PushStatistics(clients.size(), observedObjects.size(), queuedMessages, maxQueueSize, droppedMessages.sum(), coalescedMessages.sum());
    }
 
    /**
     * Sends push-notification message to WebSocket clients listening on the given channel.
     *
     * @param channel
-    *       Channel suffix to send to or empty to send to all channels.
+    *       Channel to send to or empty to send to all channels.
     * @param message
     *       The message to be sent.
     */
    public void publishMessage(final String channel, final String message) {
-      sessions.forEach(session -> {
-         try {
-            log.info(session.getRequestURI().toString());
-            if (channel == null || channel.isEmpty() || session.getRequestURI().toString().endsWith(channel)) {
-               if (session.getUserProperties().containsKey(LUMEER_AUTH_HEADER)) {
-                  session.getBasicRemote().sendText(message);
-               }
-            }
-         } catch (IOException e) {
-            log.log(Level.FINE, "Unable to send push notification: ", e);
-         }
-      });
+      getChannelClients(channel).filter(PushClient::isAuthenticated).forEach(client -> client.send(message, null));
    }
 
    /**
     * Sends push-notification message to WebSocket clients listening on the given channel.
     *
     * @param channel
-    *       Channel suffix to send to or empty to send to all channels.
+    *       Channel to send to or empty to send to all channels.
     * @param message
     *       The message to be sent.
     */
    public void publishMessage(final String channel, final Object message) {
-      sessions.forEach(session -> {
-         try {
-            if (channel == null || channel.isEmpty() || session.getRequestURI().toString().endsWith(channel)) {
-               if (session.getUserProperties().containsKey(LUMEER_AUTH_HEADER)) {
-                  session.getBasicRemote().sendObject(message);
-               }
-            }
-         } catch (IOException | EncodeException e) {
-            log.log(Level.FINE, "Unable to send push notification: ", e);
-         }
-      });
+      publishMessage(channel, String.valueOf(message));
    }
 
    /**
@@ -136,31 +193,23 @@ public class PushService {
     * @param clientSession
     *       Session ID of the client to send the message to.
     * @param channel
-    *       Channel suffix to send to or empty to send to all channels.
+    *       Channel to send to or empty to send to all channels.
     * @param message
     *       The message to be sent.
     */
    public void publishMessage(final String clientSession, final String channel, final PushMessage message) {
-      sessions.forEach(session -> {
-         if (session.getId() != null && session.getId().equals(clientSession)) {
-            try {
-               if (channel == null || channel.isEmpty() || session.getRequestURI().toString().endsWith(channel)) {
-                  if (session.getUserProperties().containsKey(LUMEER_AUTH_HEADER)) {
-                     session.getBasicRemote().sendText(message.toString());
-                  }
-               }
-            } catch (IOException e) {
-               log.log(Level.FINE, "Unable to send push notification: ", e);
-            }
-         }
-      });
+      final PushClient client = clientSession != null ? clients.get(clientSession) : null;
+
+      if (client != null && client.isAuthenticated() && (channel == null || channel.isEmpty() || channel.equals(client.getChannel()))) {
+         client.send(message.toString(), null);
+      }
    }
 
    /**
     * Sends push-notification message to the current WebSocket client listening on the given channel.
     *
     * @param channel
-    *       Channel suffix to send to or empty to send to all channels.
+    *       Channel to send to or empty to send to all channels.
     * @param message
     *       The message to be sent.
     */
@@ -168,6 +217,20 @@ public class PushService {
       publishMessage(userFacade.getUserSessionId(), channel, message);
    }
 
+   /**
+    * Sends push-notification message to all WebSocket clients observing the given object.
+    * A message that has not been sent yet is replaced by a newer message about the same resource.
+    *
+    * @param objectId
+    *       Id of the observed object.
+    * @param message
+    *       The message to be sent.
+    */
+   public void publishToObservers(final String objectId, final PushMessage message) {
+      final String text = message.toString();
+      getObservers(objectId).forEach(client -> client.send(text, message.getResource()));
+   }
+
    /**
     * Notifies all WebSocket clients observing given document.
     *
@@ -175,16 +238,37 @@ public class PushService {
     *       The document event with information about change.
     */
    public void onDocumentEvent(@Observes(notifyObserver = Reception.ALWAYS) final DocumentEvent event) {
-      final String objectId = event.getDocument().get("_id").toString();
-
-      if (objectId != null && !objectId.isEmpty() && observedObjects.containsKey(objectId)) {
-         observedObjects.get(objectId).forEach(session -> {
-            try {
-               session.getBasicRemote().sendObject(event);
-            } catch (IOException | EncodeException e) {
-               log.log(Level.SEVERE, "Unable to notify WebSocket client: ", e);
-            }
-         });
+      final Object objectId = event.getDocument().get("_id");
+
+      if (objectId != null && !objectId.toString().isEmpty()) {
+         publishToObservers(objectId.toString(), new PushMessage(event.getClass().getSimpleName(), "document:" + objectId, event.getCollectionName()));
+      }
+   }
+
+   /**
+    * Notifies all WebSocket clients observing the changed documents, including the documents changed on other nodes.
+    * The clients receive the type of the change only, the message is coalesced with the previous unsent message
+    * about the same document, so the clients read the current data themselves.
+    *
+    * @param event
+    *       The changes of data made in one request.
+    */
+   public void onDataChanges(@Observes final DataChanges event) {
+      for (final DataChange change : event.getChanges()) {
+         if (observedObjects.containsKey(change.getDocumentId())) {
+            publishToObservers(change.getDocumentId(), new PushMessage(change.getType().name(), "document:" + change.getDocumentId(), change.getCollectionId()));
+         }
+      }
+   }
+
+   private Stream<PushClient> getChannelClients(final String channel) {
+      if (channel == null || channel.isEmpty()) {
+         return clients.values().stream();
       }
+      return channels.getOrDefault(channel, Collections.emptySet()).stream();
+   }
+
+   private Collection<PushClient> getObservers(final String objectId) {
+      return observedObjects.getOrDefault(objectId, Collections.emptySet());
    }
 }
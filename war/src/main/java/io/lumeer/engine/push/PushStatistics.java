@@ -0,0 +1,81 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.push;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Snapshot of the push notification delivery state.
+ */
+@Immutable
+public class PushStatistics {
+
+   private final int clients;
+   private final int observedObjects;
+   private final int queuedMessages;
+   private final int maxQueueSize;
+   private final long droppedMessages;
+   private final long coalescedMessages;
+
+   public PushStatistics(final int clients, final int observedObjects, final int queuedMessages, final int maxQueueSize, final long droppedMessages, final long coalescedMessages) {
+      this.clients = clients;
+      this.observedObjects = observedObjects;
+      this.queuedMessages = queuedMessages;
+      this.maxQueueSize = maxQueueSize;
+      this.droppedMessages = droppedMessages;
+      this.coalescedMessages = coalescedMessages;
+   }
+
+   public int getClients() {
+      return clients;
+   }
+
+   public int getObservedObjects() {
+      return observedObjects;
+   }
+
+   /**
+    * @return The number of messages waiting in the queues of all clients.
+    */
+   public int getQueuedMessages() {
+      return queuedMessages;
+   }
+
+   /**
+    * @return The length of the longest client queue.
+    */
+   public int getMaxQueueSize() {
+      return maxQueueSize;
+   }
+
+   /**
+    * @return The number of messages dropped because of full queues or closed sessions since the start.
+    */
+   public long getDroppedMessages() {
+      return droppedMessages;
+   }
+
+   /**
+    * @return The number of queued messages replaced by newer ones about the same resource since the start.
+    */
+   public long getCoalescedMessages() {
+      return coalescedMessages;
+   }
+}
@@ -19,28 +19,38 @@
  */
 package io.lumeer.engine.rest;
 
+import io.lumeer.engine.api.LumeerConst;
 import io.lumeer.engine.api.batch.AbstractCollectionBatch;
-import io.lumeer.engine.api.batch.Batch;
 import io.lumeer.engine.api.batch.MergeBatch;
 import io.lumeer.engine.api.batch.SplitBatch;
-import io.lumeer.engine.api.constraint.InvalidConstraintException;
-import io.lumeer.engine.api.exception.DbException;
+import io.lumeer.engine.api.exception.UnauthorizedAccessException;
+import io.lumeer.engine.api.exception.UnsuccessfulOperationException;
+import io.lumeer.engine.api.task.TaskInfo;
 import io.lumeer.engine.controller.BatchFacade;
 import io.lumeer.engine.controller.CollectionMetadataFacade;
 import io.lumeer.engine.controller.OrganizationFacade;
 import io.lumeer.engine.controller.ProjectFacade;
+import io.lumeer.engine.controller.TaskFacade;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 /**
- * Runs batch operations on collections.
+ * Runs batch operations on collections, either within the request or in the background.
+ * The batches running in the background are tasks, the jobs endpoints are kept for them next to the general task endpoints.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -66,6 +76,9 @@ public class BatchService {
    @Inject
    private ProjectFacade projectFacade;
 
+   @Inject
+   private TaskFacade taskFacade;
+
    @PostConstruct
    public void init() {
       organizationFacade.setOrganizationCode(organisationCode);
@@ -77,16 +90,16 @@ public class BatchService {
     *
     * @param batch
     *       The batch operation to run.
-    * @throws DbException
-    *       When there was an error working with the data storage.
-    * @throws InvalidConstraintException
-    *       When the new change did not pass the constraint criteria.
+    * @param async
+    *       When true, the batch runs as a background task and the task info is returned immediately.
+    * @return No content, or the info about the started task when run in the background.
     */
    @POST
    @Path("/merge")
    @Consumes(MediaType.APPLICATION_JSON)
-   public void runMergeBatch(final MergeBatch batch) throws DbException, InvalidConstraintException {
-      runBatch(batch);
+   @Produces(MediaType.APPLICATION_JSON)
+   public Response runMergeBatch(final MergeBatch batch, final @QueryParam("async") boolean async) {
+      return runBatch(batch, async);
    }
 
    /**
@@ -94,24 +107,87 @@ public class BatchService {
     *
     * @param batch
     *       The batch operation to run.
-    * @throws DbException
-    *       When there was an error working with the data storage.
-    * @throws InvalidConstraintException
-    *       When the new change did not pass the constraint criteria.
+    * @param async
+    *       When true, the batch runs as a background task and the task info is returned immediately.
+    * @return No content, or the info about the started task when run in the background.
     */
    @POST
    @Path("/split")
    @Consumes(MediaType.APPLICATION_JSON)
-   public void runSplitBatch(final SplitBatch batch) throws DbException, InvalidConstraintException {
-      runBatch(batch);
+   @Produces(MediaType.APPLICATION_JSON)
+   public Response runSplitBatch(final SplitBatch batch, final @QueryParam("async") boolean async) {
+      return runBatch(batch, async);
+   }
+
+   /**
+    * Gets progress of a batch running in the background.
+    *
+    * @param batchId
+    *       Id of the batch task.
+    * @return The task info.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the batch nor a manager of the organization.
+    */
+   @GET
+   @Path("/jobs/{batchId}")
+   @Produces(MediaType.APPLICATION_JSON)
+   public TaskInfo getBatchProgress(final @PathParam("batchId") String batchId) throws UnauthorizedAccessException {
+      return checkBatch(taskFacade.getTask(batchId));
+   }
+
+   /**
+    * Stops a batch running in the background after its current chunk.
+    *
+    * @param batchId
+    *       Id of the batch task.
+    * @return The task info.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the batch nor a manager of the organization.
+    */
+   @DELETE
+   @Path("/jobs/{batchId}")
+   @Produces(MediaType.APPLICATION_JSON)
+   public TaskInfo cancelBatch(final @PathParam("batchId") String batchId) throws UnauthorizedAccessException {
+      getBatchProgress(batchId);
+      return checkBatch(taskFacade.cancelTask(batchId));
    }
 
-   private void runBatch(final Batch batch) throws DbException, InvalidConstraintException {
-      if (batch instanceof AbstractCollectionBatch) {
-         final AbstractCollectionBatch collectionBatch = (AbstractCollectionBatch) batch;
-         collectionBatch.setCollectionCode(collectionBatch.getCollectionCode());
+   /**
+    * Resumes a cancelled or failed batch after its last checkpoint.
+    *
+    * @param batchId
+    *       Id of the batch task.
+    * @return The task info.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the batch nor a manager of the organization.
+    * @throws UnsuccessfulOperationException
+    *       When the batch is neither cancelled nor failed.
+    */
+   @POST
+   @Path("/jobs/{batchId}/resume")
+   @Produces(MediaType.APPLICATION_JSON)
+   public TaskInfo resumeBatch(final @PathParam("batchId") String batchId) throws UnauthorizedAccessException, UnsuccessfulOperationException {
+      getBatchProgress(batchId);
+      return checkBatch(taskFacade.resumeTask(batchId));
+   }
+
+   private TaskInfo checkBatch(final TaskInfo task) {
+      if (task == null || !LumeerConst.Batch.TASK_TYPE.equals(task.getType())) {
+         throw new NotFoundException();
+      }
+      return task;
+   }
+
+   private Response runBatch(final AbstractCollectionBatch batch, final boolean async) {
+      if (batch == null || batch.getCollectionCode() == null) {
+         throw new BadRequestException();
+      }
+
+      if (async) {
+         return Response.accepted(batchFacade.startBatch(batch)).build();
       }
 
       batchFacade.executeBatch(batch);
+      return Response.noContent().build();
    }
 }
@@ -172,6 +172,10 @@ public class LinkingService {
     *       The source/target document id.
     * @param linkDirection
     *       Which link direction to work with.
+    * @param page
+    *       Optional page number starting with 0.
+    * @param pageSize
+    *       Optional number of links per page, all links are returned when it is not set.
     * @return Required links.
     * @throws DbException
     *       When there is an issue when communicating with the data storage.
@@ -179,11 +183,19 @@ public class LinkingService {
    @GET
    @Path("/{role}/documents/{id}")
    @Produces(MediaType.APPLICATION_JSON)
-   public List<DataDocument> getLinkedDocuments(final @PathParam("role") String role, final @PathParam("id") String documentId, final @QueryParam("direction") @DefaultValue("FROM") LumeerConst.Linking.LinkDirection linkDirection) throws DbException {
+   public List<DataDocument> getLinkedDocuments(final @PathParam("role") String role, final @PathParam("id") String documentId, final @QueryParam("direction") @DefaultValue("FROM") LumeerConst.Linking.LinkDirection linkDirection,
+         final @QueryParam("page") Integer page, final @QueryParam("pageSize") Integer pageSize) throws DbException {
       if (!collectionMetadataFacade.hasRole(projectCode, collectionCode, LumeerConst.Security.ROLE_SHARE)) {
          throw new UnauthorizedAccessException();
       }
 
+      if (pageSize != null) {
+         if (pageSize <= 0 || (page != null && page < 0)) {
+            throw new BadRequestException();
+         }
+         return linkingFacade.readLinkedDocumentsForDocument(collectionCode, documentId, role, linkDirection, page != null ? page : 0, pageSize);
+      }
+
       final List<DataDocument> links = new ArrayList<>();
 
       if (linkDirection == null || linkDirection == LumeerConst.Linking.LinkDirection.BOTH || linkDirection == LumeerConst.Linking.LinkDirection.FROM) {
@@ -197,6 +209,92 @@ public class LinkingService {
       return links;
    }
 
+   /**
+    * Gets the documents reachable from the given document by following the links.
+    *
+    * @param documentId
+    *       The start document id.
+    * @param role
+    *       Optional role of the followed links, links of all roles are followed when it is not set.
+    * @param linkDirection
+    *       Which link direction to follow.
+    * @param depth
+    *       The maximal number of hops.
+    * @return Ids, collection codes and distances of the reachable documents, the closest first.
+    * @throws DbException
+    *       When there is an issue when communicating with the data storage.
+    */
+   @GET
+   @Path("/graph/documents/{id}/reachable")
+   @Produces(MediaType.APPLICATION_JSON)
+   public List<DataDocument> getReachableDocuments(final @PathParam("id") String documentId, final @QueryParam("role") String role, final @QueryParam("direction") @DefaultValue("FROM") LumeerConst.Linking.LinkDirection linkDirection,
+         final @QueryParam("depth") @DefaultValue("1") int depth) throws DbException {
+      if (!collectionMetadataFacade.hasRole(projectCode, collectionCode, LumeerConst.Security.ROLE_SHARE)) {
+         throw new UnauthorizedAccessException();
+      }
+      if (depth <= 0) {
+         throw new BadRequestException();
+      }
+
+      return linkingFacade.readReachableDocuments(collectionCode, documentId, role, linkDirection, depth);
+   }
+
+   /**
+    * Counts the documents linked with the given document.
+    *
+    * @param documentId
+    *       The document id.
+    * @param role
+    *       Optional role of the counted links, links of all roles are counted when it is not set.
+    * @param linkDirection
+    *       Which link direction to count.
+    * @return The number of distinct linked documents.
+    * @throws DbException
+    *       When there is an issue when communicating with the data storage.
+    */
+   @GET
+   @Path("/graph/documents/{id}/neighbours/count")
+   @Produces(MediaType.APPLICATION_JSON)
+   public int countLinkedDocuments(final @PathParam("id") String documentId, final @QueryParam("role") String role, final @QueryParam("direction") @DefaultValue("FROM") LumeerConst.Linking.LinkDirection linkDirection) throws DbException {
+      if (!collectionMetadataFacade.hasRole(projectCode, collectionCode, LumeerConst.Security.ROLE_SHARE)) {
+         throw new UnauthorizedAccessException();
+      }
+
+      return linkingFacade.countLinkedDocuments(collectionCode, documentId, role, linkDirection);
+   }
+
+   /**
+    * Gets the shortest path of links between two documents.
+    *
+    * @param documentId
+    *       The start document id.
+    * @param targetDocumentId
+    *       The target document id.
+    * @param role
+    *       Optional role of the followed links, links of all roles are followed when it is not set.
+    * @param linkDirection
+    *       Which link direction to follow.
+    * @param depth
+    *       The maximal length of the path.
+    * @return Ids and collection codes of the documents on the path including both ends, empty when there is no such path.
+    * @throws DbException
+    *       When there is an issue when communicating with the data storage.
+    */
+   @GET
+   @Path("/graph/documents/{id}/path/{targetId}")
+   @Produces(MediaType.APPLICATION_JSON)
+   public List<DataDocument> getShortestPath(final @PathParam("id") String documentId, final @PathParam("targetId") String targetDocumentId, final @QueryParam("role") String role,
+         final @QueryParam("direction") @DefaultValue("FROM") LumeerConst.Linking.LinkDirection linkDirection, final @QueryParam("depth") @DefaultValue("10") int depth) throws DbException {
+      if (!collectionMetadataFacade.hasRole(projectCode, collectionCode, LumeerConst.Security.ROLE_SHARE)) {
+         throw new UnauthorizedAccessException();
+      }
+      if (depth <= 0) {
+         throw new BadRequestException();
+      }
+
+      return linkingFacade.readShortestPath(collectionCode, documentId, targetDocumentId, role, linkDirection, depth);
+   }
+
    /**
     * Get links between source and target documents of the given role.
     *
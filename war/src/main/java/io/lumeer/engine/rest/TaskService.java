@@ -0,0 +1,125 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.rest;
+
+import io.lumeer.engine.api.exception.UnauthorizedAccessException;
+import io.lumeer.engine.api.exception.UnsuccessfulOperationException;
+import io.lumeer.engine.api.task.TaskInfo;
+import io.lumeer.engine.controller.OrganizationFacade;
+import io.lumeer.engine.controller.ProjectFacade;
+import io.lumeer.engine.controller.TaskFacade;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Reports and controls tasks running in the background.
+ */
+@Path("/organizations/{organization}/projects/{project}/tasks/")
+@RequestScoped
+public class TaskService {
+
+   @Inject
+   private TaskFacade taskFacade;
+
+   @PathParam("organization")
+   private String organizationCode;
+
+   @PathParam("project")
+   private String projectCode;
+
+   @Inject
+   private OrganizationFacade organizationFacade;
+
+   @Inject
+   private ProjectFacade projectFacade;
+
+   @PostConstruct
+   public void init() {
+      organizationFacade.setOrganizationCode(organizationCode);
+      projectFacade.setCurrentProjectCode(projectCode);
+   }
+
+   /**
+    * Gets state and progress of a task.
+    *
+    * @param taskId
+    *       Id of the task.
+    * @return The task info.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the task nor a manager of the organization.
+    */
+   @GET
+   @Path("/{taskId}")
+   @Produces(MediaType.APPLICATION_JSON)
+   public TaskInfo getTask(final @PathParam("taskId") String taskId) throws UnauthorizedAccessException {
+      return checkFound(taskFacade.getTask(taskId));
+   }
+
+   /**
+    * Cancels a task. A running task stops at its next checkpoint.
+    *
+    * @param taskId
+    *       Id of the task.
+    * @return The task info.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the task nor a manager of the organization.
+    */
+   @DELETE
+   @Path("/{taskId}")
+   @Produces(MediaType.APPLICATION_JSON)
+   public TaskInfo cancelTask(final @PathParam("taskId") String taskId) throws UnauthorizedAccessException {
+      return checkFound(taskFacade.cancelTask(taskId));
+   }
+
+   /**
+    * Resumes a cancelled or failed task from its last checkpoint.
+    *
+    * @param taskId
+    *       Id of the task.
+    * @return The task info.
+    * @throws UnsuccessfulOperationException
+    *       When the task is neither cancelled nor failed.
+    * @throws UnauthorizedAccessException
+    *       When the current user is neither the owner of the task nor a manager of the organization.
+    */
+   @POST
+   @Path("/{taskId}/resume")
+   @Produces(MediaType.APPLICATION_JSON)
+   public TaskInfo resumeTask(final @PathParam("taskId") String taskId) throws UnsuccessfulOperationException, UnauthorizedAccessException {
+      return checkFound(taskFacade.resumeTask(taskId));
+   }
+
+   private TaskInfo checkFound(final TaskInfo task) {
+      if (task == null) {
+         throw new NotFoundException();
+      }
+      return task;
+   }
+}
@@ -0,0 +1,130 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.task;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.batch.AbstractCollectionBatch;
+import io.lumeer.engine.api.batch.Batch;
+import io.lumeer.engine.api.batch.MergeBatch;
+import io.lumeer.engine.api.batch.SplitBatch;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataStorageDialect;
+import io.lumeer.engine.api.task.Task;
+import io.lumeer.engine.api.task.TaskContext;
+import io.lumeer.engine.util.BatchJob;
+
+import java.util.ArrayList;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Runs merge and split batches described by task parameters.
+ */
+@ApplicationScoped
+public class BatchTask implements Task {
+
+   private static final String OPERATION = "operation";
+   private static final String OPERATION_MERGE = "merge";
+   private static final String OPERATION_SPLIT = "split";
+   private static final String COLLECTION = "collection";
+   private static final String KEEP_ORIGINAL = "keepOriginal";
+   private static final String ATTRIBUTES = "attributes";
+   private static final String RESULT_ATTRIBUTE = "resultAttribute";
+   private static final String JOIN = "join";
+   private static final String MERGE_TYPE = "mergeType";
+   private static final String ATTRIBUTE = "attribute";
+   private static final String DELIMITER = "delimiter";
+   private static final String TRIM = "trim";
+   private static final String SPLIT_ATTRIBUTES = "splitAttributes";
+   private static final String SHADOW_COLLECTION = "shadowCollection";
+   private static final String METADATA_COLLECTION = "metadataCollection";
+
+   @Inject
+   private DataStorageDialect dataStorageDialect;
+
+   /**
+    * Describes the batch as task parameters.
+    *
+    * @param batch
+    *       The batch to run.
+    * @param shadowCollection
+    *       Name of the shadow collection of the batch collection.
+    * @param metadataCollection
+    *       Name of the collection metadata collection of the project.
+    * @return The task parameters.
+    */
+   public static DataDocument createParameters(final Batch batch, final String shadowCollection, final String metadataCollection) {
+      final DataDocument parameters = new DataDocument(COLLECTION, batch.getCollectionCode())
+            .append(SHADOW_COLLECTION, shadowCollection)
+            .append(METADATA_COLLECTION, metadataCollection);
+
+      if (batch instanceof AbstractCollectionBatch) {
+         parameters.append(KEEP_ORIGINAL, ((AbstractCollectionBatch) batch).isKeepOriginal());
+      }
+
+      if (batch instanceof MergeBatch) {
+         final MergeBatch mergeBatch = (MergeBatch) batch;
+         parameters.append(OPERATION, OPERATION_MERGE)
+                   .append(ATTRIBUTES, new ArrayList<>(mergeBatch.getAttributes()))
+                   .append(RESULT_ATTRIBUTE, mergeBatch.getResultAttribute())
+                   .append(JOIN, mergeBatch.getJoin())
+                   .append(MERGE_TYPE, mergeBatch.getMergeType().name());
+      } else if (batch instanceof SplitBatch) {
+         final SplitBatch splitBatch = (SplitBatch) batch;
+         parameters.append(OPERATION, OPERATION_SPLIT)
+                   .append(ATTRIBUTE, splitBatch.getAttribute())
+                   .append(DELIMITER, splitBatch.getDelimiter())
+                   .append(TRIM, splitBatch.isTrim())
+                   .append(SPLIT_ATTRIBUTES, new ArrayList<>(splitBatch.getSplitAttributes()));
+      } else {
+         throw new IllegalArgumentException("Unsupported batch type " + batch.getClass().getName());
+      }
+
+      return parameters;
+   }
+
+   private static Batch createBatch(final DataDocument parameters) {
+      final String collection = parameters.getString(COLLECTION);
+      final boolean keepOriginal = parameters.getBoolean(KEEP_ORIGINAL, false);
+
+      if (OPERATION_MERGE.equals(parameters.getString(OPERATION))) {
+         return new MergeBatch(collection, parameters.getArrayList(ATTRIBUTES, String.class), parameters.getString(RESULT_ATTRIBUTE),
+               parameters.getString(JOIN), MergeBatch.MergeType.valueOf(parameters.getString(MERGE_TYPE)), keepOriginal);
+      }
+
+      return new SplitBatch(collection, parameters.getString(ATTRIBUTE), parameters.getString(DELIMITER), parameters.getBoolean(TRIM, false),
+            parameters.getArrayList(SPLIT_ATTRIBUTES, String.class), keepOriginal);
+   }
+
+   @Override
+   public String getType() {
+      return LumeerConst.Batch.TASK_TYPE;
+   }
+
+   @Override
+   public void process(final TaskContext context) {
+      final DataDocument parameters = context.getParameters();
+      final BatchJob job = new BatchJob(createBatch(parameters), context.getDataStorage(), dataStorageDialect,
+            parameters.getString(SHADOW_COLLECTION), parameters.getString(METADATA_COLLECTION), context.getUser(),
+            Integer.getInteger(LumeerConst.Batch.CHUNK_SIZE_PROPERTY, LumeerConst.Batch.DEFAULT_CHUNK_SIZE));
+
+      job.run(context);
+   }
+}
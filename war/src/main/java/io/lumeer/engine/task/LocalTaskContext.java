@@ -0,0 +1,84 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.task;
+
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.engine.api.task.TaskContext;
+
+/**
+ * Context of a task processed directly in the calling thread. Progress is only kept in memory and the task cannot be cancelled.
+ */
+public class LocalTaskContext implements TaskContext {
+
+   private final String user;
+   private final DataDocument parameters;
+   private final DataStorage dataStorage;
+
+   private DataDocument checkpoint;
+   private long processed;
+
+   public LocalTaskContext(final String user, final DataDocument parameters, final DataStorage dataStorage) {
+      this.user = user;
+      this.parameters = parameters;
+      this.dataStorage = dataStorage;
+   }
+
+   @Override
+   public String getTaskId() {
+      return null;
+   }
+
+   @Override
+   public String getUser() {
+      return user;
+   }
+
+   @Override
+   public DataDocument getParameters() {
+      return parameters;
+   }
+
+   @Override
+   public DataStorage getDataStorage() {
+      return dataStorage;
+   }
+
+   @Override
+   public DataDocument getCheckpoint() {
+      return checkpoint;
+   }
+
+   @Override
+   public long getProcessed() {
+      return processed;
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return false;
+   }
+
+   @Override
+   public void updateProgress(final long processed, final long total, final DataDocument checkpoint) {
+      this.processed = processed;
+      this.checkpoint = checkpoint;
+   }
+}
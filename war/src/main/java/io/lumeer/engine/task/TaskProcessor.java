@@ -0,0 +1,464 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.task;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataFilter;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.engine.api.data.DataStorageDialect;
+import io.lumeer.engine.api.event.ConnectUserStorage;
+import io.lumeer.engine.api.exception.UnsuccessfulOperationException;
+import io.lumeer.engine.api.push.PushMessage;
+import io.lumeer.engine.api.task.Task;
+import io.lumeer.engine.api.task.TaskContext;
+import io.lumeer.engine.api.task.TaskInfo;
+import io.lumeer.engine.api.task.TaskInfo.State;
+import io.lumeer.engine.provider.DataStorageProvider;
+import io.lumeer.engine.push.PushService;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+/**
+ * Processes long-running tasks in the background.
+ * Tasks are stored in the system storage, so their state survives restarts; unfinished tasks are queued again on the first
+ * use after a start and continue from their last checkpoint. At most {@value LumeerConst.Task#WORKERS_PROPERTY} tasks run at once
+ * and at most {@value LumeerConst.Task#ORGANIZATION_WORKERS_PROPERTY} of them belong to one organization; organizations take
+ * turns in getting a free worker, so a large queue of one organization does not hold back the others.
+ * A task runs when the user storage of its organization has been connected by a request of that organization.
+ * Clients observing a task id over push notifications are notified when the task completes.
+ */
+@ApplicationScoped
+public class TaskProcessor {
+
+   private static final Logger log = Logger.getLogger(TaskProcessor.class.getName());
+
+   @Inject
+   private DataStorageProvider dataStorageProvider;
+
+   @Inject
+   private DataStorageDialect dataStorageDialect;
+
+   @Inject
+   private ManagedExecutorService executorService;
+
+   @Inject
+   @Any
+   private Instance<Task> tasks;
+
+   @Inject
+   private PushService pushService;
+
+   // queues and counters are guarded by this
+   private final Map<String, Deque<String>> queues = new HashMap<>();
+   private final Deque<String> organizations = new ArrayDeque<>();
+   private final Map<String, Integer> runningPerOrganization = new HashMap<>();
+   private int running;
+   private boolean recovered;
+
+   private final Set<String> cancelledTasks = ConcurrentHashMap.newKeySet();
+
+   /**
+    * Stores a new task and queues it for processing.
+    *
+    * @param type
+    *       Type of the task.
+    * @param organizationCode
+    *       Code of the organization the task works with.
+    * @param projectId
+    *       Id of the project the task works with.
+    * @param user
+    *       Email of the user creating the task.
+    * @param parameters
+    *       Parameters of the task.
+    * @return The info about the queued task.
+    */
+   public TaskInfo submit(final String type, final String organizationCode, final String projectId, final String user, final DataDocument parameters) {
+      if (getTask(type) == null) {
+         throw new IllegalArgumentException("Unknown task type " + type);
+      }
+      recover();
+
+      final DataDocument task = new DataDocument(LumeerConst.Task.ATTR_TYPE, type)
+            .append(LumeerConst.Task.ATTR_ORGANIZATION, organizationCode)
+            .append(LumeerConst.Task.ATTR_PROJECT, projectId)
+            .append(LumeerConst.Task.ATTR_USER, user)
+            .append(LumeerConst.Task.ATTR_STATE, State.QUEUED.name())
+            .append(LumeerConst.Task.ATTR_PARAMETERS, parameters)
+            .append(LumeerConst.Task.ATTR_TOTAL, 0L)
+            .append(LumeerConst.Task.ATTR_PROCESSED, 0L)
+            .append(LumeerConst.Task.ATTR_CREATE_DATE, new Date());
+      task.setId(getSystemStorage().createDocument(LumeerConst.Task.COLLECTION_NAME, task));
+
+      enqueue(organizationCode, task.getId());
+      dispatch();
+
+      return new TaskInfo(task);
+   }
+
+   /**
+    * Gets the info about a task of the project.
+    *
+    * @param organizationCode
+    *       Code of the organization.
+    * @param projectId
+    *       Id of the project.
+    * @param taskId
+    *       Id of the task.
+    * @return The task info or null when there is no such task in the project.
+    */
+   public TaskInfo getTaskInfo(final String organizationCode, final String projectId, final String taskId) {
+      recover();
+
+      final DataDocument task = readTask(organizationCode, projectId, taskId);
+      return task != null ? new TaskInfo(task) : null;
+   }
+
+   /**
+    * Cancels a task of the project. A queued task is cancelled immediately, a running one stops at its next checkpoint.
+    *
+    * @param organizationCode
+    *       Code of the organization.
+    * @param projectId
+    *       Id of the project.
+    * @param taskId
+    *       Id of the task.
+    * @return The task info or null when there is no such task in the project.
+    */
+   public TaskInfo cancel(final String organizationCode, final String projectId, final String taskId) {
+      recover();
+
+      final DataDocument task = readTask(organizationCode, projectId, taskId);
+      if (task == null) {
+         return null;
+      }
+
+      final State state = State.valueOf(task.getString(LumeerConst.Task.ATTR_STATE));
+      if (state.isCompleted()) {
+         return new TaskInfo(task);
+      }
+
+      if (state == State.QUEUED && dequeue(organizationCode, taskId)) {
+         complete(taskId, State.CANCELLED, null);
+      } else {
+         cancelledTasks.add(taskId);
+      }
+
+      return getTaskInfo(organizationCode, projectId, taskId);
+   }
+
+   /**
+    * Queues a cancelled or failed task of the project again. The task continues from its last checkpoint.
+    *
+    * @param organizationCode
+    *       Code of the organization.
+    * @param projectId
+    *       Id of the project.
+    * @param taskId
+    *       Id of the task.
+    * @return The task info or null when there is no such task in the project.
+    * @throws UnsuccessfulOperationException
+    *       When the task is neither cancelled nor failed.
+    */
+   public TaskInfo resume(final String organizationCode, final String projectId, final String taskId) throws UnsuccessfulOperationException {
+      recover();
+
+      final DataDocument task = readTask(organizationCode, projectId, taskId);
+      if (task == null) {
+         return null;
+      }
+
+      final State state = State.valueOf(task.getString(LumeerConst.Task.ATTR_STATE));
+      if (state != State.CANCELLED && state != State.FAILED) {
+         throw new UnsuccessfulOperationException("Only cancelled or failed tasks can be resumed.");
+      }
+
+      updateTask(taskId, new DataDocument(LumeerConst.Task.ATTR_STATE, State.QUEUED.name())
+            .append(LumeerConst.Task.ATTR_ERROR, null)
+            .append(LumeerConst.Task.ATTR_FINISH_DATE, null));
+      enqueue(organizationCode, taskId);
+      dispatch();
+
+      return getTaskInfo(organizationCode, projectId, taskId);
+   }
+
+   /**
+    * Starts the queued tasks of an organization once its user storage is available.
+    *
+    * @param event
+    *       Connection of the user storage.
+    */
+   public void onConnectUserStorage(@Observes final ConnectUserStorage event) {
+      recover();
+      dispatch();
+   }
+
+   /**
+    * Queues the tasks that were not completed before the last shutdown and starts them. Tasks that were running are continued from their checkpoint.
+    */
+   private void recover() {
+      synchronized (this) {
+         if (recovered) {
+            return;
+         }
+         recovered = true;
+      }
+
+      final DataFilter unfinished = dataStorageDialect.fieldValuesFilter(LumeerConst.Task.ATTR_STATE, Arrays.asList(State.QUEUED.name(), State.RUNNING.name()));
+      final List<DataDocument> unfinishedTasks = getSystemStorage().search(LumeerConst.Task.COLLECTION_NAME, unfinished,
+            dataStorageDialect.documentFieldSort(LumeerConst.Task.ATTR_CREATE_DATE, LumeerConst.SORT_ASCENDING_ORDER), 0, 0);
+
+      unfinishedTasks.forEach(task -> {
+         if (State.RUNNING.name().equals(task.getString(LumeerConst.Task.ATTR_STATE))) {
+            updateTask(task.getId(), new DataDocument(LumeerConst.Task.ATTR_STATE, State.QUEUED.name()));
+         }
+         enqueue(task.getString(LumeerConst.Task.ATTR_ORGANIZATION), task.getId());
+      });
+
+      if (!unfinishedTasks.isEmpty()) {
+         log.info("Queued " + unfinishedTasks.size() + " unfinished tasks.");
+         dispatch();
+      }
+   }
+
+   private synchronized void enqueue(final String organizationCode, final String taskId) {
+      queues.computeIfAbsent(organizationCode, org -> {
+         organizations.addLast(org);
+         return new ArrayDeque<>();
+      }).addLast(taskId);
+   }
+
+   private synchronized void requeue(final String organizationCode, final String taskId) {
+      queues.computeIfAbsent(organizationCode, org -> {
+         organizations.addFirst(org);
+         return new ArrayDeque<>();
+      }).addFirst(taskId);
+   }
+
+   private synchronized boolean dequeue(final String organizationCode, final String taskId) {
+      final Deque<String> queue = queues.get(organizationCode);
+      return queue != null && queue.remove(taskId);
+   }
+
+   /**
+    * Starts queued tasks while there are free workers, taking the organizations in turns.
+    */
+   private synchronized void dispatch() {
+      final int workers = Integer.getInteger(LumeerConst.Task.WORKERS_PROPERTY, LumeerConst.Task.DEFAULT_WORKERS);
+      final int organizationWorkers = Integer.getInteger(LumeerConst.Task.ORGANIZATION_WORKERS_PROPERTY, LumeerConst.Task.DEFAULT_ORGANIZATION_WORKERS);
+
+      boolean started = true;
+      while (started && running < workers) {
+         started = false;
+
+         for (int i = organizations.size(); i > 0 && running < workers; i--) {
+            final String organizationCode = organizations.pollFirst();
+            final Deque<String> queue = queues.get(organizationCode);
+
+            if (queue.isEmpty()) {
+               queues.remove(organizationCode);
+               continue;
+            }
+            organizations.addLast(organizationCode);
+
+            final DataStorage dataStorage = dataStorageProvider.getConnectedUserStorage(organizationCode);
+            if (dataStorage == null || runningPerOrganization.getOrDefault(organizationCode, 0) >= organizationWorkers) {
+               continue;
+            }
+
+            final String taskId = queue.pollFirst();
+            runningPerOrganization.merge(organizationCode, 1, Integer::sum);
+            running++;
+            started = true;
+
+            try {
+               executorService.execute(() -> execute(taskId, organizationCode, dataStorage));
+            } catch (RejectedExecutionException e) {
+               // the task stays first in the queue and is started by the next dispatch
+               log.log(Level.WARNING, "Task " + taskId + " was rejected by the executor, it stays queued: ", e);
+               runningPerOrganization.merge(organizationCode, -1, Integer::sum);
+               running--;
+               requeue(organizationCode, taskId);
+               return;
+            }
+         }
+      }
+   }
+
+   private void execute(final String taskId, final String organizationCode, final DataStorage dataStorage) {
+      try {
+         final DataDocument task = getSystemStorage().readDocument(LumeerConst.Task.COLLECTION_NAME, dataStorageDialect.documentIdFilter(taskId));
+         if (task == null) {
+            return;
+         }
+
+         if (cancelledTasks.contains(taskId)) {
+            complete(taskId, State.CANCELLED, null);
+            return;
+         }
+
+         final Task handler = getTask(task.getString(LumeerConst.Task.ATTR_TYPE));
+         if (handler == null) {
+            complete(taskId, State.FAILED, "Unknown task type " + task.getString(LumeerConst.Task.ATTR_TYPE));
+            return;
+         }
+
+         updateTask(taskId, new DataDocument(LumeerConst.Task.ATTR_STATE, State.RUNNING.name()).append(LumeerConst.Task.ATTR_START_DATE, new Date()));
+
+         final StoredTaskContext context = new StoredTaskContext(task, dataStorage);
+         handler.process(context);
+
+         complete(taskId, context.isCancelled() ? State.CANCELLED : State.FINISHED, null);
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Task " + taskId + " failed: ", e);
+         complete(taskId, State.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+      } finally {
+         cancelledTasks.remove(taskId);
+
+         synchronized (this) {
+            runningPerOrganization.merge(organizationCode, -1, Integer::sum);
+            running--;
+         }
+         dispatch();
+      }
+   }
+
+   private void complete(final String taskId, final State state, final String error) {
+      updateTask(taskId, new DataDocument(LumeerConst.Task.ATTR_STATE, state.name())
+            .append(LumeerConst.Task.ATTR_ERROR, error)
+            .append(LumeerConst.Task.ATTR_FINISH_DATE, new Date()));
+
+      pushService.publishToObservers(taskId, new PushMessage("task", "task:" + taskId, state.name()));
+   }
+
+   private Task getTask(final String type) {
+      for (final Task task : tasks) {
+         if (task.getType().equals(type)) {
+            return task;
+         }
+      }
+      return null;
+   }
+
+   private DataDocument readTask(final String organizationCode, final String projectId, final String taskId) {
+      final DataFilter idFilter;
+      try {
+         idFilter = dataStorageDialect.documentIdFilter(taskId);
+      } catch (IllegalArgumentException e) {
+         return null; // not a valid id
+      }
+
+      return getSystemStorage().readDocument(LumeerConst.Task.COLLECTION_NAME, dataStorageDialect.combineFilters(idFilter,
+            dataStorageDialect.fieldValueFilter(LumeerConst.Task.ATTR_ORGANIZATION, organizationCode),
+            dataStorageDialect.fieldValueFilter(LumeerConst.Task.ATTR_PROJECT, projectId)));
+   }
+
+   private void updateTask(final String taskId, final DataDocument update) {
+      getSystemStorage().updateDocument(LumeerConst.Task.COLLECTION_NAME, update, dataStorageDialect.documentIdFilter(taskId));
+   }
+
+   private DataStorage getSystemStorage() {
+      return dataStorageProvider.getSystemStorage();
+   }
+
+   /**
+    * Context of a task run by a worker, the progress is stored with the task.
+    */
+   private class StoredTaskContext implements TaskContext {
+
+      private final String taskId;
+      private final String user;
+      private final DataDocument parameters;
+      private final DataStorage dataStorage;
+      private DataDocument checkpoint;
+      private long processed;
+
+      private StoredTaskContext(final DataDocument task, final DataStorage dataStorage) {
+         this.taskId = task.getId();
+         this.user = task.getString(LumeerConst.Task.ATTR_USER);
+         this.parameters = task.getDataDocument(LumeerConst.Task.ATTR_PARAMETERS);
+         this.checkpoint = task.getDataDocument(LumeerConst.Task.ATTR_CHECKPOINT);
+         this.processed = task.getLong(LumeerConst.Task.ATTR_PROCESSED, 0);
+         this.dataStorage = dataStorage;
+      }
+
+      @Override
+      public String getTaskId() {
+         return taskId;
+      }
+
+      @Override
+      public String getUser() {
+         return user;
+      }
+
+      @Override
+      public DataDocument getParameters() {
+         return parameters;
+      }
+
+      @Override
+      public DataStorage getDataStorage() {
+         return dataStorage;
+      }
+
+      @Override
+      public DataDocument getCheckpoint() {
+         return checkpoint;
+      }
+
+      @Override
+      public long getProcessed() {
+         return processed;
+      }
+
+      @Override
+      public boolean isCancelled() {
+         return cancelledTasks.contains(taskId);
+      }
+
+      @Override
+      public void updateProgress(final long processed, final long total, final DataDocument checkpoint) {
+         this.processed = processed;
+         this.checkpoint = checkpoint;
+
+         updateTask(taskId, new DataDocument(LumeerConst.Task.ATTR_PROCESSED, processed)
+               .append(LumeerConst.Task.ATTR_TOTAL, total)
+               .append(LumeerConst.Task.ATTR_CHECKPOINT, checkpoint));
+      }
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.task;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.engine.api.data.DataStorageDialect;
+import io.lumeer.engine.api.task.Task;
+import io.lumeer.engine.api.task.TaskContext;
+import io.lumeer.engine.util.VersionHistory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Drops the versions of documents from their shadow collection that are out of the retention limits.
+ * A snapshot is kept as long as there is a delta stored against it.
+ */
+@ApplicationScoped
+public class VersionCompactionTask implements Task {
+
+   private static final String SHADOW_COLLECTION = "shadowCollection";
+   private static final String DOCUMENT_ID = "documentId";
+   private static final String DOCUMENT_IDS = "documentIds";
+   private static final String RETENTION_COUNT = "retentionCount";
+   private static final String RETENTION_DAYS = "retentionDays";
+
+   @Inject
+   private DataStorageDialect dataStorageDialect;
+
+   /**
+    * Describes the compaction as task parameters.
+    *
+    * @param shadowCollection
+    *       Name of the shadow collection.
+    * @param documentIds
+    *       Ids of the documents the versions of which are compacted.
+    * @param retentionCount
+    *       Number of versions to keep, 0 to keep any number of versions.
+    * @param retentionDays
+    *       Number of days to keep the versions for, 0 to keep versions of any age.
+    * @return The task parameters.
+    */
+   public static DataDocument createParameters(final String shadowCollection, final List<String> documentIds, final int retentionCount, final int retentionDays) {
+      return new DataDocument(SHADOW_COLLECTION, shadowCollection)
+            .append(DOCUMENT_IDS, new ArrayList<>(documentIds))
+            .append(RETENTION_COUNT, retentionCount)
+            .append(RETENTION_DAYS, retentionDays);
+   }
+
+   @Override
+   public String getType() {
+      return LumeerConst.Version.TASK_TYPE;
+   }
+
+   @Override
+   public void process(final TaskContext context) {
+      final DataDocument parameters = context.getParameters();
+      final DataStorage dataStorage = context.getDataStorage();
+      final String shadowCollection = parameters.getString(SHADOW_COLLECTION);
+      final List<String> documentIds = getDocumentIds(parameters);
+      final Date now = new Date();
+
+      // all shadow documents of the whole batch are read at once, they are sorted by version within each document
+      final List<DataDocument> shadowDocuments = dataStorage.search(shadowCollection, dataStorageDialect.documentNestedIdsFilter(documentIds),
+            dataStorageDialect.documentFieldSort(dataStorageDialect.concatFields(LumeerConst.Document.ID, LumeerConst.Document.METADATA_VERSION_KEY), LumeerConst.SORT_ASCENDING_ORDER),
+            Arrays.asList(LumeerConst.Document.METADATA_VERSION_KEY, LumeerConst.Document.UPDATE_DATE_KEY, LumeerConst.Document.CREATE_DATE_KEY, LumeerConst.Version.DELTA_BASE_KEY),
+            0, 0);
+      final Map<String, List<DataDocument>> shadowDocumentsById = shadowDocuments.stream()
+                                                                                 .collect(Collectors.groupingBy(document -> document.getDataDocument(LumeerConst.Document.ID).getString(LumeerConst.Document.ID),
+                                                                                       LinkedHashMap::new, Collectors.toList()));
+
+      final Map<String, List<Integer>> droppedVersions = new LinkedHashMap<>();
+      shadowDocumentsById.forEach((documentId, documents) -> {
+         final int cutoff = VersionHistory.getRetentionCutoff(documents, parameters.getInteger(RETENTION_COUNT, 0), parameters.getInteger(RETENTION_DAYS, 0), now);
+         droppedVersions.put(documentId, documents.stream()
+                                                  .map(document -> document.getInteger(LumeerConst.Document.METADATA_VERSION_KEY))
+                                                  .filter(version -> version < cutoff)
+                                                  .collect(Collectors.toList()));
+      });
+
+      final long total = droppedVersions.values().stream().mapToLong(List::size).sum();
+      long processed = 0;
+
+      for (final Map.Entry<String, List<Integer>> entry : droppedVersions.entrySet()) {
+         for (final Integer version : entry.getValue()) {
+            if (context.isCancelled()) {
+               return;
+            }
+
+            dataStorage.dropDocument(shadowCollection, dataStorageDialect.documentNestedIdFilterWithVersion(entry.getKey(), version));
+            processed++;
+         }
+      }
+
+      // the retention limits are evaluated again when the task is resumed, there is nothing to continue from
+      context.updateProgress(processed, total, new DataDocument());
+   }
+
+   private List<String> getDocumentIds(final DataDocument parameters) {
+      // tasks stored before the compaction was batched carry a single document id
+      if (parameters.containsKey(DOCUMENT_ID)) {
+         return Collections.singletonList(parameters.getString(DOCUMENT_ID));
+      }
+
+      return parameters.getArrayList(DOCUMENT_IDS, String.class);
+   }
+}
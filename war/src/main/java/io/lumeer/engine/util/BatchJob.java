@@ -0,0 +1,237 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.util;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.batch.Batch;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataFilter;
+import io.lumeer.engine.api.data.DataSort;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.engine.api.data.DataStorageDialect;
+import io.lumeer.engine.api.dto.Attribute;
+import io.lumeer.engine.api.task.TaskContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a batch operation over a whole collection in chunks.
+ * Documents are read in ranges of their ids, transformed in memory and written back together with their shadow
+ * backups in bulk, one chunk at a time. A document is replaced only when its version has not changed since it was read,
+ * the documents changed in the meantime are read and transformed again.
+ * The id of the last written document is stored as the task checkpoint after each chunk, so a cancelled or failed batch
+ * can be resumed where it stopped. The versions of the chunk being written are stored in the checkpoint too, a resumed
+ * batch skips the documents of that chunk that were already written. The job does not use any contextual beans
+ * and can run on any thread.
+ */
+public class BatchJob {
+
+   /**
+    * Checkpoint attribute holding the id of the last written document.
+    */
+   public static final String LAST_DOCUMENT_ID = "lastDocumentId";
+
+   /**
+    * Checkpoint attribute holding the versions of the documents of the chunk being written, by their ids.
+    */
+   public static final String CHUNK_VERSIONS = "chunkVersions";
+
+   private static final int MAX_ATTEMPTS = 10;
+
+   private final Batch batch;
+   private final DataStorage dataStorage;
+   private final DataStorageDialect dialect;
+   private final String shadowCollection;
+   private final String metadataCollection;
+   private final String user;
+   private final int chunkSize;
+
+   public BatchJob(final Batch batch, final DataStorage dataStorage, final DataStorageDialect dialect, final String shadowCollection,
+         final String metadataCollection, final String user, final int chunkSize) {
+      this.batch = batch;
+      this.dataStorage = dataStorage;
+      this.dialect = dialect;
+      this.shadowCollection = shadowCollection;
+      this.metadataCollection = metadataCollection;
+      this.user = user;
+      this.chunkSize = chunkSize;
+   }
+
+   /**
+    * Processes the documents after the checkpoint of the context until the whole collection is done or the context is cancelled.
+    *
+    * @param context
+    *       The context to report progress to.
+    */
+   public void run(final TaskContext context) {
+      final String collection = batch.getCollectionCode();
+      final DataSort idSort = dialect.documentFieldSort(LumeerConst.Document.ID, LumeerConst.SORT_ASCENDING_ORDER);
+      final long total = dataStorage.count(collection, null);
+      final DataDocument checkpoint = context.getCheckpoint();
+      String lastDocumentId = checkpoint != null ? checkpoint.getString(LAST_DOCUMENT_ID) : null;
+      DataDocument writtenVersions = checkpoint != null && checkpoint.getDataDocument(CHUNK_VERSIONS) != null ? checkpoint.getDataDocument(CHUNK_VERSIONS) : new DataDocument();
+      long processed = context.getProcessed();
+
+      if (!dataStorage.hasCollection(shadowCollection)) {
+         dataStorage.createCollection(shadowCollection);
+      }
+
+      while (!context.isCancelled()) {
+         final DataFilter filter = lastDocumentId != null ? dialect.documentIdGreaterThanFilter(lastDocumentId) : null;
+         final List<DataDocument> chunk = dataStorage.search(collection, filter, idSort, 0, chunkSize);
+         if (chunk.isEmpty()) {
+            break;
+         }
+
+         // the documents written before the batch was interrupted do not have the version stored in the checkpoint anymore
+         final DataDocument interruptedVersions = writtenVersions;
+         List<DataDocument> documents = chunk.stream()
+                                             .filter(doc -> !interruptedVersions.containsKey(doc.getId()) || interruptedVersions.getInteger(doc.getId()) == getVersion(doc))
+                                             .collect(Collectors.toList());
+         writtenVersions = new DataDocument();
+
+         for (int attempt = 0; !documents.isEmpty(); attempt++) {
+            if (attempt == MAX_ATTEMPTS) {
+               throw new IllegalStateException(documents.size() + " documents kept changing while the batch was writing them, the batch can be resumed.");
+            }
+
+            final DataDocument versions = new DataDocument();
+            documents.forEach(doc -> versions.put(doc.getId(), getVersion(doc)));
+            context.updateProgress(processed, total, new DataDocument(LAST_DOCUMENT_ID, lastDocumentId).append(CHUNK_VERSIONS, versions));
+
+            final Set<String> changed = processChunk(documents);
+            documents = changed.isEmpty() ? Collections.emptyList() : dataStorage.search(collection, dialect.documentIdsFilter(new ArrayList<>(changed)), null, 0, 0);
+         }
+
+         lastDocumentId = chunk.get(chunk.size() - 1).getId();
+         processed += chunk.size();
+         context.updateProgress(processed, total, new DataDocument(LAST_DOCUMENT_ID, lastDocumentId));
+      }
+   }
+
+   /**
+    * Transforms and writes the documents.
+    *
+    * @param chunk
+    *       The documents to process.
+    * @return The ids of the documents that were not written because they were changed since they were read.
+    */
+   private Set<String> processChunk(final List<DataDocument> chunk) {
+      final List<DataDocument> backups = new ArrayList<>(chunk.size());
+      final List<DataDocument> updated = new ArrayList<>(chunk.size());
+      final Map<String, Integer> versions = new HashMap<>();
+      final Map<String, Map<String, Integer>> attributeCountsByDocument = new HashMap<>();
+      final String updateDate = Utils.getCurrentTimeString();
+
+      for (final DataDocument doc : chunk) {
+         final DataDocument original = new DataDocument(doc);
+         final Set<String> originalAttributes = BatchTransformer.getAttributes(doc);
+
+         BatchTransformer.transform(batch, doc);
+         if (VersionHistory.valuesEqual(doc, original)) {
+            continue;
+         }
+
+         final Map<String, Integer> attributeCounts = new HashMap<>();
+         final Set<String> attributes = BatchTransformer.getAttributes(doc);
+         originalAttributes.stream().filter(a -> !attributes.contains(a)).forEach(a -> attributeCounts.put(a, -1));
+         attributes.stream().filter(a -> !originalAttributes.contains(a)).forEach(a -> attributeCounts.put(a, 1));
+         attributeCountsByDocument.put(doc.getId(), attributeCounts);
+
+         final int version = getVersion(original);
+         original.put(LumeerConst.Document.METADATA_VERSION_KEY, version);
+         doc.put(LumeerConst.Document.METADATA_VERSION_KEY, version + 1);
+         doc.put(LumeerConst.Document.UPDATE_DATE_KEY, updateDate);
+         doc.put(LumeerConst.Document.UPDATED_BY_USER_KEY, user);
+
+         versions.put(doc.getId(), version);
+         backups.add(original);
+         updated.add(doc);
+      }
+
+      dataStorage.createOldDocuments(shadowCollection, backups);
+      final Set<String> changed = dataStorage.replaceDocuments(batch.getCollectionCode(), updated, versions);
+
+      // only the written documents change the attribute counts
+      final Map<String, Integer> attributeCounts = new HashMap<>();
+      attributeCountsByDocument.forEach((id, counts) -> {
+         if (!changed.contains(id)) {
+            counts.forEach((attribute, change) -> attributeCounts.merge(attribute, change, Integer::sum));
+         }
+      });
+      updateAttributeCounts(attributeCounts);
+
+      return changed;
+   }
+
+   private static int getVersion(final DataDocument document) {
+      return document.getInteger(LumeerConst.Document.METADATA_VERSION_KEY, 0);
+   }
+
+   private void updateAttributeCounts(final Map<String, Integer> attributeCounts) {
+      attributeCounts.values().removeIf(count -> count == 0);
+      if (attributeCounts.isEmpty()) {
+         return;
+      }
+
+      final DataFilter collectionFilter = dialect.fieldValueFilter(LumeerConst.Collection.CODE, batch.getCollectionCode());
+      final DataDocument metadata = dataStorage.readDocumentIncludeAttrs(metadataCollection, collectionFilter, Collections.singletonList(LumeerConst.Collection.ATTRIBUTES));
+      if (metadata == null) {
+         return;
+      }
+
+      final Map<String, DataDocument> existing = metadata.getArrayList(LumeerConst.Collection.ATTRIBUTES, DataDocument.class).stream()
+                                                         .collect(Collectors.toMap(a -> a.getString(LumeerConst.Collection.ATTRIBUTE_FULL_NAME), a -> a, (a, b) -> a));
+      final String countField = dialect.concatFields(LumeerConst.Collection.ATTRIBUTES, "$", LumeerConst.Collection.ATTRIBUTE_COUNT);
+      final List<DataDocument> dropped = new ArrayList<>();
+
+      attributeCounts.forEach((attribute, change) -> {
+         final DataDocument attributeMetadata = existing.get(attribute);
+         if (attributeMetadata != null) {
+            final int count = new Attribute(attributeMetadata).getCount() + change;
+            if (count <= 0) {
+               dropped.add(attributeMetadata);
+            } else {
+               final Map<String, Object> attributeFilter = new HashMap<>();
+               attributeFilter.put(LumeerConst.Collection.CODE, batch.getCollectionCode());
+               attributeFilter.put(dialect.concatFields(LumeerConst.Collection.ATTRIBUTES, LumeerConst.Collection.ATTRIBUTE_FULL_NAME), attribute);
+               dataStorage.incrementAttributeValueBy(metadataCollection, dialect.multipleFieldsValueFilter(attributeFilter), countField, change);
+            }
+         } else if (change > 0) {
+            dataStorage.addItemToArray(metadataCollection, collectionFilter, LumeerConst.Collection.ATTRIBUTES,
+                  new DataDocument()
+                        .append(LumeerConst.Collection.ATTRIBUTE_FULL_NAME, attribute)
+                        .append(LumeerConst.Collection.ATTRIBUTE_NAME, attribute.substring(attribute.lastIndexOf('.') + 1))
+                        .append(LumeerConst.Collection.ATTRIBUTE_CONSTRAINTS, new ArrayList<String>())
+                        .append(LumeerConst.Collection.ATTRIBUTE_COUNT, change));
+         }
+      });
+
+      if (!dropped.isEmpty()) {
+         dataStorage.removeItemsFromArray(metadataCollection, collectionFilter, LumeerConst.Collection.ATTRIBUTES, dropped);
+      }
+   }
+}
@@ -0,0 +1,204 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.util;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.batch.Batch;
+import io.lumeer.engine.api.batch.MergeBatch;
+import io.lumeer.engine.api.batch.SplitBatch;
+import io.lumeer.engine.api.data.DataDocument;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies batch operations to single documents in memory.
+ */
+public final class BatchTransformer {
+
+   private BatchTransformer() {
+      // utility class
+   }
+
+   /**
+    * Applies the batch operation to the given document.
+    *
+    * @param batch
+    *       The batch operation to apply.
+    * @param doc
+    *       The document to modify.
+    */
+   public static void transform(final Batch batch, final DataDocument doc) {
+      if (batch instanceof MergeBatch) {
+         transform((MergeBatch) batch, doc);
+      } else if (batch instanceof SplitBatch) {
+         transform((SplitBatch) batch, doc);
+      }
+   }
+
+   private static void transform(final MergeBatch batch, final DataDocument doc) {
+      if (batch.getMergeType() == MergeBatch.MergeType.JOIN) {
+         final StringBuilder sb = new StringBuilder();
+
+         batch.getAttributes().forEach(attr -> {
+            final Object value = doc.get(attr);
+
+            if (value != null) {
+               if (sb.length() > 0) {
+                  sb.append(batch.getJoin());
+               }
+
+               sb.append(value);
+            }
+         });
+
+         doc.put(batch.getResultAttribute(), sb.toString());
+      } else if (batch.getMergeType() == MergeBatch.MergeType.SUM) {
+         doc.put(batch.getResultAttribute(), sum(batch, doc));
+      } else {
+         final DataDocument subDoc = new DataDocument();
+
+         batch.getAttributes().forEach(attr -> {
+            final Object value = doc.get(attr);
+
+            if (value != null) {
+               subDoc.put(attr, value);
+            }
+         });
+
+         doc.put(batch.getResultAttribute(), subDoc);
+      }
+
+      if (!batch.isKeepOriginal()) {
+         batch.getAttributes().stream()
+              .filter(attr -> !attr.equals(batch.getResultAttribute()))
+              .forEach(doc::remove);
+      }
+   }
+
+   private static Object sum(final MergeBatch batch, final DataDocument doc) {
+      double sum = 0d;
+      long longSum = 0l;
+      BigDecimal bigDecimal = new BigDecimal("0");
+      BigInteger bigInteger = new BigInteger("0");
+      boolean wasFloating = false;
+      boolean onlyBigDecimal = true;
+      boolean onlyBigInteger = true;
+
+      for (final String attr : batch.getAttributes()) {
+         final Object value = doc.get(attr);
+
+         if (value != null) {
+            if (value instanceof Double) {
+               sum = sum + (double) value;
+               wasFloating = true;
+               onlyBigDecimal = false;
+               onlyBigInteger = false;
+            } else if (value instanceof Integer) {
+               sum = sum + (int) value;
+               longSum = longSum + (int) value;
+               onlyBigDecimal = false;
+               onlyBigInteger = false;
+            } else if (value instanceof Long) {
+               sum = sum + (long) value;
+               longSum = longSum + (long) value;
+               onlyBigDecimal = false;
+               onlyBigInteger = false;
+            } else if (value instanceof Float) {
+               sum = sum + (float) value;
+               wasFloating = true;
+               onlyBigDecimal = false;
+               onlyBigInteger = false;
+            } else if (value instanceof Byte) {
+               sum = sum + (byte) value;
+               longSum = longSum + (byte) value;
+               onlyBigDecimal = false;
+               onlyBigInteger = false;
+            } else if (value instanceof BigDecimal) {
+               bigDecimal = bigDecimal.add((BigDecimal) value);
+               sum = sum + ((BigDecimal) value).doubleValue();
+               onlyBigInteger = false;
+            } else if (value instanceof BigInteger) {
+               bigDecimal = bigDecimal.add(new BigDecimal((BigInteger) value));
+               bigInteger = bigInteger.add((BigInteger) value);
+               sum = sum + ((BigInteger) value).longValue();
+            }
+         }
+      }
+
+      // now see what types we had and try to be as restrictive as possible
+      if (onlyBigInteger) {
+         return bigInteger;
+      } else if (onlyBigDecimal) {
+         return bigDecimal;
+      } else if (!wasFloating) {
+         return longSum;
+      }
+
+      return sum;
+   }
+
+   private static void transform(final SplitBatch batch, final DataDocument doc) {
+      final Object value = doc.get(batch.getAttribute());
+
+      if (value != null) {
+         final String original = value instanceof String ? (String) value : value.toString();
+         final String[] parts = original.split(batch.getDelimiter(), batch.getSplitAttributes().size());
+
+         for (int i = 0; i < parts.length; i++) {
+            doc.put(batch.getSplitAttributes().get(i), batch.isTrim() ? parts[i].trim() : parts[i]);
+         }
+      }
+
+      if (!batch.isKeepOriginal() && !batch.getSplitAttributes().contains(batch.getAttribute())) {
+         doc.remove(batch.getAttribute());
+      }
+   }
+
+   /**
+    * Gets names of all non-metadata attributes of the document including the nested ones in dot notation.
+    *
+    * @param doc
+    *       The document to inspect.
+    * @return The set of attribute names.
+    */
+   public static Set<String> getAttributes(final DataDocument doc) {
+      final Set<String> attributes = new HashSet<>();
+      collectAttributes(doc, "", attributes);
+      return attributes;
+   }
+
+   private static void collectAttributes(final DataDocument doc, final String prefix, final Set<String> attributes) {
+      for (Map.Entry<String, Object> entry : doc.entrySet()) {
+         final String attributeName = entry.getKey().trim();
+         if (prefix.isEmpty() && (attributeName.startsWith(LumeerConst.Document.METADATA_PREFIX) || attributeName.equals(LumeerConst.Document.ID))) {
+            continue;
+         }
+
+         attributes.add(prefix + attributeName);
+         if (entry.getValue() instanceof DataDocument) {
+            collectAttributes((DataDocument) entry.getValue(), prefix + attributeName + ".", attributes);
+         }
+      }
+   }
+}
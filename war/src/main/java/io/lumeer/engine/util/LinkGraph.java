@@ -0,0 +1,440 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.util;
+
+import io.lumeer.engine.api.LumeerConst.Linking.LinkDirection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory adjacency index of the document links of a single project.
+ * Documents, collections and roles are mapped to ints and the links of each document are kept in compact arrays
+ * of (neighbour, role) pairs, one for the outgoing and one for the incoming links.
+ * The graph is safe for concurrent use, traversals hold a read lock and modifications a write lock.
+ */
+public class LinkGraph {
+
+   private static final int[] NO_LINKS = new int[0];
+
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+   private final Map<String, Integer> nodes = new HashMap<>();
+   private final Map<String, Integer> collections = new HashMap<>();
+   private final Map<String, Integer> roles = new HashMap<>();
+   private final List<String> collectionIds = new ArrayList<>();
+
+   // slots of removed documents, reused by the next added documents
+   private final Deque<Integer> freeNodes = new ArrayDeque<>();
+
+   private String[] documentIds = new String[16];
+   private int[] documentCollections = new int[16];
+   private int[][] outgoing = new int[16][];
+   private int[][] incoming = new int[16][];
+   private int[] outgoingSize = new int[16];
+   private int[] incomingSize = new int[16];
+   private int nodeCount;
+   private int linkCount;
+
+   public void addLink(final String fromCollectionId, final String fromDocumentId, final String toCollectionId, final String toDocumentId, final String role) {
+      lock.writeLock().lock();
+      try {
+         int from = getOrCreateNode(fromDocumentId, fromCollectionId);
+         int to = getOrCreateNode(toDocumentId, toCollectionId);
+         int roleId = roles.computeIfAbsent(role, r -> roles.size());
+
+         appendLink(outgoing, outgoingSize, from, to, roleId);
+         appendLink(incoming, incomingSize, to, from, roleId);
+         linkCount++;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes the links of the document.
+    *
+    * @param documentId
+    *       The document id.
+    * @param role
+    *       Role of the removed links, null removes links of any role.
+    * @param direction
+    *       Direction of the removed links, {@link LinkDirection#FROM} removes the links starting in the document.
+    * @param otherCollectionId
+    *       Only links to documents of this collection are removed, null removes links to any collection.
+    * @param otherDocumentId
+    *       Only links to this document are removed, null removes links to any document.
+    */
+   public void removeLinks(final String documentId, final String role, final LinkDirection direction, final String otherCollectionId, final String otherDocumentId) {
+      lock.writeLock().lock();
+      try {
+         Integer node = nodes.get(documentId);
+         if (node == null || (role != null && !roles.containsKey(role))) {
+            return;
+         }
+         int roleId = role != null ? roles.get(role) : -1;
+         int collection = otherCollectionId != null ? collections.getOrDefault(otherCollectionId, -2) : -1;
+         int other = otherDocumentId != null ? nodes.getOrDefault(otherDocumentId, -2) : -1;
+
+         if (direction != LinkDirection.TO) {
+            removeMatchingLinks(outgoing, outgoingSize, incoming, incomingSize, node, roleId, collection, other);
+         }
+         if (direction != LinkDirection.FROM) {
+            removeMatchingLinks(incoming, incomingSize, outgoing, outgoingSize, node, roleId, collection, other);
+         }
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes the document and all its links.
+    *
+    * @param documentId
+    *       The document id.
+    */
+   public void removeDocument(final String documentId) {
+      lock.writeLock().lock();
+      try {
+         Integer node = nodes.remove(documentId);
+         if (node == null) {
+            return;
+         }
+
+         removeMatchingLinks(outgoing, outgoingSize, incoming, incomingSize, node, -1, -1, -1);
+         removeMatchingLinks(incoming, incomingSize, outgoing, outgoingSize, node, -1, -1, -1);
+         documentIds[node] = null;
+         outgoing[node] = NO_LINKS;
+         incoming[node] = NO_LINKS;
+         freeNodes.push(node);
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes all links of the given role from documents of one collection to documents of another collection.
+    *
+    * @param fromCollectionId
+    *       Collection of the link sources.
+    * @param toCollectionId
+    *       Collection of the link targets.
+    * @param role
+    *       Role of the links, null removes links of any role.
+    */
+   public void removeLinks(final String fromCollectionId, final String toCollectionId, final String role) {
+      lock.writeLock().lock();
+      try {
+         Integer fromCollection = collections.get(fromCollectionId);
+         Integer toCollection = collections.get(toCollectionId);
+         if (fromCollection == null || toCollection == null || (role != null && !roles.containsKey(role))) {
+            return;
+         }
+         int roleId = role != null ? roles.get(role) : -1;
+
+         for (int node = 0; node < nodeCount; node++) {
+            if (documentCollections[node] == fromCollection) {
+               removeMatchingLinks(outgoing, outgoingSize, incoming, incomingSize, node, roleId, toCollection, -1);
+            }
+         }
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Finds the documents reachable from the given document by breadth first search.
+    *
+    * @param documentId
+    *       The start document.
+    * @param role
+    *       Role of the followed links, null follows links of any role.
+    * @param direction
+    *       Direction of the followed links.
+    * @param maxDepth
+    *       The maximal number of hops.
+    * @return Ids of the reachable documents mapped to their distance in hops, the closest documents first.
+    */
+   public Map<String, Integer> getReachableDocuments(final String documentId, final String role, final LinkDirection direction, final int maxDepth) {
+      lock.readLock().lock();
+      try {
+         Integer start = nodes.get(documentId);
+         int roleId = getRoleId(role);
+         if (start == null || roleId == -2) {
+            return Collections.emptyMap();
+         }
+
+         int[] distances = new int[nodeCount];
+         Arrays.fill(distances, -1);
+         distances[start] = 0;
+         int[] queue = new int[nodeCount];
+         int head = 0;
+         int tail = 0;
+         queue[tail++] = start;
+
+         Map<String, Integer> reachable = new LinkedHashMap<>();
+         while (head < tail) {
+            int node = queue[head++];
+            if (distances[node] >= maxDepth) {
+               continue;
+            }
+            if (direction != LinkDirection.TO) {
+               tail = visitNeighbours(outgoing[node], outgoingSize[node], roleId, node, distances, queue, tail, null);
+            }
+            if (direction != LinkDirection.FROM) {
+               tail = visitNeighbours(incoming[node], incomingSize[node], roleId, node, distances, queue, tail, null);
+            }
+         }
+
+         for (int i = 1; i < tail; i++) {
+            reachable.put(documentIds[queue[i]], distances[queue[i]]);
+         }
+         return reachable;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Finds the shortest path between two documents.
+    *
+    * @param fromDocumentId
+    *       The start document.
+    * @param toDocumentId
+    *       The target document.
+    * @param role
+    *       Role of the followed links, null follows links of any role.
+    * @param direction
+    *       Direction of the followed links.
+    * @param maxDepth
+    *       The maximal length of the path in hops.
+    * @return Ids of the documents on the path including both ends, or an empty list when there is no such path.
+    */
+   public List<String> getShortestPath(final String fromDocumentId, final String toDocumentId, final String role, final LinkDirection direction, final int maxDepth) {
+      lock.readLock().lock();
+      try {
+         Integer start = nodes.get(fromDocumentId);
+         Integer target = nodes.get(toDocumentId);
+         int roleId = getRoleId(role);
+         if (start == null || target == null || roleId == -2) {
+            return Collections.emptyList();
+         }
+
+         int[] distances = new int[nodeCount];
+         Arrays.fill(distances, -1);
+         distances[start] = 0;
+         int[] parents = new int[nodeCount];
+         int[] queue = new int[nodeCount];
+         int head = 0;
+         int tail = 0;
+         queue[tail++] = start;
+
+         while (head < tail && distances[target] < 0) {
+            int node = queue[head++];
+            if (distances[node] >= maxDepth) {
+               continue;
+            }
+            if (direction != LinkDirection.TO) {
+               tail = visitNeighbours(outgoing[node], outgoingSize[node], roleId, node, distances, queue, tail, parents);
+            }
+            if (direction != LinkDirection.FROM) {
+               tail = visitNeighbours(incoming[node], incomingSize[node], roleId, node, distances, queue, tail, parents);
+            }
+         }
+
+         if (distances[target] < 0) {
+            return Collections.emptyList();
+         }
+
+         List<String> path = new ArrayList<>();
+         for (int node = target; node != start; node = parents[node]) {
+            path.add(documentIds[node]);
+         }
+         path.add(documentIds[start]);
+         Collections.reverse(path);
+         return path;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Counts the distinct documents linked with the given document.
+    *
+    * @param documentId
+    *       The document id.
+    * @param role
+    *       Role of the counted links, null counts links of any role.
+    * @param direction
+    *       Direction of the counted links.
+    * @return The number of neighbours.
+    */
+   public int getNeighbourCount(final String documentId, final String role, final LinkDirection direction) {
+      return getReachableDocuments(documentId, role, direction, 1).size();
+   }
+
+   public String getCollectionId(final String documentId) {
+      lock.readLock().lock();
+      try {
+         Integer node = nodes.get(documentId);
+         return node != null ? collectionIds.get(documentCollections[node]) : null;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   public int getDocumentCount() {
+      lock.readLock().lock();
+      try {
+         return nodes.size();
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   public int getLinkCount() {
+      lock.readLock().lock();
+      try {
+         return linkCount;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   private int getRoleId(final String role) {
+      if (role == null) {
+         return -1;
+      }
+      Integer roleId = roles.get(role);
+      return roleId != null ? roleId : -2;
+   }
+
+   private int visitNeighbours(final int[] links, final int size, final int roleId, final int node, final int[] distances, final int[] queue, int tail, final int[] parents) {
+      for (int i = 0; i < size; i += 2) {
+         int neighbour = links[i];
+         if ((roleId < 0 || links[i + 1] == roleId) && distances[neighbour] < 0) {
+            distances[neighbour] = distances[node] + 1;
+            if (parents != null) {
+               parents[neighbour] = node;
+            }
+            queue[tail++] = neighbour;
+         }
+      }
+      return tail;
+   }
+
+   private int getOrCreateNode(final String documentId, final String collectionId) {
+      Integer node = nodes.get(documentId);
+      if (node != null) {
+         return node;
+      }
+
+      if (!freeNodes.isEmpty()) {
+         return initNode(freeNodes.pop(), documentId, collectionId);
+      }
+
+      if (nodeCount == documentIds.length) {
+         int capacity = nodeCount * 2;
+         documentIds = Arrays.copyOf(documentIds, capacity);
+         documentCollections = Arrays.copyOf(documentCollections, capacity);
+         outgoing = Arrays.copyOf(outgoing, capacity);
+         incoming = Arrays.copyOf(incoming, capacity);
+         outgoingSize = Arrays.copyOf(outgoingSize, capacity);
+         incomingSize = Arrays.copyOf(incomingSize, capacity);
+      }
+
+      return initNode(nodeCount++, documentId, collectionId);
+   }
+
+   private int initNode(final int node, final String documentId, final String collectionId) {
+      documentIds[node] = documentId;
+      documentCollections[node] = collections.computeIfAbsent(collectionId, id -> {
+         collectionIds.add(id);
+         return collectionIds.size() - 1;
+      });
+      outgoing[node] = NO_LINKS;
+      incoming[node] = NO_LINKS;
+      outgoingSize[node] = 0;
+      incomingSize[node] = 0;
+      nodes.put(documentId, node);
+      return node;
+   }
+
+   private static void appendLink(final int[][] links, final int[] sizes, final int node, final int neighbour, final int roleId) {
+      int size = sizes[node];
+      if (size == links[node].length) {
+         links[node] = Arrays.copyOf(links[node], Math.max(4, size * 2));
+      }
+      links[node][size] = neighbour;
+      links[node][size + 1] = roleId;
+      sizes[node] = size + 2;
+   }
+
+   /**
+    * Removes the matching links of the node and the reverse entries kept at the neighbours. A negative role, collection
+    * or neighbour matches any value.
+    */
+   private void removeMatchingLinks(final int[][] links, final int[] sizes, final int[][] reverseLinks, final int[] reverseSizes,
+         final int node, final int roleId, final int collection, final int other) {
+      int[] nodeLinks = links[node];
+      int size = sizes[node];
+      int i = 0;
+      while (i < size) {
+         int neighbour = nodeLinks[i];
+         int linkRole = nodeLinks[i + 1];
+         boolean matches = (roleId == -1 || linkRole == roleId)
+               && (collection == -1 || documentCollections[neighbour] == collection)
+               && (other == -1 || neighbour == other);
+         if (matches) {
+            // swap with the last pair, so the order of links is not preserved
+            nodeLinks[i] = nodeLinks[size - 2];
+            nodeLinks[i + 1] = nodeLinks[size - 1];
+            size -= 2;
+            removeLink(reverseLinks, reverseSizes, neighbour, node, linkRole);
+            linkCount--;
+         } else {
+            i += 2;
+         }
+      }
+      sizes[node] = size;
+   }
+
+   private static void removeLink(final int[][] links, final int[] sizes, final int node, final int neighbour, final int roleId) {
+      int[] nodeLinks = links[node];
+      int size = sizes[node];
+      for (int i = 0; i < size; i += 2) {
+         if (nodeLinks[i] == neighbour && nodeLinks[i + 1] == roleId) {
+            nodeLinks[i] = nodeLinks[size - 2];
+            nodeLinks[i + 1] = nodeLinks[size - 1];
+            sizes[node] = size - 2;
+            return;
+         }
+      }
+   }
+}
@@ -21,6 +21,7 @@ package io.lumeer.engine.util;
 
 import io.lumeer.core.exception.NoPermissionException;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
+import io.lumeer.storage.api.exception.VersionConflictException;
 import io.lumeer.engine.api.exception.AttributeAlreadyExistsException;
 import io.lumeer.engine.api.exception.AttributeNotFoundException;
 import io.lumeer.engine.api.exception.CollectionAlreadyExistsException;
@@ -86,6 +87,11 @@ public class LumeerExceptionMapper implements ExceptionMapper<LumeerException> {
          return Response.status(Response.Status.NOT_FOUND).entity(e.getLocalizedMessage()).type(MediaType.TEXT_PLAIN).build();
       }
 
+      // 409 - CONFLICT
+      if (e instanceof VersionConflictException) {
+         return Response.status(Response.Status.CONFLICT).entity(e.getLocalizedMessage()).type(MediaType.TEXT_PLAIN).build();
+      }
+
       // 500 - INTERNAL SERVER ERROR
       if (e instanceof VersionUpdateConflictException) {
          return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getLocalizedMessage()).type(MediaType.TEXT_PLAIN).build();
@@ -29,6 +29,7 @@ import io.lumeer.engine.provider.DataStorageProvider;
 import java.util.logging.Logger;
 import javax.annotation.Resource;
 import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Dependent;
 import javax.enterprise.context.RequestScoped;
@@ -56,6 +57,10 @@ public class Resources {
    @Produces
    private ManagedExecutorService managedExecutorService;
 
+   @Resource
+   @Produces
+   private ManagedThreadFactory managedThreadFactory;
+
    @Produces
    @Dependent
    public Logger produceLog(InjectionPoint injectionPoint) {
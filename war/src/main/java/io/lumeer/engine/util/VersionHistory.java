@@ -0,0 +1,228 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.util;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.data.DataDocument;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores old document versions in a shadow collection as deltas.
+ * Every {@value LumeerConst.Version#SNAPSHOT_INTERVAL_PROPERTY}-th version is a full copy of the document (a snapshot),
+ * the versions in between only keep the top-level attributes that differ from the last snapshot. Any version can
+ * therefore be reconstructed from at most two shadow documents.
+ */
+public final class VersionHistory {
+
+   private VersionHistory() {
+      // no instance is allowed
+   }
+
+   /**
+    * Gets the version of the snapshot the given version is stored against.
+    *
+    * @param version
+    *       The document version.
+    * @param snapshotInterval
+    *       Number of versions between two snapshots.
+    * @return The version of the snapshot, equal to the version when the version itself should be a snapshot.
+    */
+   public static int getSnapshotVersion(final int version, final int snapshotInterval) {
+      return snapshotInterval > 1 ? version - version % snapshotInterval : version;
+   }
+
+   /**
+    * Checks whether the shadow document is stored as a delta.
+    *
+    * @param shadowDocument
+    *       The document from shadow collection.
+    * @return True iff the document must be applied to its snapshot to get the document version.
+    */
+   public static boolean isDelta(final DataDocument shadowDocument) {
+      return shadowDocument.containsKey(LumeerConst.Version.DELTA_BASE_KEY);
+   }
+
+   /**
+    * Gets the version of the snapshot the delta was created against.
+    *
+    * @param delta
+    *       The delta document from shadow collection.
+    * @return The version of the snapshot.
+    */
+   public static int getBaseVersion(final DataDocument delta) {
+      return delta.getInteger(LumeerConst.Version.DELTA_BASE_KEY);
+   }
+
+   /**
+    * Creates a delta of the document against the snapshot.
+    *
+    * @param snapshot
+    *       The full document version to compare with.
+    * @param document
+    *       The document version to store.
+    * @param snapshotVersion
+    *       Version of the snapshot.
+    * @return The delta to be stored in shadow collection.
+    */
+   public static DataDocument createDelta(final DataDocument snapshot, final DataDocument document, final int snapshotVersion) {
+      final DataDocument set = new DataDocument();
+      final List<String> unset = new ArrayList<>();
+
+      document.forEach((key, value) -> {
+         if (!LumeerConst.Document.ID.equals(key) && (!snapshot.containsKey(key) || !valuesEqual(snapshot.get(key), value))) {
+            set.put(key, value);
+         }
+      });
+      snapshot.keySet().forEach(key -> {
+         if (!LumeerConst.Document.ID.equals(key) && !document.containsKey(key)) {
+            unset.add(key);
+         }
+      });
+
+      // version and date stay at the top level so that the shadow documents can be searched and compacted
+      final DataDocument delta = new DataDocument(LumeerConst.Document.METADATA_VERSION_KEY, document.get(LumeerConst.Document.METADATA_VERSION_KEY))
+            .append(LumeerConst.Version.DELTA_BASE_KEY, snapshotVersion)
+            .append(LumeerConst.Version.DELTA_SET_KEY, set)
+            .append(LumeerConst.Version.DELTA_UNSET_KEY, unset);
+      if (document.containsKey(LumeerConst.Document.UPDATE_DATE_KEY)) {
+         delta.append(LumeerConst.Document.UPDATE_DATE_KEY, document.get(LumeerConst.Document.UPDATE_DATE_KEY));
+      }
+
+      return delta;
+   }
+
+   /**
+    * Reconstructs the document version from its snapshot and delta.
+    *
+    * @param snapshot
+    *       The snapshot the delta was created against.
+    * @param delta
+    *       The delta from shadow collection.
+    * @return The full document version with the id of the delta.
+    */
+   public static DataDocument applyDelta(final DataDocument snapshot, final DataDocument delta) {
+      final DataDocument document = new DataDocument(snapshot);
+
+      delta.getArrayList(LumeerConst.Version.DELTA_UNSET_KEY, String.class).forEach(document::remove);
+      document.putAll(delta.getDataDocument(LumeerConst.Version.DELTA_SET_KEY));
+      document.put(LumeerConst.Document.ID, delta.get(LumeerConst.Document.ID));
+
+      return document;
+   }
+
+   /**
+    * Gets the oldest version that must be kept according to the retention settings. A version stored as a delta is never
+    * kept without its snapshot.
+    *
+    * @param shadowDocuments
+    *       All shadow documents of a single document sorted by version, at least with version, update date and delta base.
+    * @param retentionCount
+    *       Number of versions to keep, 0 to keep any number of versions.
+    * @param retentionDays
+    *       Number of days to keep the versions for, 0 to keep versions of any age.
+    * @param now
+    *       Current time.
+    * @return The oldest version to keep, all older versions can be dropped.
+    */
+   public static int getRetentionCutoff(final List<DataDocument> shadowDocuments, final int retentionCount, final int retentionDays, final Date now) {
+      if (shadowDocuments.isEmpty()) {
+         return 0;
+      }
+
+      int cutoffIndex = 0;
+
+      if (retentionCount > 0 && shadowDocuments.size() > retentionCount) {
+         cutoffIndex = shadowDocuments.size() - retentionCount;
+      }
+
+      if (retentionDays > 0) {
+         final Date limit = new Date(now.getTime() - TimeUnit.DAYS.toMillis(retentionDays));
+         int index = 0;
+
+         while (index < shadowDocuments.size() && isOlder(shadowDocuments.get(index), limit)) {
+            index++;
+         }
+         cutoffIndex = Math.max(cutoffIndex, index);
+      }
+
+      if (cutoffIndex >= shadowDocuments.size()) {
+         return shadowDocuments.get(shadowDocuments.size() - 1).getInteger(LumeerConst.Document.METADATA_VERSION_KEY) + 1;
+      }
+
+      int cutoff = shadowDocuments.get(cutoffIndex).getInteger(LumeerConst.Document.METADATA_VERSION_KEY);
+
+      // snapshots of all kept deltas must be kept as well
+      for (final DataDocument shadowDocument : shadowDocuments.subList(cutoffIndex, shadowDocuments.size())) {
+         if (isDelta(shadowDocument)) {
+            cutoff = Math.min(cutoff, getBaseVersion(shadowDocument));
+         }
+      }
+
+      return cutoff;
+   }
+
+   private static boolean isOlder(final DataDocument shadowDocument, final Date limit) {
+      final Date date = shadowDocument.getDate(LumeerConst.Document.UPDATE_DATE_KEY) != null ? shadowDocument.getDate(LumeerConst.Document.UPDATE_DATE_KEY)
+            : shadowDocument.getDate(LumeerConst.Document.CREATE_DATE_KEY);
+
+      return date != null && date.before(limit);
+   }
+
+   /**
+    * Compares two values by their contents. DataDocument equals compares ids only, so documents and the documents nested
+    * in them need to be compared this way.
+    *
+    * @param value1
+    *       The first value.
+    * @param value2
+    *       The second value.
+    * @return True if and only if the values have the same contents.
+    */
+   static boolean valuesEqual(final Object value1, final Object value2) {
+      if (value1 instanceof Map && value2 instanceof Map) {
+         final Map<?, ?> map1 = (Map<?, ?>) value1;
+         final Map<?, ?> map2 = (Map<?, ?>) value2;
+
+         return map1.size() == map2.size() && map1.entrySet().stream().allMatch(e -> map2.containsKey(e.getKey()) && valuesEqual(e.getValue(), map2.get(e.getKey())));
+      }
+
+      if (value1 instanceof List && value2 instanceof List) {
+         final Iterator<?> iterator1 = ((List<?>) value1).iterator();
+         final Iterator<?> iterator2 = ((List<?>) value2).iterator();
+
+         while (iterator1.hasNext() && iterator2.hasNext()) {
+            if (!valuesEqual(iterator1.next(), iterator2.next())) {
+               return false;
+            }
+         }
+
+         return !iterator1.hasNext() && !iterator2.hasNext();
+      }
+
+      return Objects.equals(value1, value2);
+   }
+}
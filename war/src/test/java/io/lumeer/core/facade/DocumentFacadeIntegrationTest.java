@@ -22,14 +22,17 @@ package io.lumeer.core.facade;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import io.lumeer.api.dto.JsonBulkResult;
 import io.lumeer.api.dto.JsonCollection;
 import io.lumeer.api.dto.JsonDocument;
 import io.lumeer.api.dto.JsonOrganization;
 import io.lumeer.api.dto.JsonPermission;
 import io.lumeer.api.dto.JsonPermissions;
 import io.lumeer.api.dto.JsonProject;
+import io.lumeer.api.model.Attribute;
 import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.Document;
+import io.lumeer.api.model.DocumentPage;
 import io.lumeer.api.model.Pagination;
 import io.lumeer.api.model.Project;
 import io.lumeer.api.model.Role;
@@ -45,6 +48,7 @@ import io.lumeer.storage.api.dao.OrganizationDao;
 import io.lumeer.storage.api.dao.ProjectDao;
 import io.lumeer.storage.api.dao.UserDao;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
+import io.lumeer.storage.api.exception.VersionConflictException;
 
 import org.assertj.core.api.SoftAssertions;
 import org.jboss.arquillian.junit.Arquillian;
@@ -53,6 +57,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
@@ -68,6 +74,7 @@ public class DocumentFacadeIntegrationTest extends IntegrationTestBase {
    private static final String COLLECTION_COLOR = "#00ee00";
 
    private static final String USER = AuthenticatedUser.DEFAULT_EMAIL;
+   private static final String OTHER_COLLECTION_ID = "59a51b83d412bc2da88b0110";
 
    private static final String KEY1 = "A";
    private static final String KEY2 = "B";
@@ -184,6 +191,100 @@ public class DocumentFacadeIntegrationTest extends IntegrationTestBase {
       assertThat(storedData).containsEntry(KEY2, VALUE2);
    }
 
+   @Test
+   public void testCreateDocuments() {
+      Document invalidDocument = new JsonDocument(new DataDocument("$invalid", VALUE1));
+      List<Document> documents = Arrays.asList(prepareDocument(), invalidDocument, prepareDocument());
+
+      List<JsonBulkResult> results = documentFacade.createDocuments(collection.getCode(), documents);
+      assertThat(results).hasSize(3);
+      assertThat(results).extracting(JsonBulkResult::getIndex).containsExactly(0, 1, 2);
+      assertThat(results).extracting(JsonBulkResult::isSuccessful).containsExactly(true, false, true);
+      assertThat(results.get(1).getId()).isNull();
+
+      for (JsonBulkResult result : Arrays.asList(results.get(0), results.get(2))) {
+         Document storedDocument = documentDao.getDocumentById(result.getId());
+         assertThat(storedDocument.getCollectionId()).isEqualTo(collection.getId());
+         assertThat(storedDocument.getCreatedBy()).isEqualTo(USER);
+         assertThat(storedDocument.getDataVersion()).isEqualTo(DocumentFacade.INITIAL_VERSION);
+
+         DataDocument storedData = dataDao.getData(collection.getId(), result.getId());
+         assertThat(storedData).containsEntry(KEY1, VALUE1);
+         assertThat(storedData).containsEntry(KEY2, VALUE2);
+      }
+
+      Collection storedCollection = collectionDao.getCollectionByCode(collection.getCode());
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(2);
+      assertThat(storedCollection.getAttributes()).extracting(Attribute::getFullName).containsOnly(KEY1, KEY2);
+      assertThat(storedCollection.getAttributes()).extracting(Attribute::getUsageCount).containsOnly(2);
+   }
+
+   @Test
+   public void testPatchDocumentsData() {
+      Document document = createDocument();
+      document.setData(new DataDocument(KEY1, VALUE2));
+      Document notExisting = new JsonDocument(new DataDocument(KEY1, VALUE2));
+      notExisting.setId("5a01c3d1e6e6bd4e63ecd2e2");
+
+      List<JsonBulkResult> results = documentFacade.patchDocumentsData(collection.getCode(), Arrays.asList(document, notExisting));
+      assertThat(results).extracting(JsonBulkResult::isSuccessful).containsExactly(true, false);
+
+      assertThat(documentDao.getDocumentById(document.getId()).getDataVersion()).isEqualTo(2);
+      DataDocument storedData = dataDao.getData(collection.getId(), document.getId());
+      assertThat(storedData).containsEntry(KEY1, VALUE2);
+      assertThat(storedData).containsEntry(KEY2, VALUE2);
+   }
+
+   @Test
+   public void testDeleteDocuments() {
+      String id1 = createDocument().getId();
+      String id2 = createDocument().getId();
+
+      List<JsonBulkResult> results = documentFacade.deleteDocuments(collection.getCode(), Arrays.asList(id1, id2, id1));
+      assertThat(results).extracting(JsonBulkResult::isSuccessful).containsExactly(true, true, false);
+
+      assertThatThrownBy(() -> documentDao.getDocumentById(id1))
+            .isInstanceOf(ResourceNotFoundException.class);
+      assertThatThrownBy(() -> dataDao.getData(collection.getId(), id2))
+            .isInstanceOf(ResourceNotFoundException.class);
+   }
+
+   @Test
+   public void testBulkOperationsOtherCollection() {
+      Document otherDocument = prepareDocument();
+      otherDocument.setCollectionId(OTHER_COLLECTION_ID);
+      otherDocument.setDataVersion(DocumentFacade.INITIAL_VERSION);
+      String otherId = documentDao.createDocument(otherDocument).getId();
+
+      Document patch = new JsonDocument(new DataDocument(KEY1, VALUE2));
+      patch.setId(otherId);
+      List<JsonBulkResult> patchResults = documentFacade.patchDocumentsData(collection.getCode(), Collections.singletonList(patch));
+      assertThat(patchResults).extracting(JsonBulkResult::isSuccessful).containsExactly(false);
+
+      List<JsonBulkResult> deleteResults = documentFacade.deleteDocuments(collection.getCode(), Collections.singletonList(otherId));
+      assertThat(deleteResults).extracting(JsonBulkResult::isSuccessful).containsExactly(false);
+
+      Document storedDocument = documentDao.getDocumentById(otherId);
+      assertThat(storedDocument.getCollectionId()).isEqualTo(OTHER_COLLECTION_ID);
+      assertThat(storedDocument.getDataVersion()).isEqualTo(DocumentFacade.INITIAL_VERSION);
+   }
+
+   @Test
+   public void testPatchDocumentsDataConflict() {
+      Document document = createDocument();
+      document.setData(new DataDocument(KEY1, VALUE2));
+      document.setDataVersion(2);
+      Document document2 = createDocument();
+      document2.setData(new DataDocument(KEY1, VALUE2));
+
+      List<JsonBulkResult> results = documentFacade.patchDocumentsData(collection.getCode(), Arrays.asList(document, document2));
+      assertThat(results).extracting(JsonBulkResult::isSuccessful).containsExactly(false, true);
+
+      assertThat(dataDao.getData(collection.getId(), document.getId())).containsEntry(KEY1, VALUE1);
+      assertThat(dataDao.getData(collection.getId(), document2.getId())).containsEntry(KEY1, VALUE2);
+      assertThat(documentDao.getDocumentById(document2.getId()).getDataVersion()).isEqualTo(2);
+   }
+
    @Test
    public void testUpdateDocumentData() {
       Document document = createDocument();
@@ -214,6 +315,22 @@ public class DocumentFacadeIntegrationTest extends IntegrationTestBase {
       assertThat(storedData).doesNotContainKey(KEY2);
    }
 
+   @Test
+   public void testUpdateDocumentDataExpectedVersion() {
+      String id = createDocument().getId();
+
+      Document updatedDocument = documentFacade.updateDocumentData(collection.getCode(), id, new DataDocument(KEY1, VALUE2), 1);
+      assertThat(updatedDocument.getDataVersion()).isEqualTo(2);
+
+      assertThatThrownBy(() -> documentFacade.patchDocumentData(collection.getCode(), id, new DataDocument(KEY2, VALUE1), 1))
+            .isInstanceOf(VersionConflictException.class);
+
+      assertThat(documentDao.getDocumentById(id).getDataVersion()).isEqualTo(2);
+      DataDocument storedData = dataDao.getData(collection.getId(), id);
+      assertThat(storedData).containsEntry(KEY1, VALUE2);
+      assertThat(storedData).doesNotContainKey(KEY2);
+   }
+
    @Test
    public void testPatchDocumentData() {
       Document document = createDocument();
@@ -285,8 +402,24 @@ public class DocumentFacadeIntegrationTest extends IntegrationTestBase {
       String id1 = createDocument().getId();
       String id2 = createDocument().getId();
 
-      Pagination pagination= new Pagination(null, null);
-      List<Document> documents = documentFacade.getDocuments(collection.getCode(), pagination);
-      assertThat(documents).extracting(Document::getId).containsOnly(id1, id2);
+      Pagination pagination = new Pagination(null, null);
+      DocumentPage documentPage = documentFacade.getDocuments(collection.getCode(), pagination);
+      assertThat(documentPage.getDocuments()).extracting(Document::getId).containsOnly(id1, id2);
+      assertThat(documentPage.getNextLastId()).isNull();
+   }
+
+   @Test
+   public void testGetDocumentsByKeyset() {
+      String id1 = createDocument().getId();
+      String id2 = createDocument().getId();
+      String id3 = createDocument().getId();
+
+      DocumentPage firstPage = documentFacade.getDocuments(collection.getCode(), new Pagination(0, 2, null));
+      assertThat(firstPage.getDocuments()).extracting(Document::getId).containsExactly(id1, id2);
+      assertThat(firstPage.getNextLastId()).isEqualTo(id2);
+
+      DocumentPage secondPage = documentFacade.getDocuments(collection.getCode(), new Pagination(0, 2, firstPage.getNextLastId()));
+      assertThat(secondPage.getDocuments()).extracting(Document::getId).containsExactly(id3);
+      assertThat(secondPage.getNextLastId()).isNull();
    }
 }
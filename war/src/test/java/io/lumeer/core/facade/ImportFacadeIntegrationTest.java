@@ -21,6 +21,7 @@ package io.lumeer.core.facade;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.lumeer.api.dto.JsonImportProgress;
 import io.lumeer.api.dto.JsonOrganization;
 import io.lumeer.api.dto.JsonPermission;
 import io.lumeer.api.dto.JsonPermissions;
@@ -46,7 +47,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 
@@ -237,6 +243,44 @@ public class ImportFacadeIntegrationTest extends IntegrationTestBase {
       assertThat(h3Num).isEqualTo(2);
    }
 
+   @Test
+   public void testImportCSVInChunks() throws Exception {
+      StringBuilder csv = new StringBuilder("h1;h2\n");
+      for (int i = 0; i < 5; i++) {
+         csv.append("a").append(i).append(";b\n");
+      }
+
+      List<Long> progress = new ArrayList<>();
+      Collection collection = importFacade.importDocuments(ImportFacade.FORMAT_CSV, null, new StringReader(csv.toString()), 2, (importCollection, imported) -> progress.add(imported));
+      assertThat(collection.getDocumentsCount()).isEqualTo(5);
+      assertThat(progress).containsExactly(0L, 2L, 4L, 5L);
+
+      List<DataDocument> data = dataDao.getData(collection.getId(), query());
+      assertThat(data).hasSize(5);
+      assertThat(data).extracting(dataDocument -> dataDocument.getString("h1")).containsOnly("a0", "a1", "a2", "a3", "a4");
+
+      Collection storedCollection = collectionDao.getCollectionByCode(collection.getCode());
+      assertThat(storedCollection.getDocumentsCount()).isEqualTo(5);
+   }
+
+   @Test
+   public void testImportProgress() throws Exception {
+      String csv = "h1;h2\na;b\nc;d\ne;f\n";
+      String importId = "testImportProgress";
+
+      Collection collection = importFacade.importDocuments(ImportFacade.FORMAT_CSV, null, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), importId);
+
+      Optional<JsonImportProgress> progress = importFacade.getImportProgress(importId);
+      assertThat(progress).isPresent();
+      assertThat(progress.get().isFinished()).isTrue();
+      assertThat(progress.get().getError()).isNull();
+      assertThat(progress.get().getImported()).isEqualTo(3);
+      assertThat(progress.get().getCollectionCode()).isEqualTo(collection.getCode());
+
+      // the final state is read only once
+      assertThat(importFacade.getImportProgress(importId)).isEmpty();
+   }
+
    private SearchQuery query() {
       return SearchQuery.createBuilder(USER).build();
    }
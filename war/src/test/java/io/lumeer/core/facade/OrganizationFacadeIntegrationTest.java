@@ -183,6 +183,18 @@ public class OrganizationFacadeIntegrationTest extends IntegrationTestBase {
       assertPermissions(permissions.getGroupPermissions(), GROUP_PERMISSION);
    }
 
+   @Test
+   public void testUpdateUserPermissionsInvalidatesCache() {
+      createOrganization(CODE1);
+      workspaceCache.getOrganization(CODE1);
+
+      SimplePermission userPermission = new SimplePermission(USER, new HashSet<>(Arrays.asList(Role.MANAGE, Role.READ)));
+      organizationFacade.updateUserPermissions(CODE1, userPermission);
+
+      Permissions permissions = workspaceCache.getOrganization(CODE1).getPermissions();
+      assertPermissions(permissions.getUserPermissions(), userPermission);
+   }
+
    @Test
    public void testRemoveUserPermission() {
       createOrganization(CODE1);
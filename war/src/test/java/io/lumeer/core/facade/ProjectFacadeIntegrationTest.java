@@ -215,6 +215,18 @@ public class ProjectFacadeIntegrationTest extends IntegrationTestBase {
       assertPermissions(permissions.getGroupPermissions(), GROUP_PERMISSION);
    }
 
+   @Test
+   public void testUpdateUserPermissionsInvalidatesCache() {
+      createProject(CODE1);
+      workspaceCache.getProject(CODE1);
+
+      SimplePermission userPermission = new SimplePermission(USER, new HashSet<>(Arrays.asList(Role.MANAGE, Role.READ)));
+      projectFacade.updateUserPermissions(CODE1, userPermission);
+
+      Permissions permissions = workspaceCache.getProject(CODE1).getPermissions();
+      assertPermissions(permissions.getUserPermissions(), userPermission);
+   }
+
    @Test
    public void testRemoveUserPermission() {
       createProject(CODE1);
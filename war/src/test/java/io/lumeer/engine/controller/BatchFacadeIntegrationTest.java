@@ -0,0 +1,152 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.IntegrationTestBase;
+import io.lumeer.engine.annotation.UserDataStorage;
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.batch.MergeBatch;
+import io.lumeer.engine.api.batch.SplitBatch;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.engine.api.dto.Collection;
+import io.lumeer.engine.api.task.TaskInfo;
+
+import org.jboss.arquillian.junit.Arquillian;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.inject.Inject;
+
+@RunWith(Arquillian.class)
+public class BatchFacadeIntegrationTest extends IntegrationTestBase {
+
+   private static final int DOCUMENTS = 25;
+
+   @Inject
+   private BatchFacade batchFacade;
+
+   @Inject
+   private TaskFacade taskFacade;
+
+   @Inject
+   private CollectionFacade collectionFacade;
+
+   @Inject
+   private CollectionMetadataFacade collectionMetadataFacade;
+
+   @Inject
+   @UserDataStorage
+   private DataStorage dataStorage;
+
+   @Before
+   public void setSmallChunks() {
+      System.setProperty(LumeerConst.Batch.CHUNK_SIZE_PROPERTY, "10");
+   }
+
+   @After
+   public void resetChunks() {
+      System.clearProperty(LumeerConst.Batch.CHUNK_SIZE_PROPERTY);
+   }
+
+   @Test
+   public void testSplitBatchInChunks() throws Exception {
+      String collection = setUpCollection("batchSplit");
+
+      batchFacade.executeBatch(new SplitBatch(collection, "name", " ", true, Arrays.asList("first", "last"), false));
+
+      List<DataDocument> documents = dataStorage.search(collection, null, null, 0, 0);
+      assertThat(documents).hasSize(DOCUMENTS);
+      documents.forEach(document -> {
+         assertThat(document).doesNotContainKey("name").containsKeys("first", "last");
+         assertThat(document.getInteger(LumeerConst.Document.METADATA_VERSION_KEY)).isEqualTo(1);
+      });
+
+      assertThat(collectionMetadataFacade.getAttributeCount(collection, "first")).isEqualTo(DOCUMENTS);
+      assertThat(collectionMetadataFacade.getAttributeCount(collection, "name")).isZero();
+   }
+
+   @Test
+   public void testMergeBatchTask() throws Exception {
+      String collection = setUpCollection("batchMerge");
+
+      TaskInfo task = batchFacade.startBatch(new MergeBatch(collection, Arrays.asList("a", "b"), "sum", null, MergeBatch.MergeType.SUM, true));
+      assertThat(task.getType()).isEqualTo(LumeerConst.Batch.TASK_TYPE);
+
+      for (int i = 0; i < 100 && !task.getState().isCompleted(); i++) {
+         Thread.sleep(100);
+         // the owner of the task can follow it
+         task = taskFacade.getTask(task.getId());
+      }
+
+      assertThat(task.getState()).isEqualTo(TaskInfo.State.FINISHED);
+      assertThat(task.getProcessed()).isEqualTo(DOCUMENTS);
+      dataStorage.search(collection, null, null, 0, 0).forEach(document ->
+            assertThat(document.get("sum")).isEqualTo(document.getInteger("a") + 1L));
+   }
+
+   @Test
+   public void testBatchWritesOnlyChangedDocuments() throws Exception {
+      String collection = collectionFacade.createCollection(new Collection("batchChanged"));
+      List<DataDocument> documents = new ArrayList<>();
+      for (int i = 0; i < DOCUMENTS; i++) {
+         // the documents without the name are not changed by the split
+         documents.add(i % 2 == 0 ? new DataDocument("name", "John Doe" + i).append("a", i) : new DataDocument("a", i));
+      }
+      dataStorage.createDocuments(collection, documents);
+
+      batchFacade.executeBatch(new SplitBatch(collection, "name", " ", true, Arrays.asList("first", "last"), true));
+
+      List<DataDocument> storedDocuments = dataStorage.search(collection, null, null, 0, 0);
+      assertThat(storedDocuments).hasSize(DOCUMENTS);
+      storedDocuments.forEach(document -> {
+         int i = document.getInteger("a");
+         if (i % 2 == 0) {
+            assertThat(document).containsEntry("name", "John Doe" + i).containsEntry("first", "John").containsEntry("last", "Doe" + i);
+            assertThat(document.getInteger(LumeerConst.Document.METADATA_VERSION_KEY)).isEqualTo(1);
+         } else {
+            assertThat(document).doesNotContainKey("first").doesNotContainKey("last");
+            assertThat(document.getInteger(LumeerConst.Document.METADATA_VERSION_KEY, 0)).isZero();
+         }
+      });
+
+      assertThat(collectionMetadataFacade.getAttributeCount(collection, "first")).isEqualTo((DOCUMENTS + 1) / 2);
+   }
+
+   private String setUpCollection(final String collectionName) {
+      String collection = collectionFacade.createCollection(new Collection(collectionName));
+
+      List<DataDocument> documents = new ArrayList<>();
+      for (int i = 0; i < DOCUMENTS; i++) {
+         documents.add(new DataDocument("name", "John Doe" + i).append("a", i).append("b", 1));
+      }
+      dataStorage.createDocuments(collection, documents);
+      collectionMetadataFacade.addOrIncrementAttribute(collection, "name");
+
+      return collection;
+   }
+}
@@ -366,6 +366,33 @@ public class CollectionMetadataFacadeIntegrationTest extends IntegrationTestBase
       assertThat(attributes).containsOnly(name1, name2);
    }
 
+   @Test
+   public void testGetAttributesSnapshot() throws Exception {
+      final String collectionName = "CollectionMetadataFacadeCollectionAttributesSnapshot";
+      setUpCollection(collectionName);
+
+      String collection = collectionFacade.createCollection(new Collection(collectionName));
+
+      String name1 = "attribute";
+      String name2 = "attribute2";
+      collectionMetadataFacade.addOrIncrementAttribute(collection, name1);
+      collectionMetadataFacade.addOrIncrementAttribute(collection, name2);
+      collectionMetadataFacade.addAttributeConstraint(collection, name1, "isNumber");
+
+      Map<String, Attribute> attributes = collectionMetadataFacade.getAttributesSnapshot(collection);
+      assertThat(attributes).containsOnlyKeys(name1, name2);
+      assertThat(attributes.get(name1).getConstraints()).containsExactly("isNumber");
+
+      List<DataDocument> decoded = collectionMetadataFacade.decodeAttributeValues(collection, Arrays.asList(
+            new DataDocument(name1, 1).append(name2, "a"),
+            new DataDocument(name1, 2).append("other", 3)));
+      assertThat(decoded).hasSize(2);
+      assertThat(decoded.get(0).get(name1)).isEqualTo(1);
+      assertThat(decoded.get(0).get(name2)).isEqualTo("a");
+      assertThat(decoded.get(1).get(name1)).isEqualTo(2);
+      assertThat(decoded.get(1).get("other")).isEqualTo(3);
+   }
+
    @Test
    public void testGetAttributesInfo() throws Exception {
       final String collectionName = "CollectionMetadataFacadeCollectionAttributesInfo";
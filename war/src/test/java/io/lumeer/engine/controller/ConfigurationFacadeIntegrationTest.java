@@ -28,6 +28,7 @@ import io.lumeer.engine.api.data.DataStorageDialect;
 import io.lumeer.engine.api.dto.Config;
 import io.lumeer.engine.api.dto.Organization;
 import io.lumeer.engine.api.dto.Project;
+import io.lumeer.engine.controller.configuration.ConfigurationCache;
 import io.lumeer.engine.controller.configuration.ConfigurationManipulator;
 
 import org.jboss.arquillian.junit.Arquillian;
@@ -36,6 +37,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import javax.inject.Inject;
 
@@ -57,6 +60,9 @@ public class ConfigurationFacadeIntegrationTest extends IntegrationTestBase {
    @Inject
    private ConfigurationManipulator configurationManipulator;
 
+   @Inject
+   private ConfigurationCache configurationCache;
+
    @Inject
    private UserFacade userFacade;
 
@@ -79,6 +85,7 @@ public class ConfigurationFacadeIntegrationTest extends IntegrationTestBase {
       systemDataStorage.dropManyDocuments(ConfigurationFacade.USER_CONFIG_COLLECTION, dataStorageDialect.documentFilter("{}"));
       systemDataStorage.dropManyDocuments(ConfigurationFacade.PROJECT_CONFIG_COLLECTION, dataStorageDialect.documentFilter("{}"));
       systemDataStorage.dropManyDocuments(ConfigurationFacade.ORGANIZATION_CONFIG_COLLECTION, dataStorageDialect.documentFilter("{}"));
+      configurationCache.clear();
    }
 
    @Test
@@ -153,6 +160,19 @@ public class ConfigurationFacadeIntegrationTest extends IntegrationTestBase {
 
    }
 
+   @Test
+   public void testResolvedConfigurationInvalidation() throws Exception {
+      final String defaultString = "localhost";
+      assertThat(configurationFacade.getConfigurationString(DBHOST_KEY)).contains(defaultString);
+
+      final String organization = "organization";
+      configurationManipulator.setConfiguration(ConfigurationFacade.ORGANIZATION_CONFIG_COLLECTION, organizationFacade.getOrganizationId(), new Config(DBHOST_KEY, organization));
+      assertThat(configurationFacade.getConfigurationString(DBHOST_KEY)).contains(organization);
+
+      configurationFacade.resetOrganizationConfigurationAttribute(DBHOST_KEY);
+      assertThat(configurationFacade.getConfigurationString(DBHOST_KEY)).contains(defaultString);
+   }
+
    @Test
    public void testUserConfigurationManipulation() throws Exception {
       Config config1 = new Config("conf11", "value1");
@@ -247,4 +267,18 @@ public class ConfigurationFacadeIntegrationTest extends IntegrationTestBase {
             .isEmpty();
    }
 
+   @Test
+   public void testStaleLoadDoesNotOverwriteClear() throws Exception {
+      Map<String, Config> staleConfigurations = Collections.singletonMap(DBHOST_KEY, new Config(DBHOST_KEY, "stale"));
+      Map<String, Config> currentConfigurations = Collections.singletonMap(DBHOST_KEY, new Config(DBHOST_KEY, "current"));
+
+      // a configuration is changed while the old one is being loaded
+      configurationCache.getConfigurations("user", "organization", "project", () -> {
+         configurationCache.clear();
+         return staleConfigurations;
+      });
+
+      assertThat(configurationCache.getConfigurations("user", "organization", "project", () -> currentConfigurations)).isSameAs(currentConfigurations);
+   }
+
 }
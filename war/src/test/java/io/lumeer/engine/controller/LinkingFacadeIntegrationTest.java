@@ -20,6 +20,7 @@
 package io.lumeer.engine.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import io.lumeer.engine.IntegrationTestBase;
 import io.lumeer.engine.annotation.UserDataStorage;
@@ -31,6 +32,7 @@ import io.lumeer.engine.api.dto.LinkInstance;
 import io.lumeer.engine.api.dto.LinkType;
 import io.lumeer.engine.api.dto.Project;
 import io.lumeer.engine.api.exception.DbException;
+import io.lumeer.engine.api.exception.DocumentNotFoundException;
 
 import org.jboss.arquillian.junit.Arquillian;
 import org.junit.Test;
@@ -386,6 +388,84 @@ public class LinkingFacadeIntegrationTest extends IntegrationTestBase {
       assertThat(links).isEmpty();
    }
 
+   @Test
+   public void testReadLinkedDocumentsPaginated() throws Exception {
+      final String col1 = collectionFacade.createCollection(new Collection("collection81"));
+      final String col2 = collectionFacade.createCollection(new Collection("collection82"));
+      final String col3 = collectionFacade.createCollection(new Collection("collection83"));
+      Map<String, List<String>> ids = createTestData(Arrays.asList(col1, col2, col3), 3);
+
+      String col1Id1 = ids.get(col1).get(0);
+      String role = "role";
+      for (String id : ids.get(col2)) {
+         linkingFacade.createLinkInstanceBetweenDocuments(col1, col1Id1, col2, id, new DataDocument(), role, LumeerConst.Linking.LinkDirection.FROM);
+      }
+      linkingFacade.createLinkInstanceBetweenDocuments(col1, col1Id1, col3, ids.get(col3).get(0), new DataDocument(), role, LumeerConst.Linking.LinkDirection.TO);
+      linkingFacade.createLinkInstanceBetweenDocuments(col1, col1Id1, col3, ids.get(col3).get(1), new DataDocument(), role, LumeerConst.Linking.LinkDirection.TO);
+
+      List<String> expectedIds = new ArrayList<>(ids.get(col2));
+      expectedIds.addAll(ids.get(col3).subList(0, 2));
+
+      List<String> linkedIds = new ArrayList<>();
+      for (int page = 0; page < 3; page++) {
+         List<DataDocument> links = linkingFacade.readLinkedDocumentsForDocument(col1, col1Id1, role, LumeerConst.Linking.LinkDirection.BOTH, page, 2);
+         assertThat(links).hasSize(page < 2 ? 2 : 1);
+         links.forEach(link -> linkedIds.add(link.getId()));
+      }
+      assertThat(linkedIds).containsExactly(expectedIds.toArray(new String[0]));
+
+      assertThat(linkingFacade.readLinkedDocumentsForDocument(col1, col1Id1, role, LumeerConst.Linking.LinkDirection.BOTH, 3, 2)).isEmpty();
+      assertThat(linkingFacade.readLinkedDocumentsForDocument(col1, col1Id1, role, LumeerConst.Linking.LinkDirection.FROM, 0, 0))
+            .extracting(DataDocument::getId).containsExactly(ids.get(col2).toArray(new String[0]));
+      assertThat(linkingFacade.readLinkedDocumentsForDocument(col1, col1Id1, role, LumeerConst.Linking.LinkDirection.TO, 0, 1))
+            .extracting(DataDocument::getId).containsExactly(ids.get(col3).get(0));
+   }
+
+   @Test
+   public void testLinkGraphTraversal() throws Exception {
+      final String col1 = collectionFacade.createCollection(new Collection("collection91"));
+      final String col2 = collectionFacade.createCollection(new Collection("collection92"));
+      Map<String, List<String>> ids = createTestData(Arrays.asList(col1, col2), 3);
+      List<String> col1Ids = ids.get(col1);
+      List<String> col2Ids = ids.get(col2);
+
+      String role = "role";
+      linkingFacade.createLinkInstanceBetweenDocuments(col1, col1Ids.get(0), col2, col2Ids.get(0), new DataDocument(), role, LumeerConst.Linking.LinkDirection.FROM);
+      linkingFacade.createLinkInstanceBetweenDocuments(col2, col2Ids.get(0), col1, col1Ids.get(1), new DataDocument(), role, LumeerConst.Linking.LinkDirection.FROM);
+
+      String enabled = System.getProperty(LumeerConst.Linking.Graph.ENABLED_PROPERTY);
+      System.setProperty(LumeerConst.Linking.Graph.ENABLED_PROPERTY, "true");
+      try {
+         List<DataDocument> reachable = linkingFacade.readReachableDocuments(col1, col1Ids.get(0), role, LumeerConst.Linking.LinkDirection.FROM, 5);
+         assertThat(reachable).extracting(DataDocument::getId).containsExactly(col2Ids.get(0), col1Ids.get(1));
+         assertThat(reachable.get(0).getString(LumeerConst.Linking.Graph.ATTR_COLLECTION)).isEqualTo(col2);
+         assertThat(reachable.get(1).getInteger(LumeerConst.Linking.Graph.ATTR_DISTANCE)).isEqualTo(2);
+
+         // the loaded graph follows the links created and dropped afterwards
+         linkingFacade.createLinkInstancesBetweenDocumentAndCollection(col1, col1Ids.get(1), col2, col2Ids.subList(1, 3), Arrays.asList(new DataDocument(), new DataDocument()), role, LumeerConst.Linking.LinkDirection.FROM);
+         assertThat(linkingFacade.countLinkedDocuments(col1, col1Ids.get(1), role, LumeerConst.Linking.LinkDirection.FROM)).isEqualTo(2);
+         assertThat(linkingFacade.countLinkedDocuments(col1, col1Ids.get(1), null, LumeerConst.Linking.LinkDirection.BOTH)).isEqualTo(3);
+         assertThat(linkingFacade.readShortestPath(col1, col1Ids.get(0), col2Ids.get(2), null, LumeerConst.Linking.LinkDirection.FROM, 5))
+               .extracting(DataDocument::getId).containsExactly(col1Ids.get(0), col2Ids.get(0), col1Ids.get(1), col2Ids.get(2));
+
+         linkingFacade.dropLinksBetweenDocuments(col2, col2Ids.get(0), col1, col1Ids.get(1), role, LumeerConst.Linking.LinkDirection.FROM);
+         assertThat(linkingFacade.readShortestPath(col1, col1Ids.get(0), col2Ids.get(2), null, LumeerConst.Linking.LinkDirection.FROM, 5)).isEmpty();
+      } finally {
+         if (enabled != null) {
+            System.setProperty(LumeerConst.Linking.Graph.ENABLED_PROPERTY, enabled);
+         } else {
+            System.clearProperty(LumeerConst.Linking.Graph.ENABLED_PROPERTY);
+         }
+      }
+
+      assertThat(linkingFacade.readReachableDocuments(col1, col1Ids.get(0), role, LumeerConst.Linking.LinkDirection.FROM, 5))
+            .extracting(DataDocument::getId).containsExactly(col2Ids.get(0));
+
+      // the start document must belong to the given collection
+      assertThatThrownBy(() -> linkingFacade.readReachableDocuments(col2, col1Ids.get(0), role, LumeerConst.Linking.LinkDirection.FROM, 5))
+            .isInstanceOf(DocumentNotFoundException.class);
+   }
+
    @Test
    public void testProjectSwitching() throws DbException {
       String project1 = "project1";
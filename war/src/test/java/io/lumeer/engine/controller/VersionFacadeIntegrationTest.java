@@ -33,6 +33,9 @@ import org.jboss.arquillian.junit.Arquillian;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 
 /**
@@ -50,6 +53,7 @@ public class VersionFacadeIntegrationTest extends IntegrationTestBase {
    private final String TEST_GET_OLD_DOC = "versionTestGetOldDocuments";
    private final String TEST_REVERT = "versionTestRevert";
    private final String TEST_EXCEPTION = "versionTestException";
+   private final String TEST_NEW_VERSIONS = "versionTestNewVersions";
 
    @Inject
    private VersionFacade versionFacade;
@@ -172,6 +176,37 @@ public class VersionFacadeIntegrationTest extends IntegrationTestBase {
       assertThat(dataStorage.readDocument(shadow, dataStorageDialect.documentNestedIdFilterWithVersion(documentId, 2)).getString("dog")).isEqualTo("pig");
    }
 
+   @Test
+   public void testNewVersions() throws Exception {
+      String shadow = createCollection(TEST_NEW_VERSIONS);
+      List<DataDocument> actualDocuments = new ArrayList<>();
+      List<DataDocument> newDocuments = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+         String documentId = dataStorage.createDocument(TEST_NEW_VERSIONS, createTestDocument());
+         actualDocuments.add(dataStorage.readDocument(TEST_NEW_VERSIONS, dataStorageDialect.documentIdFilter(documentId)));
+         newDocuments.add(new DataDocument("dog", "pig" + i));
+      }
+
+      // the version 1 of the last document is already backed up
+      String conflictingId = actualDocuments.get(2).getId();
+      versionFacade.backUpDocument(TEST_NEW_VERSIONS, new DataDocument(actualDocuments.get(2)));
+
+      Map<String, VersionUpdateConflictException> conflicts = versionFacade.newDocumentVersions(TEST_NEW_VERSIONS, actualDocuments, newDocuments, false);
+      assertThat(conflicts).containsOnlyKeys(conflictingId);
+
+      for (int i = 0; i < 2; i++) {
+         String documentId = actualDocuments.get(i).getId();
+         DataDocument fromDb = dataStorage.readDocument(TEST_NEW_VERSIONS, dataStorageDialect.documentIdFilter(documentId));
+         assertThat(fromDb.getInteger(VERSION_STRING)).isEqualTo(2);
+         assertThat(fromDb.getString("dog")).isEqualTo("pig" + i);
+         assertThat(dataStorage.readDocument(shadow, dataStorageDialect.documentNestedIdFilterWithVersion(documentId, 1)).getString("dog")).isEqualTo("cat");
+      }
+
+      DataDocument conflicting = dataStorage.readDocument(TEST_NEW_VERSIONS, dataStorageDialect.documentIdFilter(conflictingId));
+      assertThat(conflicting.getInteger(VERSION_STRING)).isEqualTo(1);
+      assertThat(conflicting.getString("dog")).isEqualTo("cat");
+   }
+
    @Test(expected = VersionUpdateConflictException.class)
    public void testExceptionUpdateDouble() throws Exception {
       createCollection(TEST_EXCEPTION);
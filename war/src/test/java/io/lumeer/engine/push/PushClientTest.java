@@ -0,0 +1,110 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.push;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+public class PushClientTest {
+
+   private final List<String> sent = new ArrayList<>();
+   private final List<SendHandler> pending = new ArrayList<>();
+   private final LongAdder dropped = new LongAdder();
+   private final LongAdder coalesced = new LongAdder();
+
+   private PushClient client;
+
+   @Before
+   public void createClient() {
+      RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+      doAnswer(invocation -> {
+         sent.add(invocation.getArgument(0));
+         pending.add(invocation.getArgument(1));
+         return null;
+      }).when(remote).sendText(anyString(), any(SendHandler.class));
+
+      Session session = mock(Session.class);
+      when(session.getAsyncRemote()).thenReturn(remote);
+      when(session.isOpen()).thenReturn(true);
+
+      client = new PushClient(session, "channel", 2, dropped, coalesced);
+   }
+
+   @Test
+   public void testSendsOneMessageAtTime() {
+      client.send("m1", null);
+      client.send("m2", null);
+
+      assertThat(sent).containsExactly("m1");
+      assertThat(client.getQueueSize()).isEqualTo(1);
+
+      completeSend();
+      assertThat(sent).containsExactly("m1", "m2");
+
+      completeSend();
+      assertThat(client.getQueueSize()).isZero();
+      assertThat(pending).isEmpty();
+   }
+
+   @Test
+   public void testDropsOldestWhenFull() {
+      client.send("m1", null);
+      client.send("m2", null);
+      client.send("m3", null);
+      client.send("m4", null);
+
+      assertThat(dropped.sum()).isEqualTo(1);
+
+      completeSend();
+      completeSend();
+      assertThat(sent).containsExactly("m1", "m3", "m4");
+   }
+
+   @Test
+   public void testCoalescesMessagesAboutSameObject() {
+      client.send("m1", null);
+      client.send("doc v1", "document:1");
+      client.send("doc v2", "document:1");
+
+      assertThat(coalesced.sum()).isEqualTo(1);
+
+      completeSend();
+      assertThat(sent).containsExactly("m1", "doc v2");
+   }
+
+   private void completeSend() {
+      pending.remove(0).onResult(new SendResult());
+   }
+}
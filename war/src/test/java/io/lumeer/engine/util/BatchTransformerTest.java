@@ -0,0 +1,91 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.batch.MergeBatch;
+import io.lumeer.engine.api.batch.SplitBatch;
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+public class BatchTransformerTest {
+
+   private static final String COLLECTION = "collection";
+
+   @Test
+   public void testMergeJoin() {
+      DataDocument doc = new DataDocument("a", "hello").append("b", 5).append("c", "world");
+      BatchTransformer.transform(new MergeBatch(COLLECTION, Arrays.asList("a", "b", "x", "c"), "r", " ", MergeBatch.MergeType.JOIN, false), doc);
+
+      assertThat(doc).containsOnlyKeys("r").containsEntry("r", "hello 5 world");
+   }
+
+   @Test
+   public void testMergeSum() {
+      DataDocument doc = new DataDocument("a", 1).append("b", 2L);
+      BatchTransformer.transform(new MergeBatch(COLLECTION, Arrays.asList("a", "b"), "r", null, MergeBatch.MergeType.SUM, true), doc);
+      assertThat(doc).containsEntry("a", 1).containsEntry("r", 3L);
+
+      doc = new DataDocument("a", 1).append("b", 0.5);
+      BatchTransformer.transform(new MergeBatch(COLLECTION, Arrays.asList("a", "b"), "r", null, MergeBatch.MergeType.SUM, true), doc);
+      assertThat(doc).containsEntry("r", 1.5);
+
+      doc = new DataDocument("a", new BigDecimal("1.25")).append("b", new BigDecimal("2"));
+      BatchTransformer.transform(new MergeBatch(COLLECTION, Arrays.asList("a", "b"), "r", null, MergeBatch.MergeType.SUM, true), doc);
+      assertThat(doc).containsEntry("r", new BigDecimal("3.25"));
+   }
+
+   @Test
+   public void testMergeDocument() {
+      DataDocument doc = new DataDocument("a", 1).append("b", "x").append("c", true);
+      BatchTransformer.transform(new MergeBatch(COLLECTION, Arrays.asList("a", "b"), "r", null, MergeBatch.MergeType.DOCUMENT, false), doc);
+
+      assertThat(doc).containsOnlyKeys("c", "r");
+      assertThat(doc.getDataDocument("r")).containsEntry("a", 1).containsEntry("b", "x");
+      assertThat(BatchTransformer.getAttributes(doc)).containsOnly("c", "r", "r.a", "r.b");
+   }
+
+   @Test
+   public void testSplit() {
+      DataDocument doc = new DataDocument("a", "hello, how are, you");
+      BatchTransformer.transform(new SplitBatch(COLLECTION, "a", ",", true, Arrays.asList("a1", "a2"), false), doc);
+
+      assertThat(doc).containsOnlyKeys("a1", "a2").containsEntry("a1", "hello").containsEntry("a2", "how are, you");
+
+      doc = new DataDocument("a", "one,two");
+      BatchTransformer.transform(new SplitBatch(COLLECTION, "a", ",", false, Arrays.asList("a", "b"), false), doc);
+      assertThat(doc).containsOnlyKeys("a", "b").containsEntry("a", "one").containsEntry("b", "two");
+   }
+
+   @Test
+   public void testAttributesSkipMetadata() {
+      DataDocument doc = new DataDocument(LumeerConst.Document.ID, "id")
+            .append(LumeerConst.Document.METADATA_VERSION_KEY, 1)
+            .append("a", 1);
+
+      assertThat(BatchTransformer.getAttributes(doc)).containsOnly("a");
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.api.LumeerConst.Linking.LinkDirection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class LinkGraphTest {
+
+   private static final String COLLECTION1 = "c1";
+   private static final String COLLECTION2 = "c2";
+   private static final String ROLE1 = "r1";
+   private static final String ROLE2 = "r2";
+
+   private LinkGraph graph;
+
+   @Before
+   public void createGraph() {
+      // d0 -> d1 -> d2 -> d3 -> d4 via ROLE1, d0 -> e0 and e0 -> d4 via ROLE2
+      graph = new LinkGraph();
+      for (int i = 0; i < 4; i++) {
+         graph.addLink(COLLECTION1, "d" + i, COLLECTION1, "d" + (i + 1), ROLE1);
+      }
+      graph.addLink(COLLECTION1, "d0", COLLECTION2, "e0", ROLE2);
+      graph.addLink(COLLECTION2, "e0", COLLECTION1, "d4", ROLE2);
+   }
+
+   @Test
+   public void testReachableDocuments() {
+      Map<String, Integer> reachable = graph.getReachableDocuments("d0", ROLE1, LinkDirection.FROM, 2);
+      assertThat(reachable).hasSize(2).containsEntry("d1", 1).containsEntry("d2", 2);
+
+      reachable = graph.getReachableDocuments("d0", null, LinkDirection.FROM, 10);
+      assertThat(reachable).hasSize(5).containsEntry("e0", 1).containsEntry("d4", 2).containsEntry("d3", 3);
+
+      assertThat(graph.getReachableDocuments("d4", null, LinkDirection.FROM, 10)).isEmpty();
+      assertThat(graph.getReachableDocuments("d4", null, LinkDirection.TO, 1)).containsOnlyKeys("d3", "e0");
+      assertThat(graph.getReachableDocuments("d2", ROLE1, LinkDirection.BOTH, 1)).containsOnlyKeys("d1", "d3");
+      assertThat(graph.getReachableDocuments("d0", "unknown", LinkDirection.BOTH, 1)).isEmpty();
+      assertThat(graph.getReachableDocuments("unknown", null, LinkDirection.BOTH, 1)).isEmpty();
+   }
+
+   @Test
+   public void testShortestPath() {
+      assertThat(graph.getShortestPath("d0", "d4", null, LinkDirection.FROM, 10)).containsExactly("d0", "e0", "d4");
+      assertThat(graph.getShortestPath("d0", "d4", ROLE1, LinkDirection.FROM, 10)).containsExactly("d0", "d1", "d2", "d3", "d4");
+      assertThat(graph.getShortestPath("d0", "d4", ROLE1, LinkDirection.FROM, 3)).isEmpty();
+      assertThat(graph.getShortestPath("d4", "d0", null, LinkDirection.FROM, 10)).isEmpty();
+      assertThat(graph.getShortestPath("d4", "d0", null, LinkDirection.BOTH, 10)).containsExactly("d4", "e0", "d0");
+      assertThat(graph.getShortestPath("d2", "d2", null, LinkDirection.BOTH, 10)).containsExactly("d2");
+   }
+
+   @Test
+   public void testNeighbourCount() {
+      graph.addLink(COLLECTION1, "d0", COLLECTION1, "d1", ROLE2);
+
+      assertThat(graph.getNeighbourCount("d0", null, LinkDirection.FROM)).isEqualTo(2);
+      assertThat(graph.getNeighbourCount("d0", ROLE2, LinkDirection.FROM)).isEqualTo(2);
+      assertThat(graph.getNeighbourCount("d1", null, LinkDirection.BOTH)).isEqualTo(2);
+      assertThat(graph.getLinkCount()).isEqualTo(7);
+   }
+
+   @Test
+   public void testRemoveLinks() {
+      graph.removeLinks("d2", ROLE1, LinkDirection.FROM, null, null);
+      assertThat(graph.getLinkCount()).isEqualTo(5);
+      assertThat(graph.getShortestPath("d0", "d4", ROLE1, LinkDirection.FROM, 10)).isEmpty();
+
+      graph.removeLinks("d0", null, LinkDirection.FROM, COLLECTION2, null);
+      assertThat(graph.getReachableDocuments("d0", null, LinkDirection.FROM, 10)).containsOnlyKeys("d1", "d2");
+
+      graph.removeLinks("d4", null, LinkDirection.TO, null, "e0");
+      assertThat(graph.getNeighbourCount("e0", null, LinkDirection.BOTH)).isZero();
+      assertThat(graph.getLinkCount()).isEqualTo(3);
+   }
+
+   @Test
+   public void testRemoveCollectionLinks() {
+      graph.removeLinks(COLLECTION1, COLLECTION1, ROLE1);
+      assertThat(graph.getLinkCount()).isEqualTo(2);
+      assertThat(graph.getShortestPath("d0", "d4", null, LinkDirection.FROM, 10)).containsExactly("d0", "e0", "d4");
+
+      graph.removeLinks(COLLECTION2, COLLECTION1, null);
+      assertThat(graph.getLinkCount()).isEqualTo(1);
+      assertThat(graph.getCollectionId("e0")).isEqualTo(COLLECTION2);
+   }
+
+   @Test
+   public void testRemoveDocument() {
+      graph.removeDocument("e0");
+      assertThat(graph.getDocumentCount()).isEqualTo(5);
+      assertThat(graph.getLinkCount()).isEqualTo(4);
+      assertThat(graph.getCollectionId("e0")).isNull();
+      assertThat(graph.getShortestPath("d0", "d4", null, LinkDirection.FROM, 10)).containsExactly("d0", "d1", "d2", "d3", "d4");
+
+      // the slot of the removed document is reused
+      graph.addLink(COLLECTION2, "e1", COLLECTION1, "d0", ROLE2);
+      assertThat(graph.getDocumentCount()).isEqualTo(6);
+      assertThat(graph.getReachableDocuments("e1", null, LinkDirection.FROM, 1)).containsOnlyKeys("d0");
+      assertThat(graph.getReachableDocuments("d0", ROLE2, LinkDirection.BOTH, 1)).containsOnlyKeys("e1");
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * -----------------------------------------------------------------------\
+ * Lumeer
+ *  
+ * Copyright (C) since 2016 the original author or authors.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -----------------------------------------------------------------------/
+ */
+package io.lumeer.engine.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.api.LumeerConst;
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class VersionHistoryTest {
+
+   @Test
+   public void testSnapshotVersion() {
+      assertThat(VersionHistory.getSnapshotVersion(7, 1)).isEqualTo(7);
+      assertThat(VersionHistory.getSnapshotVersion(7, 5)).isEqualTo(5);
+      assertThat(VersionHistory.getSnapshotVersion(10, 5)).isEqualTo(10);
+   }
+
+   @Test
+   public void testDelta() {
+      final DataDocument snapshot = new DataDocument(LumeerConst.Document.ID, new DataDocument(LumeerConst.Document.ID, "5a").append(LumeerConst.Document.METADATA_VERSION_KEY, 0))
+            .append(LumeerConst.Document.METADATA_VERSION_KEY, 0)
+            .append("a", 1)
+            .append("b", new DataDocument("c", 2))
+            .append("d", Arrays.asList(1, 2))
+            .append("e", "removed");
+      final DataDocument document = new DataDocument(LumeerConst.Document.ID, "5a")
+            .append(LumeerConst.Document.METADATA_VERSION_KEY, 3)
+            .append("a", 1)
+            .append("b", new DataDocument("c", 3))
+            .append("d", Arrays.asList(1, 2))
+            .append("f", "added");
+
+      final DataDocument delta = VersionHistory.createDelta(snapshot, document, 0);
+      assertThat(VersionHistory.isDelta(delta)).isTrue();
+      assertThat(VersionHistory.isDelta(snapshot)).isFalse();
+      assertThat(VersionHistory.getBaseVersion(delta)).isEqualTo(0);
+      assertThat(delta.getInteger(LumeerConst.Document.METADATA_VERSION_KEY)).isEqualTo(3);
+      assertThat(delta.getDataDocument(LumeerConst.Version.DELTA_SET_KEY)).containsOnlyKeys(LumeerConst.Document.METADATA_VERSION_KEY, "b", "f");
+      assertThat(delta.getArrayList(LumeerConst.Version.DELTA_UNSET_KEY, String.class)).containsExactly("e");
+
+      final DataDocument deltaId = new DataDocument(LumeerConst.Document.ID, "5a").append(LumeerConst.Document.METADATA_VERSION_KEY, 3);
+      delta.put(LumeerConst.Document.ID, deltaId);
+      final DataDocument reconstructed = VersionHistory.applyDelta(snapshot, delta);
+
+      assertThat(reconstructed).containsOnlyKeys(LumeerConst.Document.ID, LumeerConst.Document.METADATA_VERSION_KEY, "a", "b", "d", "f");
+      assertThat(reconstructed.get(LumeerConst.Document.ID)).isSameAs(deltaId);
+      assertThat(reconstructed.getInteger(LumeerConst.Document.METADATA_VERSION_KEY)).isEqualTo(3);
+      assertThat(reconstructed.getDataDocument("b").getInteger("c")).isEqualTo(3);
+      assertThat(reconstructed.getString("f")).isEqualTo("added");
+      assertThat(snapshot).containsKey("e");
+   }
+
+   @Test
+   public void testRetentionCutoff() {
+      final Date now = new Date();
+      final List<DataDocument> shadowDocuments = new ArrayList<>();
+      for (int version = 0; version < 10; version++) {
+         final DataDocument shadowDocument = new DataDocument(LumeerConst.Document.METADATA_VERSION_KEY, version)
+               .append(LumeerConst.Document.UPDATE_DATE_KEY, new Date(now.getTime() - TimeUnit.DAYS.toMillis(10 - version)));
+         if (version % 5 != 0) {
+            shadowDocument.append(LumeerConst.Version.DELTA_BASE_KEY, version - version % 5);
+         }
+         shadowDocuments.add(shadowDocument);
+      }
+
+      assertThat(VersionHistory.getRetentionCutoff(shadowDocuments, 0, 0, now)).isEqualTo(0);
+      assertThat(VersionHistory.getRetentionCutoff(shadowDocuments, 5, 0, now)).isEqualTo(5);
+      assertThat(VersionHistory.getRetentionCutoff(shadowDocuments, 3, 0, now)).isEqualTo(5);
+      assertThat(VersionHistory.getRetentionCutoff(shadowDocuments, 6, 0, now)).isEqualTo(0);
+      assertThat(VersionHistory.getRetentionCutoff(shadowDocuments, 0, 4, now)).isEqualTo(5);
+      assertThat(VersionHistory.getRetentionCutoff(shadowDocuments, 20, 4, now)).isEqualTo(5);
+      assertThat(VersionHistory.getRetentionCutoff(shadowDocuments, 0, 1, now)).isEqualTo(5);
+   }
+}
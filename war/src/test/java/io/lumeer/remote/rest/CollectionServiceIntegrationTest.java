@@ -61,7 +61,9 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -248,6 +250,28 @@ public class CollectionServiceIntegrationTest extends ServiceIntegrationTestBase
       assertions.assertAll();
    }
 
+   @Test
+   public void testGetCollectionNotModified() {
+      createCollection(CODE);
+
+      Response response = client.target(COLLECTIONS_URL).path(CODE)
+                                .request(MediaType.APPLICATION_JSON)
+                                .buildGet().invoke();
+      assertThat(response).isNotNull();
+      assertThat(response.getStatusInfo()).isEqualTo(Response.Status.OK);
+      EntityTag entityTag = response.getEntityTag();
+      assertThat(entityTag).isNotNull();
+      assertThat(response.getHeaderString(HttpHeaders.CACHE_CONTROL)).contains("no-cache");
+
+      Response notModifiedResponse = client.target(COLLECTIONS_URL).path(CODE)
+                                           .request(MediaType.APPLICATION_JSON)
+                                           .header(HttpHeaders.IF_NONE_MATCH, entityTag)
+                                           .buildGet().invoke();
+      assertThat(notModifiedResponse).isNotNull();
+      assertThat(notModifiedResponse.getStatusInfo()).isEqualTo(Response.Status.NOT_MODIFIED);
+      assertThat(notModifiedResponse.getEntityTag()).isEqualTo(entityTag);
+   }
+
    @Test
    public void testGetAllCollections() {
       createCollection(CODE);
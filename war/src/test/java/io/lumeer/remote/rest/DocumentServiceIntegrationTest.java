@@ -58,7 +58,9 @@ import java.util.List;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -232,6 +234,33 @@ public class DocumentServiceIntegrationTest extends ServiceIntegrationTestBase {
       assertThat(storedData).doesNotContainKey(KEY2);
    }
 
+   @Test
+   public void testUpdateDocumentIfMatch() {
+      String id = createDocument().getId();
+
+      Entity entity = Entity.json(new DataDocument(KEY1, VALUE2));
+
+      Response response = client.target(DOCUMENTS_URL).path(id).path("data")
+                                .request(MediaType.APPLICATION_JSON)
+                                .header(HttpHeaders.IF_MATCH, new EntityTag("1"))
+                                .buildPut(entity).invoke();
+      assertThat(response).isNotNull();
+      assertThat(response.getStatusInfo()).isEqualTo(Response.Status.OK);
+      assertThat(response.getEntityTag()).isEqualTo(new EntityTag("2"));
+
+      Response conflictResponse = client.target(DOCUMENTS_URL).path(id).path("data")
+                                        .request(MediaType.APPLICATION_JSON)
+                                        .header(HttpHeaders.IF_MATCH, new EntityTag("1"))
+                                        .build("PATCH", Entity.json(new DataDocument(KEY2, VALUE1))).invoke();
+      assertThat(conflictResponse).isNotNull();
+      assertThat(conflictResponse.getStatusInfo()).isEqualTo(Response.Status.CONFLICT);
+
+      assertThat(documentDao.getDocumentById(id).getDataVersion()).isEqualTo(2);
+      DataDocument storedData = dataDao.getData(collection.getId(), id);
+      assertThat(storedData).containsEntry(KEY1, VALUE2);
+      assertThat(storedData).doesNotContainKey(KEY2);
+   }
+
    @Test
    public void testPatchDocument() {
       String id = createDocument().getId();
@@ -282,6 +311,30 @@ public class DocumentServiceIntegrationTest extends ServiceIntegrationTestBase {
             .isInstanceOf(ResourceNotFoundException.class);
    }
 
+   @Test
+   public void testGetDocumentNotModified() {
+      String id = createDocument().getId();
+
+      Response response = client.target(DOCUMENTS_URL).path(id)
+                                .request(MediaType.APPLICATION_JSON)
+                                .header(HttpHeaders.IF_NONE_MATCH, new EntityTag("1"))
+                                .buildGet().invoke();
+      assertThat(response).isNotNull();
+      assertThat(response.getStatusInfo()).isEqualTo(Response.Status.NOT_MODIFIED);
+      assertThat(response.getEntityTag()).isEqualTo(new EntityTag("1"));
+      assertThat(response.getHeaderString(HttpHeaders.CACHE_CONTROL)).contains("no-cache");
+
+      dataDao.patchData(collection.getId(), id, new DataDocument(KEY1, VALUE2), null);
+
+      Response modifiedResponse = client.target(DOCUMENTS_URL).path(id)
+                                        .request(MediaType.APPLICATION_JSON)
+                                        .header(HttpHeaders.IF_NONE_MATCH, new EntityTag("1"))
+                                        .buildGet().invoke();
+      assertThat(modifiedResponse).isNotNull();
+      assertThat(modifiedResponse.getStatusInfo()).isEqualTo(Response.Status.OK);
+      assertThat(modifiedResponse.getEntityTag()).isEqualTo(new EntityTag("2"));
+   }
+
    @Test
    @Ignore("Works manually but there is unexpected exception in tests")
    public void testGetDocument() {